@@ -2720,7 +2720,7 @@ create table plugin_property (
 
 alter table plugin_property add constraint fk_plugin_plugin_property foreign key (plugin_id) references plugin(id);
 
-CREATE TABLE dist_reindex_journal ( id bigint NOT NULL IDENTITY (1, 1), inode_to_index varchar(100) NOT NULL,ident_to_index varchar(100) NOT NULL, serverid varchar(64), priority int NOT NULL, time_entered datetime DEFAULT getDate(), index_val varchar(325),dist_action integer NOT NULL DEFAULT 1);
+CREATE TABLE dist_reindex_journal ( id bigint NOT NULL IDENTITY (1, 1), inode_to_index varchar(100) NOT NULL,ident_to_index varchar(100) NOT NULL, serverid varchar(64), priority int NOT NULL, time_entered datetime DEFAULT getDate(), index_val varchar(325),dist_action integer NOT NULL DEFAULT 1, claimed_at datetime);
 
 CREATE INDEX dist_reindex_index1 on dist_reindex_journal (inode_to_index);
 CREATE INDEX dist_reindex_index2 on dist_reindex_journal (dist_action);
@@ -3504,3 +3504,10 @@ CREATE TABLE analytic_summary_user_visits (
 CREATE INDEX idx_analytic_summary_user_visits_1 ON analytic_summary_user_visits (user_id);
 CREATE INDEX idx_analytic_summary_user_visits_2 ON analytic_summary_user_visits (host_id);
 CREATE INDEX idx_analytic_summary_user_visits_3 ON analytic_summary_user_visits (last_start_date);
+
+-- Full reindex checkpoint
+CREATE TABLE reindex_checkpoint (index_name varchar(100) NOT NULL, last_identifier varchar(36), processed numeric(19,0), status varchar(16) NOT NULL, server_id varchar(36), mod_date datetime, PRIMARY KEY (index_name));
+
+-- Cache journal, read by every server from its own cursor
+CREATE TABLE cache_journal (id bigint NOT NULL IDENTITY (1, 1), object_to_index varchar(1024) NOT NULL, serverid varchar(64), time_entered datetime NOT NULL, PRIMARY KEY (id));
+CREATE TABLE cache_journal_cursor (server_id varchar(64) NOT NULL, last_id bigint NOT NULL, mod_date datetime NOT NULL, PRIMARY KEY (server_id));
@@ -2483,7 +2483,7 @@ alter table plugin_property add constraint fk_plugin_plugin_property foreign key
 CREATE TABLE `dist_process` (`id` BIGINT  NOT NULL AUTO_INCREMENT,`object_to_index` VARCHAR(1024)  NOT NULL,`serverid` VARCHAR(64)  NOT NULL,`journal_type` INTEGER  NOT NULL,`time_entered` DATETIME  NOT NULL, PRIMARY KEY (`id`));
 CREATE INDEX dist_process_index USING BTREE on dist_process (object_to_index (255), serverid,journal_type);
 
-CREATE TABLE `dist_reindex_journal` (`id` BIGINT  NOT NULL AUTO_INCREMENT,`inode_to_index` VARCHAR(100)  NOT NULL,`ident_to_index` VARCHAR(100)  NOT NULL,`serverid` VARCHAR(64),`priority` INTEGER  NOT NULL,`time_entered` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, index_val varchar(325), dist_action integer NOT NULL DEFAULT 1, PRIMARY KEY (`id`));
+CREATE TABLE `dist_reindex_journal` (`id` BIGINT  NOT NULL AUTO_INCREMENT,`inode_to_index` VARCHAR(100)  NOT NULL,`ident_to_index` VARCHAR(100)  NOT NULL,`serverid` VARCHAR(64),`priority` INTEGER  NOT NULL,`time_entered` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, index_val varchar(325), dist_action integer NOT NULL DEFAULT 1, claimed_at datetime, PRIMARY KEY (`id`));
 
 CREATE INDEX dist_reindex_index1 USING BTREE on dist_reindex_journal (inode_to_index (100));
 CREATE INDEX dist_reindex_index2 USING BTREE on dist_reindex_journal (dist_action);
@@ -3193,3 +3193,10 @@ CREATE TABLE analytic_summary_user_visits (
 CREATE INDEX idx_analytic_summary_user_visits_1 ON analytic_summary_user_visits (user_id);
 CREATE INDEX idx_analytic_summary_user_visits_2 ON analytic_summary_user_visits (host_id);
 CREATE INDEX idx_analytic_summary_user_visits_3 ON analytic_summary_user_visits (last_start_date);
+
+-- Full reindex checkpoint
+CREATE TABLE reindex_checkpoint (index_name varchar(100) NOT NULL, last_identifier varchar(36), processed bigint, status varchar(16) NOT NULL, server_id varchar(36), mod_date datetime, PRIMARY KEY (index_name));
+
+-- Cache journal, read by every server from its own cursor
+CREATE TABLE cache_journal (id bigint NOT NULL AUTO_INCREMENT, object_to_index varchar(1024) NOT NULL, serverid varchar(64), time_entered datetime NOT NULL, PRIMARY KEY (id));
+CREATE TABLE cache_journal_cursor (server_id varchar(64) NOT NULL, last_id bigint NOT NULL, mod_date datetime NOT NULL, PRIMARY KEY (server_id));
@@ -2570,6 +2570,7 @@ CREATE TABLE dist_reindex_journal (
   TIME_ENTERED TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   index_val varchar2(325) ,
   dist_action INTEGER DEFAULT 1 NOT NULL,
+  claimed_at TIMESTAMP,
   PRIMARY KEY (ID) VALIDATE);
 
 CREATE INDEX dist_reindex_index1 on dist_reindex_journal (inode_to_index);
@@ -3462,3 +3463,19 @@ CREATE TABLE analytic_summary_user_visits (
 CREATE INDEX idx_analytic_user_visits_1 ON analytic_summary_user_visits (user_id);
 CREATE INDEX idx_analytic_user_visits_2 ON analytic_summary_user_visits (host_id);
 CREATE INDEX idx_analytic_user_visits_3 ON analytic_summary_user_visits (last_start_date);
+
+-- Full reindex checkpoint
+CREATE TABLE reindex_checkpoint (index_name varchar2(100) NOT NULL, last_identifier varchar2(36), processed number(19,0), status varchar2(16) NOT NULL, server_id varchar2(36), mod_date timestamp, PRIMARY KEY (index_name));
+
+-- Cache journal, read by every server from its own cursor
+CREATE TABLE cache_journal (id number(19,0) NOT NULL, object_to_index varchar2(1024) NOT NULL, serverid varchar2(64), time_entered timestamp NOT NULL, PRIMARY KEY (id));
+CREATE SEQUENCE cache_journal_id_seq START WITH 1 INCREMENT BY 1;
+create trigger cache_journal_trg
+before insert on cache_journal
+for each row
+when (new.id is null)
+begin
+select cache_journal_id_seq.nextval into :new.id from dual;
+end;
+/
+CREATE TABLE cache_journal_cursor (server_id varchar2(64) NOT NULL, last_id number(19,0) NOT NULL, mod_date timestamp NOT NULL, PRIMARY KEY (server_id));
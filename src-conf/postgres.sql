@@ -2510,6 +2510,7 @@ CREATE TABLE dist_reindex_journal
   time_entered timestamp without time zone NOT NULL DEFAULT CURRENT_DATE,
   index_val varchar(325),
   dist_action integer NOT NULL DEFAULT 1,
+  claimed_at timestamp,
   CONSTRAINT dist_reindex_journal_pkey PRIMARY KEY (id)
 );
 
@@ -3355,3 +3356,10 @@ CREATE TABLE analytic_summary_user_visits (
 CREATE INDEX idx_analytic_summary_user_visits_1 ON analytic_summary_user_visits (user_id);
 CREATE INDEX idx_analytic_summary_user_visits_2 ON analytic_summary_user_visits (host_id);
 CREATE INDEX idx_analytic_summary_user_visits_3 ON analytic_summary_user_visits (last_start_date);
+
+-- Full reindex checkpoint
+CREATE TABLE reindex_checkpoint (index_name varchar(100) NOT NULL, last_identifier varchar(36), processed int8, status varchar(16) NOT NULL, server_id varchar(36), mod_date timestamp, PRIMARY KEY (index_name));
+
+-- Cache journal, read by every server from its own cursor
+CREATE TABLE cache_journal (id bigserial NOT NULL, object_to_index varchar(1024) NOT NULL, serverid varchar(64), time_entered timestamp NOT NULL, PRIMARY KEY (id));
+CREATE TABLE cache_journal_cursor (server_id varchar(64) NOT NULL, last_id int8 NOT NULL, mod_date timestamp NOT NULL, PRIMARY KEY (server_id));
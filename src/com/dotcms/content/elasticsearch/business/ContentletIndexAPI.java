@@ -62,6 +62,13 @@ public interface ContentletIndexAPI {
 	public void addContentToIndex(final Contentlet content, final boolean deps, boolean indexBeforeCommit, final boolean reindexOnly,
 			final BulkRequestBuilder bulk) throws DotHibernateException;
 
+	/**
+	 * Adds the index requests of the given contentlets to the bulk, the data needed to build their documents is loaded
+	 * for all of them at once. Dependencies are not reindexed. Nothing is added to the bulk when it fails.
+	 */
+	public void addContentToIndex(final List<Contentlet> contentlets, final boolean reindexOnly, final BulkRequestBuilder bulk)
+			throws DotDataException;
+
 	public void removeContentFromIndex(final Contentlet content) throws DotHibernateException;
 
 	public void removeContentFromIndex(final Contentlet content, final boolean onlyLive) throws DotHibernateException;
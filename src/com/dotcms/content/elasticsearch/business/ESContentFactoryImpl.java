@@ -8,8 +8,10 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
@@ -28,6 +30,7 @@ import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -53,6 +56,7 @@ import com.dotmarketing.business.query.SimpleCriteria;
 import com.dotmarketing.business.query.ValidationException;
 import com.dotmarketing.cache.FieldsCache;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.util.SQLUtil;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -892,41 +896,55 @@ public class ESContentFactoryImpl extends ContentletFactory {
 		return findContentletByIdentifier(identifier.getId(), false, languageId);
 	}
 
+	/**
+	 * Returns the contentlets of the given inodes in the same order. The ones not in cache
+	 * are loaded with one parameterized query per batch and added to the cache.
+	 */
 	@Override
 	protected List<Contentlet> findContentlets(List<String> inodes) throws DotDataException, DotStateException, DotSecurityException {
-		
-	    ArrayList<Contentlet> result = new ArrayList<Contentlet>();
-        ArrayList<String> inodesNotFound = new ArrayList<String>();
-        for (String i : inodes) {
+
+	    Set<String> uniqueInodes = new LinkedHashSet<String>(inodes);
+	    Map<String, Contentlet> found = new HashMap<String, Contentlet>(uniqueInodes.size());
+        List<String> inodesNotFound = new ArrayList<String>();
+        for (String i : uniqueInodes) {
             Contentlet c = cc.get(i);
             if(c != null && InodeUtils.isSet(c.getInode())){
-                result.add(c);
+                found.put(i, c);
             } else {
                 inodesNotFound.add(i);
             }
         }
-        if(inodesNotFound.isEmpty()){
-            return result;
-        }
 
         final String hql = "select {contentlet.*} from contentlet join inode contentlet_1_ " +
-                "on contentlet_1_.inode = contentlet.inode and contentlet_1_.type = 'contentlet' where  contentlet.inode in ('";
-        
-        for(int init=0; init < inodesNotFound.size(); init+=200) {
-            int end = Math.min(init + 200, inodesNotFound.size());
-            
+                "on contentlet_1_.inode = contentlet.inode and contentlet_1_.type = 'contentlet' where  contentlet.inode in (";
+
+        int batchSize = Config.getIntProperty("BULK_LOAD_BATCH_SIZE", 200);
+        for(int init=0; init < inodesNotFound.size(); init+=batchSize) {
+            List<String> batch = inodesNotFound.subList(init, Math.min(init + batchSize, inodesNotFound.size()));
+
             HibernateUtil hu = new HibernateUtil(com.dotmarketing.portlets.contentlet.business.Contentlet.class);
-            hu.setSQLQuery( hql + StringUtils.join(inodesNotFound.subList(init, end), "','") + "')");
-            
+            hu.setSQLQuery(hql + SQLUtil.placeholders(batch.size()) + ")");
+            for (String inode : batch) {
+                hu.setParam(inode);
+            }
+
             List<com.dotmarketing.portlets.contentlet.business.Contentlet> fatties =  hu.list();
             for (com.dotmarketing.portlets.contentlet.business.Contentlet fatty : fatties) {
                 Contentlet con = convertFatContentletToContentlet(fatty);
-                result.add(con);
+                found.put(con.getInode(), con);
                 cc.add(con.getInode(), con);
+                // only the loaded rows leave the session, the rest of the unit of work is kept
+                HibernateUtil.evict(fatty);
+            }
+        }
+
+        List<Contentlet> result = new ArrayList<Contentlet>(found.size());
+        for (String i : uniqueInodes) {
+            Contentlet c = found.get(i);
+            if(c != null) {
+                result.add(c);
             }
-            HibernateUtil.getSession().clear();
         }
-        
         return result;
 	}
 
@@ -1184,6 +1202,17 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	}
 
 	protected long indexCount(String query) {
+	    return indexCount(query, null);
+	}
+
+	/**
+	 * Counts the contentlets matching the query and the given filter
+	 *
+	 * @param query
+	 * @param filter non scoring filter applied to the query, i.e. the permissions of the user. Can be null
+	 * @return
+	 */
+	protected long indexCount(String query, FilterBuilder filter) {
 	    String qq=findAndReplaceQueryDates(translateQuery(query, null).getQuery());
 
 	    // we check the query to figure out wich indexes to hit
@@ -1204,7 +1233,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
         Client client=new ESClient().getClient();
         QueryStringQueryBuilder qb = QueryBuilders.queryString(qq);
         CountRequestBuilder crb = client.prepareCount();
-        crb.setQuery(qb);
+        crb.setQuery(filter!=null ? QueryBuilders.filteredQuery(qb, filter) : qb);
         crb.setIndices(indexToHit);
         return crb.execute().actionGet().getCount();
 	}
@@ -1217,7 +1246,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
      * @return
      */
     private SearchRequestBuilder createRequest(Client client, String query) {
-		return createRequest(client, query, null);
+		return createRequest(client, query, null, null);
 	}
 
     /**
@@ -1225,25 +1254,29 @@ public class ESContentFactoryImpl extends ContentletFactory {
      * @param client
      * @param query
      * @param sortBy i.e. "random" or null object.
+     * @param filter non scoring filter applied to the query, i.e. the permissions of the user. Can be null
      * @return
      */
-    private SearchRequestBuilder createRequest(Client client, String query, String sortBy) {
-    	
-    	
-    	
-    	
+    private SearchRequestBuilder createRequest(Client client, String query, String sortBy, FilterBuilder filter) {
         if(Config.getBooleanProperty("ELASTICSEARCH_USE_FILTERS_FOR_SEARCHING",false) && sortBy!=null && ! sortBy.toLowerCase().startsWith("score")) {
 
+            FilterBuilder postFilter = FilterBuilders.queryFilter(QueryBuilders.queryString(query)).cache(true);
+            if(filter!=null) {
+                postFilter = FilterBuilders.boolFilter().must(postFilter).must(filter);
+            }
+
             if("random".equals(sortBy)){
                 return client.prepareSearch()
                         .setQuery(QueryBuilders.functionScoreQuery(QueryBuilders.matchAllQuery(), new RandomScoreFunctionBuilder()))
-                        .setPostFilter(FilterBuilders.queryFilter(QueryBuilders.queryString(query)).cache(true));
+                        .setPostFilter(postFilter);
             } else {
                 return client.prepareSearch()
                         .setQuery(QueryBuilders.matchAllQuery())
-                        .setPostFilter(FilterBuilders.queryFilter(QueryBuilders.queryString(query)).cache(true));
+                        .setPostFilter(postFilter);
             }
 
+        } else if(filter!=null) {
+            return client.prepareSearch().setQuery(QueryBuilders.filteredQuery(QueryBuilders.queryString(query), filter));
         } else {
             return client.prepareSearch().setQuery(QueryBuilders.queryString(query));
         }
@@ -1251,6 +1284,20 @@ public class ESContentFactoryImpl extends ContentletFactory {
 
 	@Override
 	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy) {
+	    return indexSearch(query, limit, offset, sortBy, null);
+	}
+
+	/**
+	 * Searches the contentlets matching the query and the given filter
+	 *
+	 * @param query
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param filter non scoring filter applied to the query, i.e. the permissions of the user. Can be null
+	 * @return
+	 */
+	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy, FilterBuilder filter) {
 	    String qq=findAndReplaceQueryDates(translateQuery(query, sortBy).getQuery());
 
 	    // we check the query to figure out wich indexes to hit
@@ -1272,7 +1319,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	    SearchResponse resp = null;
         try {
 
-        	SearchRequestBuilder srb = createRequest(client, qq, sortBy);
+        	SearchRequestBuilder srb = createRequest(client, qq, sortBy, filter);
 
         	srb.setIndices(indexToHit);
         	srb.addFields("inode","identifier");
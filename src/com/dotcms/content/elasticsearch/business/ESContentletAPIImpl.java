@@ -18,6 +18,7 @@ import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -38,8 +39,12 @@ import com.dotcms.repackage.com.thoughtworks.xstream.XStream;
 import com.dotcms.repackage.com.thoughtworks.xstream.io.xml.DomDriver;
 import com.dotcms.repackage.org.apache.commons.io.FileUtils;
 import com.dotcms.repackage.org.apache.commons.lang.StringUtils;
+import com.dotcms.tika.TikaUtils;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import com.dotcms.repackage.org.jboss.util.Strings;
@@ -65,6 +70,7 @@ import com.dotmarketing.cache.WorkingCache;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.common.model.ContentletSearch;
+import com.dotmarketing.common.reindex.FullReindexStreamer;
 import com.dotmarketing.common.reindex.ReindexThread;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -547,16 +553,8 @@ public class ESContentletAPIImpl implements ContentletAPI {
             inodes.add(conwrap.getInode());
         }
 
-
-        List<Contentlet> contentlets = findContentlets(inodes);
-        Map<String, Contentlet> map = new HashMap<String, Contentlet>(contentlets.size());
-        for (Contentlet contentlet : contentlets) {
-            map.put(contentlet.getInode(), contentlet);
-        }
-        for (String inode : inodes) {
-            if(map.get(inode) != null)
-                contents.add(map.get(inode));
-        }
+        // findContentlets keeps the order of the inodes
+        contents.addAll(findContentlets(inodes));
         return contents;
 
     }
@@ -574,51 +572,80 @@ public class ESContentletAPIImpl implements ContentletAPI {
         PaginatedArrayList <ContentletSearch> list =(PaginatedArrayList)searchIndex(luceneQuery, limit, offset, sortBy, user, respectFrontendRoles);
         contents.setTotalResults(list.getTotalResults());
 
-        List<String> identifierList = new ArrayList<String>();
+        List<String> hitIdentifiers = new ArrayList<String>(list.size());
         for(ContentletSearch conwrap: list){
-            String ident=conwrap.getIdentifier();
-            Identifier ii=APILocator.getIdentifierAPI().find(ident);
-            if(ii!=null && UtilMethods.isSet(ii.getId()))
-                identifierList.add(ident);
+            hitIdentifiers.add(conwrap.getIdentifier());
         }
-        String[] identifiers=new String[identifierList.size()];
-        identifiers=identifierList.toArray(identifiers);
 
-        List<Contentlet> contentlets = new ArrayList<Contentlet>();
+        // existing identifiers only, in the order of the hits and without duplicates
+        List<String> identifiers = new ArrayList<String>(hitIdentifiers.size());
+        for(Identifier ii : APILocator.getIdentifierAPI().find(hitIdentifiers)){
+            identifiers.add(ii.getId());
+        }
+
+        List<Long> languageIds = new ArrayList<Long>();
         if(anyLanguage){//GIT-816
-        	for(String identifier : identifiers){
-        		for(Language lang : APILocator.getLanguageAPI().getLanguages()){
-                	try{
-                		Contentlet languageContentlet = null;
-                		try{
-                			languageContentlet = findContentletByIdentifier(identifier, false, lang.getId(), user, respectFrontendRoles);
-                		}catch (DotContentletStateException e) {
-                			Logger.debug(this,e.getMessage(),e);
-						}
-                		if(languageContentlet != null && UtilMethods.isSet(languageContentlet.getInode())){
-                			contentlets.add(languageContentlet);
-                			break;
-                		}
-                    }catch(DotContentletStateException se){
-                    	Logger.debug(this, se.getMessage());
-                    }
-                }
-        	}
+            for(Language lang : APILocator.getLanguageAPI().getLanguages()){
+                languageIds.add(lang.getId());
+            }
         }else{
-        	contentlets = findContentletsByIdentifiers(identifiers, false, APILocator.getLanguageAPI().getDefaultLanguage().getId(), user, respectFrontendRoles);
+            languageIds.add(APILocator.getLanguageAPI().getDefaultLanguage().getId());
         }
 
-        Map<String, Contentlet> map = new HashMap<String, Contentlet>(contentlets.size());
-        for (Contentlet contentlet : contentlets) {
-            map.put(contentlet.getIdentifier(), contentlet);
-        }
-        for (String identifier : identifiers) {
-            if(map.get(identifier) != null && !contents.contains(map.get(identifier))){
-                contents.add(map.get(identifier));
+        contents.addAll(findContentletsByIdentifiers(identifiers, false, languageIds, user, respectFrontendRoles));
+        return contents;
+
+    }
+
+    /**
+     * Loads the contentlets of a whole page of identifiers. The version info and the contentlets are taken from cache
+     * and the misses are loaded with one query per batch, instead of several queries per identifier. When more than one
+     * language is given every identifier gets the version of the first language it has one in.
+     *
+     * @return the contentlets in the order of the identifiers, once for an identifier given twice. Identifiers without a
+     * version in the languages are skipped
+     * @throws DotSecurityException if the user can't read one of the contentlets
+     */
+    List<Contentlet> findContentletsByIdentifiers(List<String> identifiers, boolean live, List<Long> languageIds, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException {
+        Map<String, String> inodes = new HashMap<String, String>(identifiers.size());
+        List<String> pending = identifiers;
+        for (Long languageId : languageIds) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            Map<String, ContentletVersionInfo> infos = APILocator.getVersionableAPI().getContentletVersionInfos(pending, languageId);
+            List<String> notFound = new ArrayList<String>();
+            for (String identifier : pending) {
+                ContentletVersionInfo info = infos.get(identifier);
+                String inode = info == null ? null : live ? info.getLiveInode() : info.getWorkingInode();
+                if (UtilMethods.isSet(inode)) {
+                    inodes.put(identifier, inode);
+                } else {
+                    notFound.add(identifier);
+                }
             }
+            pending = notFound;
         }
-        return contents;
 
+        Map<String, Contentlet> contentletsByInode = new HashMap<String, Contentlet>(inodes.size());
+        for (Contentlet contentlet : conFac.findContentlets(new ArrayList<String>(inodes.values()))) {
+            contentletsByInode.put(contentlet.getInode(), contentlet);
+        }
+
+        List<Contentlet> contentlets = new ArrayList<Contentlet>(contentletsByInode.size());
+        for (String identifier : new LinkedHashSet<String>(identifiers)) {
+            String inode = inodes.get(identifier);
+            Contentlet contentlet = inode != null ? contentletsByInode.get(inode) : null;
+            if (contentlet == null) {
+                continue;
+            }
+            if (!perAPI.doesUserHavePermission(contentlet, PermissionAPI.PERMISSION_READ, user, respectFrontendRoles)) {
+                Object u = (user == null) ? user : user.getUserId();
+                throw new DotSecurityException("User:" + u + " does not have permissions to Contentlet:" + inode);
+            }
+            contentlets.add(contentlet);
+        }
+        return contentlets;
     }
 
     public void addPermissionsToQuery(StringBuffer buffy, User user, List<Role> roles, boolean respectFrontendRoles) throws DotSecurityException, DotDataException  {
@@ -642,6 +669,35 @@ public class ESContentletAPIImpl implements ContentletAPI {
         buffy.append(")");
     }
 
+    /**
+     * Builds the same constraint as {@link #addPermissionsToQuery(StringBuffer, User, List, boolean)} as a non scoring
+     * filter. The read permission of every role is matched with one exact terms filter instead of a wildcard clause per
+     * role, so ES can cache it and reuse it for every user with the same roles.
+     */
+    protected FilterBuilder buildPermissionFilter(User user, List<Role> roles, boolean respectFrontendRoles) throws DotDataException {
+        List<String> terms = new ArrayList<String>(roles.size() + 2);
+        for (Role role : roles) {
+            terms.add(ESMappingAPIImpl.permissionTerm(role.getId(), PermissionAPI.PERMISSION_READ).toLowerCase());
+        }
+        if(respectFrontendRoles) {
+            terms.add(ESMappingAPIImpl.permissionTerm(APILocator.getRoleAPI().loadCMSAnonymousRole().getId(), PermissionAPI.PERMISSION_READ).toLowerCase());
+            if (user != null && !user.getUserId().equals("anonymous")) {
+                terms.add(ESMappingAPIImpl.permissionTerm(APILocator.getRoleAPI().loadLoggedinSiteRole().getId(), PermissionAPI.PERMISSION_READ).toLowerCase());
+            }
+        }
+
+        BoolFilterBuilder filter = FilterBuilders.boolFilter();
+        if(user != null) {
+            filter.should(FilterBuilders.boolFilter()
+                    .must(FilterBuilders.termFilter("owner", user.getUserId().toLowerCase()))
+                    .must(FilterBuilders.termFilter("ownercanread", "true")));
+        }
+        if(!terms.isEmpty()) {
+            filter.should(FilterBuilders.termsFilter("permissions", terms).cache(true));
+        }
+        return filter;
+    }
+
     public List <ContentletSearch> searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles)throws DotSecurityException, DotDataException {
         boolean isAdmin = false;
         List<Role> roles = new ArrayList<Role>();
@@ -658,8 +714,13 @@ public class ESContentletAPIImpl implements ContentletAPI {
         StringBuffer buffy = new StringBuffer(luceneQuery);
 
         // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        FilterBuilder permissionFilter = null;
+        if (!isAdmin) {
+            if (Config.getBooleanProperty("ELASTICSEARCH_PERMISSION_FILTER", true))
+                permissionFilter = buildPermissionFilter(user, roles, respectFrontendRoles);
+            else
+                addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        }
 
         int originalLimit = limit;
         if(UtilMethods.isSet(sortBy) && sortBy.trim().equalsIgnoreCase("random")){
@@ -668,7 +729,7 @@ public class ESContentletAPIImpl implements ContentletAPI {
         if(limit>MAX_LIMIT || limit <=0){
             limit = MAX_LIMIT;
         }
-        SearchHits lc = conFac.indexSearch(buffy.toString(), limit, offset, sortBy);
+        SearchHits lc = conFac.indexSearch(buffy.toString(), limit, offset, sortBy, permissionFilter);
         PaginatedArrayList <ContentletSearch> list=new PaginatedArrayList<ContentletSearch>();
         list.setTotalResults(lc.getTotalHits());
 
@@ -1747,14 +1808,17 @@ public class ESContentletAPIImpl implements ContentletAPI {
             	return;
             }
             // we prepare the new index and aliases to point both old and new
-            indexAPI.setUpFullReindex();
+            String timeStamp = indexAPI.setUpFullReindex();
 
             // wait a bit while ES do its distribution work and new
             // index/aliases become available
             Thread.sleep(10000L);
 
-            // new records to index
-            distAPI.addBuildNewIndexEntries();
+            // new records to index, streamed by the reindex thread or all added to the journal
+            if(FullReindexStreamer.isEnabled())
+                FullReindexStreamer.prepare(ContentletIndexAPI.ES_WORKING_INDEX_NAME + "_" + timeStamp);
+            else
+                distAPI.addBuildNewIndexEntries();
 
             // then we let the reindexThread start working
             ReindexThread.getInstance().unlockCluster();
@@ -2433,6 +2497,8 @@ public class ESContentletAPIImpl implements ContentletAPI {
 
 
         String syncMe = (UtilMethods.isSet(contentlet.getIdentifier())) ? contentlet.getIdentifier() : UUIDGenerator.generateUuid();
+        // file asset whose metadata is parsed once the checkin is saved and committed
+        String metaDataInode = null;
 
         synchronized (syncMe) {
             boolean saveWithExistingID=false;
@@ -2981,7 +3047,15 @@ public class ESContentletAPIImpl implements ContentletAPI {
 				            String desc = UtilMethods.getFileName(binFile.getName());
 				            contentlet.setProperty(FileAssetAPI.DESCRIPTION, desc);
 				        }
-				        Map<String, String> metaMap = APILocator.getFileAssetAPI().getMetaDataMap(contentlet, binFile);
+				        Map<String, String> metaMap;
+				        if(Config.getBooleanProperty("TIKA_ASYNC_EXTRACTION", true)) {
+				            // size and type for now, the rest is parsed once this checkin commits
+				            metaMap = new TikaUtils().getBasicMetaDataMap(binFile);
+				            metaDataInode = contentlet.getInode();
+				        }
+				        else {
+				            metaMap = APILocator.getFileAssetAPI().getMetaDataMap(contentlet, binFile);
+				        }
 
 				        if(metaMap!=null) {
 				            Gson gson = new GsonBuilder().disableHtmlEscaping().create();
@@ -3115,6 +3189,16 @@ public class ESContentletAPIImpl implements ContentletAPI {
 
         } // end syncronized block
 
+        if(metaDataInode!=null) {
+            // registered once everything was saved and indexed, without a transaction it runs right away
+            final String metaInode = metaDataInode;
+            HibernateUtil.addCommitListener("metaData:" + metaInode, new Runnable() {
+                public void run() {
+                    FileMetaDataExtractor.getInstance().submit(metaInode);
+                }
+            });
+        }
+
         ActivityLogger.logInfo(getClass(), "Content Saved", "StartDate: " +contentPushPublishDate+ "; "
          		+ "EndDate: " +contentPushExpireDate + "; User:" + user.getUserId() + "; ContentIdentifier: " + contentlet.getIdentifier(), contentlet.getHost());
 
@@ -5093,10 +5177,15 @@ public class ESContentletAPIImpl implements ContentletAPI {
         StringBuffer buffy = new StringBuffer(luceneQuery);
 
         // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        FilterBuilder permissionFilter = null;
+        if (!isAdmin) {
+            if (Config.getBooleanProperty("ELASTICSEARCH_PERMISSION_FILTER", true))
+                permissionFilter = buildPermissionFilter(user, roles, respectFrontendRoles);
+            else
+                addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        }
 
-        return conFac.indexCount(buffy.toString());
+        return conFac.indexCount(buffy.toString(), permissionFilter);
     }
 
 	@Override
@@ -315,16 +315,42 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 	    }	    
 	}
 
+	public void addContentToIndex(final List<Contentlet> contentlets, final boolean reindexOnly, final BulkRequestBuilder bulk) throws DotDataException {
+
+	    List<Contentlet> contentToIndex=new ArrayList<Contentlet>();
+	    for(Contentlet con : contentlets) {
+	        if(con!=null && UtilMethods.isSet(con.getIdentifier()))
+	            contentToIndex.add(con);
+	    }
+	    if(contentToIndex.isEmpty()) return;
+
+	    try {
+	        // all the documents are built before touching the bulk
+	        Map<String,Map<String,Object>> maps=mappingAPI.toMaps(contentToIndex);
+	        indexContentletList(bulk, contentToIndex, maps, reindexOnly);
+	    }
+	    catch(DotMappingException | DotSecurityException e) {
+	        throw new DotDataException(e.getMessage(), e);
+	    }
+	}
+
 	private void indexContentletList(BulkRequestBuilder req, List<Contentlet> contentToIndex, boolean reindexOnly) throws DotStateException, DotDataException, DotSecurityException, DotMappingException {
+	    indexContentletList(req, contentToIndex, contentToIndex.size()>1 ? mappingAPI.toMaps(contentToIndex) : null, reindexOnly);
+	}
 
+	/**
+	 * @param maps documents already built keyed by inode, null to build them here
+	 */
+	private void indexContentletList(BulkRequestBuilder req, List<Contentlet> contentToIndex, Map<String,Map<String,Object>> maps, boolean reindexOnly) throws DotStateException, DotDataException, DotSecurityException, DotMappingException {
+
+        IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
+        Gson gson=new Gson();
 		for(Contentlet con : contentToIndex) {
             String id=con.getIdentifier()+"_"+con.getLanguageId();
-            IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
-            Gson gson=new Gson();
             String mapping=null;
             try {
                 if(con.isWorking()) {
-                    mapping=gson.toJson(mappingAPI.toMap(con));
+                    mapping=gson.toJson(maps!=null ? maps.get(con.getInode()) : mappingAPI.toMap(con));
                     
                     if(!reindexOnly)
                         req.add(new IndexRequest(info.working, "content", id)
@@ -336,7 +362,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
     
                 if(con.isLive()) {
                     if(mapping==null)
-                        mapping=gson.toJson(mappingAPI.toMap(con));
+                        mapping=gson.toJson(maps!=null ? maps.get(con.getInode()) : mappingAPI.toMap(con));
                     
                     if(!reindexOnly)
                         req.add(new IndexRequest(info.live, "content", id)
@@ -11,6 +11,7 @@ import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,7 +33,6 @@ import com.dotmarketing.beans.Permission;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotStateException;
-import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.cache.FieldsCache;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.exception.DotDataException;
@@ -183,17 +183,50 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	 * Jun 7, 2013 - 3:47:26 PM
 	 */
 	public Map<String,Object> toMap(Contentlet con) throws DotMappingException {
+		return toMap(con, null);
+	}
+
+	/**
+	 * Same as {@link #toMap(Contentlet)} for several contentlets. The identifiers, version info, categories,
+	 * permissions and relationships of all of them are loaded with a few queries instead of a few per contentlet.
+	 *
+	 * @param contentlets
+	 * @return the maps keyed by contentlet inode
+	 * @throws DotMappingException
+	 */
+	public Map<String,Map<String,Object>> toMaps(List<Contentlet> contentlets) throws DotMappingException {
+		MappingPrefetch prefetch;
+		try {
+			prefetch = MappingPrefetch.load(contentlets);
+		} catch (DotDataException e) {
+			throw new DotMappingException(e.getMessage(), e);
+		}
+
+		Map<String,Map<String,Object>> maps = new HashMap<String,Map<String,Object>>();
+		for(Contentlet con : contentlets) {
+			maps.put(con.getInode(), toMap(con, prefetch));
+		}
+		return maps;
+	}
+
+	private Map<String,Object> toMap(Contentlet con, MappingPrefetch prefetch) throws DotMappingException {
 		try {
 
 			Map<String,String> m = new HashMap<String,String>();
 			Map<String,Object> mlowered=new HashMap<String,Object>();
-			loadCategories(con, m);
+			loadCategories(con, m, prefetch!=null ? prefetch.getCategories(con.getInode()) : null);
 			loadFields(con, m);
-			loadPermissions(con, m);
-			loadRelationshipFields(con, m);
+			loadPermissions(con, m, prefetch!=null ? prefetch.getPermissions(con.getPermissionId()) : null);
+			loadRelationshipFields(con, m, prefetch!=null ? prefetch.getRelationships(con.getIdentifier()) : null);
 
-			Identifier ident = APILocator.getIdentifierAPI().find(con);
-			ContentletVersionInfo cvi = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), con.getLanguageId());
+			Identifier ident = prefetch!=null ? prefetch.getIdentifier(con.getIdentifier()) : null;
+			if(ident==null) {
+				ident = APILocator.getIdentifierAPI().find(con);
+			}
+			ContentletVersionInfo cvi = prefetch!=null ? prefetch.getVersionInfo(ident.getId(), con.getLanguageId()) : null;
+			if(cvi==null) {
+				cvi = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), con.getLanguageId());
+			}
 			Structure st=CacheLocator.getContentTypeCache().getStructureByInode(con.getStructureInode());
 
 			Folder conFolder=APILocator.getFolderAPI().findFolderByPath(ident.getParentPath(), ident.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
@@ -297,8 +330,14 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		return toJson(con);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadCategories(Contentlet con, Map<String,String> m) throws DotDataException, DotSecurityException {
+		loadCategories(con, m, null);
+	}
+
+	/**
+	 * @param prefetched velocity var names of the categories of the contentlet, null to load them
+	 */
+	private void loadCategories(Contentlet con, Map<String,String> m, List<String> prefetched) throws DotDataException, DotSecurityException {
 	    // first we check if there is a category field in the structure. We don't hit db if not needed
 	    boolean thereiscategory=false;
 	    Structure st=CacheLocator.getContentTypeCache().getStructureByInode(con.getStructureInode());
@@ -309,7 +348,11 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 
 	    String categoriesString="";
 
-	    if(thereiscategory) {
+	    if(thereiscategory && prefetched!=null) {
+	        loadCategoryFields(st, fields, prefetched, m);
+	        categoriesString=UtilMethods.join(prefetched, " ").trim();
+	    }
+	    else if(thereiscategory) {
     	    String categoriesSQL = "select category.category_velocity_var_name as cat_velocity_var "+
                     " from  category join tree on (tree.parent = category.inode) join contentlet c on (c.inode = tree.child) " +
                     " where c.inode = ?";
@@ -323,6 +366,13 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 
     	    categoriesString=UtilMethods.join(categories, " ").trim();
 
+    	    loadCategoryFields(st, fields, categories, m);
+	    }
+
+        m.put("categories", categoriesString);
+	}
+
+	private void loadCategoryFields(Structure st, List<Field> fields, List<String> categories, Map<String,String> m) throws DotDataException, DotSecurityException {
 	        for(Field f : fields) {
 	            if(f.getFieldType().equals(FieldType.CATEGORY.toString())) {
     	            String catString="";
@@ -349,24 +399,25 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
     	            m.put(st.getVelocityVarName() + "." + f.getVelocityVarName(), catString);
 	            }
 	        }
-	    }
-
-        m.put("categories", categoriesString);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadPermissions(Contentlet con, Map<String,String> m) throws DotDataException {
-        PermissionAPI permissionAPI = APILocator.getPermissionAPI();
-        List<Permission> permissions = permissionAPI.getPermissions(con, false, false, false);
-        StringBuilder permissionsSt = new StringBuilder();
+		loadPermissions(con, m, null);
+	}
+
+	/**
+	 * @param permissions permissions of the contentlet, null to load them
+	 */
+	private void loadPermissions(Contentlet con, Map<String,String> m, List<Permission> permissions) throws DotDataException {
+        if(permissions==null) {
+            permissions = APILocator.getPermissionAPI().getPermissions(con, false, false, false);
+        }
+        Set<String> permissionTerms = new LinkedHashSet<String>();
         boolean ownerCanRead = false;
         boolean ownerCanWrite = false;
         boolean ownerCanPub = false;
         for (Permission permission : permissions) {
-            String str = "P" + permission.getRoleId() + "." + permission.getPermission() + "P ";
-            if (permissionsSt.toString().indexOf(str) < 0) {
-                permissionsSt.append(str);
-            }
+            permissionTerms.add(permissionTerm(permission.getRoleId(), permission.getPermission()));
             if(APILocator.getRoleAPI().loadCMSOwnerRole().getId().equals(String.valueOf(permission.getRoleId()))){
                 if(permission.getPermission() == PERMISSION_READ){
                     ownerCanRead = true;
@@ -380,12 +431,25 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
                 }
             }
         }
+        StringBuilder permissionsSt = new StringBuilder();
+        for (String term : permissionTerms) {
+            permissionsSt.append(term).append(' ');
+        }
         m.put("permissions", permissionsSt.toString());
         m.put("ownerCanRead", Boolean.toString(ownerCanRead));
         m.put("ownerCanWrite", Boolean.toString(ownerCanWrite));
         m.put("ownerCanPublish", Boolean.toString(ownerCanPub));
 	}
 
+	/**
+	 * Term indexed in the permissions field for a role holding a single permission bit.
+	 * The field is lowercased and split on whitespace, so every term can be matched exactly
+	 * with a terms filter on its lowercased value.
+	 */
+	public static String permissionTerm(String roleId, int permission) {
+		return "P" + roleId + "." + permission + "P";
+	}
+
 	public static final FastDateFormat dateFormat = FastDateFormat.getInstance("yyyyMMdd");
 	public static final FastDateFormat datetimeFormat = FastDateFormat.getInstance("yyyyMMddHHmmss");
 
@@ -602,12 +666,22 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	}
 
 	protected void loadRelationshipFields(Contentlet con, Map<String,String> m) throws DotStateException, DotDataException {
-	    DotConnect db = new DotConnect();
-        db.setSQL("select * from tree where parent = ? or child = ? order by tree_order asc");
-        db.addParam(con.getIdentifier());
-        db.addParam(con.getIdentifier());
+		loadRelationshipFields(con, m, null);
+	}
+
+	/**
+	 * @param treeEntries tree rows where the contentlet is the parent or the child ordered by tree_order, null to load them
+	 */
+	private void loadRelationshipFields(Contentlet con, Map<String,String> m, List<Map<String, Object>> treeEntries) throws DotStateException, DotDataException {
+	    if(treeEntries==null) {
+	        DotConnect db = new DotConnect();
+	        db.setSQL("select * from tree where parent = ? or child = ? order by tree_order asc");
+	        db.addParam(con.getIdentifier());
+	        db.addParam(con.getIdentifier());
+	        treeEntries = db.loadObjectResults();
+	    }
 
-        for(Map<String, Object> relatedEntry : db.loadObjectResults()) {
+        for(Map<String, Object> relatedEntry : treeEntries) {
 
             String childId = relatedEntry.get("child").toString();
             String parentId = relatedEntry.get("parent").toString();
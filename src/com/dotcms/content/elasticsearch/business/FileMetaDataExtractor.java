@@ -0,0 +1,414 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotcms.repackage.com.google.gson.Gson;
+import com.dotcms.repackage.com.google.gson.GsonBuilder;
+import com.dotcms.tika.TikaUtils;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.cache.LiveCache;
+import com.dotmarketing.cache.WorkingCache;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Parses the metadata of the files checked in as file assets outside of the checkin, so uploading a big document does
+ * not hold the request and its transaction while Tika reads it. The checkin stores the size and content type of the
+ * file, and once it commits the file is queued here to be parsed, saved in the {@code metaData} field and reindexed.
+ * <p>
+ * The queue is bounded: when it is full the checkin waits a little for room, and then leaves the file in a retry
+ * queue of the same size that the workers take from after every file. A file that finds both full keeps only its
+ * size and content type. The checkin never parses the file itself.
+ * </p>
+ * <p>
+ * Every submitted file leaves an empty file named after its inode in the pending directory until its metadata is
+ * saved, so the files still queued, retried or dropped when the server stops or crashes are queued again by
+ * {@link #resumePending()} on the next start.
+ * </p>
+ * <p>
+ * Every parse runs on a thread of its own, so a parser stuck on the CPU, which the read timeout of {@link TikaUtils}
+ * never stops, does not hold the worker past the timeout. Java can not kill a thread: the parse is interrupted and
+ * left to finish, and while too many are left running the files only get their size and content type.
+ * </p>
+ */
+public class FileMetaDataExtractor {
+
+	private static FileMetaDataExtractor instance;
+
+	private final ThreadPoolExecutor executor;
+	private final BlockingQueue<String> retries;
+	private final long timeoutMillis;
+	private final long maxFileSize;
+	private final long submitWaitMillis;
+	private final int maxAbandoned;
+	private final File pendingDir;
+
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger abandoned = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong retried = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong totalParseMillis = new AtomicLong();
+	private final AtomicLong maxParseMillis = new AtomicLong();
+
+	public static synchronized FileMetaDataExtractor getInstance () {
+		if ( instance == null ) {
+			instance = new FileMetaDataExtractor(
+					Config.getIntProperty("TIKA_EXTRACTION_THREADS", 2),
+					Config.getIntProperty("TIKA_EXTRACTION_QUEUE_SIZE", 1000),
+					Config.getIntProperty("TIKA_PARSE_TIMEOUT_SECONDS", 60) * 1000L,
+					Config.getIntProperty("TIKA_MAX_FILE_SIZE_MB", 100) * 1024L * 1024L,
+					Config.getIntProperty("TIKA_EXTRACTION_SUBMIT_WAIT_MILLIS", 1000),
+					Config.getIntProperty("TIKA_MAX_ABANDONED_PARSERS", 2),
+					new File(ConfigUtils.getDynamicContentPath() + File.separator + "metadata_pending"));
+		}
+		return instance;
+	}
+
+	/**
+	 * Stops the extraction, if it was ever started. Called when the application shuts down.
+	 */
+	public static synchronized void shutdownInstance () {
+		if ( instance != null ) {
+			instance.shutdown();
+			instance = null;
+		}
+	}
+
+	FileMetaDataExtractor ( int threads, int queueSize, long timeoutMillis, long maxFileSize, long submitWaitMillis,
+			int maxAbandoned, File pendingDir ) {
+
+		final int poolSize = Math.max(1, threads);
+		this.timeoutMillis = timeoutMillis;
+		this.maxFileSize = maxFileSize;
+		this.submitWaitMillis = submitWaitMillis;
+		this.maxAbandoned = maxAbandoned;
+		this.pendingDir = pendingDir;
+		this.retries = new LinkedBlockingQueue<String>(Math.max(1, queueSize));
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread ( Runnable runnable ) {
+						Thread thread = new Thread(runnable, "MetaDataExtractor-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						thread.setPriority(Thread.MIN_PRIORITY);
+						return thread;
+					}
+				});
+		// The checkins that find the queue full put their files straight in it, the workers must be there
+		this.executor.prestartAllCoreThreads();
+
+		Logger.info(this, "Metadata extraction started with " + poolSize + " threads and a queue of " + Math.max(1, queueSize) + " files");
+	}
+
+	/**
+	 * Parses the metadata of the given file, with the time and size limits of the extraction
+	 */
+	public Map<String, String> getMetaDataMap ( final String inode, final File binFile ) {
+
+		if ( maxFileSize > 0 && binFile.length() > maxFileSize ) {
+			Logger.info(this, "Not parsing " + binFile.getName() + ", it is bigger than " + maxFileSize + " bytes");
+			return getBasicMetaDataMap(binFile);
+		}
+		if ( timeoutMillis <= 0 ) {
+			return parse(inode, binFile);
+		}
+		if ( abandoned.get() >= maxAbandoned ) {
+			Logger.warn(this, abandoned.get() + " timed out parsers are still running, not parsing " + binFile.getName());
+			return getBasicMetaDataMap(binFile);
+		}
+
+		// 0 running, 1 finished, 2 abandoned by the worker
+		final AtomicInteger state = new AtomicInteger();
+		final FutureTask<Map<String, String>> parse = new FutureTask<Map<String, String>>(new Callable<Map<String, String>>() {
+			@Override
+			public Map<String, String> call () {
+				return parse(inode, binFile);
+			}
+		});
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run () {
+				try {
+					parse.run();
+				} finally {
+					if ( !state.compareAndSet(0, 1) ) {
+						abandoned.decrementAndGet();
+					}
+				}
+			}
+		}, "MetaDataParser-" + inode);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+
+		try {
+			// The reads of the parse time out first and keep the text read so far, this is for parsers stuck on the CPU
+			return parse.get(timeoutMillis + Math.min(timeoutMillis, 5000), TimeUnit.MILLISECONDS);
+		} catch ( TimeoutException e ) {
+			abandoned.incrementAndGet();
+			if ( !state.compareAndSet(0, 2) ) {
+				// Finished right now
+				abandoned.decrementAndGet();
+				return getDone(parse, binFile);
+			}
+			timedOut.incrementAndGet();
+			parse.cancel(true);
+			Logger.warn(this, "Parsing " + binFile.getName() + " did not stop after " + timeoutMillis + "ms, keeping its size and content type");
+			return getBasicMetaDataMap(binFile);
+		} catch ( InterruptedException e ) {
+			parse.cancel(true);
+			Thread.currentThread().interrupt();
+			return getBasicMetaDataMap(binFile);
+		} catch ( ExecutionException e ) {
+			Logger.warn(this, "Unable to parse " + binFile.getName() + ": " + e.getCause());
+			return getBasicMetaDataMap(binFile);
+		}
+	}
+
+	private Map<String, String> getDone ( FutureTask<Map<String, String>> parse, File binFile ) {
+		try {
+			return parse.get();
+		} catch ( Exception e ) {
+			return getBasicMetaDataMap(binFile);
+		}
+	}
+
+	/**
+	 * Parses the whole file, on the thread of the parse
+	 */
+	Map<String, String> parse ( String inode, File binFile ) {
+		return new TikaUtils().getMetaDataMap(inode, binFile, null, false, timeoutMillis, 0);
+	}
+
+	/**
+	 * The size and content type of the file, what it keeps when it is not parsed
+	 */
+	Map<String, String> getBasicMetaDataMap ( File binFile ) {
+		return new TikaUtils().getBasicMetaDataMap(binFile);
+	}
+
+	/**
+	 * Queues the file asset with the given inode to have its metadata parsed and saved. Must be called once the
+	 * contentlet was committed, the workers load it in their own transaction.
+	 */
+	public void submit ( final String inode ) {
+
+		markPending(inode);
+		try {
+			executor.execute(job(inode));
+			return;
+		} catch ( RejectedExecutionException e ) {
+			if ( executor.isShutdown() ) {
+				Logger.warn(this, "Metadata extraction is stopped, " + inode + " will be parsed on the next start");
+				return;
+			}
+		}
+
+		// The queue is full, wait a little for room and then leave it for the workers to retry
+		try {
+			if ( submitWaitMillis > 0 && executor.getQueue().offer(job(inode), submitWaitMillis, TimeUnit.MILLISECONDS) ) {
+				return;
+			}
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		if ( retries.offer(inode) ) {
+			retried.incrementAndGet();
+		} else {
+			dropped.incrementAndGet();
+			Logger.warn(this, "Metadata extraction is full, " + inode + " keeps only its size and content type until the next start");
+		}
+	}
+
+	/**
+	 * Queues again the files submitted before the last stop whose metadata was never saved. Called once the
+	 * application started.
+	 */
+	public void resumePending () {
+
+		String[] inodes = pendingDir != null ? pendingDir.list() : null;
+		if ( inodes == null || inodes.length == 0 ) {
+			return;
+		}
+		Logger.info(this, "Parsing the metadata of " + inodes.length + " files left pending by the last stop");
+		for ( String inode : inodes ) {
+			submit(inode);
+		}
+	}
+
+	private void markPending ( String inode ) {
+		if ( pendingDir == null ) {
+			return;
+		}
+		try {
+			File marker = new File(pendingDir, inode);
+			if ( !marker.exists() && (pendingDir.isDirectory() || pendingDir.mkdirs()) ) {
+				marker.createNewFile();
+			}
+		} catch ( IOException e ) {
+			Logger.warn(this, "Unable to mark " + inode + " as pending, it is lost if the server stops before it is parsed: " + e.getMessage());
+		}
+	}
+
+	private void clearPending ( String inode ) {
+		if ( pendingDir != null ) {
+			new File(pendingDir, inode).delete();
+		}
+	}
+
+	private Runnable job ( final String inode ) {
+		return new Runnable() {
+			@Override
+			public void run () {
+				extractAndClose(inode);
+				// One retried file after every queued file, and all of them once the queue is empty
+				String retry = retries.poll();
+				while ( retry != null ) {
+					extractAndClose(retry);
+					retry = executor.getQueue().isEmpty() ? retries.poll() : null;
+				}
+			}
+		};
+	}
+
+	private void extractAndClose ( String inode ) {
+
+		active.incrementAndGet();
+		final long start = System.currentTimeMillis();
+		boolean ok = false;
+		try {
+			extract(inode);
+			ok = true;
+			clearPending(inode);
+		} catch ( Exception e ) {
+			Logger.error(this, "Unable to parse the metadata of " + inode, e);
+		} finally {
+			final long millis = System.currentTimeMillis() - start;
+			active.decrementAndGet();
+			if ( ok ) {
+				completed.incrementAndGet();
+			} else {
+				failed.incrementAndGet();
+			}
+			totalParseMillis.addAndGet(millis);
+			long max = maxParseMillis.get();
+			while ( millis > max && !maxParseMillis.compareAndSet(max, millis) ) {
+				max = maxParseMillis.get();
+			}
+		}
+	}
+
+	/**
+	 * Parses the metadata of the file asset and saves it, in a transaction of its own
+	 */
+	void extract ( String inode ) throws Exception {
+
+		try {
+			HibernateUtil.startTransaction();
+			ESContentFactoryImpl conFac = new ESContentFactoryImpl();
+			Contentlet contentlet = conFac.find(inode);
+			if ( contentlet == null ) {
+				Logger.debug(this, "Contentlet " + inode + " is gone, not parsing its metadata");
+				HibernateUtil.commitTransaction();
+				return;
+			}
+
+			File binFile = APILocator.getContentletAPI().getBinaryFile(inode, FileAssetAPI.BINARY_FIELD, APILocator.getUserAPI().getSystemUser());
+			if ( binFile != null ) {
+				Map<String, String> metaMap = getMetaDataMap(inode, binFile);
+				if ( metaMap != null ) {
+					Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+					contentlet.setProperty(FileAssetAPI.META_DATA_FIELD, gson.toJson(metaMap));
+					contentlet = conFac.save(contentlet);
+					LiveCache.removeAssetFromCache(contentlet);
+					WorkingCache.removeAssetFromCache(contentlet);
+					APILocator.getContentletIndexAPI().addContentToIndex(contentlet, false);
+				}
+			}
+			HibernateUtil.commitTransaction();
+		} catch ( Exception e ) {
+			try {
+				HibernateUtil.rollbackTransaction();
+			} catch ( DotHibernateException e1 ) {
+				Logger.warn(this, e1.getMessage(), e1);
+			}
+			throw e;
+		} finally {
+			try {
+				HibernateUtil.closeSession();
+			} catch ( DotHibernateException e ) {
+				Logger.warn(this, e.getMessage(), e);
+			} finally {
+				DbConnectionFactory.closeConnection();
+			}
+		}
+	}
+
+	/**
+	 * Counters of the extraction, to see how far behind the workers are and how long the files take
+	 */
+	public Map<String, Object> getStats () {
+
+		final long done = completed.get() + failed.get();
+		Map<String, Object> stats = new HashMap<String, Object>();
+		stats.put("threads", executor.getMaximumPoolSize());
+		stats.put("queued", executor.getQueue().size());
+		stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+		stats.put("active", active.get());
+		stats.put("completed", completed.get());
+		stats.put("failed", failed.get());
+		stats.put("retryQueued", retries.size());
+		stats.put("retried", retried.get());
+		stats.put("dropped", dropped.get());
+		stats.put("timedOut", timedOut.get());
+		stats.put("abandonedParsers", abandoned.get());
+		stats.put("totalMillis", totalParseMillis.get());
+		stats.put("avgMillis", done > 0 ? totalParseMillis.get() / done : 0);
+		stats.put("maxMillis", maxParseMillis.get());
+		return stats;
+	}
+
+	/**
+	 * Lets the workers finish the files already queued and stops them
+	 */
+	public void shutdown () {
+
+		executor.shutdown();
+		try {
+			if ( !executor.awaitTermination(30, TimeUnit.SECONDS) ) {
+				executor.shutdownNow();
+			}
+		} catch ( InterruptedException e ) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
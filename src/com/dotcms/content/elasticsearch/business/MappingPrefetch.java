@@ -0,0 +1,231 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.Permissionable;
+import com.dotmarketing.cache.FieldsCache;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.util.SQLUtil;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Field.FieldType;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Data the {@link ESMappingAPIImpl} needs to build the index documents of several contentlets, loaded with a few
+ * queries for all of them instead of a few queries per contentlet. Every getter returns null when the data of the
+ * given contentlet was not prefetched, in which case the mapping loads it the usual way.
+ */
+final class MappingPrefetch {
+
+	//Keeps the IN lists under the limits of every supported database
+	private static final int MAX_PARAMS = 500;
+
+	private static final String CATEGORIES_SQL = "select tree.child as con_inode, category.category_velocity_var_name as cat_velocity_var " +
+			" from category join tree on (tree.parent = category.inode) where tree.child in ";
+
+	private static final String RELATIONSHIPS_SQL = "select * from tree where parent in (#) or child in (#) order by tree_order asc";
+
+	private final Map<String, Identifier> identifiers = new HashMap<String, Identifier>();
+	private final Map<String, ContentletVersionInfo> versionInfos = new HashMap<String, ContentletVersionInfo>();
+	private final Map<String, List<String>> categories = new HashMap<String, List<String>>();
+	private final Map<String, List<Permission>> permissions = new HashMap<String, List<Permission>>();
+	private final Map<String, List<Map<String, Object>>> relationships = new HashMap<String, List<Map<String, Object>>>();
+
+	private MappingPrefetch () {
+	}
+
+	/**
+	 * Loads everything needed to map the given contentlets
+	 */
+	static MappingPrefetch load ( List<Contentlet> contentlets ) throws DotDataException {
+
+		Set<String> identifiers = new LinkedHashSet<String>();
+		Set<String> inodesWithCategories = new LinkedHashSet<String>();
+		List<Permissionable> permissionables = new ArrayList<Permissionable>();
+		for ( Contentlet con : contentlets ) {
+			if ( con == null || !UtilMethods.isSet(con.getIdentifier()) ) {
+				continue;
+			}
+			identifiers.add(con.getIdentifier());
+			permissionables.add(con);
+			if ( hasCategoryField(con) ) {
+				inodesWithCategories.add(con.getInode());
+			}
+		}
+
+		MappingPrefetch prefetch = new MappingPrefetch();
+		for ( List<String> chunk : chunks(identifiers) ) {
+			prefetch.loadIdentifiers(chunk);
+			prefetch.loadVersionInfos(chunk);
+			prefetch.loadRelationships(chunk);
+		}
+		prefetch.loadPermissions(permissionables);
+		for ( List<String> chunk : chunks(inodesWithCategories) ) {
+			prefetch.loadCategories(chunk);
+		}
+
+		return prefetch;
+	}
+
+	Identifier getIdentifier ( String identifier ) {
+		return identifiers.get(identifier);
+	}
+
+	ContentletVersionInfo getVersionInfo ( String identifier, long languageId ) {
+		return versionInfos.get(identifier + "_" + languageId);
+	}
+
+	/**
+	 * Velocity var names of the categories of the given contentlet inode
+	 */
+	List<String> getCategories ( String inode ) {
+		return categories.get(inode);
+	}
+
+	/**
+	 * Permissions of the given permission id, what {@link com.dotmarketing.business.PermissionAPI#getPermissions(Permissionable, boolean, boolean, boolean)}
+	 * returns for it
+	 */
+	List<Permission> getPermissions ( String identifier ) {
+		return permissions.get(identifier);
+	}
+
+	/**
+	 * Rows of the tree table where the given identifier is the parent or the child, ordered by tree_order
+	 */
+	List<Map<String, Object>> getRelationships ( String identifier ) {
+		return relationships.get(identifier);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void loadIdentifiers ( List<String> ids ) throws DotDataException {
+
+		HibernateUtil dh = new HibernateUtil(Identifier.class);
+		dh.setQuery("from identifier in class com.dotmarketing.beans.Identifier where id in (" + SQLUtil.placeholders(ids.size()) + ")");
+		for ( String id : ids ) {
+			dh.setParam(id);
+		}
+
+		for ( Identifier identifier : (List<Identifier>) dh.list() ) {
+			identifiers.put(identifier.getId(), identifier);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void loadVersionInfos ( List<String> ids ) throws DotDataException {
+
+		HibernateUtil dh = new HibernateUtil(ContentletVersionInfo.class);
+		dh.setQuery("from " + ContentletVersionInfo.class.getName() + " where identifier in (" + SQLUtil.placeholders(ids.size()) + ")");
+		for ( String id : ids ) {
+			dh.setParam(id);
+		}
+
+		for ( ContentletVersionInfo info : (List<ContentletVersionInfo>) dh.list() ) {
+			versionInfos.put(info.getIdentifier() + "_" + info.getLang(), info);
+		}
+	}
+
+	private void loadCategories ( List<String> inodes ) throws DotDataException {
+
+		for ( String inode : inodes ) {
+			categories.put(inode, new ArrayList<String>());
+		}
+
+		DotConnect db = new DotConnect();
+		db.setSQL(CATEGORIES_SQL + "(" + SQLUtil.placeholders(inodes.size()) + ")");
+		for ( String inode : inodes ) {
+			db.addParam(inode);
+		}
+
+		for ( Map<String, Object> row : db.loadObjectResults() ) {
+			categories.get(String.valueOf(row.get("con_inode"))).add(String.valueOf(row.get("cat_velocity_var")));
+		}
+	}
+
+	/**
+	 * Goes through the permission API, so the permissions in cache are not read again and the ones loaded are cached
+	 */
+	private void loadPermissions ( List<Permissionable> permissionables ) throws DotDataException {
+
+		Map<Permissionable, List<Permission>> found;
+		try {
+			found = APILocator.getPermissionAPI().getPermissions(permissionables, false);
+		} catch ( DotSecurityException e ) {
+			throw new DotDataException(e.getMessage(), e);
+		}
+
+		for ( Map.Entry<Permissionable, List<Permission>> entry : found.entrySet() ) {
+			permissions.put(entry.getKey().getPermissionId(), entry.getValue());
+		}
+	}
+
+	private void loadRelationships ( List<String> ids ) throws DotDataException {
+
+		for ( String id : ids ) {
+			relationships.put(id, new ArrayList<Map<String, Object>>());
+		}
+
+		DotConnect db = new DotConnect();
+		db.setSQL(RELATIONSHIPS_SQL.replace("#", SQLUtil.placeholders(ids.size())));
+		for ( int i = 0; i < 2; i++ ) {
+			for ( String id : ids ) {
+				db.addParam(id);
+			}
+		}
+
+		for ( Map<String, Object> row : db.loadObjectResults() ) {
+			String parent = String.valueOf(row.get("parent"));
+			String child = String.valueOf(row.get("child"));
+
+			if ( relationships.containsKey(parent) ) {
+				relationships.get(parent).add(row);
+			}
+			if ( !child.equals(parent) && relationships.containsKey(child) ) {
+				relationships.get(child).add(row);
+			}
+		}
+	}
+
+	private static boolean hasCategoryField ( Contentlet con ) {
+
+		for ( Field f : FieldsCache.getFieldsByStructureInode(con.getStructureInode()) ) {
+			if ( f.getFieldType().equals(FieldType.CATEGORY.toString()) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static List<List<String>> chunks ( Set<String> values ) {
+
+		List<List<String>> chunks = new ArrayList<List<String>>();
+		List<String> current = new ArrayList<String>();
+		for ( String value : values ) {
+			if ( current.size() == MAX_PARAMS ) {
+				chunks.add(current);
+				current = new ArrayList<String>();
+			}
+			current.add(value);
+		}
+		if ( !current.isEmpty() ) {
+			chunks.add(current);
+		}
+
+		return chunks;
+	}
+
+}
@@ -9,6 +9,7 @@ import com.dotcms.content.elasticsearch.business.ESContentletIndexAPI;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.reindex.FullReindexStreamer;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -37,6 +38,11 @@ public class ESReindexationProcessStatus implements Serializable {
     
     public synchronized static int getLastIndexationProgress () throws DotDataException {
         try {
+            long streamed = FullReindexStreamer.getStreamedCount();
+            if(streamed >= 0) {
+                // still streaming, the journal only has the changes made meanwhile
+                return (int) streamed;
+            }
             long left = APILocator.getDistributedJournalAPI().recordsLeftToIndexForServer();
             int x = (int) (getContentCountToIndex()-left);
             
@@ -69,6 +75,10 @@ public class ESReindexationProcessStatus implements Serializable {
 	            theMap.put("lastIndexationProgress", getLastIndexationProgress());
 	            theMap.put("currentIndexPath", currentIndexPath());
 	            theMap.put("newIndexPath", getNewIndexPath());
+	            Map<String, Object> streamProgress = FullReindexStreamer.getProgress();
+	            if(streamProgress != null) {
+	                theMap.putAll(streamProgress);
+	            }
             }
             return theMap;
         }
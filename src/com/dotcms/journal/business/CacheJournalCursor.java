@@ -0,0 +1,261 @@
+package com.dotcms.journal.business;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.dotmarketing.common.util.SQLUtil;
+
+/**
+ * Follows the {@code cache_journal} table for a server. Every cache invalidation is written once to the journal and
+ * each server keeps its own cursor, the id of the last record it has seen, reading only the records after it with a
+ * range scan on the primary key. Servers acknowledge their cursor in {@code cache_journal_cursor} so records seen by
+ * every server can be pruned.
+ * <p>
+ * Ids are not committed in order: a record can become visible after records with higher ids. Records read past a
+ * missing id are applied but the cursor stays before the missing id, for at most <code>gapMillis</code>, so the
+ * record is still read if its transaction commits late. Ids missing for longer are taken as rolled back or skipped by
+ * the sequence. Meanwhile the records after the ones already read keep being read, and the missing ids are looked up
+ * on their own.
+ * </p>
+ */
+public class CacheJournalCursor {
+
+    private static final String READ_SQL = "SELECT id, object_to_index, serverid FROM cache_journal WHERE id > ? ORDER BY id";
+
+    private static final String READ_MISSING_SQL = "SELECT id, object_to_index, serverid FROM cache_journal WHERE id IN (%s) ORDER BY id";
+
+    //Missing ids looked up on each read, the ones after them are looked up once these are found or given up
+    private static final int MAX_MISSING = 100;
+
+    private final String serverId;
+    private final long gapMillis;
+
+    private long position = -1;
+    private long gapSince = 0;
+    private long acknowledgedAt = 0;
+
+    //Ids after the position already read
+    private final TreeSet<Long> seen = new TreeSet<>();
+
+    public CacheJournalCursor ( String serverId, long gapMillis ) {
+        this.serverId = serverId;
+        this.gapMillis = gapMillis;
+    }
+
+    public synchronized boolean isStarted () {
+        return position >= 0;
+    }
+
+    /**
+     * Id of the last record this server has seen, every record up to it has been read
+     */
+    public synchronized long getPosition () {
+        return position;
+    }
+
+    /**
+     * Places the cursor after the last record of the journal and acknowledges it, a server starting has nothing
+     * cached so older invalidations do not apply to it
+     */
+    public synchronized void start ( Connection conn ) throws SQLException {
+
+        PreparedStatement statement = conn.prepareStatement("SELECT max(id) FROM cache_journal");
+        try {
+            ResultSet rs = statement.executeQuery();
+            try {
+                position = rs.next() ? rs.getLong(1) : 0;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+
+        seen.clear();
+        gapSince = 0;
+        acknowledge(conn);
+    }
+
+    /**
+     * Reads up to <code>limit</code> records after the cursor and moves it forward
+     *
+     * @return the <code>key:group</code> invalidations sent by other servers not read before
+     */
+    public synchronized List<String> read ( Connection conn, int limit ) throws SQLException {
+
+        List<String> entries = new ArrayList<>();
+
+        List<Long> missing = getMissing();
+        if ( !missing.isEmpty() ) {
+            PreparedStatement statement = conn.prepareStatement(String.format(READ_MISSING_SQL, SQLUtil.placeholders(missing.size())));
+            try {
+                for ( int i = 0; i < missing.size(); i++ ) {
+                    statement.setLong(i + 1, missing.get(i));
+                }
+                collect(statement, entries);
+            } finally {
+                statement.close();
+            }
+        }
+
+        //Pages from the last record read, not from the position, so a pending gap does not read the same page again
+        PreparedStatement statement = conn.prepareStatement(READ_SQL);
+        try {
+            statement.setMaxRows(limit);
+            statement.setLong(1, seen.isEmpty() ? position : seen.last());
+            collect(statement, entries);
+        } finally {
+            statement.close();
+        }
+
+        advance(System.currentTimeMillis());
+        return entries;
+    }
+
+    private void collect ( PreparedStatement statement, List<String> entries ) throws SQLException {
+
+        ResultSet rs = statement.executeQuery();
+        try {
+            while ( rs.next() ) {
+                if ( seen.add(rs.getLong("id")) && !serverId.equals(rs.getString("serverid")) ) {
+                    entries.add(rs.getString("object_to_index"));
+                }
+            }
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * The first ids between the position and the last record read that have not been read yet
+     */
+    private List<Long> getMissing () {
+
+        List<Long> missing = new ArrayList<>();
+        long expected = position + 1;
+        for ( long id : seen ) {
+            for ( ; expected < id && missing.size() < MAX_MISSING; expected++ ) {
+                missing.add(expected);
+            }
+            if ( missing.size() == MAX_MISSING ) {
+                break;
+            }
+            expected = id + 1;
+        }
+
+        return missing;
+    }
+
+    private void advance ( long now ) {
+
+        while ( !seen.isEmpty() ) {
+            long next = seen.first();
+            if ( next != position + 1 ) {
+                if ( gapSince == 0 ) {
+                    gapSince = now;
+                }
+                if ( now - gapSince < gapMillis ) {
+                    return;
+                }
+            }
+
+            seen.pollFirst();
+            position = next;
+            gapSince = 0;
+        }
+    }
+
+    /**
+     * Saves the cursor of this server if the last acknowledge is older than <code>intervalMillis</code>, acknowledges
+     * also tell the other servers this one is still reading the journal
+     */
+    public synchronized void acknowledgeIfDue ( Connection conn, long intervalMillis ) throws SQLException {
+        if ( System.currentTimeMillis() - acknowledgedAt >= intervalMillis ) {
+            acknowledge(conn);
+        }
+    }
+
+    private void acknowledge ( Connection conn ) throws SQLException {
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        PreparedStatement update = conn.prepareStatement("UPDATE cache_journal_cursor SET last_id = ?, mod_date = ? WHERE server_id = ?");
+        try {
+            update.setLong(1, position);
+            update.setTimestamp(2, now);
+            update.setString(3, serverId);
+            if ( update.executeUpdate() == 0 ) {
+                PreparedStatement insert = conn.prepareStatement("INSERT INTO cache_journal_cursor (server_id, last_id, mod_date) VALUES (?, ?, ?)");
+                try {
+                    insert.setString(1, serverId);
+                    insert.setLong(2, position);
+                    insert.setTimestamp(3, now);
+                    insert.executeUpdate();
+                } finally {
+                    insert.close();
+                }
+            }
+        } finally {
+            update.close();
+        }
+
+        acknowledgedAt = now.getTime();
+    }
+
+    /**
+     * Deletes the journal records every server has seen. Servers that did not acknowledge their cursor in
+     * <code>cursorExpireMillis</code> are considered gone and are not waited for, records older than
+     * <code>retentionMillis</code> are deleted anyway.
+     *
+     * @return the number of records deleted
+     */
+    public static int prune ( Connection conn, long cursorExpireMillis, long retentionMillis ) throws SQLException {
+
+        long now = System.currentTimeMillis();
+
+        PreparedStatement statement = conn.prepareStatement("DELETE FROM cache_journal_cursor WHERE mod_date < ?");
+        try {
+            statement.setTimestamp(1, new Timestamp(now - cursorExpireMillis));
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+
+        Long minimum = null;
+        statement = conn.prepareStatement("SELECT min(last_id) FROM cache_journal_cursor");
+        try {
+            ResultSet rs = statement.executeQuery();
+            try {
+                if ( rs.next() ) {
+                    long value = rs.getLong(1);
+                    minimum = rs.wasNull() ? null : value;
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+
+        statement = conn.prepareStatement(minimum != null
+                ? "DELETE FROM cache_journal WHERE id <= ? OR time_entered < ?"
+                : "DELETE FROM cache_journal WHERE time_entered < ?");
+        try {
+            int i = 1;
+            if ( minimum != null ) {
+                statement.setLong(i++, minimum);
+            }
+            statement.setTimestamp(i, new Timestamp(now - retentionMillis));
+            return statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+}
@@ -1,16 +1,15 @@
 package com.dotcms.journal.business;
 
-import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.ResultSet;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import oracle.jdbc.OracleTypes;
 
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
@@ -39,9 +38,10 @@ import com.dotmarketing.util.UtilMethods;
 public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactory<T> {
 
     private String TIMESTAMPSQL = "NOW()";
-    private String REINDEXENTRIESSELECTSQL = "SELECT * FROM load_records_to_index(?, ?, ?)";
-    private String ORACLEREINDEXENTRIESSELECTSQL = "SELECT * FROM table(load_records_to_index(?, ?, ?))";
-    private String MYSQLREINDEXENTRIESSELECTSQL = "{call load_records_to_index(?,?,?)}";
+
+    private volatile ReindexQueueClaimer claimer;
+
+    private volatile CacheJournalCursor cacheCursor;
 
     public ESDistributedJournalFactoryImpl(T newIndexValue) {
         super(newIndexValue);
@@ -49,14 +49,7 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
         if (DbConnectionFactory.isMsSql()) {
             TIMESTAMPSQL = "GETDATE()";
         } else if (DbConnectionFactory.isOracle()) {
-            if(DbConnectionFactory.getDbVersion() >= 10)
-               REINDEXENTRIESSELECTSQL = ORACLEREINDEXENTRIESSELECTSQL;
-            else
-                REINDEXENTRIESSELECTSQL = "SELECT * FROM table(CAST(load_records_to_index(?, ?, ?)))";
             TIMESTAMPSQL = "CAST(SYSTIMESTAMP AS TIMESTAMP)";
-        } else if (DbConnectionFactory.isMySql()) {
-            REINDEXENTRIESSELECTSQL = MYSQLREINDEXENTRIESSELECTSQL;
-
         }
     }
 
@@ -74,53 +67,68 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
         }
     }
 
+    @Override
+    protected void addIdentifierReindexEntries(List<String> identifiers) throws DotDataException {
+        DotConnect dc = new DotConnect();
+        for (String identifier : identifiers) {
+            dc.setSQL("insert into dist_reindex_journal(inode_to_index,ident_to_index,priority,dist_action, time_entered) " +
+                    " values (?,?," + REINDEX_JOURNAL_PRIORITY_CONTENT_REINDEX + "," + REINDEX_ACTION_REINDEX_OBJECT + ", " + TIMESTAMPSQL + ")");
+            dc.addParam(identifier);
+            dc.addParam(identifier);
+            dc.loadResult();
+        }
+    }
+
     @Override
     protected void addCacheEntry(String key, String group)
             throws DotDataException {
+        addCacheEntries(Collections.singletonList(key + ":" + group));
+    }
+
+    @Override
+    protected void addCacheEntries(List<String> entries)
+            throws DotDataException {
+        if (entries.isEmpty() || !Config.getBooleanProperty("DIST_INDEXATION_ENABLED", false)) {
+            return;
+        }
+
+        // A single record per entry, every server reads the journal from its own cursor.
+        // A connection of its own, the batch must not commit or close a transaction the caller may have open
         Connection con = null;
-        String[] serversIds = APILocator.getServerAPI().getAliveServersIds();
-        String serverId = ConfigUtils.getServerId();
+        PreparedStatement ps = null;
         try {
-            if (Config.getBooleanProperty("DIST_INDEXATION_ENABLED", false)) {
-                con = DbConnectionFactory.getConnection();
-                con.setAutoCommit(false);
-                java.sql.Timestamp timestamp = new java.sql.Timestamp(new java.util.Date().getTime());
-                for (String serversId : serversIds) {
-                    if (!serverId.equals(serversId)) {
-                        DotConnect dc = new DotConnect();
-                        dc.setSQL("INSERT INTO dist_process(object_to_index, time_entered, serverid, journal_type)VALUES (?, ?, ?, ?)");
-                        dc.addParam(key + ":" + group);
-                        dc.addParam(timestamp);
-                        dc.addParam(serversId);
-                        dc.addParam(JOURNAL_TYPE_CACHE);
-                        try {
-                            dc.getResult(con);
-                        } catch (Exception e) {
-                            Logger
-                                    .warn(this,
-                                            "Usually not a problem but a cache entry failed to insert in the table.");
-                            Logger.debug(this, e.getMessage(), e);
-                        }
-                    }
+            con = DbConnectionFactory.getDataSource().getConnection();
+            con.setAutoCommit(false);
+            ps = con.prepareStatement("INSERT INTO cache_journal(object_to_index, serverid, time_entered) VALUES (?, ?, ?)");
+            java.sql.Timestamp timestamp = new java.sql.Timestamp(new java.util.Date().getTime());
+            String serverId = ConfigUtils.getServerId();
+            for (String entry : entries) {
+                ps.setString(1, entry);
+                ps.setString(2, serverId);
+                ps.setTimestamp(3, timestamp);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            con.commit();
+        } catch (SQLException e) {
+            try {
+                if (con != null) {
+                    con.rollback();
                 }
+            } catch (SQLException e1) {
+                Logger.debug(this, e1.getMessage(), e1);
             }
-        } catch (SQLException e1) {
-            throw new DotDataException(e1.getMessage(), e1);
+            throw new DotDataException(e.getMessage(), e);
         } finally {
             try {
-                if(con!=null){
-                    con.commit();
+                if (ps != null) {
+                    ps.close();
+                }
+                if (con != null) {
+                    con.close();
                 }
             } catch (Exception e) {
                 Logger.error(this, e.getMessage(), e);
-            } finally {
-                try {
-                    if(con!=null){
-                        con.close();
-                    }
-                } catch (Exception e) {
-                    Logger.error(this, e.getMessage(), e);
-                }
             }
         }
     }
@@ -322,58 +330,85 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
         dc.loadResult();
     }
 
-    private void deleteCacheEntries(String serverId, long id, Connection con)
-            throws DotDataException {
-        DotConnect dc = new DotConnect();
+    @Override
+    protected List<String> findCacheEntriesToRemove() throws DotDataException {
+        Connection con = null;
         try {
-            dc.setSQL("DELETE FROM dist_journal where serverid = ? and journal_type = ? and id < ?");
-            dc.addParam(serverId);
-            dc.addParam(JOURNAL_TYPE_CACHE);
-            dc.addParam(id + 1);
-            dc.loadResult(con);
-        } catch (Exception e1) {
-            throw new DotDataException(e1.getMessage(), e1);
+            con = DbConnectionFactory.getDataSource().getConnection();
+            con.setAutoCommit(true);
+            CacheJournalCursor cursor = getCacheCursor();
+            if (!cursor.isStarted()) {
+                cursor.start(con);
+                return new ArrayList<String>();
+            }
+
+            List<String> entries = cursor.read(con, Config.getIntProperty("CACHE_JOURNAL_BATCH_SIZE", 1000));
+            cursor.acknowledgeIfDue(con, Config.getIntProperty("CACHE_JOURNAL_ACK_SECONDS", 5) * 1000L);
+            return entries;
+        } catch (SQLException e) {
+            throw new DotDataException(e.getMessage(), e);
+        } finally {
+            try {
+                if (con != null) {
+                    con.close();
+                }
+            } catch (Exception e) {
+                Logger.error(this, e.getMessage(), e);
+            }
         }
     }
 
     @Override
-    protected List<String> findCacheEntriesToRemove() throws DotDataException {
-        DotConnect dc = new DotConnect();
-        List<String> x = new ArrayList<String>();
+    protected void pruneCacheEntries() throws DotDataException {
         Connection con = null;
-        String serverId = ConfigUtils.getServerId();
-
         try {
-            con = DbConnectionFactory.getConnection();
-            con.setAutoCommit(false);
-            dc.setSQL("SELECT object_to_index , max(id) as id from dist_journal " +
-            		" where journal_type = ? and serverid = ? GROUP BY id, object_to_index,time_entered ORDER BY time_entered ASC");
-            dc.addParam(JOURNAL_TYPE_CACHE);
-            dc.addParam(serverId);
-
-            List<Map<String, String>> results = dc.loadResults(con);
-            long id = 0;
-            for (Map<String, String> r : results) {
-                x.add(r.get("object_to_index"));
-                id = new Long(r.get("id"));
-            }
-            deleteCacheEntries(serverId, id, con);
-        } catch (SQLException e1) {
-            throw new DotDataException(e1.getMessage(), e1);
+            con = DbConnectionFactory.getDataSource().getConnection();
+            con.setAutoCommit(true);
+            int deleted = CacheJournalCursor.prune(con,
+                    Config.getIntProperty("CACHE_JOURNAL_CURSOR_EXPIRE_SECONDS", 300) * 1000L,
+                    Config.getIntProperty("CACHE_JOURNAL_RETENTION_SECONDS", 3600) * 1000L);
+            Logger.debug(this, "Pruned " + deleted + " cache journal records");
+        } catch (SQLException e) {
+            throw new DotDataException(e.getMessage(), e);
         } finally {
             try {
-                con.commit();
+                if (con != null) {
+                    con.close();
+                }
             } catch (Exception e) {
                 Logger.error(this, e.getMessage(), e);
-            } finally {
-                try {
-                    con.close();
-                } catch (Exception e) {
-                    Logger.error(this, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Cursor of this server in the cache journal, records missing in a gap of the ids are waited for
+     * CACHE_JOURNAL_GAP_MILLIS in case their transaction did not commit yet
+     */
+    private CacheJournalCursor getCacheCursor() {
+        if (cacheCursor == null) {
+            synchronized (this) {
+                if (cacheCursor == null) {
+                    cacheCursor = new CacheJournalCursor(ConfigUtils.getServerId(),
+                            Config.getIntProperty("CACHE_JOURNAL_GAP_MILLIS", 5000));
                 }
             }
         }
-        return x;
+        return cacheCursor;
+    }
+
+    /**
+     * Claimer of the records of dist_reindex_journal, records claimed by a server that did not finish them in
+     * reindex.journal.lease.seconds can be claimed by any other server
+     */
+    private ReindexQueueClaimer getClaimer(Connection con) throws SQLException {
+        if (claimer == null) {
+            claimer = new ReindexQueueClaimer(ReindexQueueClaimer.strategyFor(con,
+                    Config.getBooleanProperty("reindex.journal.claim.nativelocking", false)),
+                    Config.getIntProperty("reindex.journal.lease.seconds", 600) * 1000L);
+            Logger.info(this, "Claiming reindex journal records with strategy " + claimer.getStrategy());
+        }
+        return claimer;
     }
 
     @Override
@@ -402,47 +437,12 @@ public class ESDistributedJournalFactoryImpl<T> extends DistributedJournalFactor
 
             con = DbConnectionFactory.getConnection();
             con.setAutoCommit(false);
-            if(DbConnectionFactory.isOracle()) {
-                CallableStatement call = con.prepareCall("{ ? = call load_records_to_index(?,?,?) }");
-                call.registerOutParameter(1, OracleTypes.CURSOR);
-                call.setString(2, serverId);
-                call.setInt(3, recordsToFetch);
-                call.setInt(4, priorityLevel);
-                call.execute();
-                ResultSet r = (ResultSet)call.getObject(1);
-                results = new ArrayList<Map<String,Object>>();
-                while(r.next()) {
-                    Map<String,Object> m=new HashMap<String,Object>();
-                    m.put("id", r.getInt("id"));
-                    m.put("inode_to_index", r.getString("inode_to_index"));
-                    m.put("ident_to_index", r.getString("ident_to_index"));
-                    m.put("priority", r.getInt("priority"));
-                    results.add(m);
-                }
-                r.close();
-                call.close();
-            } else if(DbConnectionFactory.isMsSql()) {
-                // we need to make sure this setting is ON because of the READPAST we use
-                // in the stored procedure
+            if(DbConnectionFactory.isMsSql()) {
+                // we need to make sure this setting is ON because of the READPAST used to claim the records
                 dc.setSQL("SET TRANSACTION ISOLATION LEVEL READ COMMITTED;");
                 dc.loadResult();
-
-                dc.setSQL("load_records_to_index @server_id='" + serverId + "', @records_to_fetch=" + String.valueOf(recordsToFetch) + ", @priority_level=" + String.valueOf(priorityLevel));
-                dc.setForceQuery(true);
-                results = dc.loadObjectResults(con);
-            } else if(DbConnectionFactory.isH2()) {
-                dc.setSQL("call load_records_to_index(?,?,?)");
-                dc.addParam(serverId);
-                dc.addParam(recordsToFetch);
-                dc.addParam(priorityLevel);
-                results = dc.loadObjectResults();
-            } else {
-                dc.setSQL(REINDEXENTRIESSELECTSQL);
-                dc.addParam(serverId);
-                dc.addParam(recordsToFetch);
-                dc.addParam(priorityLevel);
-                results = dc.loadObjectResults(con);
             }
+            results = getClaimer(con).claim(con, serverId, recordsToFetch, priorityLevel);
 
             for (Map<String, Object> r : results) {
                 IndexJournal<T> ij = new IndexJournal<T>();
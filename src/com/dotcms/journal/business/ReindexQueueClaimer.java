@@ -0,0 +1,180 @@
+package com.dotcms.journal.business;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claims batches of records of the {@code dist_reindex_journal} table for a server without locking the table, so
+ * the servers of a cluster and the transactions adding records to the journal do not wait on each other.
+ * <p>
+ * A claimed record gets the id of the server in {@code serverid} and the time it was claimed in {@code claimed_at}.
+ * The claim is a lease: records whose claim is older than the lease can be claimed again by any server, so the
+ * records of a server that died are indexed by the others. Records are claimed optimistically, updating each
+ * candidate record only if nobody claimed it since it was read. When {@code reindex.journal.claim.nativelocking} is
+ * set they are claimed with {@code FOR UPDATE SKIP LOCKED} on Postgres 9.5 and later and with {@code READPAST} on SQL
+ * Server instead. Those statements have not been tested against real databases yet, so they are off by default.
+ * </p>
+ */
+public class ReindexQueueClaimer {
+
+    public enum Strategy {
+        SKIP_LOCKED, READPAST, OPTIMISTIC
+    }
+
+    private static final String CLAIMABLE = " (serverid IS NULL OR claimed_at IS NULL OR claimed_at < ?) AND priority <= ? ";
+
+    private static final String SKIP_LOCKED_SQL = "UPDATE dist_reindex_journal SET serverid = ?, claimed_at = ? WHERE id IN ("
+            + " SELECT id FROM dist_reindex_journal WHERE" + CLAIMABLE + " ORDER BY priority ASC LIMIT ? FOR UPDATE SKIP LOCKED)"
+            + " RETURNING id, inode_to_index, ident_to_index, priority";
+
+    private static final String READPAST_SQL = "WITH claimable AS (SELECT TOP (?) * FROM dist_reindex_journal WITH (ROWLOCK, READPAST, UPDLOCK)"
+            + " WHERE" + CLAIMABLE + " ORDER BY priority ASC)"
+            + " UPDATE claimable SET serverid = ?, claimed_at = ?"
+            + " OUTPUT inserted.id, inserted.inode_to_index, inserted.ident_to_index, inserted.priority";
+
+    private static final String CANDIDATES_SQL = "SELECT id, inode_to_index, ident_to_index, priority FROM dist_reindex_journal"
+            + " WHERE" + CLAIMABLE + " ORDER BY priority ASC";
+
+    private static final String OPTIMISTIC_CLAIM_SQL = "UPDATE dist_reindex_journal SET serverid = ?, claimed_at = ?"
+            + " WHERE id = ? AND (serverid IS NULL OR claimed_at IS NULL OR claimed_at < ?)";
+
+    private final Strategy strategy;
+    private final long leaseMillis;
+
+    public ReindexQueueClaimer ( Strategy strategy, long leaseMillis ) {
+        this.strategy = strategy;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Claim strategy for the database of the given connection, the optimistic one unless the native locking of the
+     * database is allowed
+     */
+    public static Strategy strategyFor ( Connection conn, boolean nativeLocking ) throws SQLException {
+
+        if ( !nativeLocking ) {
+            return Strategy.OPTIMISTIC;
+        }
+
+        DatabaseMetaData meta = conn.getMetaData();
+        String product = meta.getDatabaseProductName().toLowerCase();
+        if ( product.contains("postgres") ) {
+            int major = meta.getDatabaseMajorVersion();
+            int minor = meta.getDatabaseMinorVersion();
+            return major > 9 || (major == 9 && minor >= 5) ? Strategy.SKIP_LOCKED : Strategy.OPTIMISTIC;
+        }
+        if ( product.contains("microsoft") ) {
+            return Strategy.READPAST;
+        }
+
+        return Strategy.OPTIMISTIC;
+    }
+
+    public Strategy getStrategy () {
+        return strategy;
+    }
+
+    /**
+     * Claims up to <code>recordsToFetch</code> records with a priority up to <code>priorityLevel</code> for the given
+     * server, lower priorities first. Records already claimed by a server, this one included, are skipped until their
+     * lease expires.
+     *
+     * @return the claimed records with their id, inode_to_index, ident_to_index and priority
+     */
+    public List<Map<String, Object>> claim ( Connection conn, String serverId, int recordsToFetch, int priorityLevel ) throws SQLException {
+
+        long now = System.currentTimeMillis();
+        Timestamp claimedAt = new Timestamp(now);
+        Timestamp expired = new Timestamp(now - leaseMillis);
+
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            //Claims are committed right away so rows are locked as little as possible
+            conn.setAutoCommit(true);
+            switch ( strategy ) {
+                case SKIP_LOCKED:
+                    return query(conn, SKIP_LOCKED_SQL, serverId, claimedAt, expired, priorityLevel, recordsToFetch);
+                case READPAST:
+                    return query(conn, READPAST_SQL, recordsToFetch, expired, priorityLevel, serverId, claimedAt);
+                default:
+                    return claimOptimistically(conn, serverId, recordsToFetch, priorityLevel, claimedAt, expired);
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private List<Map<String, Object>> claimOptimistically ( Connection conn, String serverId, int recordsToFetch, int priorityLevel,
+                                                            Timestamp claimedAt, Timestamp expired ) throws SQLException {
+
+        //Reads more candidates than needed, other servers may claim some of them first
+        List<Map<String, Object>> candidates = queryLimited(conn, CANDIDATES_SQL, recordsToFetch * 2, expired, priorityLevel);
+        List<Map<String, Object>> claimed = new ArrayList<>();
+
+        PreparedStatement statement = conn.prepareStatement(OPTIMISTIC_CLAIM_SQL);
+        try {
+            for ( Map<String, Object> candidate : candidates ) {
+                if ( claimed.size() == recordsToFetch ) {
+                    break;
+                }
+
+                statement.setString(1, serverId);
+                statement.setTimestamp(2, claimedAt);
+                statement.setLong(3, ((Number) candidate.get("id")).longValue());
+                statement.setTimestamp(4, expired);
+                if ( statement.executeUpdate() == 1 ) {
+                    claimed.add(candidate);
+                }
+            }
+        } finally {
+            statement.close();
+        }
+
+        return claimed;
+    }
+
+    private List<Map<String, Object>> query ( Connection conn, String sql, Object... params ) throws SQLException {
+        return queryLimited(conn, sql, 0, params);
+    }
+
+    private List<Map<String, Object>> queryLimited ( Connection conn, String sql, int maxRows, Object... params ) throws SQLException {
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        PreparedStatement statement = conn.prepareStatement(sql);
+        try {
+            if ( maxRows > 0 ) {
+                statement.setMaxRows(maxRows);
+            }
+            for ( int i = 0; i < params.length; i++ ) {
+                statement.setObject(i + 1, params[i]);
+            }
+
+            ResultSet rs = statement.executeQuery();
+            try {
+                while ( rs.next() ) {
+                    Map<String, Object> record = new HashMap<>();
+                    record.put("id", rs.getLong("id"));
+                    record.put("inode_to_index", rs.getString("inode_to_index"));
+                    record.put("ident_to_index", rs.getString("ident_to_index"));
+                    record.put("priority", rs.getInt("priority"));
+                    results.add(record);
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+
+        return results;
+    }
+
+}
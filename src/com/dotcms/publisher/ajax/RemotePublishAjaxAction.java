@@ -400,6 +400,17 @@ public class RemotePublishAjaxAction extends AjaxAction {
         }
 
         response.setHeader( "Content-Disposition", "attachment; filename=" + config.getId() + ".tar.gz" );
+
+        //A pushed bundle may have left out the files its endpoints had, download all of them
+        if ( new File( bundleRoot, BundleManifest.FILE_NAME ).exists() ) {
+            try {
+                PushUtils.compressFiles( list, response.getOutputStream(), bundleRoot.getAbsolutePath() );
+            } catch ( Exception e ) {
+                Logger.warn( this.getClass(), "Error Downloading Bundle.", e );
+            }
+            return;
+        }
+
         BufferedInputStream in = null;
         try {
             in = new BufferedInputStream( new FileInputStream( bundle ) );
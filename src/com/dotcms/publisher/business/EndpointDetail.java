@@ -4,6 +4,8 @@ public class EndpointDetail {
 	private int status;
 	private String info;
 	private String stackTrace;
+	private long bytesSent;
+	private long transferMillis;
 	
 	public int getStatus() {
 		return status;
@@ -23,4 +25,25 @@ public class EndpointDetail {
 	public void setStackTrace(String stackTrace) {
 		this.stackTrace = stackTrace;
 	}
+	public long getBytesSent() {
+		return bytesSent;
+	}
+	public void setBytesSent(long bytesSent) {
+		this.bytesSent = bytesSent;
+	}
+	/**
+	 * How long sending the bundle to the endpoint took, until it answered
+	 */
+	public long getTransferMillis() {
+		return transferMillis;
+	}
+	public void setTransferMillis(long transferMillis) {
+		this.transferMillis = transferMillis;
+	}
+	/**
+	 * The rate the bundle was sent to the endpoint at, in bytes per second, 0 when it was not sent
+	 */
+	public long getBytesPerSecond() {
+		return transferMillis > 0 ? bytesSent * 1000 / transferMillis : 0;
+	}
 }
@@ -111,6 +111,11 @@ public class PublishAuditHistory implements Serializable {
 			EndpointDetail temp = groupMap.get(endpointId);
 			temp.setInfo(detail.getInfo());
 			temp.setStatus(detail.getStatus());
+			// The status read from the receiver does not know how the bundle was sent, keep it
+			if(detail.getTransferMillis() > 0) {
+				temp.setBytesSent(detail.getBytesSent());
+				temp.setTransferMillis(detail.getTransferMillis());
+			}
 		}
 	}
 	
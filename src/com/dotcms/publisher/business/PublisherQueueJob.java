@@ -5,6 +5,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.dotcms.enterprise.publishing.PublishDateUpdater;
 import com.dotcms.repackage.javax.ws.rs.client.Client;
@@ -43,6 +47,8 @@ public class PublisherQueueJob implements StatefulJob {
 
     public static final Integer MAX_NUM_TRIES = Config.getIntProperty( "PUBLISHER_QUEUE_MAX_TRIES", 3 );
 
+    private static ExecutorService bundlePool;
+
     /**
      * Reads from the publishing queue table and depending of the publish date will send a bundle<br/>
      * to publish ({@link com.dotcms.publishing.PublisherAPI#publish(com.dotcms.publishing.PublisherConfig)}).
@@ -80,6 +86,7 @@ public class PublisherQueueJob implements StatefulJob {
 				PublishAuditStatus status;
 				PublishAuditHistory historyPojo;
 				String tempBundleId;
+				PublishingBundles publishing = new PublishingBundles( getBundlePool() );
 
 				for(Map<String,Object> bundle: bundles) {
 					Date publishDate = (Date) bundle.get("publish_date");
@@ -127,21 +134,15 @@ public class PublisherQueueJob implements StatefulJob {
                             pconf.setOperation( PushPublisherConfig.Operation.UNPUBLISH );
                         }
 
-                        try {
-                            APILocator.getPublisherAPI().publish( pconf );
-                        } catch ( DotPublishingException e ) {
-                            /*
-                            If we are getting errors creating the bundle we should stop trying to publish it, this is not just a connection error,
-                            there is something wrong with a bundler or creating the bundle.
-                             */
-                            Logger.error( PublisherQueueJob.class, "Unable to publish Bundle: " + e.getMessage(), e );
-                            pubAuditAPI.updatePublishAuditStatus( pconf.getId(), PublishAuditStatus.Status.FAILED_TO_BUNDLE, historyPojo );
-                            pubAPI.deleteElementsFromPublishQueueTable( pconf.getId() );
-                        }
+                        // A bundle sharing assets with one still publishing waits for it, so their changes keep their order
+                        publishing.publish( assets.keySet(), new BundlePublish( pconf, historyPojo ) );
                     }
 
 				}
 
+				// The next run must not take the bundles still publishing
+				publishing.waitForAll();
+
 				Logger.debug(PublisherQueueJob.class, "Finished PublishQueue Job");
 			}
 
@@ -161,6 +162,66 @@ public class PublisherQueueJob implements StatefulJob {
 
 	}
 
+    /**
+     * Threads publishing the bundles of the queue, each one bundles and sends its bundle on its own session
+     */
+    private static synchronized ExecutorService getBundlePool () {
+        if ( bundlePool == null ) {
+            final int threads = Math.max( 1, Config.getIntProperty( "PUBLISHER_QUEUE_THREADS", 4 ) );
+            bundlePool = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread ( Runnable runnable ) {
+                    Thread thread = new Thread( runnable, "PublisherQueue-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            Logger.info( PublisherQueueJob.class, "Publisher queue publishes " + threads + " bundles at a time" );
+        }
+        return bundlePool;
+    }
+
+    private class BundlePublish implements Runnable {
+
+        private final PushPublisherConfig pconf;
+        private final PublishAuditHistory historyPojo;
+
+        BundlePublish ( PushPublisherConfig pconf, PublishAuditHistory historyPojo ) {
+            this.pconf = pconf;
+            this.historyPojo = historyPojo;
+        }
+
+        @Override
+        public void run () {
+            try {
+                APILocator.getPublisherAPI().publish( pconf );
+            } catch ( DotPublishingException e ) {
+                /*
+                If we are getting errors creating the bundle we should stop trying to publish it, this is not just a connection error,
+                there is something wrong with a bundler or creating the bundle.
+                 */
+                Logger.error( PublisherQueueJob.class, "Unable to publish Bundle: " + e.getMessage(), e );
+                try {
+                    pubAuditAPI.updatePublishAuditStatus( pconf.getId(), PublishAuditStatus.Status.FAILED_TO_BUNDLE, historyPojo );
+                    pubAPI.deleteElementsFromPublishQueueTable( pconf.getId() );
+                } catch ( DotPublisherException e1 ) {
+                    Logger.error( PublisherQueueJob.class, e1.getMessage(), e1 );
+                }
+            } finally {
+                try {
+                    HibernateUtil.closeSession();
+                } catch ( DotHibernateException e ) {
+                    Logger.warn( this, "exception while calling HibernateUtil.closeSession()", e );
+                } finally {
+                    DbConnectionFactory.closeConnection();
+                }
+            }
+        }
+    }
+
     /**
      * Method that updates the status of a Bundle in the job queue. This method also verifies and limit the number<br/>
      * of times a Bundle is allowed to try to be published in case of errors.
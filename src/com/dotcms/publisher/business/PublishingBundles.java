@@ -0,0 +1,59 @@
+package com.dotcms.publisher.business;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * The bundles a run of the {@link PublisherQueueJob} publishes, each one on a thread of the pool. A bundle that shares
+ * an asset with one still publishing waits for it before it starts, so the changes to an asset keep the order they
+ * were queued in.
+ */
+class PublishingBundles {
+
+    private final ExecutorService pool;
+    private final Map<String, Future<?>> publishing = new HashMap<String, Future<?>>();
+
+    PublishingBundles ( ExecutorService pool ) {
+        this.pool = pool;
+    }
+
+    /**
+     * Submits the bundle to the pool once the bundles publishing any of its assets are done
+     */
+    void publish ( Collection<String> assets, Runnable bundle ) throws InterruptedException {
+        for ( String asset : assets ) {
+            waitFor( publishing.get( asset ) );
+        }
+        Future<?> result = pool.submit( bundle );
+        for ( String asset : assets ) {
+            publishing.put( asset, result );
+        }
+    }
+
+    /**
+     * Waits for all the bundles, the next run must not take the ones still publishing
+     */
+    void waitForAll () throws InterruptedException {
+        for ( Future<?> result : publishing.values() ) {
+            waitFor( result );
+        }
+        publishing.clear();
+    }
+
+    private static void waitFor ( Future<?> result ) throws InterruptedException {
+        if ( result != null ) {
+            try {
+                result.get();
+            } catch ( ExecutionException e ) {
+                Logger.error( PublisherQueueJob.class, e.getMessage(), e );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.dotcms.publisher.pusher;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collections;
+
+/**
+ * The tar.gz of a bundle, readable while it is being compressed. The bundle is still written to its file, where the
+ * retry and download of bundles expect it, and the streams returned by {@link #open()} follow that file as it grows, so
+ * the bundle is sent to the endpoints at the same time it is compressed, and compressed only once for all of them.
+ */
+public class CompressedBundle {
+
+	private final File file;
+	private final Object lock = new Object();
+
+	private long written = 0;
+	private boolean finished = false;
+	private IOException error;
+
+	/**
+	 * Creates the bundle file, empty, so it can be opened before the compression starts and no reader gets the bundle
+	 * of a previous try
+	 */
+	public CompressedBundle ( File file ) throws IOException {
+		this.file = file;
+		new FileOutputStream(file).close();
+	}
+
+	public File getFile () {
+		return file;
+	}
+
+	/**
+	 * Compresses the bundle root into the file, on the calling thread. The streams already open get the bytes as they
+	 * are written, and their end once it is done.
+	 */
+	public void compress ( File bundleRoot ) throws IOException {
+		compress(bundleRoot, null);
+	}
+
+	/**
+	 * Compresses the files of the bundle root accepted by the filter, all of them when it is null
+	 */
+	public void compress ( File bundleRoot, FileFilter filter ) throws IOException {
+		write(out -> PushUtils.compressFiles(Collections.singletonList(bundleRoot), out, bundleRoot.getAbsolutePath(), filter));
+	}
+
+	/**
+	 * Writes the content of the file, which is expected to close the stream it is given
+	 */
+	interface Content {
+
+		void writeTo ( OutputStream out ) throws IOException;
+	}
+
+	void write ( Content content ) throws IOException {
+
+		IOException failure = null;
+		try {
+			content.writeTo(new CountingOutputStream(new FileOutputStream(file)));
+		} catch ( IOException e ) {
+			failure = e;
+			throw e;
+		} catch ( RuntimeException e ) {
+			failure = new IOException("Unable to compress bundle " + file.getName(), e);
+			throw e;
+		} finally {
+			synchronized ( lock ) {
+				finished = true;
+				error = failure;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * A stream of the whole bundle. Reading it blocks until the compression wrote the next bytes, and fails if the
+	 * compression failed.
+	 */
+	public InputStream open () throws IOException {
+		return new FollowingInputStream(new FileInputStream(file));
+	}
+
+	private void waitForBytes () throws InterruptedIOException {
+		try {
+			lock.wait();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for bundle " + file.getName());
+		}
+	}
+
+	/**
+	 * Counts the bytes that reached the file, which are the ones the readers can safely read
+	 */
+	private class CountingOutputStream extends FilterOutputStream {
+
+		CountingOutputStream ( OutputStream out ) {
+			super(out);
+		}
+
+		@Override
+		public void write ( int b ) throws IOException {
+			out.write(b);
+			wrote(1);
+		}
+
+		@Override
+		public void write ( byte[] b, int off, int len ) throws IOException {
+			out.write(b, off, len);
+			wrote(len);
+		}
+
+		private void wrote ( int len ) {
+			synchronized ( lock ) {
+				written += len;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private class FollowingInputStream extends InputStream {
+
+		private final InputStream in;
+		private long position = 0;
+
+		FollowingInputStream ( InputStream in ) {
+			this.in = in;
+		}
+
+		@Override
+		public int read () throws IOException {
+			byte[] b = new byte[1];
+			int read = read(b, 0, 1);
+			return read == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read ( byte[] b, int off, int len ) throws IOException {
+			if ( len == 0 ) {
+				return 0;
+			}
+			long available;
+			synchronized ( lock ) {
+				while ( position >= written && !finished ) {
+					waitForBytes();
+				}
+				if ( error != null ) {
+					throw error;
+				}
+				available = written - position;
+			}
+			if ( available <= 0 ) {
+				return -1;
+			}
+			int read = in.read(b, off, (int) Math.min(len, available));
+			if ( read > 0 ) {
+				position += read;
+			}
+			return read;
+		}
+
+		@Override
+		public void close () throws IOException {
+			in.close();
+		}
+	}
+
+}
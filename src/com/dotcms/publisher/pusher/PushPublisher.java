@@ -1,12 +1,27 @@
 package com.dotcms.publisher.pusher;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.dotcms.enterprise.LicenseUtil;
 import com.dotcms.enterprise.publishing.remote.bundler.*;
@@ -21,6 +36,8 @@ import com.dotcms.publisher.business.PublisherQueueJob;
 import com.dotcms.publisher.endpoint.bean.PublishingEndPoint;
 import com.dotcms.publisher.environment.bean.Environment;
 import com.dotcms.publisher.util.TrustFactory;
+import com.dotcms.publishing.BundleCodec;
+import com.dotcms.publishing.BundleManifest;
 import com.dotcms.publishing.BundlerUtil;
 import com.dotcms.publishing.DotPublishingException;
 import com.dotcms.publishing.PublishStatus;
@@ -33,8 +50,11 @@ import com.dotcms.repackage.javax.ws.rs.core.MediaType;
 import com.dotcms.repackage.javax.ws.rs.core.Response;
 import com.dotcms.repackage.org.apache.commons.httpclient.HttpStatus;
 import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import com.dotcms.repackage.org.apache.commons.io.IOUtils;
+import com.dotcms.repackage.org.glassfish.jersey.client.ClientProperties;
+import com.dotcms.repackage.org.glassfish.jersey.client.RequestEntityProcessing;
 import com.dotcms.repackage.org.glassfish.jersey.media.multipart.FormDataMultiPart;
-import com.dotcms.repackage.org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import com.dotcms.repackage.org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
 import com.dotcms.rest.RestClientBuilder;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.cms.factories.PublicEncryptionFactory;
@@ -44,6 +64,11 @@ import com.dotmarketing.util.UtilMethods;
 
 public class PushPublisher extends Publisher {
 
+    private static ExecutorService endpointPool;
+
+    private static final long FORMATS_TTL = 10 * 60 * 1000L;
+    private static final ConcurrentMap<String, EndpointFormats> endpointFormats = new ConcurrentHashMap<String, EndpointFormats>();
+
     private PublishAuditAPI pubAuditAPI = PublishAuditAPI.getInstance();
 	private TrustFactory tFactory;
 
@@ -56,13 +81,100 @@ public class PushPublisher extends Publisher {
         this.config = super.init( config );
         tFactory = new TrustFactory();
 
+        // The bundlers write the bundle in the format all its endpoints read, a downloaded bundle may go anywhere
+        if ( !(config instanceof PushPublisherConfig && ((PushPublisherConfig) config).isDownloading()) ) {
+            BundlerUtil.setBundleCodec( this.config, negotiateCodec() );
+        }
+
         return this.config;
     }
 
+    /**
+     * The binary format when all the enabled endpoints of the environments of this bundle read it, XML otherwise
+     */
+    private BundleCodec negotiateCodec () {
+        if ( !Config.getBooleanProperty( "PUSH_PUBLISHING_BINARY_BUNDLES", true ) ) {
+            return BundleCodec.XML;
+        }
+        try {
+            Client client = null;
+            boolean hasEndpoints = false;
+            for ( Environment environment : APILocator.getEnvironmentAPI().findEnvironmentsByBundleId( config.getId() ) ) {
+                for ( PublishingEndPoint endpoint : APILocator.getPublisherEndPointAPI().findSendingEndPointsByEnvironment( environment.getId() ) ) {
+                    if ( !endpoint.isEnabled() ) {
+                        continue;
+                    }
+                    if ( client == null ) {
+                        client = RestClientBuilder.newClient();
+                    }
+                    if ( !getFormats( client, endpoint ).contains( BundleCodec.BINARY.getName() ) ) {
+                        return BundleCodec.XML;
+                    }
+                    hasEndpoints = true;
+                }
+            }
+            return hasEndpoints ? BundleCodec.BINARY : BundleCodec.XML;
+        } catch ( Exception e ) {
+            Logger.warn( this, "Unable to negotiate the format of bundle " + config.getId() + ", writing XML: " + e.getMessage() );
+            return BundleCodec.XML;
+        }
+    }
+
+    /**
+     * The formats the endpoint reads, asked at most once every {@link #FORMATS_TTL}. Only XML when it could not answer,
+     * as the versions before the binary format.
+     */
+    private static Set<String> getFormats ( Client client, PublishingEndPoint endpoint ) {
+        EndpointFormats known = endpointFormats.get( endpoint.getId() );
+        if ( known != null && System.currentTimeMillis() - known.time < FORMATS_TTL ) {
+            return known.formats;
+        }
+
+        Set<String> formats = new HashSet<String>();
+        formats.add( BundleCodec.XML.getName() );
+        try {
+            FormDataMultiPart form = new FormDataMultiPart();
+            form.field( "AUTH_TOKEN",
+                    retriveKeyString(
+                            PublicEncryptionFactory.decryptString( endpoint.getAuthKey().toString() ) ) );
+
+            WebTarget webTarget = client.target( endpoint.toURL() + "/api/bundlePublisher/formats" );
+
+            Response response = webTarget.request( MediaType.TEXT_PLAIN_TYPE ).post( Entity.entity( form, form.getMediaType() ) );
+            try {
+                if ( response.getStatus() == HttpStatus.SC_OK ) {
+                    for ( String format : response.readEntity( String.class ).split( "\n" ) ) {
+                        if ( format.trim().length() > 0 ) {
+                            formats.add( format.trim() );
+                        }
+                    }
+                }
+            } finally {
+                response.close();
+            }
+        } catch ( Exception e ) {
+            Logger.warn( PushPublisher.class, "Unable to ask endpoint " + endpoint.getId() + " for the formats it reads: " + e.getMessage() );
+        }
+
+        endpointFormats.put( endpoint.getId(), new EndpointFormats( formats ) );
+        return formats;
+    }
+
+    private static class EndpointFormats {
+
+        private final Set<String> formats;
+        private final long time = System.currentTimeMillis();
+
+        EndpointFormats ( Set<String> formats ) {
+            this.formats = formats;
+        }
+    }
+
     /**
      * Final step on the Publishing of a Bundle. This method will generate the Bundle file compressing all the information<br/>
-     * generated by the Bundlers into a tar.gz file what will live on the assets directory, after the Bundle is created<br/>
-     * this process will try to send the Bundle to a list of previously selected Environments.
+     * generated by the Bundlers into a tar.gz file what will live on the assets directory, while the Bundle is compressed<br/>
+     * it is sent to all the endpoints of a list of previously selected Environments at the same time, which read it as it<br/>
+     * is written. The files all the endpoints already have are left out of the bundle, see {@link BundleManifest}.
      *
      * @param status Current status of the Publishing process
      * @return This bundle configuration ({@link PublisherConfig})
@@ -77,18 +189,15 @@ public class PushPublisher extends Publisher {
 
 	    PublishAuditHistory currentStatusHistory = null;
 		try {
-			//Compressing bundle
 			File bundleRoot = BundlerUtil.getBundleRoot(config);
-
-			ArrayList<File> list = new ArrayList<File>(1);
-			list.add(bundleRoot);
-			File bundle = new File(bundleRoot+File.separator+".."+File.separator+config.getId()+".tar.gz");
-			PushUtils.compressFiles(list, bundle, bundleRoot.getAbsolutePath());
+			File bundleFile = new File(bundleRoot+File.separator+".."+File.separator+config.getId()+".tar.gz");
 
 			List<Environment> environments = APILocator.getEnvironmentAPI().findEnvironmentsByBundleId(config.getId());
 
 
 			Client client = RestClientBuilder.newClient();
+			// Send the bundle as it is read, instead of buffering the whole request to know its length
+			client.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED);
 
 			//Updating audit table
 			currentStatusHistory = pubAuditAPI.getPublishAuditStatus(config.getId()).getStatusPojo();
@@ -100,10 +209,9 @@ public class PushPublisher extends Publisher {
 			//Increment numTries
 			currentStatusHistory.addNumTries();
 
+			Bundle b=APILocator.getBundleAPI().getBundleById(config.getId());
 
-//	        boolean hasError = false;
-	        int errorCounter = 0;
-
+			Map<String, List<PublishingEndPoint>> selectedEndpoints = new LinkedHashMap<String, List<PublishingEndPoint>>();
 			for (Environment environment : environments) {
 				List<PublishingEndPoint> allEndpoints = APILocator.getPublisherEndPointAPI().findSendingEndPointsByEnvironment(environment.getId());
 				List<PublishingEndPoint> endpoints = new ArrayList<PublishingEndPoint>();
@@ -115,71 +223,56 @@ public class PushPublisher extends Publisher {
 					}
 				}
 
-				boolean failedEnvironment = false;
-
 				if(!environment.getPushToAll()) {
 					Collections.shuffle(endpoints);
 					if(!endpoints.isEmpty())
 						endpoints = endpoints.subList(0, 1);
 				}
+				selectedEndpoints.put(environment.getId(), endpoints);
+			}
 
-				for (PublishingEndPoint endpoint : endpoints) {
-					EndpointDetail detail = new EndpointDetail();
-	        		try {
-	        			FormDataMultiPart form = new FormDataMultiPart();
-	        			form.field("AUTH_TOKEN",
-	        					retriveKeyString(
-	        							PublicEncryptionFactory.decryptString(endpoint.getAuthKey().toString())));
-
-	        			form.field("GROUP_ID", UtilMethods.isSet(endpoint.getGroupId()) ? endpoint.getGroupId() : endpoint.getId());
-	        			Bundle b=APILocator.getBundleAPI().getBundleById(config.getId());
-	        			form.field("BUNDLE_NAME", b.getName());
-	        			form.field("ENDPOINT_ID", endpoint.getId());
-	        			form.bodyPart(new FileDataBodyPart("bundle", bundle, MediaType.MULTIPART_FORM_DATA_TYPE));
-
-                        WebTarget webTarget = client.target(endpoint.toURL()+"/api/bundlePublisher/publish");
-
-                        Response response = webTarget.request(MediaType.APPLICATION_JSON_TYPE).post(Entity.entity(form, form.getMediaType()));
-
-	        			if(response.getStatus() == HttpStatus.SC_OK)
-	        			{
-	        				detail.setStatus(PublishAuditStatus.Status.BUNDLE_SENT_SUCCESSFULLY.getCode());
-	        				detail.setInfo("Everything ok");
-	        			} else {
-
-	        				if(currentStatusHistory.getNumTries()==PublisherQueueJob.MAX_NUM_TRIES) {
-		        				APILocator.getPushedAssetsAPI().deletePushedAssets(config.getId(), environment.getId());
-		        			}
-	        				detail.setStatus(PublishAuditStatus.Status.FAILED_TO_SENT.getCode());
-	        				detail.setInfo(
-	        						"Returned "+response.getStatus()+ " status code " +
-	        								"for the endpoint "+endpoint.getId()+ "with address "+endpoint.getAddress());
-	        				failedEnvironment |= true;
+			//Leave out of the bundle the files all the endpoints already have
+			FileFilter deltaFilter = getDeltaFilter(client, bundleRoot, selectedEndpoints.values());
 
-	        			}
-	        		} catch(Exception e) {
+			//Start sending to every endpoint, they wait for the bytes of the bundle while it is compressed
+			CompressedBundle bundle = new CompressedBundle(bundleFile);
+			Map<String, List<EndpointPush>> pushes = new LinkedHashMap<String, List<EndpointPush>>();
 
-	        			// if the bundle can't be sent after the total num of tries, delete the pushed assets for this bundle
-	        			if(currentStatusHistory.getNumTries()==PublisherQueueJob.MAX_NUM_TRIES) {
-	        				APILocator.getPushedAssetsAPI().deletePushedAssets(config.getId(), environment.getId());
-	        			}
-//	        			hasError = true;
-	        			detail.setStatus(PublishAuditStatus.Status.FAILED_TO_SENT.getCode());
+			try {
+				for (Map.Entry<String, List<PublishingEndPoint>> environmentEndpoints : selectedEndpoints.entrySet()) {
+					List<EndpointPush> environmentPushes = new ArrayList<EndpointPush>();
+					for (PublishingEndPoint endpoint : environmentEndpoints.getValue()) {
+						EndpointPush push = new EndpointPush(client, bundle, endpoint, b.getName());
+						push.result = getEndpointPool().submit(push);
+						environmentPushes.add(push);
+					}
+					pushes.put(environmentEndpoints.getKey(), environmentPushes);
+				}
+			} finally {
+				//Compressing bundle, also when an endpoint could not be started so the others get the whole bundle
+				bundle.compress(bundleRoot, deltaFilter);
+			}
 
-	        			String error = 	"An error occured for the endpoint "+ endpoint.getId() + " with address "+ endpoint.getAddress() + ".  Error: " + e.getMessage();
+//	        boolean hasError = false;
+	        int errorCounter = 0;
 
+			for (Environment environment : environments) {
+				boolean failedEnvironment = false;
 
-	        			detail.setInfo(error);
-	        			failedEnvironment |= true;
+				for (EndpointPush push : pushes.get(environment.getId())) {
+					EndpointDetail detail = push.result.get();
+					failedEnvironment |= detail.getStatus() != PublishAuditStatus.Status.BUNDLE_SENT_SUCCESSFULLY.getCode();
 
-	        			Logger.error(this.getClass(), error);
-	        		}
 	        		if (isHistoryEmpty || failedEnvironment) {
-	        			currentStatusHistory.addOrUpdateEndpoint(environment.getId(), endpoint.getId(), detail);
+	        			currentStatusHistory.addOrUpdateEndpoint(environment.getId(), push.endpoint.getId(), detail);
 	        		}
 				}
 
 				if(failedEnvironment) {
+        			// if the bundle can't be sent after the total num of tries, delete the pushed assets for this bundle
+        			if(currentStatusHistory.getNumTries()==PublisherQueueJob.MAX_NUM_TRIES) {
+        				APILocator.getPushedAssetsAPI().deletePushedAssets(config.getId(), environment.getId());
+        			}
 //					hasError = true;
 					errorCounter++;
 				}
@@ -221,6 +314,208 @@ public class PushPublisher extends Publisher {
 		}
 	}
 
+	/**
+	 * Writes the manifest of the bundle and asks the endpoints which of its files they do not have. Returns a filter
+	 * leaving out the files all of them have, or null to send the whole bundle: when delta bundles are disabled, or an
+	 * endpoint could not answer (an older version, for example).
+	 *
+	 * @see com.dotcms.publisher.receiver.BundleBlobStore
+	 */
+	private FileFilter getDeltaFilter ( Client client, final File bundleRoot, Collection<List<PublishingEndPoint>> environmentEndpoints )
+			throws IOException, InterruptedException, ExecutionException {
+
+		if ( !Config.getBooleanProperty("PUSH_PUBLISHING_DELTA_BUNDLES", true) ) {
+			// A manifest left by a previous try would describe other files
+			new File(bundleRoot, BundleManifest.FILE_NAME).delete();
+			return null;
+		}
+
+		final BundleManifest manifest = BundleManifest.create(bundleRoot);
+		manifest.write(bundleRoot);
+
+		final Set<String> hashes = manifest.getDistinctHashes();
+		StringBuilder body = new StringBuilder();
+		for ( String hash : hashes ) {
+			body.append(hash).append('\n');
+		}
+
+		List<Future<Set<String>>> answers = new ArrayList<Future<Set<String>>>();
+		for ( List<PublishingEndPoint> endpoints : environmentEndpoints ) {
+			for ( PublishingEndPoint endpoint : endpoints ) {
+				answers.add(getEndpointPool().submit(new MissingFiles(client, endpoint, body.toString())));
+			}
+		}
+		if ( answers.isEmpty() ) {
+			return null;
+		}
+
+		final Set<String> leftOut = new HashSet<String>(hashes);
+		for ( Future<Set<String>> answer : answers ) {
+			Set<String> missing = answer.get();
+			if ( missing == null ) {
+				return null;
+			}
+			leftOut.removeAll(missing);
+		}
+		if ( leftOut.isEmpty() ) {
+			return null;
+		}
+
+		Logger.info(this, "Bundle " + config.getId() + " leaves out " + leftOut.size() + " of " + hashes.size()
+				+ " files (" + manifest.getSize(bundleRoot, leftOut) / 1024 + " KB) the endpoints already have");
+
+		return new FileFilter() {
+			@Override
+			public boolean accept ( File file ) {
+				String hash = manifest.getHash(bundleRoot, file);
+				return hash == null || !leftOut.contains(hash);
+			}
+		};
+	}
+
+	/**
+	 * Asks an endpoint which of the hashes of the files of a bundle it does not have, null when it could not answer
+	 */
+	private static class MissingFiles implements Callable<Set<String>> {
+
+		private final Client client;
+		private final PublishingEndPoint endpoint;
+		private final String hashes;
+
+		MissingFiles ( Client client, PublishingEndPoint endpoint, String hashes ) {
+			this.client = client;
+			this.endpoint = endpoint;
+			this.hashes = hashes;
+		}
+
+		@Override
+		public Set<String> call () {
+			try {
+				FormDataMultiPart form = new FormDataMultiPart();
+				form.field("AUTH_TOKEN",
+						retriveKeyString(
+								PublicEncryptionFactory.decryptString(endpoint.getAuthKey().toString())));
+				form.field("HASHES", hashes);
+
+				WebTarget webTarget = client.target(endpoint.toURL()+"/api/bundlePublisher/missing");
+
+				Response response = webTarget.request(MediaType.TEXT_PLAIN_TYPE).post(Entity.entity(form, form.getMediaType()));
+				try {
+					if ( response.getStatus() != HttpStatus.SC_OK ) {
+						Logger.warn(PushPublisher.class, "Endpoint " + endpoint.getId() + " returned " + response.getStatus()
+								+ " asking for the files it has, sending the whole bundle");
+						return null;
+					}
+					Set<String> missing = new HashSet<String>();
+					for ( String hash : response.readEntity(String.class).split("\n") ) {
+						if ( BundleManifest.isHash(hash.trim()) ) {
+							missing.add(hash.trim());
+						}
+					}
+					return missing;
+				} finally {
+					response.close();
+				}
+			} catch ( Exception e ) {
+				Logger.warn(PushPublisher.class, "Unable to ask endpoint " + endpoint.getId() + " for the files it has, sending the whole bundle: " + e.getMessage());
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Threads sending the bundles to the endpoints, shared by all the bundles being published
+	 */
+	private static synchronized ExecutorService getEndpointPool () {
+		if ( endpointPool == null ) {
+			final int threads = Math.max(1, Config.getIntProperty("PUSH_PUBLISHING_ENDPOINT_THREADS", 8));
+			endpointPool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread ( Runnable runnable ) {
+					Thread thread = new Thread(runnable, "PushPublisher-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			Logger.info(PushPublisher.class, "Push publishing sends bundles with " + threads + " threads");
+		}
+		return endpointPool;
+	}
+
+	/**
+	 * Sends the bundle to one endpoint, reading it while it is compressed. It does not touch the database, the
+	 * publisher records its result on the thread of the bundle.
+	 */
+	private static class EndpointPush implements Callable<EndpointDetail> {
+
+		private final Client client;
+		private final CompressedBundle bundle;
+		private final PublishingEndPoint endpoint;
+		private final String bundleName;
+		private Future<EndpointDetail> result;
+
+		EndpointPush ( Client client, CompressedBundle bundle, PublishingEndPoint endpoint, String bundleName ) {
+			this.client = client;
+			this.bundle = bundle;
+			this.endpoint = endpoint;
+			this.bundleName = bundleName;
+		}
+
+		@Override
+		public EndpointDetail call () {
+			EndpointDetail detail = new EndpointDetail();
+			long start = System.currentTimeMillis();
+			InputStream in = null;
+			try {
+				FormDataMultiPart form = new FormDataMultiPart();
+				form.field("AUTH_TOKEN",
+						retriveKeyString(
+								PublicEncryptionFactory.decryptString(endpoint.getAuthKey().toString())));
+
+				form.field("GROUP_ID", UtilMethods.isSet(endpoint.getGroupId()) ? endpoint.getGroupId() : endpoint.getId());
+				form.field("BUNDLE_NAME", bundleName);
+				form.field("ENDPOINT_ID", endpoint.getId());
+				in = bundle.open();
+				form.bodyPart(new StreamDataBodyPart("bundle", in, bundle.getFile().getName(), MediaType.MULTIPART_FORM_DATA_TYPE));
+
+				WebTarget webTarget = client.target(endpoint.toURL()+"/api/bundlePublisher/publish");
+
+				Response response = webTarget.request(MediaType.APPLICATION_JSON_TYPE).post(Entity.entity(form, form.getMediaType()));
+				detail.setTransferMillis(Math.max(1, System.currentTimeMillis() - start));
+
+				if(response.getStatus() == HttpStatus.SC_OK)
+				{
+					detail.setBytesSent(bundle.getFile().length());
+					detail.setStatus(PublishAuditStatus.Status.BUNDLE_SENT_SUCCESSFULLY.getCode());
+					detail.setInfo("Everything ok");
+					Logger.info(PushPublisher.class, "Sent " + bundle.getFile().getName() + " to endpoint " + endpoint.getId()
+							+ " at " + detail.getBytesPerSecond() / 1024 + " KB/s in " + detail.getTransferMillis() + " ms");
+				} else {
+					detail.setStatus(PublishAuditStatus.Status.FAILED_TO_SENT.getCode());
+					detail.setInfo(
+							"Returned "+response.getStatus()+ " status code " +
+									"for the endpoint "+endpoint.getId()+ "with address "+endpoint.getAddress());
+				}
+				response.close();
+			} catch(Exception e) {
+				detail.setStatus(PublishAuditStatus.Status.FAILED_TO_SENT.getCode());
+
+				String error = 	"An error occured for the endpoint "+ endpoint.getId() + " with address "+ endpoint.getAddress() + ".  Error: " + e.getMessage();
+
+
+				detail.setInfo(error);
+
+				Logger.error(PushPublisher.class, error);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+			return detail;
+		}
+	}
+
 	public static String retriveKeyString(String token) throws IOException {
 		String key = null;
 		if(token.contains(File.separator)) {
@@ -4,8 +4,10 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.zip.GZIPOutputStream;
 
@@ -32,23 +34,51 @@ public class PushUtils {
 	{
 		Logger.info(PushUtils.class, "Compressing "+files.size() + " to "+output.getAbsoluteFile());
 	               // Create the output stream for the output file
-		FileOutputStream fos = new FileOutputStream(output);
+		compressFiles(files, new FileOutputStream(output), bundleRoot);
+		return output;
+	}
+
+	/**
+	 * Compress (tar.gz) the input files into the given stream, which is closed once all the files were written
+	 *
+	 * @param files The files to compress
+	 * @param out The stream the tar.gz is written to
+	 * @param bundleRoot
+	 * @throws IOException
+	 */
+	public static void compressFiles(Collection<File> files, OutputStream out, String bundleRoot)
+		throws IOException
+	{
+		compressFiles(files, out, bundleRoot, null);
+	}
+
+	/**
+	 * Compress (tar.gz) the input files into the given stream, leaving out the files not accepted by the filter
+	 *
+	 * @param files The files to compress
+	 * @param out The stream the tar.gz is written to
+	 * @param bundleRoot
+	 * @param filter The files to write, all of them when null. Directories are always written
+	 * @throws IOException
+	 */
+	public static void compressFiles(Collection<File> files, OutputStream out, String bundleRoot, FileFilter filter)
+		throws IOException
+	{
 	               // Wrap the output file stream in streams that will tar and gzip everything
 		TarArchiveOutputStream taos = new TarArchiveOutputStream(
-			new GZIPOutputStream(new BufferedOutputStream(fos)));
-
+			new GZIPOutputStream(new BufferedOutputStream(out)));
+		try {
 	               // TAR originally didn't support long file names, so enable the support for it
-		taos.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+			taos.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
 
 	               // Get to putting all the files in the compressed output file
-		for (File f : files) {
-			addFilesToCompression(taos, f, ".", bundleRoot);
-		}
-
+			for (File f : files) {
+				addFilesToCompression(taos, f, ".", bundleRoot, filter);
+			}
+		} finally {
 	               // Close everything up
-		taos.close();
-		fos.close();
-		return output;
+			taos.close();
+		}
 	}
 	
 	
@@ -63,10 +93,10 @@ public class PushUtils {
 	        * @param dir The directory that should serve as the parent directory in the archivew
 	 * @throws IOException
 	 */
-	private static void addFilesToCompression(TarArchiveOutputStream taos, File file, String dir, String bundleRoot)
+	private static void addFilesToCompression(TarArchiveOutputStream taos, File file, String dir, String bundleRoot, FileFilter filter)
 		throws IOException
 	{
-	    	if(!file.isHidden()) {
+	    	if(!file.isHidden() && (filter == null || file.isDirectory() || filter.accept(file))) {
 	    		// Create an entry for the file
 	    		if(!dir.equals("."))
 	    			if(File.separator.equals("\\")){
@@ -76,7 +106,7 @@ public class PushUtils {
 				if (file.isFile()) {
 			        // Add the file to the archive
 					BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
-					IOUtils.copy(new FileInputStream(file), taos);
+					IOUtils.copy(bis, taos);
 					taos.closeArchiveEntry();
 					bis.close();
 				} else if (file.isDirectory()) {
@@ -86,7 +116,7 @@ public class PushUtils {
 						taos.closeArchiveEntry();
 			         // go through all the files in the directory and using recursion, add them to the archive
 					for (File childFile : file.listFiles()) {
-						addFilesToCompression(taos, childFile, file.getPath().substring(bundleRoot.length()), bundleRoot);
+						addFilesToCompression(taos, childFile, file.getPath().substring(bundleRoot.length()), bundleRoot, filter);
 					}
 				}
 	    	}
@@ -0,0 +1,143 @@
+package com.dotcms.publisher.receiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.dotcms.publishing.BundleManifest;
+import com.dotcms.publishing.DotPublishingException;
+import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+
+/**
+ * The files of the bundles this server received, stored once by their SHA-256. A sender asks which of the files of a
+ * bundle are here ({@link #getMissing(Collection)}) and sends the others, the bundle is then completed from here
+ * before it is published ({@link #restore(File, BundleManifest)}).
+ * <p>
+ * Files not used by any bundle for {@code PUSH_PUBLISHING_BLOB_MAX_AGE_DAYS} are deleted.
+ * </p>
+ */
+public class BundleBlobStore {
+
+	private static final long PRUNE_INTERVAL = 60 * 60 * 1000L;
+	private static volatile long lastPrune = 0;
+
+	private final File root;
+
+	public BundleBlobStore () {
+		this(new File(ConfigUtils.getBundleBlobPath()));
+	}
+
+	BundleBlobStore ( File root ) {
+		this.root = root;
+	}
+
+	private File getFile ( String hash ) {
+		return new File(new File(root, hash.substring(0, 2)), hash);
+	}
+
+	/**
+	 * Returns the hashes that are not stored here. The ones that are have their age reset, so they are still here when
+	 * the bundle that needs them arrives.
+	 */
+	public Set<String> getMissing ( Collection<String> hashes ) {
+		Set<String> missing = new LinkedHashSet<String>();
+		long now = System.currentTimeMillis();
+		for ( String hash : hashes ) {
+			if ( !BundleManifest.isHash(hash) ) {
+				continue;
+			}
+			File file = getFile(hash);
+			if ( !file.exists() || !file.setLastModified(now) ) {
+				missing.add(hash);
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Completes an extracted bundle: copies here the files it left out, and keeps the ones it brought for the next
+	 * bundles.
+	 *
+	 * @throws DotPublishingException If a file left out of the bundle is not here, or is outside of the bundle
+	 */
+	public void restore ( File bundleRoot, BundleManifest manifest ) throws DotPublishingException, IOException {
+
+		String rootPath = bundleRoot.getCanonicalPath() + File.separator;
+		int restored = 0;
+		int stored = 0;
+		for ( Map.Entry<String, String> entry : manifest.getHashes().entrySet() ) {
+			File file = new File(bundleRoot, entry.getKey());
+			if ( !file.getCanonicalPath().startsWith(rootPath) ) {
+				throw new DotPublishingException("Bundle file outside of the bundle: " + entry.getKey());
+			}
+			File blob = getFile(entry.getValue());
+
+			if ( !file.exists() ) {
+				if ( !blob.exists() ) {
+					throw new DotPublishingException("Bundle file " + entry.getKey() + " was not sent and is not stored here");
+				}
+				FileUtils.copyFile(blob, file);
+				restored++;
+			} else if ( !blob.exists() ) {
+				// Only keep what the sender said it was
+				if ( entry.getValue().equals(BundleManifest.hash(file)) ) {
+					store(file, blob);
+					stored++;
+				} else {
+					Logger.warn(this, "Bundle file " + entry.getKey() + " does not match its hash, not keeping it");
+				}
+			}
+		}
+		Logger.info(this, "Bundle " + bundleRoot.getName() + ": " + restored + " files restored, " + stored + " files kept for the next bundles");
+	}
+
+	private void store ( File file, File blob ) throws IOException {
+		File dir = blob.getParentFile();
+		dir.mkdirs();
+		File temp = new File(dir, blob.getName() + "." + Thread.currentThread().getId() + ".tmp");
+		FileUtils.copyFile(file, temp);
+		if ( !temp.renameTo(blob) ) {
+			// Another bundle stored it first
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Deletes the files not used for {@code PUSH_PUBLISHING_BLOB_MAX_AGE_DAYS}, at most once an hour
+	 */
+	public void pruneIfDue () {
+		long now = System.currentTimeMillis();
+		if ( now - lastPrune < PRUNE_INTERVAL ) {
+			return;
+		}
+		lastPrune = now;
+
+		long maxAge = Config.getIntProperty("PUSH_PUBLISHING_BLOB_MAX_AGE_DAYS", 30) * 24L * 60 * 60 * 1000;
+		int deleted = 0;
+		File[] dirs = root.listFiles();
+		if ( dirs == null ) {
+			return;
+		}
+		for ( File dir : dirs ) {
+			File[] blobs = dir.listFiles();
+			if ( blobs == null ) {
+				continue;
+			}
+			for ( File blob : blobs ) {
+				if ( now - blob.lastModified() > maxAge && blob.delete() ) {
+					deleted++;
+				}
+			}
+		}
+		if ( deleted > 0 ) {
+			Logger.info(this, "Deleted " + deleted + " bundle files not used for " + maxAge / (24L * 60 * 60 * 1000) + " days");
+		}
+	}
+
+}
@@ -156,6 +156,15 @@ public class BundlePublisher extends Publisher {
         try {
         	HibernateUtil.startTransaction();
 
+            //Complete the bundle with the files the sender left out because we already had them
+            BundleManifest manifest = BundleManifest.read( folderOut );
+            if ( manifest != null ) {
+                BundleBlobStore blobStore = new BundleBlobStore();
+                blobStore.restore( folderOut, manifest );
+                new File( folderOut, BundleManifest.FILE_NAME ).delete();
+                blobStore.pruneIfDue();
+            }
+
             //Execute the handlers
             for ( IHandler handler : handlers ) {
             	
@@ -1,24 +1,20 @@
 package com.dotcms.publisher.util;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import com.dotcms.publisher.pusher.wrapper.CategoryWrapper;
-import com.dotcms.repackage.com.thoughtworks.xstream.XStream;
-import com.dotcms.repackage.com.thoughtworks.xstream.io.xml.DomDriver;
+import com.dotcms.publishing.BundlerUtil;
 import static com.dotcms.enterprise.publishing.remote.bundler.CategoryBundler.CATEGORY_EXTENSION;
 
 public class PushCategoryUtil {
 	
 	private Collection<File> categories;
-	private XStream xstream;
 	
 	public PushCategoryUtil(Collection<File> categories){
 		this.categories = categories;
-		xstream=new XStream(new DomDriver());
 	}
 	
 	/**
@@ -48,8 +44,13 @@ public class PushCategoryUtil {
 		return wrapper;
 	}
 	
+	/**
+	 * Reads the wrapper in any of the formats of {@link com.dotcms.publishing.BundleCodec}, the bundle may be binary
+	 */
 	private CategoryWrapper getCategoryWrapperFromFile(File category) throws FileNotFoundException {
-		return (CategoryWrapper)xstream.fromXML(new FileInputStream(category));
+		if(!category.exists())
+			throw new FileNotFoundException(category.getAbsolutePath());
+		return (CategoryWrapper)BundlerUtil.xmlToObject(category);
 	}
 	
 	public int getCategoryXMLCount(){
@@ -0,0 +1,138 @@
+package com.dotcms.publishing;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import com.dotcms.repackage.com.thoughtworks.xstream.XStream;
+import com.dotcms.repackage.com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.dotcms.repackage.com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.dotcms.repackage.com.thoughtworks.xstream.io.binary.BinaryStreamDriver;
+import com.dotcms.repackage.com.thoughtworks.xstream.io.xml.StaxDriver;
+
+/**
+ * How the wrappers of a bundle are written to its files. Both formats serialize the same object graph with a single
+ * {@link XStream}, built once and shared by all the threads bundling and receiving, instead of one per file:
+ * <ul>
+ * <li>{@link #XML}, what bundles always used and what every receiver reads. It is read with StAX, as it streams,
+ * instead of parsing a DOM of the whole file first.</li>
+ * <li>{@link #BINARY}, the XStream binary token stream, smaller and faster to read and write. Only sent to endpoints
+ * that said they read it.</li>
+ * </ul>
+ * {@link #decode(InputStream)} reads either one, so the handlers of a receiver do not need to know what the sender
+ * chose.
+ */
+public abstract class BundleCodec {
+
+	/**
+	 * Starts the files written in the binary format. An XML file can not start with it.
+	 */
+	private static final byte[] BINARY_MAGIC = { 'D', 'B', 'N', '1' };
+
+	private static final XStream xstream = new XStream();
+	private static final StaxDriver staxDriver = new StaxDriver();
+	private static final BinaryStreamDriver binaryDriver = new BinaryStreamDriver();
+
+	public static final BundleCodec XML = new BundleCodec() {
+
+		@Override
+		public String getName () {
+			return "xml";
+		}
+
+		@Override
+		public void encode ( Object obj, OutputStream out ) throws IOException {
+			Writer writer = new OutputStreamWriter(out, "UTF-8");
+			HierarchicalStreamWriter xmlWriter = new DotPrettyPrintWriter(writer);
+			xstream.marshal(obj, xmlWriter);
+			xmlWriter.flush();
+		}
+
+		@Override
+		protected HierarchicalStreamReader createReader ( InputStream in ) {
+			return staxDriver.createReader(in);
+		}
+	};
+
+	public static final BundleCodec BINARY = new BundleCodec() {
+
+		@Override
+		public String getName () {
+			return "binary";
+		}
+
+		@Override
+		public void encode ( Object obj, OutputStream out ) throws IOException {
+			out.write(BINARY_MAGIC);
+			HierarchicalStreamWriter writer = binaryDriver.createWriter(out);
+			xstream.marshal(obj, writer);
+			writer.flush();
+		}
+
+		@Override
+		protected HierarchicalStreamReader createReader ( InputStream in ) throws IOException {
+			byte[] magic = readMagic(in);
+			if ( !Arrays.equals(magic, BINARY_MAGIC) ) {
+				throw new IOException("Not a binary bundle file");
+			}
+			return binaryDriver.createReader(in);
+		}
+	};
+
+	/**
+	 * The name the receivers list the format with, see {@link com.dotcms.rest.BundlePublisherResource}
+	 */
+	public abstract String getName ();
+
+	/**
+	 * Writes the object to the stream, which is flushed but not closed
+	 */
+	public abstract void encode ( Object obj, OutputStream out ) throws IOException;
+
+	protected abstract HierarchicalStreamReader createReader ( InputStream in ) throws IOException;
+
+	/**
+	 * Reads an object written by this codec
+	 */
+	public Object read ( InputStream in ) throws IOException {
+		HierarchicalStreamReader reader = createReader(in);
+		try {
+			return xstream.unmarshal(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads an object written with any of the codecs
+	 */
+	public static Object decode ( InputStream in ) throws IOException {
+		InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+		buffered.mark(BINARY_MAGIC.length);
+		byte[] magic = readMagic(buffered);
+		buffered.reset();
+		return (Arrays.equals(magic, BINARY_MAGIC) ? BINARY : XML).read(buffered);
+	}
+
+	private static byte[] readMagic ( InputStream in ) throws IOException {
+		byte[] magic = new byte[BINARY_MAGIC.length];
+		int read = 0;
+		while ( read < magic.length ) {
+			int n = in.read(magic, read, magic.length - read);
+			if ( n == -1 ) {
+				break;
+			}
+			read += n;
+		}
+		return magic;
+	}
+
+	public static BundleCodec forName ( String name ) {
+		return BINARY.getName().equals(name) ? BINARY : XML;
+	}
+
+}
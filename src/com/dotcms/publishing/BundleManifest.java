@@ -0,0 +1,164 @@
+package com.dotcms.publishing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import com.dotcms.repackage.org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * The SHA-256 of every file of a bundle (wrappers, binaries, bundle.xml), by its path in the bundle. It is written to
+ * the bundle root as {@value #FILE_NAME}, one {@code <hash> <path>} line per file, so the bundle can be sent without
+ * the files the receiver already has and rebuilt by the receiver from the ones it kept from previous bundles.
+ */
+public class BundleManifest {
+
+	public static final String FILE_NAME = "bundle.manifest";
+
+	private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+	private final Map<String, String> hashes = new TreeMap<String, String>();
+
+	private BundleManifest () {
+	}
+
+	/**
+	 * Hashes the files under the bundle root, leaving out the hidden ones as the compression of the bundle does
+	 */
+	public static BundleManifest create ( File bundleRoot ) throws IOException {
+		BundleManifest manifest = new BundleManifest();
+		manifest.add(bundleRoot.getAbsoluteFile(), bundleRoot.getAbsoluteFile());
+		return manifest;
+	}
+
+	private void add ( File bundleRoot, File file ) throws IOException {
+		if ( file.isHidden() ) {
+			return;
+		}
+		if ( file.isDirectory() ) {
+			File[] children = file.listFiles();
+			if ( children != null ) {
+				for ( File child : children ) {
+					add(bundleRoot, child);
+				}
+			}
+		} else {
+			String path = getPath(bundleRoot, file);
+			if ( !path.equals(FILE_NAME) ) {
+				hashes.put(path, hash(file));
+			}
+		}
+	}
+
+	/**
+	 * Reads the manifest of an extracted bundle, null when the bundle has none
+	 */
+	public static BundleManifest read ( File bundleRoot ) throws IOException {
+		File file = new File(bundleRoot, FILE_NAME);
+		if ( !file.exists() ) {
+			return null;
+		}
+		BundleManifest manifest = new BundleManifest();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			while ( (line = reader.readLine()) != null ) {
+				int space = line.indexOf(' ');
+				if ( space == -1 ) {
+					continue;
+				}
+				String hash = line.substring(0, space);
+				if ( !isHash(hash) ) {
+					throw new IOException("Invalid hash in bundle manifest: " + hash);
+				}
+				manifest.hashes.put(line.substring(space + 1), hash);
+			}
+		} finally {
+			reader.close();
+		}
+		return manifest;
+	}
+
+	public void write ( File bundleRoot ) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(bundleRoot, FILE_NAME)), "UTF-8"));
+		try {
+			for ( Map.Entry<String, String> entry : hashes.entrySet() ) {
+				writer.write(entry.getValue());
+				writer.write(' ');
+				writer.write(entry.getKey());
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * The hash of each file, by its path in the bundle
+	 */
+	public Map<String, String> getHashes () {
+		return Collections.unmodifiableMap(hashes);
+	}
+
+	/**
+	 * The hash of the given file of the bundle, null when it is not in the manifest
+	 */
+	public String getHash ( File bundleRoot, File file ) {
+		return hashes.get(getPath(bundleRoot.getAbsoluteFile(), file.getAbsoluteFile()));
+	}
+
+	public Set<String> getDistinctHashes () {
+		return new HashSet<String>(hashes.values());
+	}
+
+	/**
+	 * The size of the files with the given hashes, to know how much a bundle saves leaving them out
+	 */
+	public long getSize ( File bundleRoot, Collection<String> leftOut ) {
+		long size = 0;
+		for ( Map.Entry<String, String> entry : hashes.entrySet() ) {
+			if ( leftOut.contains(entry.getValue()) ) {
+				size += new File(bundleRoot, entry.getKey()).length();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * The path of a file of the bundle as written in the manifest, relative to the bundle root and separated by '/'
+	 */
+	public static String getPath ( File bundleRoot, File file ) {
+		String path = file.getPath().substring(bundleRoot.getPath().length());
+		if ( File.separatorChar != '/' ) {
+			path = path.replace(File.separatorChar, '/');
+		}
+		return path.startsWith("/") ? path.substring(1) : path;
+	}
+
+	public static String hash ( File file ) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return DigestUtils.sha256Hex(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static boolean isHash ( String hash ) {
+		return hash != null && HASH.matcher(hash).matches();
+	}
+
+}
@@ -1,17 +1,20 @@
 package com.dotcms.publishing;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.DotStateException;
@@ -25,12 +28,11 @@ import com.dotmarketing.util.UtilMethods;
 import com.dotcms.content.elasticsearch.business.ESMappingAPIImpl;
 import com.dotcms.enterprise.LicenseUtil;
 import com.dotcms.enterprise.publishing.bundlers.FileAssetBundler;
-import com.dotcms.repackage.com.thoughtworks.xstream.XStream;
-import com.dotcms.repackage.com.thoughtworks.xstream.io.HierarchicalStreamWriter;
-import com.dotcms.repackage.com.thoughtworks.xstream.io.xml.DomDriver;
 
 public class BundlerUtil {
 
+	private static final ConcurrentMap<String, BundleCodec> codecs = new ConcurrentHashMap<String, BundleCodec>();
+
 	/**
 	 * does bundle exist
 	 * @param config
@@ -75,7 +77,8 @@ public class BundlerUtil {
 		getBundleRoot(config);
 		String bundlePath = ConfigUtils.getBundlePath()+ File.separator + config.getId();
 		File xml = new File(bundlePath + File.separator + "bundle.xml");
-		objectToXML(config, xml);
+		// Always XML, the descriptor is read by servers that never negotiated a format
+		objectToXML(config, xml, true, BundleCodec.XML);
 
 	}
 
@@ -98,37 +101,73 @@ public class BundlerUtil {
 	}
 
     /**
-     * Serialize a given object to xml
+     * Sets the format the bundlers write the files of this bundle in, until it is removed
+     *
+     * @param config This bundle current configuration
+     * @param codec  The format the endpoints of the bundle read
+     */
+    public static void setBundleCodec ( PublisherConfig config, BundleCodec codec ) {
+        codecs.put( getBundleRoot( config ).getAbsolutePath(), codec );
+    }
+
+    public static void removeBundleCodec ( PublisherConfig config ) {
+        if ( config.getId() != null ) {
+            codecs.remove( new File( ConfigUtils.getBundlePath() + File.separator + config.getId() ).getAbsolutePath() );
+        }
+    }
+
+    /**
+     * The format set for the bundle the file is in, XML when none was set
+     */
+    private static BundleCodec getBundleCodec ( File f ) {
+        if ( !codecs.isEmpty() ) {
+            for ( File dir = f.getAbsoluteFile().getParentFile(); dir != null; dir = dir.getParentFile() ) {
+                BundleCodec codec = codecs.get( dir.getPath() );
+                if ( codec != null ) {
+                    return codec;
+                }
+            }
+        }
+        return BundleCodec.XML;
+    }
+
+    /**
+     * Serialize a given object to xml, or to the format set for its bundle
      *
      * @param obj Object to serialize
      * @param f   File to write to
+     * @see #setBundleCodec(PublisherConfig, BundleCodec)
      */
     public static void objectToXML ( Object obj, File f ) {
         objectToXML( obj, f, true );
     }
 
     /**
-     * Serialize a given object to xml
+     * Serialize a given object to xml, or to the format set for its bundle
      *
      * @param obj Object to serialize
      * @param f   File to write to
      */
     public static void objectToXML ( Object obj, File f, boolean removeFirst ) {
+        objectToXML( obj, f, removeFirst, getBundleCodec( f ) );
+    }
+
+    private static void objectToXML ( Object obj, File f, boolean removeFirst, BundleCodec codec ) {
 
         if ( removeFirst && f.exists() )
             f.delete();
 
-        XStream xstream = new XStream( new DomDriver("UTF-8") );
-
         try {
             if ( !f.exists() ){
             	f.createNewFile();
             }	
             
-            OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream( f ), "UTF-8");
-            HierarchicalStreamWriter xmlWriter = new DotPrettyPrintWriter(writer);
-            xstream.marshal(obj, xmlWriter);
-            writer.close();
+            OutputStream out = new BufferedOutputStream( new FileOutputStream( f ) );
+            try {
+                codec.encode( obj, out );
+            } finally {
+                out.close();
+            }
 
         } catch ( FileNotFoundException e ) {
             Logger.error( PublisherUtil.class, e.getMessage(), e );
@@ -139,22 +178,23 @@ public class BundlerUtil {
 
 
     /**
-     * Deserialize an object back from XML
+     * Deserialize an object back from XML, or from any other format of {@link BundleCodec}
      *
      * @param f file to deserialize
      * @return A deserialized object
      */
     public static Object xmlToObject(File f){
-    	XStream xstream = new XStream(new DomDriver("UTF-8"));
-
     	BufferedInputStream input = null;
 		try {
 			input = new BufferedInputStream(new FileInputStream(f));
-			Object ret = xstream.fromXML(input);
+			Object ret = BundleCodec.decode(input);
 			return ret;
 		} catch (FileNotFoundException e) {
 			Logger.error(BundlerUtil.class,e.getMessage(),e);
 			return null;
+		} catch (IOException e) {
+			Logger.error(BundlerUtil.class,e.getMessage(),e);
+			return null;
 		}finally{
 			try {
 				input.close();
@@ -4,6 +4,7 @@ import com.dotcms.repackage.com.thoughtworks.xstream.core.util.QuickWriter;
 import com.dotcms.repackage.com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
 
 import java.io.Writer;
+import java.util.regex.Pattern;
 
 /**
  * There a set of characters that are valid in UTF-8 but not valid in XML
@@ -15,6 +16,14 @@ import java.io.Writer;
  */
 public class DotPrettyPrintWriter extends PrettyPrintWriter {
 
+	//Pattern to validate invalid XML characters, compiled once instead of for every text node
+	private static final Pattern INVALID_XML_CHARS = Pattern.compile("[^"
+            + "\u0009\r\n"
+            + "\u0020-\uD7FF"
+            + "\uE000-\uFFFD"
+            + "\ud800\udc00-\udbff\udfff"
+            + "]");
+
 	public DotPrettyPrintWriter(Writer writer) {
         super(writer);
     }
@@ -24,16 +33,8 @@ public class DotPrettyPrintWriter extends PrettyPrintWriter {
      */
     protected void writeText(QuickWriter writer, String text) {
         
-    	//Pattern to validate invalid XML characters. 
-    	String xml10pattern = "[^"
-                + "\u0009\r\n"
-                + "\u0020-\uD7FF"
-                + "\uE000-\uFFFD"
-                + "\ud800\udc00-\udbff\udfff"
-                + "]";
-    	
     	//Removes all the invalid XML characters. 
-        String legalText = text.replaceAll(xml10pattern, "");
+        String legalText = INVALID_XML_CHARS.matcher(text).replaceAll("");
         super.writeText(writer, legalText);
     }
     
@@ -84,6 +84,8 @@ public class PublisherAPIImpl implements PublisherAPI {
         } catch ( Exception e ) {
             Logger.error( PublisherAPIImpl.class, e.getMessage(), e );
             throw new DotPublishingException( e.getMessage(), e );
+        } finally {
+            BundlerUtil.removeBundleCodec( config );
         }
 
         return status;
@@ -7,9 +7,12 @@ import com.dotcms.publisher.business.PublishAuditStatus.Status;
 import com.dotcms.publisher.business.PublisherQueueJob;
 import com.dotcms.publisher.endpoint.bean.PublishingEndPoint;
 import com.dotcms.publisher.endpoint.business.PublishingEndPointAPI;
+import com.dotcms.publisher.receiver.BundleBlobStore;
+import com.dotcms.publishing.BundleCodec;
 import com.dotcms.repackage.javax.ws.rs.Consumes;
 import com.dotcms.repackage.javax.ws.rs.POST;
 import com.dotcms.repackage.javax.ws.rs.Path;
+import com.dotcms.repackage.javax.ws.rs.Produces;
 import com.dotcms.repackage.javax.ws.rs.core.Context;
 import com.dotcms.repackage.javax.ws.rs.core.MediaType;
 import com.dotcms.repackage.javax.ws.rs.core.Response;
@@ -28,9 +31,11 @@ import com.dotmarketing.util.UtilMethods;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 
 @Path("/bundlePublisher")
@@ -147,6 +152,104 @@ public class BundlePublisherResource {
 		return Response.status(HttpStatus.SC_INTERNAL_SERVER_ERROR).build();
 	}
 
+    /**
+     * Tells a sender which of the files of a bundle it is about to send this server does not have, by their SHA-256,
+     * so it only sends those and the bundle is completed here with the files kept from previous bundles.
+     *
+     * @param auth_token_enc Authentication token
+     * @param hashes         The hashes of the files of the bundle, one per line
+     * @param req            HttpRequest
+     * @return The hashes of the files to send, one per line, or a 401 status code if the sender is not allowed
+     * @see BundleBlobStore
+     */
+    @POST
+    @Path ("/missing")
+    @Consumes (MediaType.MULTIPART_FORM_DATA)
+    @Produces (MediaType.TEXT_PLAIN)
+    public Response missing (
+            @FormDataParam ("AUTH_TOKEN") String auth_token_enc,
+            @FormDataParam ("HASHES") String hashes,
+            @Context HttpServletRequest req ) {
+
+        String remoteIP = "";
+        try {
+            String auth_token = PublicEncryptionFactory.decryptString( auth_token_enc );
+            remoteIP = req.getRemoteHost();
+            if ( !UtilMethods.isSet( remoteIP ) )
+                remoteIP = req.getRemoteAddr();
+
+            PublishingEndPoint mySelf = endpointAPI.findEnabledSendingEndPointByAddress( remoteIP );
+
+            if ( !isValidToken( auth_token, remoteIP, mySelf ) ) {
+                return Response.status( HttpStatus.SC_UNAUTHORIZED ).build();
+            }
+
+            Set<String> missing = new BundleBlobStore().getMissing( Arrays.asList( UtilMethods.isSet( hashes ) ? hashes.split( "\n" ) : new String[0] ) );
+
+            StringBuilder body = new StringBuilder();
+            for ( String hash : missing ) {
+                body.append( hash ).append( '\n' );
+            }
+            return Response.ok( body.toString() ).build();
+        } catch ( Exception e ) {
+            Logger.error( BundlePublisherResource.class, "Error caused by remote call of: " + remoteIP );
+            Logger.error( BundlePublisherResource.class, e.getMessage(), e );
+        } finally {
+            try {
+                HibernateUtil.closeSession();
+            } catch ( DotHibernateException e ) {
+                Logger.error( this, "error close session", e );
+            }
+        }
+
+        return Response.status( HttpStatus.SC_INTERNAL_SERVER_ERROR ).build();
+    }
+
+    /**
+     * Lists the formats this server reads the files of a bundle in, one per line, so a sender can write its bundles in
+     * the most compact one.
+     *
+     * @param auth_token_enc Authentication token
+     * @param req            HttpRequest
+     * @return The names of the formats, or a 401 status code if the sender is not allowed
+     * @see BundleCodec
+     */
+    @POST
+    @Path ("/formats")
+    @Consumes (MediaType.MULTIPART_FORM_DATA)
+    @Produces (MediaType.TEXT_PLAIN)
+    public Response formats (
+            @FormDataParam ("AUTH_TOKEN") String auth_token_enc,
+            @Context HttpServletRequest req ) {
+
+        String remoteIP = "";
+        try {
+            String auth_token = PublicEncryptionFactory.decryptString( auth_token_enc );
+            remoteIP = req.getRemoteHost();
+            if ( !UtilMethods.isSet( remoteIP ) )
+                remoteIP = req.getRemoteAddr();
+
+            PublishingEndPoint mySelf = endpointAPI.findEnabledSendingEndPointByAddress( remoteIP );
+
+            if ( !isValidToken( auth_token, remoteIP, mySelf ) ) {
+                return Response.status( HttpStatus.SC_UNAUTHORIZED ).build();
+            }
+
+            return Response.ok( BundleCodec.XML.getName() + "\n" + BundleCodec.BINARY.getName() + "\n" ).build();
+        } catch ( Exception e ) {
+            Logger.error( BundlePublisherResource.class, "Error caused by remote call of: " + remoteIP );
+            Logger.error( BundlePublisherResource.class, e.getMessage(), e );
+        } finally {
+            try {
+                HibernateUtil.closeSession();
+            } catch ( DotHibernateException e ) {
+                Logger.error( this, "error close session", e );
+            }
+        }
+
+        return Response.status( HttpStatus.SC_INTERNAL_SERVER_ERROR ).build();
+    }
+
     /**
      * Validates a received token
      *
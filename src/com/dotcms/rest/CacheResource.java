@@ -0,0 +1,277 @@
+package com.dotcms.rest;
+
+import com.dotcms.repackage.javax.ws.rs.GET;
+import com.dotcms.repackage.javax.ws.rs.PUT;
+import com.dotcms.repackage.javax.ws.rs.Path;
+import com.dotcms.repackage.javax.ws.rs.PathParam;
+import com.dotcms.repackage.javax.ws.rs.Produces;
+import com.dotcms.repackage.javax.ws.rs.core.Context;
+import com.dotcms.repackage.javax.ws.rs.core.Response;
+import com.dotcms.repackage.javax.ws.rs.core.Response.Status;
+import com.dotcms.rest.exception.SecurityException;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.ChainableCacheAdministratorImpl;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.business.cache.provider.guava.CacheGroupSettings;
+import com.dotmarketing.business.cache.provider.guava.GuavaCache;
+import com.dotmarketing.business.cache.telemetry.CacheTelemetry;
+import com.dotmarketing.util.AdminLogger;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.SecurityLogger;
+import com.dotmarketing.util.UtilMethods;
+import com.dotmarketing.util.json.JSONArray;
+import com.dotmarketing.util.json.JSONObject;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Inspects and tunes the memory cache groups of this server at runtime, changes are not propagated to the rest of
+ * the cluster and are lost on restart. Also exposes the telemetry collected by {@link CacheTelemetry} and the
+ * statistics of the block page cache.
+ */
+@Path("/cache")
+public class CacheResource {
+
+    private final WebResource webResource = new WebResource();
+
+    /**
+     * Returns the limits and the current number of entries of every memory cache group. When the parameter
+     * <strong>estimate</strong> is true the estimated size in bytes of each group is included, computing it walks
+     * every entry.
+     *
+     * @param request
+     * @param params
+     * @return
+     */
+    @GET
+    @Path("/groups/{params:.*}")
+    @Produces("application/json")
+    public Response getGroups(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init = webResource.init(params, true, request, true, "EXT_CMS_MAINTENANCE");
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+            boolean estimate = Boolean.parseBoolean(init.getParamsMap().get("estimate"));
+
+            JSONArray jsonGroups = new JSONArray();
+            for (GuavaCache provider : GuavaCache.getInitializedProviders()) {
+                for (String group : new TreeSet<>(provider.getGroups())) {
+                    CacheGroupSettings settings = provider.getSettings(group);
+
+                    JSONObject jsonGroup = new JSONObject();
+                    jsonGroup.put("group", group);
+                    jsonGroup.put("size", settings.getMaxEntries());
+                    jsonGroup.put("maxbytes", settings.getMaxBytes());
+                    jsonGroup.put("ttl", settings.getTtlSeconds());
+                    jsonGroup.put("entries", provider.getKeys(group).size());
+                    if (estimate) {
+                        jsonGroup.put("estimatedBytes", provider.getEstimatedBytes(group));
+                    }
+                    jsonGroups.put(jsonGroup);
+                }
+            }
+
+            return responseResource.response(jsonGroups.toString());
+        } catch (SecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on cache getGroups from " + request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            Logger.error(this, "Error on cache getGroups. URI: " + request.getRequestURI(), e);
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Changes the limits of a memory cache group without flushing it. Parameters: <strong>group</strong> (required),
+     * <strong>size</strong> (max entries), <strong>maxbytes</strong> (max estimated bytes, 0 to limit by entries) and
+     * <strong>ttl</strong> (seconds, 0 for no expiration), the ones not sent keep their current value.
+     *
+     * @param request
+     * @param params
+     * @return
+     */
+    @PUT
+    @Path("/resize/{params:.*}")
+    @Produces("application/json")
+    public Response resizeGroup(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init = webResource.init(params, true, request, true, "EXT_CMS_MAINTENANCE");
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+            Map<String, String> paramsMap = init.getParamsMap();
+
+            StringBuilder responseMessage = new StringBuilder();
+            if (!responseResource.validate(responseMessage, "group")) {
+                return Response.status(Status.BAD_REQUEST).entity(responseMessage.toString()).build();
+            }
+
+            String group = paramsMap.get("group");
+            Set<GuavaCache> providers = GuavaCache.getInitializedProviders();
+            if (providers.isEmpty()) {
+                return Response.status(Status.NOT_FOUND).entity("No memory cache provider is running").build();
+            }
+
+            JSONObject jsonGroup = new JSONObject();
+            for (GuavaCache provider : providers) {
+                CacheGroupSettings current = provider.getSettings(group);
+                CacheGroupSettings settings = new CacheGroupSettings(
+                        UtilMethods.isSet(paramsMap.get("size")) ? Integer.parseInt(paramsMap.get("size")) : current.getMaxEntries(),
+                        UtilMethods.isSet(paramsMap.get("maxbytes")) ? Long.parseLong(paramsMap.get("maxbytes")) : current.getMaxBytes(),
+                        UtilMethods.isSet(paramsMap.get("ttl")) ? Long.parseLong(paramsMap.get("ttl")) : current.getTtlSeconds());
+
+                AdminLogger.log(CacheResource.class, "resizeGroup", "Reconfiguring cache group " + group + ": " + settings, init.getUser());
+                provider.reconfigure(group, settings);
+
+                jsonGroup.put("group", group.toLowerCase());
+                jsonGroup.put("size", settings.getMaxEntries());
+                jsonGroup.put("maxbytes", settings.getMaxBytes());
+                jsonGroup.put("ttl", settings.getTtlSeconds());
+                jsonGroup.put("entries", provider.getKeys(group).size());
+            }
+
+            return responseResource.response(jsonGroup.toString());
+        } catch (SecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on cache resizeGroup from " + request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (NumberFormatException e) {
+            return Response.status(Status.BAD_REQUEST).entity("Invalid number: " + e.getMessage()).build();
+        } catch (Exception e) {
+            Logger.error(this, "Error on cache resizeGroup. URI: " + request.getRequestURI(), e);
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Returns the hit rates, latencies, hot keys and churn collected for every cache group or, when the parameter
+     * <strong>group</strong> is sent, for that group only.
+     *
+     * @param request
+     * @param params
+     * @return
+     */
+    @GET
+    @Path("/telemetry/{params:.*}")
+    @Produces("application/json")
+    public Response getTelemetry(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init = webResource.init(params, true, request, true, "EXT_CMS_MAINTENANCE");
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+
+            CacheTelemetry telemetry = getCacheTelemetry();
+            if (telemetry == null) {
+                return Response.status(Status.NOT_FOUND).entity("Cache telemetry is disabled").build();
+            }
+
+            String group = init.getParamsMap().get("group");
+            if (UtilMethods.isSet(group)) {
+                Map<String, Object> report = telemetry.getGroupReport(group);
+                if (report == null) {
+                    return Response.status(Status.NOT_FOUND).entity("No telemetry for group " + group).build();
+                }
+                return responseResource.response(new JSONObject(report).toString());
+            }
+
+            return responseResource.response(new JSONObject(telemetry.getReport()).toString());
+        } catch (SecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on cache getTelemetry from " + request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            Logger.error(this, "Error on cache getTelemetry. URI: " + request.getRequestURI(), e);
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Clears the collected cache telemetry
+     *
+     * @param request
+     * @param params
+     * @return
+     */
+    @PUT
+    @Path("/telemetry/reset/{params:.*}")
+    @Produces("application/json")
+    public Response resetTelemetry(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init = webResource.init(params, true, request, true, "EXT_CMS_MAINTENANCE");
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+
+            CacheTelemetry telemetry = getCacheTelemetry();
+            if (telemetry == null) {
+                return Response.status(Status.NOT_FOUND).entity("Cache telemetry is disabled").build();
+            }
+
+            telemetry.reset();
+            AdminLogger.log(CacheResource.class, "resetTelemetry", "Cache telemetry reset", init.getUser());
+
+            return responseResource.response(new JSONObject().put("reset", true).toString());
+        } catch (SecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on cache resetTelemetry from " + request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            Logger.error(this, "Error on cache resetTelemetry. URI: " + request.getRequestURI(), e);
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Returns the hits, stale hits, waits, misses and render times of the pages in the block page cache, by page
+     * identifier
+     *
+     * @param request
+     * @param params
+     * @return
+     */
+    @GET
+    @Path("/pages/{params:.*}")
+    @Produces("application/json")
+    public Response getPageStats(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init = webResource.init(params, true, request, true, "EXT_CMS_MAINTENANCE");
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+
+            return responseResource.response(new JSONObject(CacheLocator.getBlockPageCache().getStats()).toString());
+        } catch (SecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on cache getPageStats from " + request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            Logger.error(this, "Error on cache getPageStats. URI: " + request.getRequestURI(), e);
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Clears the statistics of the block page cache
+     *
+     * @param request
+     * @param params
+     * @return
+     */
+    @PUT
+    @Path("/pages/reset/{params:.*}")
+    @Produces("application/json")
+    public Response resetPageStats(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init = webResource.init(params, true, request, true, "EXT_CMS_MAINTENANCE");
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+
+            CacheLocator.getBlockPageCache().resetStats();
+            AdminLogger.log(CacheResource.class, "resetPageStats", "Block page cache statistics reset", init.getUser());
+
+            return responseResource.response(new JSONObject().put("reset", true).toString());
+        } catch (SecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on cache resetPageStats from " + request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            Logger.error(this, "Error on cache resetPageStats. URI: " + request.getRequestURI(), e);
+            return Response.serverError().build();
+        }
+    }
+
+    private CacheTelemetry getCacheTelemetry() {
+        DotCacheAdministrator cacheAdministrator = CacheLocator.getCacheAdministrator().getImplementationObject();
+        return cacheAdministrator instanceof ChainableCacheAdministratorImpl
+                ? ((ChainableCacheAdministratorImpl) cacheAdministrator).getTelemetry() : null;
+    }
+
+}
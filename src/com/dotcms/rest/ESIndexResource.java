@@ -3,6 +3,7 @@ package com.dotcms.rest;
 import com.dotcms.content.elasticsearch.business.DotIndexException;
 import com.dotcms.content.elasticsearch.business.ESContentletIndexAPI;
 import com.dotcms.content.elasticsearch.business.ESIndexAPI;
+import com.dotcms.content.elasticsearch.business.FileMetaDataExtractor;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotcms.enterprise.LicenseUtil;
 import com.dotcms.repackage.com.google.gson.Gson;
@@ -29,6 +30,7 @@ import com.dotmarketing.util.AdminLogger;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.SecurityLogger;
 import com.dotmarketing.util.UtilMethods;
+import com.dotmarketing.util.json.JSONObject;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -205,6 +207,27 @@ public class ESIndexResource {
         }
     }
     
+    /**
+     * Returns the queue, counters and parse times of the metadata extraction of file assets
+     */
+    @GET
+    @Path("/metadata/{params:.*}")
+    @Produces("application/json")
+    public Response getMetaDataStats(@Context HttpServletRequest request, @PathParam("params") String params) {
+        try {
+            InitDataObject init=auth(params,request);
+            ResourceResponse responseResource = new ResourceResponse(init.getParamsMap());
+
+            return responseResource.response(new JSONObject(FileMetaDataExtractor.getInstance().getStats()).toString());
+        } catch (DotSecurityException sec) {
+            SecurityLogger.logInfo(this.getClass(), "Access denied on getMetaDataStats from "+request.getRemoteAddr());
+            return Response.status(Status.UNAUTHORIZED).build();
+        } catch (Exception de) {
+            Logger.error(this, "Error on getMetaDataStats. URI: "+request.getRequestURI(),de);
+            return Response.serverError().build();
+        }
+    }
+    
     @PUT
     @Path("/create/{params:.*}")
     @Produces("text/plain")
@@ -31,6 +31,8 @@ import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.exception.InvalidLicenseException;
 import com.dotmarketing.portlets.contentlet.business.HostAPI;
 import com.dotcms.enterprise.rules.RulesAPI;
+import com.dotmarketing.portlets.rules.business.RuleLatencyHistogram;
+import com.dotmarketing.portlets.rules.business.RulesEngine;
 import com.dotmarketing.portlets.rules.model.Rule;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -111,6 +113,33 @@ public class RuleResource {
         return getRuleInternal(ruleId, user);
     }
 
+    /**
+     * <p>Returns how long the rules defined in the given Host or Folder took to fire, by rule id. Rules that were not
+     * fired since the server started are left out.
+     * <p/>
+     * Usage: GET api/v1/sites/{siteId}/ruleengine/stats
+     */
+    @GET
+    @JSONP
+    @Path("/stats")
+    @NoCache
+    @Produces({MediaType.APPLICATION_JSON, "application/javascript"})
+    public Map<String, Map<String, Object>> stats(@Context HttpServletRequest request, @PathParam("siteId") String siteId) {
+        siteId = checkNotEmpty(siteId, BadRequestException.class, "Site Id is required.");
+        User user = getUser(request);
+        Ruleable proxy =  getParent(siteId, user);
+        List<RestRule> restRules = getRulesInternal(user, proxy);
+        Map<String, Map<String, Object>> stats = Maps.newLinkedHashMap();
+        for (RestRule restRule : restRules) {
+            RuleLatencyHistogram latency = RulesEngine.getRuleLatency(restRule.key);
+            if(latency != null) {
+                stats.put(restRule.key, latency.toMap());
+            }
+        }
+
+        return stats;
+    }
+
     /**
      * <p>Saves a new Rule
      * <br>
@@ -3,6 +3,7 @@ package com.dotcms.tika;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -38,6 +39,22 @@ public class TikaUtils {
 	 * May 31, 2013 - 12:27:19 PM
 	 */
 	public Map<String, String> getMetaDataMap(String inode, File binFile, String mimeType, boolean forceMemory) {
+		return getMetaDataMap(inode, binFile, mimeType, forceMemory, 0, 0);
+	}
+
+	/**
+	 * Same as {@link #getMetaDataMap(String, File, String, boolean)}, with limits for the document.
+	 *
+	 * @param timeoutMillis after this long the parsing stops, what was read so far is kept. 0 for no limit
+	 * @param maxFileSize bigger files are not parsed, only their size and content type are returned. 0 for no limit
+	 */
+	public Map<String, String> getMetaDataMap(String inode, File binFile, String mimeType, boolean forceMemory,
+			long timeoutMillis, long maxFileSize) {
+		if(maxFileSize > 0 && binFile.length() > maxFileSize) {
+			Logger.info(this.getClass(), "Not parsing " + binFile.getName() + ", it is bigger than " + maxFileSize + " bytes");
+			return getBasicMetaDataMap(binFile);
+		}
+		final long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
 		Map<String, String> metaMap = new HashMap<String, String>();
 
 		// store content metadata on disk
@@ -54,7 +71,7 @@ public class TikaUtils {
 
 			if(forceMemory){
 				// no worry about the limit and less time to process.
-				String content = t.parseToString(new FileInputStream(binFile), met);
+				String content = t.parseToString(new DeadlineInputStream(new FileInputStream(binFile), deadline), met);
 				metaMap = new HashMap<String, String>();
 				for (int i = 0; i < met.names().length; i++) {
 					String name = met.names()[i];
@@ -70,7 +87,7 @@ public class TikaUtils {
 			else {
 
 
-				is = TikaInputStream.get(binFile);
+				is = new DeadlineInputStream(TikaInputStream.get(binFile), deadline);
 				fulltext = t.parse(is, met);
 				metaMap = new HashMap<String, String>();
 				for (int i = 0; i < met.names().length; i++) {
@@ -108,6 +125,10 @@ public class TikaUtils {
 						byte[] bytes = new byte[1024];
 
 						while ((count = fulltext.read(buf)) > 0 && numOfChunks>0) {
+							if(System.currentTimeMillis() > deadline) {
+								Logger.warn(this.getClass(), "Timed out reading the content of " + binFile.getName() + ", keeping what was read");
+								break;
+							}
 							String lowered = new String(buf);
 							lowered = lowered.toLowerCase();
 							bytes = lowered.getBytes(StandardCharsets.UTF_8);
@@ -156,6 +177,58 @@ public class TikaUtils {
 		return metaMap;
 	}
 
+	/**
+	 * The metadata that does not need the file to be parsed: its size and the content type detected from its name
+	 * and first bytes.
+	 */
+	public Map<String, String> getBasicMetaDataMap(File binFile) {
+		Map<String, String> metaMap = new HashMap<String, String>();
+		try {
+			metaMap.put("contentType", new Tika().detect(binFile));
+		} catch (Exception e) {
+			Logger.debug(this.getClass(), "Could not detect the content type of " + binFile.getAbsolutePath() + ". " + e.getMessage());
+		}
+		metaMap.put(FileAssetAPI.SIZE_FIELD, String.valueOf(binFile.length()));
+		return metaMap;
+	}
+
+	/**
+	 * Fails the reads of the parser once the time to parse the document is over.
+	 */
+	private static class DeadlineInputStream extends FilterInputStream {
+
+		private final long deadline;
+
+		DeadlineInputStream(InputStream in, long deadline) {
+			super(in);
+			this.deadline = deadline;
+		}
+
+		private void check() throws IOException {
+			if(System.currentTimeMillis() > deadline) {
+				throw new IOException("Timed out parsing the document");
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			check();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			check();
+			return super.read(b, off, len);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			check();
+			return super.skip(n);
+		}
+	}
+
 	/**
 	 * This method takes a file and uses tika to parse the metadata from it. It
 	 * returns a Map of the metadata
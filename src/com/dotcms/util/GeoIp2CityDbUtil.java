@@ -7,17 +7,23 @@ import java.net.UnknownHostException;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.http.HttpServletRequest;
 
+import com.dotcms.repackage.com.google.common.cache.Cache;
+import com.dotcms.repackage.com.google.common.cache.CacheBuilder;
+import com.dotcms.repackage.com.maxmind.db.Reader;
 import com.dotcms.repackage.com.maxmind.geoip2.DatabaseReader;
+import com.dotcms.repackage.com.maxmind.geoip2.exception.AddressNotFoundException;
 import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
-import com.dotcms.repackage.com.maxmind.geoip2.model.CityResponse;
-import com.dotcms.repackage.com.maxmind.geoip2.record.City;
-import com.dotcms.repackage.com.maxmind.geoip2.record.Country;
-import com.dotcms.repackage.com.maxmind.geoip2.record.Subdivision;
+import com.dotcms.visitor.domain.Visitor;
+import com.dotmarketing.business.APILocator;
 import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.portlets.rules.exception.RuleEvaluationFailedException;
+import com.dotmarketing.portlets.rules.util.RequestFacts;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 
@@ -54,9 +60,24 @@ import com.dotmarketing.util.Logger;
  */
 public class GeoIp2CityDbUtil {
 
-	private static DatabaseReader databaseReader = null;
-	private static long lastModified = 0;
-	private static String dbPath = null;
+	private static final int CACHE_SIZE = Config.getIntProperty(
+			"GEOIP2_LOOKUP_CACHE_SIZE", 10000);
+	private static final long RELOAD_CHECK_MILLIS = Config.getIntProperty(
+			"GEOIP2_RELOAD_CHECK_SECONDS", 60) * 1000L;
+
+	/**
+	 * Marks in the cache the addresses that are not in the database.
+	 */
+	private static final GeoLocation NOT_FOUND = new GeoLocation(null, null,
+			null, null, null, null, null, null, null);
+
+	private final File file;
+	private final Opener opener;
+	private final int cacheSize;
+	private final long reloadCheckMillis;
+	private final AtomicBoolean reloading = new AtomicBoolean(false);
+	private volatile Database database = null;
+	private volatile long nextCheck = 0;
 
 	/**
 	 * Singleton holder based on the initialization-on-demand approach.
@@ -68,6 +89,48 @@ public class GeoIp2CityDbUtil {
 
 	}
 
+	/**
+	 * Opens a database file, see {@link #openDatabase(File)}.
+	 */
+	interface Opener {
+
+		Locator open(File file) throws IOException;
+
+	}
+
+	/**
+	 * Finds the location of an address in an opened database file.
+	 */
+	interface Locator {
+
+		/**
+		 * @throws AddressNotFoundException
+		 *             If the address is not in the database.
+		 */
+		GeoLocation find(InetAddress address) throws IOException,
+				GeoIp2Exception;
+
+	}
+
+	/**
+	 * A database file opened with the lookups done on it. Both are replaced
+	 * together when the file is updated.
+	 */
+	private static class Database {
+
+		private final Locator locator;
+		private final long lastModified;
+		private final Cache<String, GeoLocation> lookups;
+
+		private Database(Locator locator, long lastModified, int cacheSize) {
+			this.locator = locator;
+			this.lastModified = lastModified;
+			this.lookups = CacheBuilder.newBuilder().maximumSize(cacheSize)
+					.build();
+		}
+
+	}
+
 	/**
 	 * Returns a unique instance of the {@link GeoIp2CityDbUtil} class.
 	 * 
@@ -89,30 +152,51 @@ public class GeoIp2CityDbUtil {
 	 *             established.
 	 */
 	private GeoIp2CityDbUtil(String databasePath) {
-		dbPath = databasePath;
-		File database = new File(databasePath);
-		connectToDatabase(database);
+		this(new File(databasePath), GeoIp2CityDbUtil::openDatabase,
+				CACHE_SIZE, RELOAD_CHECK_MILLIS);
 	}
 
 	/**
-	 * Establishes the connection with the IP database. If a previous connection
-	 * has already been created, it will be closed. Such a scenario would mean
-	 * that the database file has been updated, so the database reader must be
-	 * re-built to load the new information.
+	 * Creates an instance reading the database file with the given
+	 * {@link Opener}, for the tests.
+	 */
+	GeoIp2CityDbUtil(File file, Opener opener, int cacheSize,
+			long reloadCheckMillis) {
+		this.file = file;
+		this.opener = opener;
+		this.cacheSize = cacheSize;
+		this.reloadCheckMillis = reloadCheckMillis;
+		this.database = connectToDatabase();
+		this.nextCheck = System.currentTimeMillis() + reloadCheckMillis;
+	}
+
+	/**
+	 * Opens the IP database. The file is memory-mapped, so the lookups read it
+	 * through the OS page cache instead of copying it to the heap.
 	 * 
 	 * @param database
 	 *            - The {@link File} reference to the database file.
+	 * @throws IOException
+	 *             If the database file cannot be read.
+	 */
+	private static Locator openDatabase(File database) throws IOException {
+		DatabaseReader reader = new DatabaseReader.Builder(database)
+				.fileMode(Reader.FileMode.MEMORY_MAPPED).build();
+		return address -> GeoLocation.from(address.getHostAddress(),
+				reader.city(address));
+	}
+
+	/**
+	 * Opens the database file with a new lookup cache.
+	 * 
 	 * @throws DotRuntimeException
 	 *             If the connection to the GeoIP2 database file cannot be
 	 *             established.
 	 */
-	private static void connectToDatabase(File database) {
+	private Database connectToDatabase() {
 		try {
-			if (databaseReader != null) {
-				databaseReader.close();
-			}
-			databaseReader = new DatabaseReader.Builder(database).build();
-			lastModified = database.lastModified();
+			long lastModified = file.lastModified();
+			return new Database(opener.open(file), lastModified, cacheSize);
 		} catch (IOException e) {
 			Logger.error(GeoIp2CityDbUtil.class,
 					"Connection to the GeoIP2 database could not be established.");
@@ -123,30 +207,110 @@ public class GeoIp2CityDbUtil {
 	}
 
 	/**
-	 * Returns the {@link DatabaseReader} object used to perform the queries to
-	 * the IP database.
+	 * Returns the database used to perform the queries.
 	 * <p>
-	 * When the class is initially instantiated, the modification date of the
-	 * database file is kept in memory. This method will read the last modified
-	 * date of the requested database file in order to determine whether it must
-	 * be re-loaded or not. If it has to, synchronization will be used to load
-	 * the new database file.
+	 * The modification date of the database file is checked every
+	 * {@code GEOIP2_RELOAD_CHECK_SECONDS}. When it changed, the thread that
+	 * noticed it opens the new file while the others keep using the previous
+	 * one, which is then replaced with its cache. The previous reader is not
+	 * closed, lookups may still be running on it, its memory is released once
+	 * nobody references it. Replace the file with a move rather than writing
+	 * over it, so the mapped file is never seen half written.
 	 * </p>
 	 * 
-	 * @return The {@link DatabaseReader} object with the latest content of the
-	 *         database.
+	 * @return The database with the latest content.
 	 */
-	private static DatabaseReader getDatabaseReader() {
-		File database = new File(dbPath);
-		long fileLastModified = database.lastModified();
-		if (fileLastModified != lastModified) {
-			synchronized (GeoIp2CityDbUtil.class) {
-				if (fileLastModified != lastModified) {
-					connectToDatabase(database);
+	private Database getDatabase() {
+		long now = System.currentTimeMillis();
+		if (now >= nextCheck && reloading.compareAndSet(false, true)) {
+			try {
+				nextCheck = now + reloadCheckMillis;
+				if (file.lastModified() != database.lastModified) {
+					database = connectToDatabase();
+					Logger.info(GeoIp2CityDbUtil.class,
+							"GeoIP2 database reloaded from " + file.getPath());
 				}
+			} catch (DotRuntimeException e) {
+				Logger.warn(GeoIp2CityDbUtil.class,
+						"Keeping the previous GeoIP2 database: " + e.getMessage());
+			} finally {
+				reloading.set(false);
 			}
 		}
-		return databaseReader;
+		return database;
+	}
+
+	/**
+	 * Returns the location of the specified IP address. The locations are
+	 * cached by address, up to {@code GEOIP2_LOOKUP_CACHE_SIZE} of them, until
+	 * the database file is updated.
+	 * 
+	 * @param ipAddress
+	 *            - The IP address to get information from.
+	 * @return The country, subdivision, city and time zone of the address.
+	 * @throws UnknownHostException
+	 *             If the IP address of a host could not be determined.
+	 * @throws IOException
+	 *             If the connection to the GeoIP2 service could not be
+	 *             established, or the result object could not be created.
+	 * @throws GeoIp2Exception
+	 *             If the IP address is not present in the service database.
+	 */
+	public GeoLocation getLocation(String ipAddress)
+			throws UnknownHostException, IOException, GeoIp2Exception {
+		InetAddress inetAddress = InetAddress.getByName(ipAddress);
+		String key = inetAddress.getHostAddress();
+		Database db = getDatabase();
+		GeoLocation location = db.lookups.getIfPresent(key);
+		if (location == null) {
+			try {
+				location = db.locator.find(inetAddress);
+			} catch (AddressNotFoundException e) {
+				location = NOT_FOUND;
+			}
+			db.lookups.put(key, location);
+		}
+		if (location == NOT_FOUND) {
+			throw new AddressNotFoundException("The address " + key
+					+ " is not in the database.");
+		}
+		return location;
+	}
+
+	/**
+	 * Returns the location of the visitor of the request, resolving it only
+	 * when the {@link Visitor} has none for its current address. The location
+	 * is kept in the visitor, so it is resolved once per session and address.
+	 * The address is the one {@link RequestFacts#getIpAddress} keeps in the
+	 * request for the conditionlets.
+	 * 
+	 * @param request
+	 *            - The request of the visitor.
+	 * @return The location, or {@code null} if it could not be resolved.
+	 */
+	public GeoLocation getLocation(HttpServletRequest request) {
+		try {
+			String ipAddress = RequestFacts.getIpAddress(request);
+			Optional<Visitor> visitor = APILocator.getVisitorAPI().getVisitor(
+					request, false);
+			if (visitor.isPresent()) {
+				GeoLocation location = visitor.get().getGeoLocation();
+				if (location != null
+						&& ipAddress.equals(location.getIpAddress())) {
+					return location;
+				}
+			}
+			GeoLocation location = getLocation(ipAddress);
+			if (visitor.isPresent()) {
+				visitor.get().setGeoLocation(location);
+			}
+			return location;
+		} catch (IOException | GeoIp2Exception
+				| RuleEvaluationFailedException e) {
+			Logger.debug(GeoIp2CityDbUtil.class,
+					"Could not resolve the location of the visitor: " + e.getMessage());
+			return null;
+		}
 	}
 
 	/**
@@ -168,10 +332,7 @@ public class GeoIp2CityDbUtil {
 	 */
 	public String getSubdivisionIsoCode(String ipAddress)
 			throws UnknownHostException, IOException, GeoIp2Exception {
-		InetAddress inetAddress = InetAddress.getByName(ipAddress);
-		CityResponse city = getDatabaseReader().city(inetAddress);
-		Subdivision subdivision = city.getMostSpecificSubdivision();
-		return subdivision.getIsoCode();
+		return getLocation(ipAddress).getSubdivisionIsoCode();
 	}
 
 	/**
@@ -192,10 +353,7 @@ public class GeoIp2CityDbUtil {
 	 */
 	public String getCountryIsoCode(String ipAddress)
 			throws UnknownHostException, IOException, GeoIp2Exception {
-		InetAddress inetAddress = InetAddress.getByName(ipAddress);
-		CityResponse city = getDatabaseReader().city(inetAddress);
-		Country country = city.getCountry();
-		return country.getIsoCode();
+		return getLocation(ipAddress).getCountryIsoCode();
 	}
 
 	/**
@@ -214,10 +372,7 @@ public class GeoIp2CityDbUtil {
 	 */
 	public String getCityName(String ipAddress) throws UnknownHostException,
 			IOException, GeoIp2Exception {
-		InetAddress inetAddress = InetAddress.getByName(ipAddress);
-		CityResponse cityResponse = getDatabaseReader().city(inetAddress);
-		City city = cityResponse.getCity();
-		return city.getName();
+		return getLocation(ipAddress).getCityName();
 	}
 
 	/**
@@ -238,10 +393,7 @@ public class GeoIp2CityDbUtil {
 	 */
 	public TimeZone getTimeZone(String ipAddress) throws UnknownHostException,
 			IOException, GeoIp2Exception {
-		InetAddress inetAddress = InetAddress.getByName(ipAddress);
-		CityResponse city = getDatabaseReader().city(inetAddress);
-		String zone = city.getLocation().getTimeZone();
-		return TimeZone.getTimeZone(zone);
+		return getLocation(ipAddress).getTimeZone();
 	}
 
 	/**
@@ -262,7 +414,24 @@ public class GeoIp2CityDbUtil {
 	 */
 	public Calendar getDateTime(String ipAddress) throws UnknownHostException,
 			IOException, GeoIp2Exception {
-		TimeZone timeZone = getTimeZone(ipAddress);
+		return getDateTime(getTimeZone(ipAddress));
+	}
+
+	/**
+	 * Returns the {@link Date} when the visitor of the request issued it, see
+	 * {@link #getLocation(HttpServletRequest)}.
+	 * 
+	 * @param request
+	 *            - The request of the visitor.
+	 * @return The client's current {@link Date}, or {@code null} if the
+	 *         location of the visitor could not be resolved.
+	 */
+	public Calendar getDateTime(HttpServletRequest request) {
+		GeoLocation location = getLocation(request);
+		return location != null ? getDateTime(location.getTimeZone()) : null;
+	}
+
+	private static Calendar getDateTime(TimeZone timeZone) {
 		Calendar calendar = Calendar.getInstance(timeZone);
 		int year = calendar.get(Calendar.YEAR);
 		int month = calendar.get(Calendar.MONTH);
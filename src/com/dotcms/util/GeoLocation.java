@@ -0,0 +1,111 @@
+package com.dotcms.util;
+
+import java.io.Serializable;
+import java.util.TimeZone;
+
+import com.dotcms.repackage.com.maxmind.geoip2.model.CityResponse;
+
+/**
+ * The location of an IP address as found in the GeoIP2 City database: its
+ * country, most specific subdivision, city and time zone. It is read once from
+ * the database by {@link GeoIp2CityDbUtil} and kept, so it can be stored with
+ * the {@link com.dotcms.visitor.domain.Visitor} in the session.
+ *
+ */
+public class GeoLocation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String ipAddress;
+	private final String countryIsoCode;
+	private final String countryName;
+	private final String subdivisionIsoCode;
+	private final String subdivisionName;
+	private final String cityName;
+	private final String timeZone;
+	private final Double latitude;
+	private final Double longitude;
+
+	public GeoLocation(String ipAddress, String countryIsoCode,
+			String countryName, String subdivisionIsoCode,
+			String subdivisionName, String cityName, String timeZone,
+			Double latitude, Double longitude) {
+		this.ipAddress = ipAddress;
+		this.countryIsoCode = countryIsoCode;
+		this.countryName = countryName;
+		this.subdivisionIsoCode = subdivisionIsoCode;
+		this.subdivisionName = subdivisionName;
+		this.cityName = cityName;
+		this.timeZone = timeZone;
+		this.latitude = latitude;
+		this.longitude = longitude;
+	}
+
+	/**
+	 * Copies the fields used by dotCMS from the response of the database.
+	 */
+	static GeoLocation from(String ipAddress, CityResponse city) {
+		return new GeoLocation(ipAddress, city.getCountry().getIsoCode(),
+				city.getCountry().getName(), city
+						.getMostSpecificSubdivision().getIsoCode(), city
+						.getMostSpecificSubdivision().getName(), city
+						.getCity().getName(), city.getLocation().getTimeZone(),
+				city.getLocation().getLatitude(), city.getLocation()
+						.getLongitude());
+	}
+
+	public String getIpAddress() {
+		return ipAddress;
+	}
+
+	public String getCountryIsoCode() {
+		return countryIsoCode;
+	}
+
+	public String getCountryName() {
+		return countryName;
+	}
+
+	public String getSubdivisionIsoCode() {
+		return subdivisionIsoCode;
+	}
+
+	public String getSubdivisionName() {
+		return subdivisionName;
+	}
+
+	public String getCityName() {
+		return cityName;
+	}
+
+	/**
+	 * @return The IANA time zone id, for example {@code "America/New_York"}.
+	 */
+	public String getTimeZoneId() {
+		return timeZone;
+	}
+
+	/**
+	 * @return The time zone of the location, GMT when the database has none
+	 *         for it.
+	 */
+	public TimeZone getTimeZone() {
+		return TimeZone.getTimeZone(timeZone != null ? timeZone : "GMT");
+	}
+
+	public Double getLatitude() {
+		return latitude;
+	}
+
+	public Double getLongitude() {
+		return longitude;
+	}
+
+	@Override
+	public String toString() {
+		return "GeoLocation [ipAddress=" + ipAddress + ", countryIsoCode="
+				+ countryIsoCode + ", subdivisionIsoCode=" + subdivisionIsoCode
+				+ ", cityName=" + cityName + ", timeZone=" + timeZone + "]";
+	}
+
+}
@@ -12,6 +12,8 @@ import com.dotcms.repackage.com.google.common.collect.HashMultiset;
 import com.dotcms.repackage.com.google.common.collect.Multiset;
 import com.dotcms.repackage.com.google.common.collect.Multisets;
 import com.dotcms.repackage.eu.bitwalker.useragentutils.DeviceType;
+import com.dotcms.util.GeoIp2CityDbUtil;
+import com.dotcms.util.GeoLocation;
 import com.dotmarketing.portlets.languagesmanager.model.Language;
 import com.dotmarketing.portlets.personas.model.IPersona;
 
@@ -47,6 +49,8 @@ public class Visitor implements Serializable {
 
     private final Set<String> pagesViewed = new HashSet<>();
 
+    private GeoLocation geoLocation;
+
     //private VisitorsJourney journey;
 
     public static Visitor newInstance(HttpServletRequest request) {
@@ -156,6 +160,18 @@ public class Visitor implements Serializable {
     	_accruedTags = HashMultiset.create();
     }
 
+    /**
+     * The location of the visitor, resolved by {@link GeoIp2CityDbUtil#getLocation(HttpServletRequest)} for
+     * {@link GeoLocation#getIpAddress()}
+     */
+    public GeoLocation getGeoLocation() {
+        return geoLocation;
+    }
+
+    public void setGeoLocation(GeoLocation geoLocation) {
+        this.geoLocation = geoLocation;
+    }
+
     public UserAgent getUserAgent() {
         return userAgent;
     }
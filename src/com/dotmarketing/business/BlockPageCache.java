@@ -1,5 +1,7 @@
 package com.dotmarketing.business;
 
+import java.util.Map;
+
 import com.dotcms.repackage.org.apache.commons.lang.StringUtils;
 import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
 
@@ -108,6 +110,69 @@ public abstract class BlockPageCache implements Cachable {
 	abstract public String get(IHTMLPage page,
 			PageCacheParameters pageChacheParams);
 
+	/**
+	 * Looks up a page for a request and decides which request renders it.
+	 * Returns the cached version when it is fresh, or when it is stale and
+	 * another request is already rendering it. When the page is not cached
+	 * and another request is rendering it, waits for that request. Returns
+	 * {@code null} when the caller must render the page; it then holds the
+	 * render of the page until it calls
+	 * {@link #release(IHTMLPage, PageCacheParameters)}.
+	 * 
+	 * @param page
+	 *            - The {@link IHTMLPage} object.
+	 * @param pageChacheParams
+	 *            - Values used to retrieve a specific page from the cache.
+	 * @param refresh
+	 *            - {@code true} to render the page even if it is cached.
+	 * @return The cached page to send, or {@code null} to render it.
+	 */
+	abstract public BlockPageCacheEntry lookup(IHTMLPage page,
+			PageCacheParameters pageChacheParams, boolean refresh);
+
+	/**
+	 * Adds a new rendered page to the cache.
+	 * 
+	 * @param page
+	 *            - The {@link IHTMLPage} object.
+	 * @param value
+	 *            - The String representation of the page.
+	 * @param charset
+	 *            - The charset of the response the page is written to.
+	 * @param pageChacheParams
+	 *            - Values used to cache a specific page.
+	 * @param renderMillis
+	 *            - Time it took to render the page.
+	 */
+	abstract public void add(IHTMLPage page, String value, String charset,
+			PageCacheParameters pageChacheParams, long renderMillis);
+
+	/**
+	 * Lets other requests render the page again, must be called after a
+	 * {@link #lookup(IHTMLPage, PageCacheParameters, boolean)} that returned
+	 * {@code null} whether the page could be rendered or not.
+	 * 
+	 * @param page
+	 *            - The {@link IHTMLPage} object.
+	 * @param pageChacheParams
+	 *            - Values used to cache a specific page.
+	 */
+	abstract public void release(IHTMLPage page,
+			PageCacheParameters pageChacheParams);
+
+	/**
+	 * Returns the hits, stale hits, waits, misses and render times collected
+	 * for every page, by page identifier.
+	 * 
+	 * @return
+	 */
+	abstract public Map<String, Object> getStats();
+
+	/**
+	 * Clears the collected page statistics.
+	 */
+	abstract public void resetStats();
+
 	/**
 	 * Removes a page from the cache, along with all of its versions.
 	 * 
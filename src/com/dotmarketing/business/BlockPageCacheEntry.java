@@ -0,0 +1,176 @@
+package com.dotmarketing.business;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * A rendered page kept by the {@link BlockPageCache}. The page is kept encoded
+ * in the charset of the response, and also gzipped when it is big enough, so a
+ * cache hit is written to the response without encoding or compressing it
+ * again.
+ */
+public class BlockPageCacheEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final byte[] raw;
+	private final byte[] gzipped;
+	private final String charset;
+	private final long created;
+	private final int ttl;
+
+	/**
+	 * Creates an entry for a rendered page.
+	 *
+	 * @param value
+	 *            - The rendered page.
+	 * @param charset
+	 *            - The charset of the response, UTF-8 when null.
+	 * @param ttl
+	 *            - The time to live of the page in seconds.
+	 * @param gzipMinSize
+	 *            - Pages of at least this many bytes are also kept gzipped, a
+	 *            negative value never gzips them.
+	 */
+	public BlockPageCacheEntry(String value, String charset, int ttl,
+			int gzipMinSize) {
+		Charset encoding = toCharset(charset);
+		this.charset = encoding.name();
+		this.raw = value.getBytes(encoding);
+		this.gzipped = (gzipMinSize >= 0 && raw.length >= gzipMinSize) ? gzip(raw)
+				: null;
+		this.ttl = ttl;
+		this.created = System.currentTimeMillis();
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public int getTtl() {
+		return ttl;
+	}
+
+	public byte[] getRaw() {
+		return raw;
+	}
+
+	public byte[] getGzipped() {
+		return gzipped;
+	}
+
+	public String getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return The rendered page.
+	 */
+	public String getValue() {
+		return new String(raw, Charset.forName(charset));
+	}
+
+	/**
+	 * @return {@code true} while the time to live of the page has not passed.
+	 */
+	public boolean isFresh(long now) {
+		return created + (ttl * 1000L) > now;
+	}
+
+	/**
+	 * @return {@code true} while the page can still be sent while a newer
+	 *         version is rendered.
+	 */
+	public boolean isUsable(long now, long staleMillis) {
+		return created + (ttl * 1000L) + staleMillis > now;
+	}
+
+	/**
+	 * Writes the page to the response, gzipped when the client accepts it.
+	 *
+	 * @param request
+	 *            - The request of the page.
+	 * @param response
+	 *            - The response to write.
+	 * @throws IOException
+	 */
+	public void writeTo(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		OutputStream out;
+		try {
+			out = response.getOutputStream();
+		} catch (IllegalStateException e) {
+			// Something already used the writer of this response
+			response.getWriter().write(getValue());
+			return;
+		}
+		byte[] body = raw;
+		if (gzipped != null) {
+			response.addHeader("Vary", "Accept-Encoding");
+			if (acceptsGzip(request.getHeader("Accept-Encoding"))) {
+				response.setHeader("Content-Encoding", "gzip");
+				body = gzipped;
+			}
+		}
+		response.setContentLength(body.length);
+		out.write(body);
+	}
+
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.toLowerCase().split(",")) {
+			String[] parts = coding.trim().split(";");
+			if (!"gzip".equals(parts[0].trim())) {
+				continue;
+			}
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].replace(" ", "");
+				if (param.startsWith("q=") && param.matches("q=0(\\.0*)?")) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static Charset toCharset(String charset) {
+		if (UtilMethods.isSet(charset)) {
+			try {
+				return Charset.forName(charset);
+			} catch (IllegalArgumentException e) {
+				Logger.warn(BlockPageCacheEntry.class, "Unknown charset "
+						+ charset + ", caching page as UTF-8");
+			}
+		}
+		return Charset.forName("UTF-8");
+	}
+
+	private static byte[] gzip(byte[] value) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+					value.length / 4 + 64);
+			GZIPOutputStream out = new GZIPOutputStream(bytes);
+			out.write(value);
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			Logger.warn(BlockPageCacheEntry.class,
+					"Unable to gzip page: " + e.getMessage());
+			return null;
+		}
+	}
+
+}
@@ -1,18 +1,24 @@
 package com.dotmarketing.business;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.dotcms.enterprise.LicenseUtil;
 import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 
 /**
  * Provides the caching implementation for HTML pages. This approach uses a main
  * key to retrieve a cached page, and a subkey to retrieve the different
- * versions of it. With this structure, during the removal of a page, all the 
+ * versions of it. With this structure, during the removal of a page, all the
  * different versions of it will also be deleted easily. So, basically:
  * <ul>
  * 	<li>
@@ -32,7 +38,12 @@ import com.dotmarketing.util.Logger;
  * 		</ul>
  *  </li>
  * </ul>
- * 
+ * Only one request renders a version of a page at a time: the others get the
+ * stale version while it is within BLOCK_PAGE_CACHE_STALE_SECONDS of its time
+ * to live, or wait up to BLOCK_PAGE_CACHE_RENDER_WAIT_MILLIS for the render.
+ * Expired versions are dropped whenever a version of the page is added, and
+ * at most BLOCK_PAGE_CACHE_MAX_VERSIONS versions are kept per page.
+ *
  * @author Jose Castro
  * @version 1.0
  * @since 10-17-2014
@@ -44,12 +55,46 @@ public class BlockPageCacheImpl extends BlockPageCache {
 	private DotCacheAdministrator cache = null;
 	private static String primaryCacheGroup = "BlockDirectiveHTMLPageCache";
 
+	private final long staleMillis;
+	private final long renderWaitMillis;
+	private final int gzipMinSize;
+	private final int maxStatsPages;
+	private final int maxVersions;
+
+	// Adding versions of the same page is serialized, different pages are
+	// added concurrently
+	private final Object[] keyLocks = new Object[64];
+
+	// Versions of pages being rendered, by main key and subkey
+	private final ConcurrentMap<String, Render> renders = new ConcurrentHashMap<String, Render>();
+	private final ConcurrentMap<String, PageStats> stats = new ConcurrentHashMap<String, PageStats>();
+
 	/**
 	 * Default constructor. Initializes the internal caching structures.
 	 */
 	public BlockPageCacheImpl() {
-		this.cache = CacheLocator.getCacheAdministrator();
-		this.canCache = LicenseUtil.getLevel() > 99;
+		this(CacheLocator.getCacheAdministrator(), LicenseUtil.getLevel() > 99,
+				Config.getIntProperty("BLOCK_PAGE_CACHE_STALE_SECONDS", 0) * 1000L,
+				Config.getIntProperty("BLOCK_PAGE_CACHE_RENDER_WAIT_MILLIS", 5000),
+				Config.getBooleanProperty("BLOCK_PAGE_CACHE_GZIP", true)
+						? Config.getIntProperty("BLOCK_PAGE_CACHE_GZIP_MIN_SIZE", 1024) : -1,
+				Config.getIntProperty("BLOCK_PAGE_CACHE_STATS_MAX_PAGES", 1000),
+				Config.getIntProperty("BLOCK_PAGE_CACHE_MAX_VERSIONS", 100));
+	}
+
+	BlockPageCacheImpl(DotCacheAdministrator cache, boolean canCache,
+			long staleMillis, long renderWaitMillis, int gzipMinSize,
+			int maxStatsPages, int maxVersions) {
+		this.cache = cache;
+		this.canCache = canCache;
+		this.staleMillis = staleMillis;
+		this.renderWaitMillis = renderWaitMillis;
+		this.gzipMinSize = gzipMinSize;
+		this.maxStatsPages = maxStatsPages;
+		this.maxVersions = Math.max(1, maxVersions);
+		for (int i = 0; i < keyLocks.length; i++) {
+			keyLocks[i] = new Object();
+		}
 	}
 
 	@Override
@@ -71,103 +116,259 @@ public class BlockPageCacheImpl extends BlockPageCache {
 	@Override
 	public void add(IHTMLPage page, String value,
 			PageCacheParameters pageChacheParams) {
-		if (page == null || pageChacheParams == null
-				|| pageChacheParams == null) {
+		add(page, value, null, pageChacheParams, 0);
+	}
+
+	@Override
+	public void add(IHTMLPage page, String value, String charset,
+			PageCacheParameters pageChacheParams, long renderMillis) {
+		if (page == null || pageChacheParams == null) {
 			return;
 		}
-		StringBuilder key = new StringBuilder();
-		key.append(page.getInode());
-		key.append("_" + page.getModDate().getTime());
+		String key = getKey(page);
 		String subkey = pageChacheParams.getKey();
-		BlockDirectiveCacheObject cto = new BlockDirectiveCacheObject(value,
-				(int) page.getCacheTTL());
-		synchronized (cache) {
-			try {
-				// Lookup the cached versions of a page
-				List<Map<String, Object>> cachedPages = (List<Map<String, Object>>) this.cache
-						.get(key.toString(), primaryCacheGroup);
-				if (cachedPages != null) {
-					boolean updatedEntry = false;
-					// Update version of page based on userid, language and
-					// urlmap
-					for (Map<String, Object> pageInfo : cachedPages) {
-						if (pageInfo.containsKey(subkey)) {
-							pageInfo.put(subkey, cto);
-							updatedEntry = true;
-							break;
-						}
-					}
-					// Or add a new one
-					if (!updatedEntry) {
-						Map<String, Object> pageInfo = new HashMap<String, Object>();
-						pageInfo.put(subkey, cto);
-						cachedPages.add(pageInfo);
+		BlockPageCacheEntry entry = new BlockPageCacheEntry(value, charset,
+				(int) page.getCacheTTL(), gzipMinSize);
+		synchronized (keyLocks[(key.hashCode() & 0x7fffffff) % keyLocks.length]) {
+			// The versions are copied, so readers never see a map being
+			// modified
+			Map<String, BlockPageCacheEntry> versions = new HashMap<String, BlockPageCacheEntry>();
+			Map<String, BlockPageCacheEntry> cachedPages = getVersions(key);
+			if (cachedPages != null) {
+				long now = System.currentTimeMillis();
+				for (Map.Entry<String, BlockPageCacheEntry> version : cachedPages
+						.entrySet()) {
+					if (!version.getKey().equals(subkey)
+							&& version.getValue().isUsable(now, staleMillis)) {
+						versions.put(version.getKey(), version.getValue());
 					}
 				}
-			} catch (DotCacheException e) {
-				// Key does not exist in cache, then add it
+				while (versions.size() >= maxVersions) {
+					versions.remove(getOldest(versions));
+				}
 			}
-			List<Map<String, Object>> versions = new ArrayList<Map<String, Object>>();
-			Map<String, Object> pageInfo = new HashMap<String, Object>();
-			pageInfo.put(subkey, cto);
-			versions.add(pageInfo);
-			this.cache.put(key.toString(), versions, primaryCacheGroup);
+			versions.put(subkey, entry);
+			this.cache.put(key, versions, primaryCacheGroup);
+		}
+		PageStats pageStats = getStats(page);
+		if (pageStats != null && renderMillis > 0) {
+			pageStats.rendered(renderMillis);
 		}
 	}
 
 	@Override
 	public String get(IHTMLPage page, PageCacheParameters pageChacheParams) {
-		if (!canCache || page == null || pageChacheParams == null
-				|| pageChacheParams == null) {
+		if (!canCache || page == null || pageChacheParams == null) {
 			return null;
 		}
-		StringBuilder key = new StringBuilder();
-		key.append(page.getInode());
-		key.append("_" + page.getModDate().getTime());
+		BlockPageCacheEntry entry = getEntry(getKey(page),
+				pageChacheParams.getKey());
+		return entry != null && entry.isFresh(System.currentTimeMillis()) ? entry
+				.getValue() : null;
+	}
+
+	@Override
+	public BlockPageCacheEntry lookup(IHTMLPage page,
+			PageCacheParameters pageChacheParams, boolean refresh) {
+		if (!canCache || page == null || pageChacheParams == null) {
+			return null;
+		}
+		String key = getKey(page);
 		String subkey = pageChacheParams.getKey();
-		synchronized (cache) {
-			// Lookup the cached versions of the page based on inode and moddate
-			try {
-				List<Map<String, Object>> cachedPages = (List<Map<String, Object>>) this.cache
-						.get(key.toString(), primaryCacheGroup);
-				BlockDirectiveCacheObject cto = null;
-				if (cachedPages != null) {
-					for (Map<String, Object> pageInfo : cachedPages) {
-						// Lookup specific page with userid, language and urlmap
-						if (pageInfo.containsKey(subkey)) {
-							cto = (BlockDirectiveCacheObject) pageInfo
-									.get(subkey);
-							break;
-						}
-					}
-					if (cto != null
-							&& cto.getCreated()
-									+ ((int) page.getCacheTTL() * 1000) > System
-										.currentTimeMillis()) {
-						return cto.getValue();
-					} else {
-						// Remove page from cache if expired and get new version
-						remove(page);
-					}
+		PageStats pageStats = getStats(page);
+		if (refresh) {
+			count(pageStats, Outcome.MISS);
+			return null;
+		}
+
+		BlockPageCacheEntry entry = getEntry(key, subkey);
+		long now = System.currentTimeMillis();
+		if (entry != null && entry.isFresh(now)) {
+			count(pageStats, Outcome.HIT);
+			return entry;
+		}
+		if (entry != null && !entry.isUsable(now, staleMillis)) {
+			entry = null;
+		}
+
+		Render render = new Render();
+		String renderKey = key + "|" + subkey;
+		Render current = renders.putIfAbsent(renderKey, render);
+		if (current != null && current.started + renderWaitMillis < now
+				&& renders.replace(renderKey, current, render)) {
+			// The request rendering it never released the page
+			current.done.countDown();
+			current = null;
+		}
+		if (current == null) {
+			// This request renders the page
+			count(pageStats, Outcome.MISS);
+			return null;
+		}
+		if (entry != null) {
+			count(pageStats, Outcome.STALE);
+			return entry;
+		}
+
+		count(pageStats, Outcome.WAIT);
+		try {
+			if (current.done.await(renderWaitMillis, TimeUnit.MILLISECONDS)) {
+				entry = getEntry(key, subkey);
+				if (entry != null) {
+					return entry;
 				}
-			} catch (DotCacheException e) {
-				Logger.error(this.getClass(), "cache entry :" + key.toString()
-						+ " not found");
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+		// The other render failed or is taking too long, render the page
+		// without waiting any more
 		return null;
 	}
 
+	@Override
+	public void release(IHTMLPage page, PageCacheParameters pageChacheParams) {
+		if (page == null || pageChacheParams == null) {
+			return;
+		}
+		String renderKey = getKey(page) + "|" + pageChacheParams.getKey();
+		Render render = renders.get(renderKey);
+		if (render != null && render.owner == Thread.currentThread()
+				&& renders.remove(renderKey, render)) {
+			render.done.countDown();
+		}
+	}
+
 	@Override
 	public void remove(IHTMLPage page) {
 		try {
-			StringBuilder key = new StringBuilder();
-			key.append(page.getInode());
-			key.append("_" + page.getModDate().getTime());
-			this.cache.remove(key.toString(), primaryCacheGroup);
+			this.cache.remove(getKey(page), primaryCacheGroup);
 		} catch (Exception e) {
 			Logger.debug(this, "Cache not able to be removed", e);
 		}
 	}
 
+	@Override
+	public Map<String, Object> getStats() {
+		Map<String, Object> report = new TreeMap<String, Object>();
+		for (Map.Entry<String, PageStats> entry : stats.entrySet()) {
+			report.put(entry.getKey(), entry.getValue().toMap());
+		}
+		return report;
+	}
+
+	@Override
+	public void resetStats() {
+		stats.clear();
+	}
+
+	private String getKey(IHTMLPage page) {
+		return page.getInode() + "_" + page.getModDate().getTime();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, BlockPageCacheEntry> getVersions(String key) {
+		try {
+			Object cached = this.cache.get(key, primaryCacheGroup);
+			return cached instanceof Map ? (Map<String, BlockPageCacheEntry>) cached
+					: null;
+		} catch (DotCacheException e) {
+			Logger.debug(this.getClass(), "cache entry :" + key + " not found");
+			return null;
+		}
+	}
+
+	private String getOldest(Map<String, BlockPageCacheEntry> versions) {
+		String oldest = null;
+		long created = Long.MAX_VALUE;
+		for (Map.Entry<String, BlockPageCacheEntry> version : versions
+				.entrySet()) {
+			if (version.getValue().getCreated() < created) {
+				oldest = version.getKey();
+				created = version.getValue().getCreated();
+			}
+		}
+		return oldest;
+	}
+
+	private BlockPageCacheEntry getEntry(String key, String subkey) {
+		Map<String, BlockPageCacheEntry> versions = getVersions(key);
+		return versions != null ? versions.get(subkey) : null;
+	}
+
+	private PageStats getStats(IHTMLPage page) {
+		String identifier = page.getIdentifier();
+		if (identifier == null) {
+			return null;
+		}
+		PageStats pageStats = stats.get(identifier);
+		if (pageStats == null && stats.size() < maxStatsPages) {
+			PageStats newStats = new PageStats();
+			pageStats = stats.putIfAbsent(identifier, newStats);
+			if (pageStats == null) {
+				pageStats = newStats;
+			}
+		}
+		return pageStats;
+	}
+
+	private void count(PageStats pageStats, Outcome outcome) {
+		if (pageStats != null) {
+			pageStats.counters[outcome.ordinal()].incrementAndGet();
+		}
+	}
+
+	private enum Outcome {
+		HIT, STALE, WAIT, MISS
+	}
+
+	/**
+	 * A version of a page being rendered by a request.
+	 */
+	private static class Render {
+		final Thread owner = Thread.currentThread();
+		final long started = System.currentTimeMillis();
+		final CountDownLatch done = new CountDownLatch(1);
+	}
+
+	/**
+	 * What the requests of a page got from the cache, and how long its
+	 * renders took.
+	 */
+	private static class PageStats {
+		final AtomicLong[] counters = new AtomicLong[Outcome.values().length];
+		final AtomicLong renders = new AtomicLong();
+		final AtomicLong renderMillis = new AtomicLong();
+		final AtomicLong maxRenderMillis = new AtomicLong();
+
+		PageStats() {
+			for (int i = 0; i < counters.length; i++) {
+				counters[i] = new AtomicLong();
+			}
+		}
+
+		void rendered(long millis) {
+			renders.incrementAndGet();
+			renderMillis.addAndGet(millis);
+			long max;
+			while ((max = maxRenderMillis.get()) < millis
+					&& !maxRenderMillis.compareAndSet(max, millis)) {
+				// retry
+			}
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("hits", counters[Outcome.HIT.ordinal()].get());
+			map.put("staleHits", counters[Outcome.STALE.ordinal()].get());
+			map.put("waits", counters[Outcome.WAIT.ordinal()].get());
+			map.put("misses", counters[Outcome.MISS.ordinal()].get());
+			long count = renders.get();
+			map.put("renders", count);
+			map.put("avgRenderMillis", count > 0 ? renderMillis.get() / count : 0);
+			map.put("maxRenderMillis", maxRenderMillis.get());
+			return map;
+		}
+	}
+
 }
@@ -0,0 +1,180 @@
+package com.dotmarketing.business;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Collects the cache invalidations the {@link ChainableCacheAdministratorImpl} has to propagate to the rest of the
+ * cluster and hands them back in batches, used when <strong>CACHE_INVALIDATION_BATCH_ENABLED</strong> is set.
+ * <p/>
+ * Invalidations are kept in insertion order and repeated invalidations of the same key are sent once. A background
+ * thread waits <strong>CACHE_INVALIDATION_BATCH_WINDOW</strong> milliseconds after the first pending invalidation
+ * and then sends everything collected in that window, a batch reaching <strong>CACHE_INVALIDATION_BATCH_SIZE</strong>
+ * entries is sent right away.
+ */
+class CacheInvalidationBatcher {
+
+	private final ChainableCacheAdministratorImpl cacheAdministrator;
+
+	private final int batchSize;
+	private final long window;
+
+	private final Object lock = new Object();
+	private LinkedHashSet<String> pending = new LinkedHashSet<>();
+
+	private volatile boolean running = false;
+	private Thread sender;
+
+	CacheInvalidationBatcher ( ChainableCacheAdministratorImpl cacheAdministrator ) {
+		this.cacheAdministrator = cacheAdministrator;
+		this.batchSize = Math.max(1, Config.getIntProperty("CACHE_INVALIDATION_BATCH_SIZE", 500));
+		this.window = Config.getIntProperty("CACHE_INVALIDATION_BATCH_WINDOW", 50);
+	}
+
+	void start () {
+		running = true;
+		sender = new Thread(new Sender(), "CacheInvalidationBatcher");
+		sender.setDaemon(true);
+		sender.start();
+	}
+
+	/**
+	 * Stops the background sender and synchronously sends whatever is still pending
+	 */
+	void stop () {
+
+		running = false;
+		if ( sender != null ) {
+			sender.interrupt();
+			try {
+				sender.join(5000);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			sender = null;
+		}
+
+		flush();
+	}
+
+	/**
+	 * Queues the invalidation of the given key, the key and the group are expected to be already lower cased
+	 */
+	void add ( String key, String group ) {
+
+		synchronized ( lock ) {
+			pending.add(key + ":" + group);
+			if ( pending.size() == 1 || pending.size() >= batchSize ) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Sends everything collected so far
+	 */
+	void flush () {
+
+		List<String> batch;
+		synchronized ( lock ) {
+			if ( pending.isEmpty() ) {
+				return;
+			}
+			batch = new ArrayList<>(pending);
+			pending = new LinkedHashSet<>();
+		}
+
+		cacheAdministrator.sendInvalidations(batch);
+	}
+
+	int getBatchSize () {
+		return batchSize;
+	}
+
+	/**
+	 * Builds the transport messages for the given <code>key:group</code> entries. A single entry is sent in the plain
+	 * <code>key:group</code> format, several entries are joined in one
+	 * {@link ChainableCacheAdministratorImpl#INVALIDATE_BATCH} message of at most <code>maxEntries</code> entries.
+	 * Entries containing the batch separator can not be part of a batch and are always sent on their own.
+	 */
+	static List<String> toMessages ( List<String> entries, int maxEntries ) {
+
+		List<String> messages = new ArrayList<>();
+		List<String> chunk = new ArrayList<>();
+
+		for ( String entry : entries ) {
+			if ( entry.contains(ChainableCacheAdministratorImpl.INVALIDATE_BATCH_SEPARATOR) ) {
+				messages.add(entry);
+				continue;
+			}
+
+			chunk.add(entry);
+			if ( chunk.size() >= maxEntries ) {
+				messages.add(toMessage(chunk));
+				chunk.clear();
+			}
+		}
+
+		if ( !chunk.isEmpty() ) {
+			messages.add(toMessage(chunk));
+		}
+
+		return messages;
+	}
+
+	private static String toMessage ( List<String> chunk ) {
+
+		if ( chunk.size() == 1 ) {
+			return chunk.get(0);
+		}
+
+		StringBuilder message = new StringBuilder(ChainableCacheAdministratorImpl.INVALIDATE_BATCH);
+		for ( int i = 0; i < chunk.size(); i++ ) {
+			if ( i > 0 ) {
+				message.append(ChainableCacheAdministratorImpl.INVALIDATE_BATCH_SEPARATOR);
+			}
+			message.append(chunk.get(i));
+		}
+
+		return message.toString();
+	}
+
+	/**
+	 * Waits for the first pending invalidation, lets the window collect more of them and sends the batch
+	 */
+	private class Sender implements Runnable {
+
+		@Override
+		public void run () {
+
+			while ( running ) {
+				try {
+					synchronized ( lock ) {
+						while ( pending.isEmpty() ) {
+							lock.wait();
+						}
+
+						long deadline = System.currentTimeMillis() + window;
+						long remaining = window;
+						while ( pending.size() < batchSize && remaining > 0 ) {
+							lock.wait(remaining);
+							remaining = deadline - System.currentTimeMillis();
+						}
+					}
+
+					flush();
+				} catch ( InterruptedException e ) {
+					//Whatever is still pending is sent by stop()
+					return;
+				} catch ( Exception e ) {
+					Logger.error(CacheInvalidationBatcher.class, "Unable to send cache invalidations to cluster: " + e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+}
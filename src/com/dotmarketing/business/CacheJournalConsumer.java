@@ -0,0 +1,106 @@
+package com.dotmarketing.business;
+
+import com.dotmarketing.common.business.journal.DistributedJournalAPI;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+import java.util.List;
+
+/**
+ * Applies to this server the cache invalidations the rest of the cluster writes to the cache journal, used when
+ * <strong>CACHE_CLUSTER_THROUGH_DB</strong> is set.
+ * <p/>
+ * A background thread follows the cursor of this server in the journal every
+ * <strong>CACHE_JOURNAL_POLL_MILLIS</strong> milliseconds, reading only the records after the cursor, and applies
+ * each batch read in one pass. Full batches are followed right away without waiting. Every
+ * <strong>CACHE_JOURNAL_PRUNE_SECONDS</strong> the records all the servers have read are deleted.
+ */
+class CacheJournalConsumer {
+
+	private final DistributedJournalAPI journalAPI;
+
+	private final long pollMillis;
+	private final long pruneMillis;
+	private final int batchSize;
+
+	private volatile boolean running = false;
+	private Thread consumer;
+
+	CacheJournalConsumer ( DistributedJournalAPI journalAPI ) {
+		this.journalAPI = journalAPI;
+		this.pollMillis = Math.max(1, Config.getIntProperty("CACHE_JOURNAL_POLL_MILLIS", 100));
+		this.pruneMillis = Config.getIntProperty("CACHE_JOURNAL_PRUNE_SECONDS", 60) * 1000L;
+		this.batchSize = Config.getIntProperty("CACHE_JOURNAL_BATCH_SIZE", 1000);
+	}
+
+	void start () {
+		running = true;
+		consumer = new Thread(new Consumer(), "CacheJournalConsumer");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	void stop () {
+
+		running = false;
+		if ( consumer != null ) {
+			consumer.interrupt();
+			try {
+				consumer.join(5000);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			consumer = null;
+		}
+	}
+
+	/**
+	 * Reads and applies the next batch of invalidations
+	 *
+	 * @return the number of journal records applied
+	 */
+	int consume () throws Exception {
+
+		@SuppressWarnings("unchecked")
+		List<String> entries = journalAPI.findCacheEntriesToRemove();
+		if ( !entries.isEmpty() ) {
+			LocalCacheInvalidator.invalidate(entries);
+		}
+
+		return entries.size();
+	}
+
+	private class Consumer implements Runnable {
+
+		@Override
+		public void run () {
+
+			long nextPrune = System.currentTimeMillis() + pruneMillis;
+
+			while ( running ) {
+				try {
+					int applied = consume();
+
+					if ( System.currentTimeMillis() >= nextPrune ) {
+						nextPrune = System.currentTimeMillis() + pruneMillis;
+						journalAPI.pruneCacheEntries();
+					}
+
+					if ( applied < batchSize ) {
+						Thread.sleep(pollMillis);
+					}
+				} catch ( InterruptedException e ) {
+					return;
+				} catch ( Exception e ) {
+					Logger.error(CacheJournalConsumer.class, "Unable to read the cache journal: " + e.getMessage(), e);
+					try {
+						Thread.sleep(Math.max(pollMillis, 1000));
+					} catch ( InterruptedException e1 ) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+}
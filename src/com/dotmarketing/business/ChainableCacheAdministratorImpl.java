@@ -10,6 +10,7 @@ import com.dotcms.enterprise.cluster.ClusterFactory;
 import com.dotcms.repackage.com.google.common.cache.RemovalListener;
 import com.dotcms.repackage.com.google.common.cache.RemovalNotification;
 import com.dotcms.enterprise.cache.provider.CacheProviderAPI;
+import com.dotmarketing.business.cache.telemetry.CacheTelemetry;
 import com.dotmarketing.business.cache.transport.CacheTransport;
 import com.dotmarketing.business.cache.transport.CacheTransportException;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
@@ -37,6 +38,11 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	private DistributedJournalAPI journalAPI;
 	private CacheProviderAPI cacheProviderAPI;
 	private boolean useTransportChannel = false;
+	private CacheInvalidationBatcher invalidationBatcher;
+	//Nodes of older versions only understand one key:group per message
+	private final boolean batchMessages = Config.getBooleanProperty("CACHE_INVALIDATION_BATCH_MESSAGES", false);
+	private CacheJournalConsumer journalConsumer;
+	private CacheTelemetry telemetry;
 
 	public static final String TEST_MESSAGE = "HELLO CLUSTER!";
 	public static final String TEST_MESSAGE_NODE = "TESTNODE";
@@ -44,6 +50,8 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	public static final String VALIDATE_CACHE_RESPONSE = "validateCacheInCluster-response-";
 	public static final String VALIDATE_SEPARATOR = "_";
 	public static final String DUMMY_TEXT_TO_SEND = "DUMMY MSG TO TEST SEND";
+	public static final String INVALIDATE_BATCH = "invalidateBatch-";
+	public static final String INVALIDATE_BATCH_SEPARATOR = "\n";
 
 	public CacheTransport getTransport () {
 		return cacheTransport;
@@ -72,6 +80,21 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		}
 
 		journalAPI = APILocator.getDistributedJournalAPI();
+
+		if ( Config.getBooleanProperty("CACHE_INVALIDATION_BATCH_ENABLED", true) ) {
+			invalidationBatcher = new CacheInvalidationBatcher(this);
+			invalidationBatcher.start();
+		}
+
+		if ( Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false) ) {
+			journalConsumer = new CacheJournalConsumer(journalAPI);
+			journalConsumer.start();
+		}
+
+		if ( Config.getBooleanProperty("CACHE_TELEMETRY_ENABLED", true) ) {
+			telemetry = new CacheTelemetry(this);
+			CacheTelemetry.register(telemetry);
+		}
 	}
 
 	public void initProviders () {
@@ -280,6 +303,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 		//Invalidates all the Cache
 		cacheProviderAPI.removeAll();
+
+		if ( telemetry != null ) {
+			telemetry.recordFlushAll();
+		}
 	}
 
 	public void flushGroupLocalOnly ( String group ) {
@@ -292,6 +319,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 		//Invalidates the Cache for the given group
 		cacheProviderAPI.remove(group);
+
+		if ( telemetry != null ) {
+			telemetry.recordFlush(group);
+		}
 	}
 
 	public Object get ( String key, String group ) throws DotCacheException {
@@ -303,8 +334,16 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		key = key.toLowerCase();
 		group = group.toLowerCase();
 
-		//Find the Object for a given key in a given group
-		return cacheProviderAPI.get(group, key);
+		if ( telemetry == null ) {
+			//Find the Object for a given key in a given group
+			return cacheProviderAPI.get(group, key);
+		}
+
+		long start = telemetry.startSample();
+		Object value = cacheProviderAPI.get(group, key);
+		telemetry.recordGet(group, key, value != null, start);
+
+		return value;
 	}
 
 	/*
@@ -325,6 +364,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 		//Adds a given object gor a given group to a given key
 		cacheProviderAPI.put(group, key, content);
+
+		if ( telemetry != null ) {
+			telemetry.recordPut(group, key);
+		}
 	}
 
 	/*
@@ -339,38 +382,28 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 			return;
 		}
 
+		final String k = key.toLowerCase();
+		final String g = group.toLowerCase();
+
 		Runnable cacheRemoveRunnable=new Runnable() {
 	         public void run() {
 
-				String k = key.toLowerCase();
-				String g = group.toLowerCase();
 				removeLocalOnly(k, g);
 
-				try {
-					if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
-						journalAPI.addCacheEntry(k, g);
-					} else if ( useTransportChannel ) {
-
-						if ( getTransport() != null ) {
-							try {
-								getTransport().send(k + ":" + g);
-							} catch ( Exception e ) {
-								Logger.error(ChainableCacheAdministratorImpl.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
-							}
-						} else {
-							throw new CacheTransportException("No Cache transport implementation is defined");
-						}
-
+				if ( invalidationBatcher != null ) {
+					if ( useTransportChannel || Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false) ) {
+						invalidationBatcher.add(k, g);
 					}
-				} catch (DotDataException e) {
-					Logger.error(this, "Unable to add journal entry for cluster", e);
+				} else {
+					sendInvalidations(Collections.singletonList(k + ":" + g));
 				}
 	         }
 		};
 
 		try {
 			if(DbConnectionFactory.inTransaction()){
-				HibernateUtil.addCommitListener(cacheRemoveRunnable);
+				//Tagged by key so removing the same key many times in a transaction sends it once on commit
+				HibernateUtil.addCommitListener("cacheRemove:" + k + ":" + g, cacheRemoveRunnable);
 			}
 		} catch (Exception e) {
 			Logger.error(ChainableCacheAdministratorImpl.class,e.getMessage(),e);
@@ -379,6 +412,38 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		cacheRemoveRunnable.run();
 	}
 
+	/**
+	 * Propagates the given <code>key:group</code> invalidations to the rest of the cluster, as rows in the journal
+	 * when <strong>CACHE_CLUSTER_THROUGH_DB</strong> is set or through the cache transport.
+	 *
+	 * @param entries invalidations in the <code>key:group</code> format
+	 */
+	void sendInvalidations ( List<String> entries ) {
+
+		try {
+			if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
+				journalAPI.addCacheEntries(entries);
+			} else if ( useTransportChannel ) {
+
+				if ( getTransport() != null ) {
+					int maxEntries = invalidationBatcher != null && batchMessages ? invalidationBatcher.getBatchSize() : 1;
+					for ( String message : CacheInvalidationBatcher.toMessages(entries, maxEntries) ) {
+						try {
+							getTransport().send(message);
+						} catch ( Exception e ) {
+							Logger.error(ChainableCacheAdministratorImpl.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
+						}
+					}
+				} else {
+					throw new CacheTransportException("No Cache transport implementation is defined");
+				}
+
+			}
+		} catch (DotDataException e) {
+			Logger.error(this, "Unable to add journal entry for cluster", e);
+		}
+	}
+
 	public void removeLocalOnly ( final String key, final String group ) {
 
 		if ( key == null || group == null ) {
@@ -389,6 +454,10 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 			public void run () {
 				//Invalidates from Cache a key from a given group
 				cacheProviderAPI.remove(group, key);
+
+				if ( telemetry != null ) {
+					telemetry.recordRemove(group, key);
+				}
 			}
 		};
 		cacheRemoveRunnable.run();
@@ -404,12 +473,37 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		return cacheProviderAPI.getStats();
 	}
 
+	/**
+	 * Returns the telemetry collected for the cache groups, null when <strong>CACHE_TELEMETRY_ENABLED</strong> is false
+	 */
+	public CacheTelemetry getTelemetry () {
+		return telemetry;
+	}
+
 	public void shutdown () {
+
+		if ( invalidationBatcher != null ) {
+			invalidationBatcher.stop();
+		}
+
+		if ( journalConsumer != null ) {
+			journalConsumer.stop();
+		}
+
+		if ( telemetry != null ) {
+			CacheTelemetry.unregister();
+		}
+
 		cacheProviderAPI.shutdown();
 	}
 
 	public void shutdownChannel () {
 
+		//Pending invalidations have to go out before the channel is closed
+		if ( invalidationBatcher != null ) {
+			invalidationBatcher.flush();
+		}
+
 		if ( getTransport() != null ) {
 			getTransport().shutdown();
 			useTransportChannel = false;
@@ -1,5 +1,6 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -63,6 +64,15 @@ public interface IdentifierAPI {
 	 */
 	public Identifier find(String id) throws DotDataException;
 
+	/**
+	 * Will take the ids of several identifiers and return the ones that exist, from cache or db.
+	 * The cache misses are loaded with one query per batch.
+	 * @param ids
+	 * @return the identifiers found, in the order of the ids
+	 * @throws DotDataException
+	 */
+	public List<Identifier> find(Collection<String> ids) throws DotDataException;
+
 	/**
 	 * Will take a Versionable and return its identifier from cache or db. If cache miss
 	 * this will always hit the db
@@ -1,5 +1,6 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -81,6 +82,10 @@ public class IdentifierAPIImpl implements IdentifierAPI {
 
 	}
 
+	public List<Identifier> find(Collection<String> ids) throws DotDataException {
+		return ifac.find(ids);
+	}
+
 	public Identifier find(Versionable versionable) throws DotDataException {
 		if (versionable == null || (!InodeUtils.isSet(versionable.getVersionId()) && !InodeUtils.isSet(versionable.getInode()))) {
 			throw new DotStateException("Versionable is null");
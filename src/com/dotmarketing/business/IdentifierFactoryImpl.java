@@ -4,6 +4,7 @@ import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.WebAsset;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.util.SQLUtil;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -28,9 +29,13 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -467,6 +472,52 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 		return check404(id);
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	protected List<Identifier> find(Collection<String> ids) throws DotDataException {
+		Set<String> uniqueIds = new LinkedHashSet<String>(ids);
+		Map<String, Identifier> found = new HashMap<String, Identifier>();
+		List<String> misses = new ArrayList<String>();
+		for (String x : uniqueIds) {
+			Identifier id = ic.getIdentifier(x);
+			if (id != null && UtilMethods.isSet(id.getId())) {
+				found.put(x, id);
+			} else {
+				misses.add(x);
+			}
+		}
+
+		int batchSize = Config.getIntProperty("BULK_LOAD_BATCH_SIZE", 200);
+		for (int init = 0; init < misses.size(); init += batchSize) {
+			List<String> batch = misses.subList(init, Math.min(init + batchSize, misses.size()));
+			HibernateUtil hu = new HibernateUtil(Identifier.class);
+			hu.setQuery("from " + Identifier.class.getName() + " where id in (" + SQLUtil.placeholders(batch.size()) + ")");
+			for (String x : batch) {
+				hu.setParam(x);
+			}
+			for (Identifier id : (List<Identifier>) hu.list()) {
+				ic.addIdentifierToCache(id);
+				found.put(id.getId(), id);
+			}
+			for (String x : batch) {
+				if (!found.containsKey(x)) {
+					Identifier id = build404(x);
+					ic.addIdentifierToCache(id);
+					found.put(x, id);
+				}
+			}
+		}
+
+		List<Identifier> result = new ArrayList<Identifier>(uniqueIds.size());
+		for (String x : uniqueIds) {
+			Identifier id = check404(found.get(x));
+			if (id != null && InodeUtils.isSet(id.getId())) {
+				result.add(id);
+			}
+		}
+		return result;
+	}
+
 	protected Identifier saveIdentifier(Identifier id) throws DotDataException {
 		Identifier loadedObject = id;
 		if ( id != null && UtilMethods.isSet(id.getId()) ) {
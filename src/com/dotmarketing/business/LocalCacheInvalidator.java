@@ -0,0 +1,87 @@
+package com.dotmarketing.business;
+
+import com.dotmarketing.menubuilders.RefreshMenus;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.velocity.DotResourceCache;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies to the caches of this server the <code>key:group</code> invalidations received from the rest of the
+ * cluster, through the cache transport or through the cache journal when <strong>CACHE_CLUSTER_THROUGH_DB</strong>
+ * is set.
+ */
+public final class LocalCacheInvalidator {
+
+	private LocalCacheInvalidator () {
+	}
+
+	/**
+	 * Applies a batch of <code>key:group</code> invalidations in one pass: a root flush wins over everything else,
+	 * group flushes are applied once and keys of a flushed group are skipped, menus are refreshed at most once.
+	 */
+	public static void invalidate ( Iterable<String> entries ) {
+
+		DotResourceCache vc = CacheLocator.getVeloctyResourceCache();
+		String menuGroup = vc.getMenuGroup();
+
+		boolean flushAll = false;
+		boolean flushMenus = false;
+		Set<String> groupsToFlush = new LinkedHashSet<>();
+		Map<String, Set<String>> keysToRemove = new LinkedHashMap<>();
+
+		for ( String entry : entries ) {
+
+			int i = entry.lastIndexOf(":");
+			if ( i <= 0 ) {
+				Logger.error(LocalCacheInvalidator.class, "The cache to locally remove key is invalid. The value was " + entry);
+				continue;
+			}
+
+			String key = entry.substring(0, i).toLowerCase();
+			String group = entry.substring(i + 1).toLowerCase();
+
+			if ( group.equals(menuGroup) && (key.equals("0") || key.contains("dynamic")) ) {
+				flushMenus = true;
+			} else if ( key.equals("0") ) {
+				if ( group.equals(DotCacheAdministrator.ROOT_GOUP) ) {
+					flushAll = true;
+				} else {
+					groupsToFlush.add(group);
+				}
+			} else {
+				Set<String> keys = keysToRemove.get(group);
+				if ( keys == null ) {
+					keys = new LinkedHashSet<>();
+					keysToRemove.put(group, keys);
+				}
+				keys.add(key);
+			}
+		}
+
+		if ( flushAll ) {
+			CacheLocator.getCacheAdministrator().flushAlLocalOnly();
+		} else {
+			for ( String group : groupsToFlush ) {
+				CacheLocator.getCacheAdministrator().flushGroupLocalOnly(group);
+			}
+			for ( Map.Entry<String, Set<String>> groupKeys : keysToRemove.entrySet() ) {
+				if ( groupsToFlush.contains(groupKeys.getKey()) ) {
+					continue;
+				}
+				for ( String key : groupKeys.getValue() ) {
+					CacheLocator.getCacheAdministrator().removeLocalOnly(key, groupKeys.getKey());
+				}
+			}
+		}
+
+		if ( flushMenus ) {
+			RefreshMenus.deleteMenusOnFileSystemOnly();
+			CacheLocator.getCacheAdministrator().flushGroupLocalOnly(menuGroup);
+		}
+	}
+
+}
@@ -258,6 +258,18 @@ public interface PermissionAPI {
 	 */
 	List<Permission> getPermissions(Permissionable permissionable, boolean bitPermissions, boolean onlyIndividualPermissions, boolean forceLoadFromDB) throws DotDataException;
 
+	/**
+	 * Same as {@link #getPermissions(Permissionable, boolean)} for several permissionables, the permissions that are
+	 * not in cache are loaded with one query for all of them
+	 *
+	 * @param permissionables
+	 * @param bitPermissions if true returns the new compressed bit permissions format
+	 * @return A map of permissionable vs. permissions list
+	 * @throws DotDataException
+	 * @throws DotSecurityException
+	 */
+	Map<Permissionable, List<Permission>> getPermissions(List<Permissionable> permissionables, boolean bitPermissions) throws DotDataException, DotSecurityException;
+
     /**
      * For new Permissionables adds its permissions to cache.
      *
@@ -315,6 +315,14 @@ public class PermissionBitAPIImpl implements PermissionAPI {
                 && ((Structure)permissionable).getStructureType()==Structure.STRUCTURE_TYPE_FILEASSET)
             return true;
 
+		PermissionDecisionCache decisionCache = PermissionDecisionCache.getInstance();
+		if(decisionCache.isEnabled()){
+			Boolean decision = decisionCache.decide(permissionable, permissionType, user, respectFrontendRoles, this);
+			if(decision != null){
+				return decision;
+			}
+		}
+
 		Role adminRole;
 		Role anonRole;
 		Role frontEndUserRole;
@@ -388,21 +396,10 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 				Logger.error(this, "Roleid should be a long : ",e);
 			}
 		}
-		String inode ="";
         List<String> ids= new ArrayList<String>();
-        String s = permissionable.toString();
-        
-        if(s.contains("formId=")){
-                String[] st = s.split(",");
-                for(String str : st){
-                        str = str.trim();
-                        if(str.contains("formId=")){
-                                inode = str.substring(7);
-                        }
-                }
-        }
+        String inode = PermissionDecisionCache.getFormId(permissionable);
         
-        if(inode != ""){
+        if(inode != null){
                 PermissionAPI pAPI;
                 pAPI = APILocator.getPermissionAPI();
                 List<Role> role = pAPI.getRoles(inode, PermissionAPI.PERMISSION_READ + PermissionAPI.PERMISSION_EDIT + PermissionAPI.PERMISSION_PUBLISH, "", 0, 10, true);
@@ -580,6 +577,11 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 		return permissionFactory.getPermissions(permissionable, bitPermissions, onlyIndividualPermissions, forceLoadFromDB);
 	}
 
+	public Map<Permissionable, List<Permission>> getPermissions(List<Permissionable> permissionables, boolean bitPermissions)
+			throws DotDataException, DotSecurityException {
+		return permissionFactory.getPermissions(permissionables, bitPermissions);
+	}
+
     public void addPermissionsToCache ( Permissionable permissionable ) throws DotDataException {
         permissionFactory.addPermissionsToCache( permissionable );
     }
@@ -1082,20 +1084,11 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 		if ((user != null) && roleAPI.doesUserHaveRole(user, roleAPI.loadCMSAdminRole()))
 			return inputList;
 
-		List<P> permissionables = new ArrayList<P>(inputList);
-		if(permissionables.isEmpty()){
-			return permissionables;
-		}
-
-		Permissionable permissionable;
-		int i = 0;
-
-		while (i < permissionables.size()) {
-			permissionable = permissionables.get(i);
-			if(!doesUserHavePermission(permissionable, requiredTypePermission, user, respectFrontendRoles)){
-				permissionables.remove(i);
-			} else {
-				++i;
+		//Copying the allowed ones, removing the rest one by one shifts the list on every removal
+		List<P> permissionables = new ArrayList<P>(inputList.size());
+		for (P permissionable : inputList) {
+			if(doesUserHavePermission(permissionable, requiredTypePermission, user, respectFrontendRoles)){
+				permissionables.add(permissionable);
 			}
 		}
 
@@ -21,6 +21,7 @@ import com.dotmarketing.beans.Permission;
 import com.dotmarketing.beans.PermissionReference;
 import com.dotmarketing.cms.factories.PublicCompanyFactory;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.util.SQLUtil;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -87,6 +88,22 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
         "    on (inode_id = reference_id and permission.permission_type = permission_reference.permission_type) "+
         "    where asset_id = ?";
 
+	/*
+	 * Same rows as loadPermissionSQL for several permissionables at once, along with the permissionable they belong to
+	 * Parameters
+	 * 1. The permissionable ids, twice
+	 */
+	private final String loadPermissionsSQL =
+		" select inode_id as asset_id, id, permission_type, inode_id, roleid, permission from permission where inode_id in (#) "+
+        " union all "+
+        " select permission_reference.asset_id, permission.id, permission.permission_type, permission.inode_id, permission.roleid, permission.permission "+
+        "    from permission join permission_reference "+
+        "    on (inode_id = reference_id and permission.permission_type = permission_reference.permission_type) "+
+        "    where asset_id in (#)";
+
+	//Keeps the IN lists of loadPermissionsSQL under the limits of every supported database
+	private static final int MAX_LOAD_PERMISSIONS = 500;
+
 	/*
 	 * To load permission references objects based on the reference they are pointing to
 	 * Parameters
@@ -2176,9 +2193,37 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 
 		Map<Permissionable, List<Permission>> result = new HashMap<Permissionable, List<Permission>>();
 
+		//The permissions not in cache are loaded with one query for all of them
+		Map<String, List<Permission>> bitPermissions = new HashMap<String, List<Permission>>();
+		List<String> notCached = new ArrayList<String>();
 		for(Permissionable p : permissionables) {
-			List<Permission> permission = getPermissions(p, bitPermission);
-			result.put(p, permission);
+			String permissionId = p.getPermissionId();
+			if(!InodeUtils.isSet(permissionId) || bitPermissions.containsKey(permissionId))
+				continue;
+			List<Permission> cached = permissionCache.getPermissionsFromCache(permissionId);
+			if(cached != null && cached.size() > 0) {
+				bitPermissions.put(permissionId, cached);
+			} else {
+				bitPermissions.put(permissionId, null);
+				notCached.add(permissionId);
+			}
+		}
+		for(int i = 0; i < notCached.size(); i += MAX_LOAD_PERMISSIONS) {
+			loadPermissions(notCached.subList(i, Math.min(notCached.size(), i + MAX_LOAD_PERMISSIONS)), bitPermissions);
+		}
+
+		for(Permissionable p : permissionables) {
+			List<Permission> bitPermissionsList = InodeUtils.isSet(p.getPermissionId()) ? bitPermissions.get(p.getPermissionId()) : null;
+			if(bitPermissionsList == null || bitPermissionsList.size() == 0) {
+				//Nothing of its own, the permissionable it inherits from is looked up one by one
+				result.put(p, getPermissions(p, bitPermission));
+				continue;
+			}
+
+			bitPermissionsList = filterOnlyNonInheritablePermissions(bitPermissionsList, p.getPermissionId());
+			if(!bitPermission)
+				bitPermissionsList = convertToNonBitPermissions(bitPermissionsList);
+			result.put(p, bitPermissionsList);
 		}
 
 		return result;
@@ -2446,6 +2491,40 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 	}
 
 	@SuppressWarnings("unchecked")
+	/**
+	 * Loads the rows loadPermissions(Permissionable) loads for each of the given permissionable ids and adds the ones
+	 * found to the cache. Permissionables without rows are left alone, their permission reference is not resolved here.
+	 */
+	private void loadPermissions(List<String> permissionIds, Map<String, List<Permission>> bitPermissions) throws DotDataException {
+
+		DotConnect dc = new DotConnect();
+		dc.setSQL(loadPermissionsSQL.replace("#", SQLUtil.placeholders(permissionIds.size())));
+		for(int i = 0; i < 2; i++) {
+			for(String permissionId : permissionIds) {
+				dc.addParam(permissionId);
+			}
+		}
+
+		Map<String, List<Permission>> loaded = new HashMap<String, List<Permission>>();
+		for(Map<String, Object> row : dc.loadObjectResults()) {
+			String assetId = String.valueOf(row.get("asset_id"));
+			List<Permission> assetPermissions = loaded.get(assetId);
+			if(assetPermissions == null) {
+				assetPermissions = new ArrayList<Permission>();
+				loaded.put(assetId, assetPermissions);
+			}
+			Permission p = new Permission(String.valueOf(row.get("permission_type")), String.valueOf(row.get("inode_id")),
+					String.valueOf(row.get("roleid")), ((Number) row.get("permission")).intValue(), true);
+			p.setId(((Number) row.get("id")).longValue());
+			assetPermissions.add(p);
+		}
+
+		for(Map.Entry<String, List<Permission>> entry : loaded.entrySet()) {
+			permissionCache.addToPermissionCache(entry.getKey(), entry.getValue());
+			bitPermissions.put(entry.getKey(), entry.getValue());
+		}
+	}
+
 	private List<Permission> loadPermissions(Permissionable permissionable) throws DotDataException {
 
 		if(permissionable == null || ! UtilMethods.isSet(permissionable.getPermissionId())){
@@ -64,12 +64,14 @@ public class PermissionCacheImpl extends PermissionCache {
         // clear the cache
         cache.flushGroup(primaryGroup);
         cache.flushGroup(secondaryGroup);
+        PermissionDecisionCache.getInstance().clear();
     }
 
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionCache#remove(java.lang.String)
 	 */
     protected void remove(String key){
+    	PermissionDecisionCache.getInstance().invalidate(key);
     	key = primaryGroup + key;
     	try{
 	        cache.remove(key,primaryGroup);
@@ -0,0 +1,399 @@
+package com.dotmarketing.business;
+
+import com.dotcms.repackage.com.google.common.cache.Cache;
+import com.dotcms.repackage.com.google.common.cache.CacheBuilder;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.UtilMethods;
+import com.liferay.portal.model.User;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiled form of the data {@link PermissionBitAPIImpl#doesUserHavePermission(Permissionable, int, User, boolean)}
+ * works on, used when <strong>PERMISSION_DECISION_CACHE_ENABLED</strong> is set.
+ * <ul>
+ * <li>Every role gets a bit and the roles of a user become a {@link BitSet}, users with the same roles share the same
+ * interned role set.</li>
+ * <li>The permissions of a permissionable become arrays of role bits and permission masks.</li>
+ * <li>Decisions are kept in a bounded cache keyed by role set, compiled permissions and permission type.</li>
+ * </ul>
+ * Role sets and compiled permissions remember the list they were built from in the role cache and the permission
+ * cache and are rebuilt when the cached list is no longer equal to it, so any invalidation of those caches, local or
+ * coming from the cluster, is followed. Lists are compared by value, disk and remote cache tiers return a new copy of
+ * them on every read. Decisions of a rebuilt role set or compiled permissions are never hit again and age out of the
+ * cache.
+ * <p/>
+ * Decisions depending on more than the roles, the owner of the permissionable or the form widget permissions, are
+ * not taken here and are left to the permission API.
+ */
+class PermissionDecisionCache {
+
+	private static class Holder {
+		private static final PermissionDecisionCache INSTANCE = new PermissionDecisionCache(
+				Config.getBooleanProperty("PERMISSION_DECISION_CACHE_ENABLED", true),
+				Config.getIntProperty("PERMISSION_DECISION_CACHE_SIZE", 100000));
+	}
+
+	private final boolean enabled;
+
+	//Roles never lose their bit, role sets built before and after a clear must agree on them
+	private final ConcurrentHashMap<String, Integer> roleIndexes = new ConcurrentHashMap<>();
+	private final AtomicInteger nextRoleIndex = new AtomicInteger();
+
+	private final ConcurrentHashMap<BitSet, Integer> roleSetIds = new ConcurrentHashMap<>();
+	private final AtomicInteger nextRoleSetId = new AtomicInteger();
+	private final AtomicLong nextVersion = new AtomicLong();
+
+	private final Cache<String, RoleSet> userRoleSets;
+	private final Cache<String, CompiledPermissions> compiledPermissions;
+	private final Cache<DecisionKey, Boolean> decisions;
+
+	private volatile SystemRoles systemRoles;
+
+	PermissionDecisionCache ( boolean enabled, int size ) {
+		this.enabled = enabled;
+		this.userRoleSets = CacheBuilder.newBuilder().maximumSize(Math.max(1, size / 10)).build();
+		this.compiledPermissions = CacheBuilder.newBuilder().maximumSize(Math.max(1, size / 2)).build();
+		this.decisions = CacheBuilder.newBuilder().maximumSize(Math.max(1, size)).build();
+	}
+
+	static PermissionDecisionCache getInstance () {
+		return Holder.INSTANCE;
+	}
+
+	boolean isEnabled () {
+		return enabled;
+	}
+
+	/**
+	 * Decides if the user has the permission over the permissionable, the checks done by
+	 * {@link PermissionBitAPIImpl} before looking at the roles (system user, file structures, folder publish
+	 * permission) are expected to be already done
+	 *
+	 * @return the decision or null if it can not be taken from the roles only
+	 */
+	Boolean decide ( Permissionable permissionable, int permissionType, User user, boolean respectFrontendRoles,
+					 PermissionAPI permissionAPI ) throws DotDataException {
+
+		SystemRoles system = getSystemRoles();
+
+		RoleSet userRoles = null;
+		if ( user != null ) {
+			userRoles = getRoleSet(user.getUserId(), system);
+			if ( userRoles.admin ) {
+				return true;
+			}
+		}
+
+		CompiledPermissions permissions = getCompiledPermissions(permissionable, permissionAPI);
+		boolean owner = user != null && user.getUserId().equals(permissionable.getOwner());
+
+		return decide(system, userRoles, permissions, permissionType, respectFrontendRoles, owner, getFormId(permissionable) != null);
+	}
+
+	/**
+	 * Takes the decision from the compiled data, the same way the permission API does from the roles and permissions
+	 *
+	 * @param userRoles the roles of the user, null when there is no user
+	 * @param owner if the user is the owner of the permissionable
+	 * @param form if the permissionable is a form widget
+	 * @return the decision or null if it can not be taken from the roles only
+	 */
+	Boolean decide ( SystemRoles system, RoleSet userRoles, CompiledPermissions permissions, int permissionType,
+					 boolean respectFrontendRoles, boolean owner, boolean form ) {
+
+		if ( userRoles != null && userRoles.admin ) {
+			return true;
+		}
+
+		boolean ownerHasPermission = false;
+		for ( int i = 0; i < permissions.roles.length; i++ ) {
+			if ( !permissions.matches(i, permissionType) ) {
+				continue;
+			}
+			int role = permissions.roles[i];
+			if ( respectFrontendRoles && (role == system.anonymous || (userRoles != null && role == system.loggedIn)) ) {
+				return true;
+			}
+			if ( role == system.owner && owner ) {
+				ownerHasPermission = true;
+			}
+		}
+
+		//The owner also needs the related permissions, forms grant permissions of their own
+		if ( ownerHasPermission || form ) {
+			return null;
+		}
+		if ( userRoles == null ) {
+			return false;
+		}
+
+		DecisionKey key = new DecisionKey(userRoles.id, permissions.version, permissionType, respectFrontendRoles);
+		Boolean decision = decisions.getIfPresent(key);
+		if ( decision == null ) {
+			if ( !respectFrontendRoles && userRoles.onlyFrontEnd ) {
+				decision = false;
+			} else {
+				decision = permissions.anyRoleMatches(userRoles.bits, permissionType);
+			}
+			decisions.put(key, decision);
+		}
+
+		return decision;
+	}
+
+	/**
+	 * Drops the compiled permissions of the given permissionable
+	 */
+	void invalidate ( String permissionId ) {
+		compiledPermissions.invalidate(permissionId);
+	}
+
+	/**
+	 * Drops everything, role bits excepted
+	 */
+	void clear () {
+		systemRoles = null;
+		userRoleSets.invalidateAll();
+		compiledPermissions.invalidateAll();
+		decisions.invalidateAll();
+		roleSetIds.clear();
+	}
+
+	/**
+	 * Inode of the form a form widget content grants permissions from, null for anything else
+	 */
+	static String getFormId ( Permissionable permissionable ) {
+		if ( permissionable instanceof Contentlet ) {
+			Object formId = ((Contentlet) permissionable).getMap().get("formId");
+			return formId != null && UtilMethods.isSet(formId.toString()) ? formId.toString() : null;
+		}
+		return null;
+	}
+
+	private SystemRoles getSystemRoles () throws DotDataException {
+		SystemRoles system = systemRoles;
+		if ( system == null ) {
+			RoleAPI roleAPI = APILocator.getRoleAPI();
+			Role anonymousKeyRole = roleAPI.loadRoleByKey("anonymous");
+			system = new SystemRoles(
+					roleIndex(roleAPI.loadCMSAdminRole().getId()),
+					roleIndex(roleAPI.loadCMSAnonymousRole().getId()),
+					roleIndex(roleAPI.loadLoggedinSiteRole().getId()),
+					roleIndex(roleAPI.loadCMSOwnerRole().getId()),
+					anonymousKeyRole != null ? roleIndex(anonymousKeyRole.getId()) : -1);
+			systemRoles = system;
+		}
+		return system;
+	}
+
+	private RoleSet getRoleSet ( String userId, SystemRoles system ) throws DotDataException {
+
+		RoleCache roleCache = CacheLocator.getRoleCache();
+		Object source = roleCache.getRoleIdsForUser(userId);
+		RoleSet roleSet = source != null ? userRoleSets.getIfPresent(userId) : null;
+		if ( roleSet != null && sameSource(roleSet.source, source) ) {
+			return roleSet;
+		}
+
+		List<Role> roles = APILocator.getRoleAPI().loadRolesForUser(userId);
+		if ( source == null ) {
+			source = roleCache.getRoleIdsForUser(userId);
+		}
+
+		BitSet bits = new BitSet();
+		for ( Role role : roles ) {
+			bits.set(roleIndex(role.getId()));
+		}
+		roleSet = new RoleSet(internRoleSet(bits), bits, source, system);
+		if ( source != null ) {
+			userRoleSets.put(userId, roleSet);
+		}
+
+		return roleSet;
+	}
+
+	private CompiledPermissions getCompiledPermissions ( Permissionable permissionable, PermissionAPI permissionAPI ) throws DotDataException {
+
+		PermissionCache permissionCache = CacheLocator.getPermissionCache();
+		String permissionId = permissionable.getPermissionId();
+		Object source = permissionCache.getPermissionsFromCache(permissionId);
+		CompiledPermissions compiled = source != null ? compiledPermissions.getIfPresent(permissionId) : null;
+		if ( compiled != null && sameSource(compiled.source, source) ) {
+			return compiled;
+		}
+
+		List<Permission> permissions = permissionAPI.getPermissions(permissionable, true);
+		if ( source == null ) {
+			source = permissionCache.getPermissionsFromCache(permissionId);
+		}
+
+		compiled = compile(nextVersion.incrementAndGet(), source, permissions);
+		if ( source != null ) {
+			compiledPermissions.put(permissionId, compiled);
+		}
+
+		return compiled;
+	}
+
+	static boolean sameSource ( Object built, Object cached ) {
+		return built == cached || (built != null && built.equals(cached));
+	}
+
+	CompiledPermissions compile ( long version, Object source, List<Permission> permissions ) {
+
+		int[] roles = new int[permissions.size()];
+		int[] masks = new int[permissions.size()];
+		boolean[] bitPermissions = new boolean[permissions.size()];
+		for ( int i = 0; i < roles.length; i++ ) {
+			Permission permission = permissions.get(i);
+			roles[i] = roleIndex(permission.getRoleId());
+			masks[i] = permission.getPermission();
+			bitPermissions[i] = permission.isBitPermission();
+		}
+
+		return new CompiledPermissions(version, source, roles, masks, bitPermissions);
+	}
+
+	int roleIndex ( String roleId ) {
+		Integer index = roleIndexes.get(roleId);
+		if ( index == null ) {
+			synchronized ( roleIndexes ) {
+				index = roleIndexes.get(roleId);
+				if ( index == null ) {
+					index = nextRoleIndex.getAndIncrement();
+					roleIndexes.put(roleId, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	int internRoleSet ( BitSet bits ) {
+		Integer id = roleSetIds.get(bits);
+		if ( id == null ) {
+			Integer newId = nextRoleSetId.incrementAndGet();
+			id = roleSetIds.putIfAbsent(bits, newId);
+			if ( id == null ) {
+				id = newId;
+			}
+		}
+		return id;
+	}
+
+	static final class SystemRoles {
+
+		final int admin;
+		final int anonymous;
+		final int loggedIn;
+		final int owner;
+		final int anonymousKey;
+
+		SystemRoles ( int admin, int anonymous, int loggedIn, int owner, int anonymousKey ) {
+			this.admin = admin;
+			this.anonymous = anonymous;
+			this.loggedIn = loggedIn;
+			this.owner = owner;
+			this.anonymousKey = anonymousKey;
+		}
+	}
+
+	static final class RoleSet {
+
+		final int id;
+		final BitSet bits;
+		final Object source;
+		final boolean admin;
+		//Only the anonymous and logged in site roles, denied everything when front end roles are not respected
+		final boolean onlyFrontEnd;
+
+		RoleSet ( int id, BitSet bits, Object source, SystemRoles system ) {
+			this.id = id;
+			this.bits = bits;
+			this.source = source;
+			this.admin = bits.get(system.admin);
+
+			BitSet others = (BitSet) bits.clone();
+			others.clear(system.anonymous);
+			others.clear(system.loggedIn);
+			if ( system.anonymousKey >= 0 ) {
+				others.clear(system.anonymousKey);
+			}
+			this.onlyFrontEnd = others.isEmpty();
+		}
+	}
+
+	static final class CompiledPermissions {
+
+		final long version;
+		final Object source;
+		final int[] roles;
+		final int[] masks;
+		final boolean[] bitPermissions;
+
+		CompiledPermissions ( long version, Object source, int[] roles, int[] masks, boolean[] bitPermissions ) {
+			this.version = version;
+			this.source = source;
+			this.roles = roles;
+			this.masks = masks;
+			this.bitPermissions = bitPermissions;
+		}
+
+		/**
+		 * Same as {@link Permission#matchesPermission(int)} for the permission at the given position
+		 */
+		boolean matches ( int i, int permissionType ) {
+			return bitPermissions[i] ? (masks[i] & permissionType) > 0 : masks[i] == permissionType;
+		}
+
+		boolean anyRoleMatches ( BitSet userRoles, int permissionType ) {
+			for ( int i = 0; i < roles.length; i++ ) {
+				if ( userRoles.get(roles[i]) && matches(i, permissionType) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	static final class DecisionKey {
+
+		private final int roleSetId;
+		private final long version;
+		private final int permissionType;
+		private final boolean respectFrontendRoles;
+
+		DecisionKey ( int roleSetId, long version, int permissionType, boolean respectFrontendRoles ) {
+			this.roleSetId = roleSetId;
+			this.version = version;
+			this.permissionType = permissionType;
+			this.respectFrontendRoles = respectFrontendRoles;
+		}
+
+		@Override
+		public boolean equals ( Object o ) {
+			if ( !(o instanceof DecisionKey) ) {
+				return false;
+			}
+			DecisionKey other = (DecisionKey) o;
+			return roleSetId == other.roleSetId && version == other.version && permissionType == other.permissionType
+					&& respectFrontendRoles == other.respectFrontendRoles;
+		}
+
+		@Override
+		public int hashCode () {
+			int result = roleSetId;
+			result = 31 * result + (int) (version ^ (version >>> 32));
+			result = 31 * result + permissionType;
+			return 31 * result + (respectFrontendRoles ? 1 : 0);
+		}
+	}
+
+}
@@ -68,5 +68,19 @@ public abstract class RoleCache implements Cachable{
 		protected boolean isInherited() {
 			return inherited;
 		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof UserRoleCacheHelper)) {
+				return false;
+			}
+			UserRoleCacheHelper other = (UserRoleCacheHelper) o;
+			return inherited == other.inherited && (roleId == null ? other.roleId == null : roleId.equals(other.roleId));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (roleId != null ? roleId.hashCode() : 0) + (inherited ? 1 : 0);
+		}
 	}
 }
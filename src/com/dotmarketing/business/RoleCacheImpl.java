@@ -96,6 +96,7 @@ public class RoleCacheImpl extends RoleCache {
 		cache.flushGroup(keyGroup);
 		cache.flushGroup(layoutGroup);
 		cache.flushGroup(rootRolesGroup);
+		PermissionDecisionCache.getInstance().clear();
 	}
 
 	/* (non-Javadoc)
@@ -122,6 +123,7 @@ public class RoleCacheImpl extends RoleCache {
 	protected void clearRoleCache() {
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(keyGroup);
+		PermissionDecisionCache.getInstance().clear();
 	}
 
 	@Override
@@ -1,7 +1,9 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
@@ -324,6 +326,17 @@ public interface VersionableAPI {
 	 * @throws DotStateException
 	 */
 	public ContentletVersionInfo getContentletVersionInfo(String identifier, long lang) throws DotDataException, DotStateException;
+
+	/**
+	 * Will return the @ContentletLangVersionInfo holders of several identifiers for the given language,
+	 * loading the ones that are not in cache with one query per batch
+	 * @param identifiers
+	 * @param lang
+	 * @return the version info by identifier, identifiers without a version in the language are not included
+	 * @throws DotDataException
+	 * @throws DotStateException
+	 */
+	public Map<String, ContentletVersionInfo> getContentletVersionInfos(Collection<String> identifiers, long lang) throws DotDataException, DotStateException;
 	
 	/**
 	 * Will save the VersionInfo Record. For normal operations you should use the setLive, setWorking etc... but there are cases like
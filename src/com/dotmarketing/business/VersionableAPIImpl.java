@@ -2,8 +2,10 @@
 package com.dotmarketing.business;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
@@ -446,6 +448,11 @@ public class VersionableAPIImpl implements VersionableAPI {
 	    return vfac.getContentletVersionInfo(identifier, lang);
 	}
 
+	@Override
+	public Map<String, ContentletVersionInfo> getContentletVersionInfos(Collection<String> identifiers, long lang) throws DotDataException, DotStateException {
+	    return vfac.getContentletVersionInfos(identifiers, lang);
+	}
+
 	@Override
 	public void saveVersionInfo(VersionInfo vInfo) throws DotDataException, DotStateException {
 		vfac.saveVersionInfo(vInfo, true);
@@ -1,6 +1,8 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
@@ -28,6 +30,16 @@ public abstract class VersionableFactory {
 
 	protected abstract ContentletVersionInfo getContentletVersionInfo(String identifier, long lang) throws DotDataException, DotStateException;
 
+	/**
+	 * Looks in cache first, the misses are loaded from Hibernate with one query per batch and cached
+	 * @param identifiers
+	 * @param lang
+	 * @return the version info of the identifiers that have a version in the language, by identifier
+	 * @throws DotDataException
+	 * @throws DotStateException
+	 */
+	protected abstract Map<String, ContentletVersionInfo> getContentletVersionInfos(Collection<String> identifiers, long lang) throws DotDataException, DotStateException;
+
 	/**
 	 * The method will load from Hibernate and NOT use cache
 	 * @param cvInfo
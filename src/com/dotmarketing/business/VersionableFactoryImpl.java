@@ -1,18 +1,24 @@
 package com.dotmarketing.business;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import com.dotcms.repackage.org.apache.commons.beanutils.BeanUtils;
 
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.Inode;
 import com.dotmarketing.beans.VersionInfo;
+import com.dotmarketing.common.util.SQLUtil;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -229,6 +235,46 @@ public class VersionableFactoryImpl extends VersionableFactory {
         return contv;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Map<String, ContentletVersionInfo> getContentletVersionInfos(Collection<String> identifiers, long lang) throws DotDataException, DotStateException {
+        Map<String, ContentletVersionInfo> infos = new HashMap<String, ContentletVersionInfo>();
+        List<String> misses = new ArrayList<String>();
+        for(String identifier : new LinkedHashSet<String>(identifiers)) {
+            ContentletVersionInfo contv = icache.getContentVersionInfo(identifier, lang);
+            if(contv==null) {
+                misses.add(identifier);
+            }else if(!fourOhFour.equals(contv.getWorkingInode())) {
+                infos.put(identifier, contv);
+            }
+        }
+
+        int batchSize = Config.getIntProperty("BULK_LOAD_BATCH_SIZE", 200);
+        for(int init=0; init < misses.size(); init+=batchSize) {
+            List<String> batch = misses.subList(init, Math.min(init + batchSize, misses.size()));
+            HibernateUtil dh = new HibernateUtil(ContentletVersionInfo.class);
+            dh.setQuery("from "+ContentletVersionInfo.class.getName()+" where lang=? and identifier in ("+SQLUtil.placeholders(batch.size())+")");
+            dh.setParam(lang);
+            for(String identifier : batch) {
+                dh.setParam(identifier);
+            }
+            for(ContentletVersionInfo contv : (List<ContentletVersionInfo>) dh.list()) {
+                icache.addContentletVersionInfoToCache(contv);
+                infos.put(contv.getIdentifier(), contv);
+            }
+            for(String identifier : batch) {
+                if(!infos.containsKey(identifier)) {
+                    ContentletVersionInfo contv = new ContentletVersionInfo();
+                    contv.setIdentifier(identifier);
+                    contv.setLang(lang);
+                    contv.setWorkingInode(fourOhFour);
+                    icache.addContentletVersionInfoToCache(contv);
+                }
+            }
+        }
+        return infos;
+    }
+
     @Override
     protected ContentletVersionInfo findContentletVersionInfoInDB(String identifier, long lang)throws DotDataException, DotStateException {
     	ContentletVersionInfo contv = null;
@@ -15,6 +15,9 @@ import java.util.Set;
  * License, without it only the default CacheProviders can be use ({@link com.dotmarketing.business.cache.provider.guava.GuavaCache},
  * {@link com.dotmarketing.business.cache.provider.h2.H2CacheLoader}).
  * <br/>
+ * Other CacheProviders shipped with dotCMS are {@link com.dotmarketing.business.cache.provider.redis.RedisProvider} and
+ * {@link com.dotmarketing.business.cache.provider.mapped.MappedFileCache}, an off-heap memory mapped cache.
+ * <br/>
  * <br/>
  * With a valid Enterprise License the CacheProviders to use can be specified using properties specifying the chain for a specific cache
  * region <strong>cache.mycacheregionexample.chain</strong> in the <strong>dotmarketing-config.properties</strong> file,
@@ -0,0 +1,50 @@
+package com.dotmarketing.business.cache.provider.guava;
+
+import java.io.Serializable;
+
+/**
+ * Limits of a {@link GuavaCache} group. A group is limited either by number of entries or, when
+ * <code>maxBytes</code> is set, by the estimated size of its entries, entries can also expire
+ * <code>ttlSeconds</code> after they were written.
+ */
+public class CacheGroupSettings implements Serializable {
+
+    private static final long serialVersionUID = -3102442460530853165L;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlSeconds;
+
+    /**
+     * @param maxEntries Max number of entries, ignored when <code>maxBytes</code> is greater than 0
+     * @param maxBytes   Max estimated size in bytes of the group, 0 or less to limit by number of entries
+     * @param ttlSeconds Seconds an entry is kept after it was written, 0 or less to keep entries until evicted
+     */
+    public CacheGroupSettings ( int maxEntries, long maxBytes, long ttlSeconds ) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMaxEntries () {
+        return maxEntries;
+    }
+
+    public long getMaxBytes () {
+        return maxBytes;
+    }
+
+    public long getTtlSeconds () {
+        return ttlSeconds;
+    }
+
+    public boolean isByteWeighted () {
+        return maxBytes > 0;
+    }
+
+    @Override
+    public String toString () {
+        return "size:" + maxEntries + ", maxbytes:" + maxBytes + ", ttl:" + ttlSeconds;
+    }
+
+}
@@ -4,6 +4,7 @@ import com.dotcms.enterprise.cache.provider.CacheProviderAPI;
 import com.dotcms.repackage.com.google.common.cache.Cache;
 import com.dotcms.repackage.com.google.common.cache.CacheBuilder;
 import com.dotcms.repackage.com.google.common.cache.CacheLoader;
+import com.dotcms.repackage.com.google.common.cache.Weigher;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.business.cache.provider.CacheProvider;
 import com.dotmarketing.util.Config;
@@ -12,14 +13,24 @@ import com.dotmarketing.util.Logger;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Memory cache provider, each group is limited by its number of entries (<strong>cache.mygroup.size</strong>) or,
+ * when <strong>cache.mygroup.maxbytes</strong> is set, by the estimated size of its entries. Entries of a group can
+ * also expire <strong>cache.mygroup.ttl</strong> seconds after they were written.
+ * <p/>
+ * The limits of a group can be changed at runtime with {@link #reconfigure(String, CacheGroupSettings)}, the entries
+ * of the group are kept.
+ *
  * @author Jonathan Gamba
  *         Date: 9/1/15
  */
 public class GuavaCache extends CacheProvider {
 
     private static final long serialVersionUID = 1348649382678659786L;
+    private static final long MIN_SEGMENT_BYTES = 1024 * 1024;
 
     private Boolean isInitialized = false;
 
@@ -30,6 +41,13 @@ public class GuavaCache extends CacheProvider {
     private final ConcurrentHashMap<String, Cache<String, Object>> groups = new ConcurrentHashMap<>();
     private final HashSet<String> availableCaches = new HashSet<>();
 
+    //Limits changed at runtime, they win over the configuration
+    private final ConcurrentHashMap<String, CacheGroupSettings> overrides = new ConcurrentHashMap<>();
+    //Caches being copied into a reconfigured cache, by the old and the new cache as groups may share them
+    private final ConcurrentHashMap<Cache<String, Object>, Migration> migrations = new ConcurrentHashMap<>();
+
+    private static final Set<GuavaCache> initializedProviders = Collections.newSetFromMap(new ConcurrentHashMap<GuavaCache, Boolean>());
+
     private NullCallable nullCallable = new NullCallable();
 
     @Override
@@ -62,12 +80,16 @@ public class GuavaCache extends CacheProvider {
                     int inMemory = Config.getIntProperty(key, 0);
                     availableCaches.add(cacheName.toLowerCase());
                     Logger.info(this.getClass(), "***\t Cache Config Memory : " + cacheName + ": " + inMemory);
+                } else if ( key.endsWith(".maxbytes") || key.endsWith(".ttl") ) {
+                    availableCaches.add(cacheName.toLowerCase());
+                    Logger.info(this.getClass(), "***\t Cache Config : " + key + ": " + Config.getStringProperty(key, ""));
                 }
 
             }
         }
 
         isInitialized = true;
+        initializedProviders.add(this);
     }
 
     @Override
@@ -114,6 +136,11 @@ public class GuavaCache extends CacheProvider {
         //Invalidates the Cache for the given group
         cache.invalidateAll();
 
+        Migration migration = migrations.get(cache);
+        if ( migration != null ) {
+            migration.flushed = true;
+        }
+
         //Remove this group from the global list of cache groups
         groups.remove(group);
     }
@@ -126,6 +153,11 @@ public class GuavaCache extends CacheProvider {
 
         //Invalidates from Cache a key from a given group
         cache.invalidate(key);
+
+        Migration migration = migrations.get(cache);
+        if ( migration != null ) {
+            migration.removedKeys.add(key);
+        }
     }
 
     @Override
@@ -187,16 +219,11 @@ public class GuavaCache extends CacheProvider {
             boolean isDefault = (!DEFAULT_CACHE.equals(group) && foundCache.equals(defaultCache));
             stats.put("isDefault", isDefault);
 
-            int configured = isDefault
-                    ? Config.getIntProperty("cache." + DEFAULT_CACHE + ".size")
-                    : (Config.getIntProperty("cache." + group + ".size", -1) != -1)
-                    ? Config.getIntProperty("cache." + group + ".size")
-                    : (group.startsWith(WORKING_CACHE_PREFIX) && Config.getIntProperty("cache." + WORKING_CACHE_PREFIX + ".size", -1) != -1)
-                    ? Config.getIntProperty("cache." + WORKING_CACHE_PREFIX + ".size")
-                    : (group.startsWith(LIVE_CACHE_PREFIX) && Config.getIntProperty("cache." + LIVE_CACHE_PREFIX + ".size", -1) != -1)
-                    ? Config.getIntProperty("cache." + LIVE_CACHE_PREFIX + ".size")
-                    : Config.getIntProperty("cache." + DEFAULT_CACHE + ".size");
-            stats.put("configuredSize", configured);
+            CacheGroupSettings settings = getSettings(isDefault ? DEFAULT_CACHE : group);
+            //Byte limited groups have no limit in number of entries
+            stats.put("configuredSize", settings.isByteWeighted() ? -1 : settings.getMaxEntries());
+            stats.put("maxBytes", settings.getMaxBytes());
+            stats.put("ttl", settings.getTtlSeconds());
 
             list.add(stats);
         }
@@ -208,6 +235,7 @@ public class GuavaCache extends CacheProvider {
     public void shutdown () {
         Logger.info(this.getClass(), "===== Calling shutdown [" + getName() + "].");
         isInitialized = false;
+        initializedProviders.remove(this);
     }
 
     private Cache<String, Object> getCache ( String cacheName ) {
@@ -225,36 +253,10 @@ public class GuavaCache extends CacheProvider {
                 cache = groups.get(cacheName);
                 if ( cache == null ) {
 
-                    boolean separateCache = (availableCaches.contains(cacheName) || DEFAULT_CACHE.equals(cacheName) || cacheName.startsWith(LIVE_CACHE_PREFIX) || cacheName.startsWith(WORKING_CACHE_PREFIX));
+                    boolean separateCache = (availableCaches.contains(cacheName) || overrides.containsKey(cacheName) || DEFAULT_CACHE.equals(cacheName) || cacheName.startsWith(LIVE_CACHE_PREFIX) || cacheName.startsWith(WORKING_CACHE_PREFIX));
 
                     if ( separateCache ) {
-                        int size;
-                        if ( cacheName.startsWith(LIVE_CACHE_PREFIX) ) {
-                            size = Config.getIntProperty("cache." + cacheName + ".size", -1);
-                            if ( size < 0 ) {
-                                size = Config.getIntProperty("cache." + LIVE_CACHE_PREFIX + ".size", -1);
-                            }
-                        } else if ( cacheName.startsWith(WORKING_CACHE_PREFIX) ) {
-                            size = Config.getIntProperty("cache." + cacheName + ".size", -1);
-                            if ( size < 0 ) {
-                                size = Config.getIntProperty("cache." + WORKING_CACHE_PREFIX + ".size", -1);
-                            }
-                        } else {
-                            size = Config.getIntProperty("cache." + cacheName + ".size", -1);
-                        }
-
-                        if ( size == -1 ) {
-                            size = Config.getIntProperty("cache." + DEFAULT_CACHE + ".size", 100);
-                        }
-
-                        Logger.info(this.getClass(), "***\t Building Cache : " + cacheName + ", size:" + size + ",Concurrency:" + Config.getIntProperty("cache.concurrencylevel", 32));
-                        CacheBuilder<Object, Object> cb = CacheBuilder
-                                .newBuilder()
-                                .maximumSize(size)
-                                .concurrencyLevel(Config.getIntProperty("cache.concurrencylevel", 32));
-
-
-                        cache = cb.build();
+                        cache = buildCache(cacheName, getSettings(cacheName));
                         groups.put(cacheName, cache);
 
                     } else {
@@ -269,6 +271,202 @@ public class GuavaCache extends CacheProvider {
         return cache;
     }
 
+    /**
+     * Changes the limits of a group without flushing it. A new cache is built with the given settings and the current
+     * entries are copied into it, entries over the new limits are evicted as they are copied. The change only
+     * applies to this server and lasts until the next restart.
+     * <p/>
+     * Groups without their own configuration share the default cache, they get a cache of their own that starts
+     * empty as their entries can not be told apart from the ones of other groups. Reconfiguring the default
+     * cache affects every group using it.
+     *
+     * @param group    Group to reconfigure
+     * @param settings New limits of the group
+     */
+    public void reconfigure ( String group, CacheGroupSettings settings ) {
+
+        if ( group == null ) {
+            throw new DotStateException("Null cache region passed in");
+        }
+
+        final String cacheName = group.toLowerCase();
+        synchronized (cacheName.intern()) {
+
+            Cache<String, Object> defaultCache = groups.get(DEFAULT_CACHE);
+            Cache<String, Object> oldCache = groups.get(cacheName);
+            boolean sharedDefault = !DEFAULT_CACHE.equals(cacheName) && oldCache != null && oldCache == defaultCache;
+
+            Logger.info(this.getClass(), "***\t Reconfiguring Cache : " + cacheName + ", " + settings);
+
+            overrides.put(cacheName, settings);
+            Cache<String, Object> newCache = buildCache(cacheName, settings);
+
+            //Registered before the swap, so an invalidation that reached the old cache too late for the copy is replayed
+            Migration migration = new Migration();
+            if ( oldCache != null && !sharedDefault ) {
+                migrations.put(oldCache, migration);
+                migrations.put(newCache, migration);
+            }
+
+            //From here on every read, write and invalidation goes to the new cache
+            groups.put(cacheName, newCache);
+            if ( DEFAULT_CACHE.equals(cacheName) && oldCache != null ) {
+                for ( Map.Entry<String, Cache<String, Object>> entry : groups.entrySet() ) {
+                    if ( entry.getValue() == oldCache ) {
+                        groups.put(entry.getKey(), newCache);
+                    }
+                }
+            }
+
+            if ( oldCache != null && !sharedDefault ) {
+                try {
+                    ConcurrentMap<String, Object> newEntries = newCache.asMap();
+                    for ( Map.Entry<String, Object> entry : oldCache.asMap().entrySet() ) {
+                        if ( migration.flushed ) {
+                            break;
+                        }
+                        //Never overwrite what was put after the swap or bring back what was removed after it
+                        if ( !migration.removedKeys.contains(entry.getKey()) ) {
+                            newEntries.putIfAbsent(entry.getKey(), entry.getValue());
+                        }
+                    }
+                } finally {
+                    migrations.remove(oldCache);
+                    migrations.remove(newCache);
+                }
+
+                //Replayed once nothing else can be recorded, a key removed while it was being copied
+                if ( migration.flushed ) {
+                    newCache.invalidateAll();
+                } else {
+                    for ( String key : migration.removedKeys ) {
+                        newCache.invalidate(key);
+                    }
+                }
+
+                oldCache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the limits the given group is using
+     */
+    public CacheGroupSettings getSettings ( String group ) {
+
+        String cacheName = group.toLowerCase();
+
+        CacheGroupSettings settings = overrides.get(cacheName);
+        if ( settings != null ) {
+            return settings;
+        }
+
+        int size = (int) getGroupProperty(cacheName, "size", -1);
+        if ( size == -1 ) {
+            size = Config.getIntProperty("cache." + DEFAULT_CACHE + ".size", 100);
+        }
+
+        return new CacheGroupSettings(size, getGroupProperty(cacheName, "maxbytes", 0), getGroupProperty(cacheName, "ttl", 0));
+    }
+
+    /**
+     * Estimated size in bytes of the entries of the given group, it walks the whole group so it is not cheap
+     */
+    public long getEstimatedBytes ( String group ) {
+
+        long bytes = 0;
+        for ( Map.Entry<String, Object> entry : getCache(group).asMap().entrySet() ) {
+            bytes += ObjectSizeEstimator.estimate(entry.getKey()) + ObjectSizeEstimator.estimate(entry.getValue());
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the initialized instances of this provider, used by the tools that tune the caches at runtime
+     */
+    public static Set<GuavaCache> getInitializedProviders () {
+        return Collections.unmodifiableSet(initializedProviders);
+    }
+
+    /**
+     * Reads a <strong>cache.mygroup.property</strong> value, live and working groups fall back to the value of their prefix
+     */
+    private long getGroupProperty ( String cacheName, String property, long defaultValue ) {
+
+        long value = parseLong(Config.getStringProperty("cache." + cacheName + "." + property, null), -1);
+        if ( value < 0 ) {
+            if ( cacheName.startsWith(LIVE_CACHE_PREFIX) ) {
+                value = parseLong(Config.getStringProperty("cache." + LIVE_CACHE_PREFIX + "." + property, null), -1);
+            } else if ( cacheName.startsWith(WORKING_CACHE_PREFIX) ) {
+                value = parseLong(Config.getStringProperty("cache." + WORKING_CACHE_PREFIX + "." + property, null), -1);
+            }
+        }
+
+        return value < 0 ? defaultValue : value;
+    }
+
+    private long parseLong ( String value, long defaultValue ) {
+
+        if ( value == null ) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch ( NumberFormatException e ) {
+            Logger.warn(this.getClass(), "Invalid cache setting [" + value + "]");
+            return defaultValue;
+        }
+    }
+
+    private Cache<String, Object> buildCache ( String cacheName, CacheGroupSettings settings ) {
+
+        int concurrencyLevel = Config.getIntProperty("cache.concurrencylevel", 32);
+        if ( settings.isByteWeighted() ) {
+            //The max weight is split between the segments, keep each segment big enough to hold a large entry
+            concurrencyLevel = (int) Math.max(1, Math.min(concurrencyLevel, settings.getMaxBytes() / MIN_SEGMENT_BYTES));
+        }
+        Logger.info(this.getClass(), "***\t Building Cache : " + cacheName + ", " + settings + ",Concurrency:" + concurrencyLevel);
+
+        CacheBuilder<Object, Object> cb = CacheBuilder
+                .newBuilder()
+                .concurrencyLevel(concurrencyLevel);
+
+        if ( settings.isByteWeighted() ) {
+            cb.maximumWeight(settings.getMaxBytes()).weigher(new EstimatedSizeWeigher());
+        } else {
+            cb.maximumSize(settings.getMaxEntries());
+        }
+
+        if ( settings.getTtlSeconds() > 0 ) {
+            cb.expireAfterWrite(settings.getTtlSeconds(), TimeUnit.SECONDS);
+        }
+
+        return cb.build();
+    }
+
+    /**
+     * Weighs an entry by the estimated size of its key and value
+     */
+    private static class EstimatedSizeWeigher implements Weigher<Object, Object> {
+
+        @Override
+        public int weigh ( Object key, Object value ) {
+            long size = ObjectSizeEstimator.estimate(key) + ObjectSizeEstimator.estimate(value);
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, size));
+        }
+    }
+
+    /**
+     * Invalidations received while a group is copied into its reconfigured cache
+     */
+    private static class Migration {
+
+        volatile boolean flushed = false;
+        final Set<String> removedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
     private class NullCallable implements Callable {
         public Object call () throws Exception {
             return null;
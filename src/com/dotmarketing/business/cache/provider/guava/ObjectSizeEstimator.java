@@ -0,0 +1,172 @@
+package com.dotmarketing.business.cache.provider.guava;
+
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rough estimation of the heap used by a cached object, used to weigh the entries of the byte limited groups of the
+ * {@link GuavaCache}. It does not try to be exact: shared references are counted every time they are found, the
+ * object graph is only followed a few levels, collections are sampled when they are big and no more than
+ * {@link #MAX_VISITED} objects are looked at for a single estimation, so weighing an entry stays cheap.
+ */
+final class ObjectSizeEstimator {
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 8;
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_SAMPLED_ELEMENTS = 32;
+    private static final int MAX_VISITED = 512;
+
+    private static final ConcurrentHashMap<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private ObjectSizeEstimator () {
+    }
+
+    /**
+     * Estimated size in bytes of the given object and the objects it references
+     */
+    static long estimate ( Object object ) {
+        return estimate(object, 0, new int[]{ MAX_VISITED });
+    }
+
+    private static long estimate ( Object object, int depth, int[] budget ) {
+
+        if ( object == null ) {
+            return 0;
+        }
+
+        if ( object instanceof String ) {
+            return 40 + 2L * ((String) object).length();
+        }
+        if ( object instanceof Number || object instanceof Boolean || object instanceof Character ) {
+            return OBJECT_HEADER + 8;
+        }
+        if ( object instanceof Date ) {
+            return OBJECT_HEADER + 16;
+        }
+        if ( object instanceof Enum ) {
+            //Shared singletons
+            return REFERENCE;
+        }
+
+        if ( depth >= MAX_DEPTH || --budget[0] < 0 ) {
+            return OBJECT_HEADER + REFERENCE;
+        }
+
+        Class<?> type = object.getClass();
+        if ( type.isArray() ) {
+            return estimateArray(object, type.getComponentType(), depth, budget);
+        }
+        if ( object instanceof Contentlet ) {
+            return OBJECT_HEADER + REFERENCE * 2 + estimate(((Contentlet) object).getMap(), depth + 1, budget);
+        }
+        if ( object instanceof Map ) {
+            Map<?, ?> map = (Map<?, ?>) object;
+            return 48 + estimateElements(map.entrySet(), map.size(), depth, budget);
+        }
+        if ( object instanceof Collection ) {
+            Collection<?> collection = (Collection<?>) object;
+            return 40 + estimateElements(collection, collection.size(), depth, budget);
+        }
+
+        return estimateFields(object, type, depth, budget);
+    }
+
+    private static long estimateArray ( Object array, Class<?> componentType, int depth, int[] budget ) {
+
+        int length = Array.getLength(array);
+        if ( componentType.isPrimitive() ) {
+            int elementSize = componentType == long.class || componentType == double.class ? 8
+                    : componentType == int.class || componentType == float.class ? 4
+                    : componentType == char.class || componentType == short.class ? 2 : 1;
+            return OBJECT_HEADER + (long) length * elementSize;
+        }
+
+        long size = OBJECT_HEADER + (long) length * REFERENCE;
+        int sampled = Math.min(length, MAX_SAMPLED_ELEMENTS);
+        long sampledSize = 0;
+        for ( int i = 0; i < sampled; i++ ) {
+            sampledSize += estimate(Array.get(array, i), depth + 1, budget);
+        }
+
+        return size + (sampled == 0 ? 0 : sampledSize * length / sampled);
+    }
+
+    private static long estimateElements ( Iterable<?> elements, int size, int depth, int[] budget ) {
+
+        long sampledSize = 0;
+        int sampled = 0;
+        for ( Object element : elements ) {
+            if ( sampled == MAX_SAMPLED_ELEMENTS ) {
+                break;
+            }
+            if ( element instanceof Map.Entry ) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) element;
+                sampledSize += 32 + estimate(entry.getKey(), depth + 1, budget) + estimate(entry.getValue(), depth + 1, budget);
+            } else {
+                sampledSize += REFERENCE + estimate(element, depth + 1, budget);
+            }
+            sampled++;
+        }
+
+        return sampled == 0 ? 0 : sampledSize * size / sampled;
+    }
+
+    private static long estimateFields ( Object object, Class<?> type, int depth, int[] budget ) {
+
+        long size = OBJECT_HEADER;
+        for ( Field field : getFields(type) ) {
+
+            if ( field.getType().isPrimitive() ) {
+                size += 8;
+                continue;
+            }
+
+            size += REFERENCE;
+            try {
+                size += estimate(field.get(object), depth + 1, budget);
+            } catch ( IllegalAccessException e ) {
+                //Count just the reference
+            }
+        }
+
+        return size;
+    }
+
+    private static Field[] getFields ( Class<?> type ) {
+
+        Field[] fields = FIELDS.get(type);
+        if ( fields == null ) {
+
+            List<Field> found = new ArrayList<>();
+            for ( Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass() ) {
+                for ( Field field : current.getDeclaredFields() ) {
+                    if ( Modifier.isStatic(field.getModifiers()) ) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        found.add(field);
+                    } catch ( RuntimeException e ) {
+                        //Not accessible, it will not be counted
+                    }
+                }
+            }
+
+            fields = found.toArray(new Field[found.size()]);
+            FIELDS.put(type, fields);
+        }
+
+        return fields;
+    }
+
+}
@@ -6,6 +6,7 @@ import com.dotcms.repackage.org.jboss.cache.*;
 import com.dotcms.repackage.org.jboss.cache.config.CacheLoaderConfig.IndividualCacheLoaderConfig;
 import com.dotcms.repackage.org.jboss.cache.loader.CacheLoader;
 import com.dotmarketing.business.cache.provider.CacheProvider;
+import com.dotmarketing.business.cache.provider.serializer.CacheSerializers;
 import com.dotmarketing.business.cache.util.CacheUtil;
 import com.dotmarketing.cache.RegionLock;
 import com.dotmarketing.util.Config;
@@ -37,6 +38,8 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 	private Map<Integer, JdbcConnectionPool> conPool = new HashMap<>();
 
 	private boolean allowConnections = true;
+
+	private H2WriteBehindQueue writeBehind;
 	
 	public void commit(Object arg0) throws Exception {
 		
@@ -86,6 +89,12 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 
 		create();
 
+		if ( Config.getBooleanProperty("H2_WRITE_BEHIND_ENABLED", false) ) {
+			Logger.info(this, "Starting Disk Cache write behind");
+			writeBehind = new H2WriteBehindQueue(this::writeBatch, this::deleteRow);
+			writeBehind.start();
+		}
+
 		isInitialized = true;
 	}
 
@@ -205,6 +214,8 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 		Set<String> currentGroups = new HashSet<>();
 		currentGroups.addAll(getGroups());
 
+		Map<String, Integer> pendingByGroup = writeBehind != null ? writeBehind.getPendingByGroup() : null;
+
 		for ( String group : currentGroups ) {
 
 			Map<String, Object> stats = new HashMap<>();
@@ -229,6 +240,10 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 					: Config.getIntProperty("cache." + DEFAULT_CACHE + ".size");
 			stats.put("configuredSize", configured);
 
+			if ( writeBehind != null ) {
+				stats.putAll(writeBehind.getStats(group, pendingByGroup));
+			}
+
 			list.add(stats);
 		}
 
@@ -385,6 +400,11 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 
 	public void destroy() {
 		int x = 1;
+		if ( writeBehind != null ) {
+			//Write what is still pending while connections are still allowed
+			writeBehind.stop();
+			writeBehind = null;
+		}
 		allowConnections = false;
 		try {
 			Thread.sleep(2000);
@@ -472,6 +492,11 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 			//Bulk delete in progress
 			return ;
 		}
+
+		if ( writeBehind != null ) {
+			writeBehind.offer(fqn, getKeyName(fqn), group, attrs);
+			return;
+		}
 		
 		Connection c=createConnection(true,getDBNumber(fqn));
 		if(c==null){
@@ -496,23 +521,7 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 			
 			insertStmt=c.prepareStatement(buildInsertItemSQL(fqn));
 			insertStmt.setString(1,key);
-			ObjectOutputStream output = null;
-			OutputStream bout =null ;
-			ByteArrayOutputStream os=new ByteArrayOutputStream();
-	
-			if (Config.getBooleanProperty("USE_CACHE_COMPRESSION", false)) {
-				bout = new DeflaterOutputStream(os);
-				
-			} else {
-			
-				bout = new BufferedOutputStream(os,
-						8192);
-			}
-			
-			output = new ObjectOutputStream(bout);
-			output.writeObject(attrs);
-			output.flush();
-			byte[] data= os.toByteArray();
+			byte[] data= marshall(attrs);
 			insertStmt.setBytes(2, data);
 			try{
 				insertStmt.execute();
@@ -583,13 +592,196 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 		}
 	}
 	
+	/**
+	 * Serializes the given attributes the way they are stored in the CACHE_DATA column
+	 */
+	private byte[] marshall ( Map attrs ) throws IOException {
+
+		OutputStream bout =null ;
+		ByteArrayOutputStream os=new ByteArrayOutputStream();
+
+		if (Config.getBooleanProperty("USE_CACHE_COMPRESSION", false)) {
+			bout = new DeflaterOutputStream(os);
+			
+		} else {
+		
+			bout = new BufferedOutputStream(os,
+					8192);
+		}
+		
+		CacheSerializers.getSerializer().serialize(attrs, bout);
+		//Closing finishes the deflater, the byte array stream itself is not affected
+		bout.close();
+		return os.toByteArray();
+	}
+
+	/**
+	 * Writes a batch of pending writes coming from the {@link H2WriteBehindQueue}, grouping them by database and
+	 * table so every table gets a single batched MERGE inside one transaction per database.
+	 *
+	 * @param batch
+	 * @return The writes that were actually persisted
+	 */
+	List<H2WriteBehindQueue.PendingWrite> writeBatch ( List<H2WriteBehindQueue.PendingWrite> batch ) {
+
+		List<H2WriteBehindQueue.PendingWrite> written = new ArrayList<>(batch.size());
+
+		Map<Integer, Map<String, List<H2WriteBehindQueue.PendingWrite>>> byDatabase = new TreeMap<>();
+		for ( H2WriteBehindQueue.PendingWrite write : batch ) {
+			if ( RegionLock.getInstance().isLocked(write.group) ) {
+				//Bulk delete in progress
+				continue;
+			}
+
+			int dbNumber = getDBNumber(write.fqn);
+			Map<String, List<H2WriteBehindQueue.PendingWrite>> byTable = byDatabase.get(dbNumber);
+			if ( byTable == null ) {
+				byTable = new HashMap<>();
+				byDatabase.put(dbNumber, byTable);
+			}
+			List<H2WriteBehindQueue.PendingWrite> tableWrites = byTable.get(write.group);
+			if ( tableWrites == null ) {
+				tableWrites = new ArrayList<>();
+				byTable.put(write.group, tableWrites);
+			}
+			tableWrites.add(write);
+		}
+
+		for ( Map.Entry<Integer, Map<String, List<H2WriteBehindQueue.PendingWrite>>> dbEntry : byDatabase.entrySet() ) {
+
+			Connection c = null;
+			try {
+				c = createConnection(false, dbEntry.getKey());
+				if ( c == null ) {
+					continue;
+				}
+
+				Statement stmt = c.createStatement();
+				try {
+					for ( List<H2WriteBehindQueue.PendingWrite> tableWrites : dbEntry.getValue().values() ) {
+						stmt.execute(buildCreateTableSQL(tableWrites.get(0).fqn));
+					}
+				} finally {
+					stmt.close();
+				}
+
+				List<H2WriteBehindQueue.PendingWrite> dbWritten = new ArrayList<>();
+				for ( List<H2WriteBehindQueue.PendingWrite> tableWrites : dbEntry.getValue().values() ) {
+					dbWritten.addAll(writeTableBatch(c, tableWrites));
+				}
+				c.commit();
+				written.addAll(dbWritten);
+			} catch ( Exception e ) {
+				Logger.warn(this, "Unable to write batch to H2 db " + dbEntry.getKey() + " : " + e.getMessage(), e);
+				try {
+					if ( c != null ) {
+						c.rollback();
+					}
+				} catch ( SQLException e1 ) {
+					Logger.debug(this, e1.getMessage(), e1);
+				}
+			} finally {
+				closeConnection(c);
+			}
+		}
+
+		return written;
+	}
+
+	/**
+	 * Deletes the row of a key whose write was dropped or failed in the {@link H2WriteBehindQueue}, so the disk tier
+	 * does not keep the value of an earlier put. The writes still pending for the key are left alone.
+	 *
+	 * @param write
+	 */
+	void deleteRow ( H2WriteBehindQueue.PendingWrite write ) {
+
+		Connection c = null;
+		PreparedStatement pstmt = null;
+		try {
+			c = createConnection(true, getDBNumber(write.fqn));
+			if ( c == null ) {
+				return;
+			}
+			pstmt = c.prepareStatement(buildDeleteItemSQL(write.fqn));
+			pstmt.setString(1, write.key);
+			pstmt.execute();
+		} catch ( SQLException e ) {
+			//The table does not exist yet, so there is no row to delete
+			Logger.debug(this, "Unable to delete dropped write of " + write.key + ": " + e.getMessage());
+		} finally {
+			try {
+				if ( pstmt != null ) {
+					pstmt.close();
+				}
+			} catch ( SQLException e ) {
+				Logger.debug(this, e.getMessage(), e);
+			}
+			closeConnection(c);
+		}
+	}
+
+	private List<H2WriteBehindQueue.PendingWrite> writeTableBatch ( Connection c, List<H2WriteBehindQueue.PendingWrite> writes ) throws SQLException {
+
+		List<H2WriteBehindQueue.PendingWrite> merged = new ArrayList<>(writes.size());
+		List<H2WriteBehindQueue.PendingWrite> unserializable = new ArrayList<>();
+
+		Fqn tableFqn = writes.get(0).fqn;
+		PreparedStatement mergeStmt = c.prepareStatement(buildInsertItemSQL(tableFqn));
+		try {
+			for ( H2WriteBehindQueue.PendingWrite write : writes ) {
+				byte[] data;
+				try {
+					data = marshall(write.attrs);
+				} catch ( StackOverflowError | Exception e ) {
+					Logger.debug(this, "Unable to serialize object with FQN " + write.fqn.toString(), e);
+					cannotCacheCache.put(write.fqn.toString(), write.fqn.toString());
+					unserializable.add(write);
+					continue;
+				}
+				mergeStmt.setString(1, write.key);
+				mergeStmt.setBytes(2, data);
+				mergeStmt.addBatch();
+				merged.add(write);
+			}
+			if ( !merged.isEmpty() ) {
+				mergeStmt.executeBatch();
+			}
+		} finally {
+			mergeStmt.close();
+		}
+
+		//Whatever was stored before for a key we could not serialize is stale now
+		if ( !unserializable.isEmpty() ) {
+			PreparedStatement deleteStmt = c.prepareStatement(buildDeleteItemSQL(tableFqn));
+			try {
+				for ( H2WriteBehindQueue.PendingWrite write : unserializable ) {
+					deleteStmt.setString(1, write.key);
+					deleteStmt.addBatch();
+				}
+				deleteStmt.executeBatch();
+			} finally {
+				deleteStmt.close();
+			}
+		}
+
+		return merged;
+	}
+
 	private Object doUnmarshall(Fqn fqn) throws Exception {
 		if(fqn ==null){
 			return null;
 		}
 		fqn = Fqn.fromString(fqn.toString().toLowerCase());
 
-		ObjectInputStream input;
+		if ( writeBehind != null ) {
+			//Serve writes that are still waiting in the write behind queue
+			Map pendingAttrs = writeBehind.get(getKeyName(fqn));
+			if ( pendingAttrs != null ) {
+				return pendingAttrs;
+			}
+		}
+
 		InputStream bin;
 		InputStream is;
 		Connection c=null;
@@ -617,8 +809,7 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 				bin = new BufferedInputStream(is, 8192);
 			}
 			
-			input = new ObjectInputStream(bin);
-			Object unmarshalledObj = input.readObject();
+			Object unmarshalledObj = CacheSerializers.getSerializer().deserialize(bin);
 			return unmarshalledObj;
 		} catch (StackOverflowError e) {
 			Logger.debug(this, "Unable to unserialize object with FQN "
@@ -711,6 +902,16 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 		String lockName=null;
 		try {
 			int size=fqn.size();
+			if ( writeBehind != null ) {
+				//Pending writes must not land after this delete
+				if ( size >= 2 ) {
+					writeBehind.remove(getKeyName(fqn));
+				} else if ( size == 1 ) {
+					writeBehind.removeGroup(getGroupName(fqn));
+				} else {
+					writeBehind.removeAll();
+				}
+			}
 			if (size>=2) {
 				Connection c=createConnection(true,getDBNumber(fqn));
 				if(c==null){
@@ -866,6 +1067,10 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 		return "MERGE INTO `" + getGroupName(fqn) + "` key(CACHE_KEY) VALUES (?,?)";
 	}
 	
+	private String buildCreateTableSQL(Fqn fqn){
+		return "CREATE CACHED TABLE IF NOT EXISTS `" + getGroupName(fqn) + "` (CACHE_KEY VARCHAR(255) PRIMARY KEY, CACHE_DATA BLOB)";
+	}
+	
 	private void createTable(Fqn fqn){
 		Connection conn = null;
 		try{
@@ -881,7 +1086,7 @@ public class H2CacheLoader extends CacheProvider implements CacheLoader {
 			
 			try {
 				Statement s=conn.createStatement();
-				s.execute("CREATE CACHED TABLE IF NOT EXISTS `" + getGroupName(fqn) + "` (CACHE_KEY VARCHAR(255) PRIMARY KEY, CACHE_DATA BLOB)" );
+				s.execute(buildCreateTableSQL(fqn));
 				s.close();
 			 } catch (SQLException e) {
 				Logger.error(H2CacheLoader.class,"SQLException: " +e.getMessage(),e);
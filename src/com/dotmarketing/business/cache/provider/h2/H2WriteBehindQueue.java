@@ -0,0 +1,340 @@
+package com.dotmarketing.business.cache.provider.h2;
+
+import com.dotcms.repackage.org.jboss.cache.Fqn;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer used by the {@link H2CacheLoader} when <strong>H2_WRITE_BEHIND_ENABLED</strong> is set.
+ * <p/>
+ * Puts are kept in memory keyed by their FQN, repeated puts for a key waiting to be written just replace the
+ * pending value, and a single background thread drains the keys in batches that are handed back to the loader
+ * to be written with batched MERGE statements. The queue is bounded, when it is full the caller waits up to
+ * <strong>H2_WRITE_BEHIND_OFFER_TIMEOUT</strong> milliseconds and then the write is dropped.
+ * <p/>
+ * The disk tier may still hold the row of an earlier put of a dropped key, and would serve that old value once the
+ * memory tier evicts the key. So the row of a dropped key, or of a key whose batch failed, is deleted right away with
+ * the {@link RowDeleter}, turning the lost write into a later miss.
+ */
+class H2WriteBehindQueue {
+
+	/**
+	 * Persists a batch of pending writes, returning the ones that were actually written
+	 */
+	interface BatchWriter {
+		List<PendingWrite> writeBatch ( List<PendingWrite> batch );
+	}
+
+	/**
+	 * Deletes the row of the key of a write that will never be written
+	 */
+	interface RowDeleter {
+		void deleteRow ( PendingWrite write );
+	}
+
+	private final BatchWriter loader;
+	private final RowDeleter deleter;
+
+	private final ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, GroupCounters> counters = new ConcurrentHashMap<>();
+	private final BlockingQueue<String> keys;
+
+	private final int batchSize;
+	private final long flushInterval;
+	private final long offerTimeout;
+
+	/*
+	 * Held by the writer while a batch is taken out of the pending map and written, invalidations take it too
+	 * so a batch that is already in flight can never write back a value that was removed after it was drained.
+	 */
+	private final Object flushLock = new Object();
+
+	private volatile boolean running = false;
+	private Thread writer;
+
+	H2WriteBehindQueue ( BatchWriter loader, RowDeleter deleter ) {
+		this(loader, deleter, Config.getIntProperty("H2_WRITE_BEHIND_QUEUE_SIZE", 10000),
+				Config.getIntProperty("H2_WRITE_BEHIND_BATCH_SIZE", 500),
+				Config.getIntProperty("H2_WRITE_BEHIND_FLUSH_INTERVAL", 100),
+				Config.getIntProperty("H2_WRITE_BEHIND_OFFER_TIMEOUT", 10));
+	}
+
+	H2WriteBehindQueue ( BatchWriter loader, RowDeleter deleter, int queueSize, int batchSize, long flushInterval, long offerTimeout ) {
+		this.loader = loader;
+		this.deleter = deleter;
+		this.keys = new ArrayBlockingQueue<>(queueSize);
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.offerTimeout = offerTimeout;
+	}
+
+	void start () {
+		running = true;
+		writer = new Thread(new Writer(), "H2CacheWriteBehind");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Stops the background writer and synchronously writes whatever is still pending
+	 */
+	void stop () {
+
+		running = false;
+		if ( writer != null ) {
+			writer.interrupt();
+			try {
+				writer.join(5000);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		//Everything still in the pending map has to be written, including keys the writer took but never flushed
+		keys.clear();
+		flush(new ArrayList<>(pending.keySet()));
+	}
+
+	/**
+	 * Queues the given attributes to be written for the given (already normalized) fqn.
+	 *
+	 * @return false if the write was dropped because the queue was full, the row of the key is deleted then
+	 */
+	boolean offer ( Fqn fqn, String key, String group, Map attrs ) {
+
+		GroupCounters groupCounters = getCounters(group);
+		PendingWrite write = new PendingWrite(fqn, key, group, attrs);
+
+		if ( pending.put(key, write) != null ) {
+			//The key is already waiting in the queue, the writer will pick up this value instead
+			groupCounters.coalesced.incrementAndGet();
+			return true;
+		}
+
+		boolean queued = false;
+		try {
+			queued = keys.offer(key, offerTimeout, TimeUnit.MILLISECONDS);
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+
+		if ( !queued ) {
+			//Other puts may have coalesced into this entry, none of them has a key in the queue either
+			pending.remove(key);
+			groupCounters.dropped.incrementAndGet();
+			//Waits for a batch in flight, it may hold an earlier put of the key that must not land after the delete
+			synchronized ( flushLock ) {
+				deleteRow(write);
+			}
+			return false;
+		}
+
+		groupCounters.queued.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Returns the attributes still waiting to be written for the given key, null if nothing is pending
+	 */
+	Map get ( String key ) {
+		PendingWrite write = pending.get(key);
+		return write != null ? write.attrs : null;
+	}
+
+	/**
+	 * Discards a pending write for the given key, waiting for any in flight batch to finish first
+	 */
+	void remove ( String key ) {
+		synchronized ( flushLock ) {
+			pending.remove(key);
+		}
+	}
+
+	/**
+	 * Discards all the pending writes for the given group, waiting for any in flight batch to finish first
+	 */
+	void removeGroup ( String group ) {
+		synchronized ( flushLock ) {
+			Iterator<PendingWrite> it = pending.values().iterator();
+			while ( it.hasNext() ) {
+				if ( it.next().group.equals(group) ) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards every pending write, waiting for any in flight batch to finish first
+	 */
+	void removeAll () {
+		synchronized ( flushLock ) {
+			pending.clear();
+		}
+	}
+
+	int getQueueSize () {
+		return keys.size();
+	}
+
+	/**
+	 * Counts the writes still pending for each group, in a single pass over the pending writes
+	 */
+	Map<String, Integer> getPendingByGroup () {
+
+		Map<String, Integer> pendingByGroup = new HashMap<>();
+		for ( PendingWrite write : pending.values() ) {
+			Integer count = pendingByGroup.get(write.group);
+			pendingByGroup.put(write.group, count == null ? 1 : count + 1);
+		}
+
+		return pendingByGroup;
+	}
+
+	/**
+	 * Returns the write behind counters for the given group, ready to be added to the provider stats
+	 *
+	 * @param pendingByGroup The result of {@link #getPendingByGroup()}, computed once for all the groups
+	 */
+	Map<String, Object> getStats ( String group, Map<String, Integer> pendingByGroup ) {
+
+		Map<String, Object> stats = new HashMap<>();
+		GroupCounters groupCounters = counters.get(group);
+		Integer groupPending = pendingByGroup.get(group);
+		stats.put("writeBehindQueued", groupCounters != null ? groupCounters.queued.get() : 0L);
+		stats.put("writeBehindCoalesced", groupCounters != null ? groupCounters.coalesced.get() : 0L);
+		stats.put("writeBehindDropped", groupCounters != null ? groupCounters.dropped.get() : 0L);
+		stats.put("writeBehindWritten", groupCounters != null ? groupCounters.written.get() : 0L);
+		stats.put("writeBehindFailed", groupCounters != null ? groupCounters.failed.get() : 0L);
+		stats.put("writeBehindPending", groupPending != null ? groupPending : 0);
+
+		return stats;
+	}
+
+	private GroupCounters getCounters ( String group ) {
+
+		GroupCounters groupCounters = counters.get(group);
+		if ( groupCounters == null ) {
+			GroupCounters newCounters = new GroupCounters();
+			groupCounters = counters.putIfAbsent(group, newCounters);
+			if ( groupCounters == null ) {
+				groupCounters = newCounters;
+			}
+		}
+
+		return groupCounters;
+	}
+
+	private void flush ( List<String> drained ) {
+
+		if ( drained.isEmpty() ) {
+			return;
+		}
+
+		synchronized ( flushLock ) {
+
+			List<PendingWrite> batch = new ArrayList<>(drained.size());
+			for ( String key : drained ) {
+				//A null value means the key was invalidated after it was queued
+				PendingWrite write = pending.remove(key);
+				if ( write != null ) {
+					batch.add(write);
+				}
+			}
+
+			if ( batch.isEmpty() ) {
+				return;
+			}
+
+			List<PendingWrite> written = loader.writeBatch(batch);
+			for ( PendingWrite write : written ) {
+				getCounters(write.group).written.incrementAndGet();
+			}
+			if ( written.size() < batch.size() ) {
+				batch.removeAll(written);
+				for ( PendingWrite write : batch ) {
+					getCounters(write.group).failed.incrementAndGet();
+					deleteRow(write);
+				}
+			}
+		}
+	}
+
+	private void deleteRow ( PendingWrite write ) {
+		try {
+			deleter.deleteRow(write);
+		} catch ( Exception e ) {
+			Logger.warn(H2WriteBehindQueue.class, "Unable to delete the H2 cache row of " + write.key + ": " + e.getMessage(), e);
+		}
+	}
+
+	private class Writer implements Runnable {
+
+		@Override
+		public void run () {
+
+			List<String> drained = new ArrayList<>(batchSize);
+			while ( running ) {
+				try {
+
+					String first = keys.poll(flushInterval, TimeUnit.MILLISECONDS);
+					if ( first == null ) {
+						continue;
+					}
+
+					drained.add(first);
+
+					//Give repeated puts a chance to coalesce before writing a small batch
+					if ( keys.size() < batchSize - 1 ) {
+						Thread.sleep(flushInterval);
+					}
+
+					keys.drainTo(drained, batchSize - 1);
+					flush(drained);
+				} catch ( InterruptedException e ) {
+					Logger.debug(H2WriteBehindQueue.class, "Write behind thread interrupted");
+				} catch ( Exception e ) {
+					Logger.error(H2WriteBehindQueue.class, "Error writing batch to the H2 cache: " + e.getMessage(), e);
+				} finally {
+					drained.clear();
+				}
+			}
+		}
+	}
+
+	static class PendingWrite {
+
+		final Fqn fqn;
+		final String key;
+		final String group;
+		final Map attrs;
+
+		PendingWrite ( Fqn fqn, String key, String group, Map attrs ) {
+			this.fqn = fqn;
+			this.key = key;
+			this.group = group;
+			this.attrs = attrs;
+		}
+	}
+
+	private static class GroupCounters {
+
+		final AtomicLong queued = new AtomicLong();
+		final AtomicLong coalesced = new AtomicLong();
+		final AtomicLong dropped = new AtomicLong();
+		final AtomicLong written = new AtomicLong();
+		final AtomicLong failed = new AtomicLong();
+	}
+
+}
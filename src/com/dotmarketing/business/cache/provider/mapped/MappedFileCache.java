@@ -0,0 +1,265 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotcms.repackage.com.google.common.cache.CacheStats;
+import com.dotcms.repackage.org.apache.commons.collections.map.LRUMap;
+import com.dotmarketing.business.cache.provider.CacheProvider;
+import com.dotmarketing.business.cache.provider.serializer.CacheSerializers;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.liferay.util.FileUtil;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache Provider that keeps serialized entries outside of the Java heap, in memory-mapped segment files stored
+ * under <strong>mapped.cache.directory</strong> (by default <code>dynamic content path/mappedcache</code>).
+ * <p/>
+ * Each group gets its own ring of <strong>mapped.cache.max.segments</strong> segments of
+ * <strong>mapped.cache.segment.mb</strong> megabytes, when the ring is full the oldest segment is reused and its
+ * entries are evicted. The number of segments can be overridden per group using
+ * <strong>mapped.cache.mygroup.max.segments</strong>.
+ * <p/>
+ * The content of this cache does not survive a restart, the segment files are deleted on init and on shutdown.
+ *
+ * @see MappedGroupStore
+ */
+public class MappedFileCache extends CacheProvider {
+
+    private static final long serialVersionUID = 4174950397413398637L;
+
+    private Boolean isInitialized = false;
+
+    //Global Map of contents that could not be added to this cache
+    private static Map<String, String> cannotCacheCache = Collections.synchronizedMap(new LRUMap(1000));
+
+    private final ConcurrentHashMap<String, MappedGroupStore> groups = new ConcurrentHashMap<>();
+
+    private File directory;
+    private int segmentSize;
+    private int maxSegments;
+
+    @Override
+    public String getName () {
+        return "Memory Mapped File Cache";
+    }
+
+    @Override
+    public String getKey () {
+        return "LocalMappedFile";
+    }
+
+    @Override
+    public void init () throws Exception {
+
+        Logger.info(this.getClass(), "*** Initializing [" + getName() + "].");
+
+        directory = new File(Config.getStringProperty("mapped.cache.directory",
+                ConfigUtils.getDynamicContentPath() + File.separator + "mappedcache"));
+        segmentSize = Config.getIntProperty("mapped.cache.segment.mb", 32) * 1024 * 1024;
+        maxSegments = Config.getIntProperty("mapped.cache.max.segments", 4);
+
+        //Whatever was left by a previous run is useless as the index lives in memory
+        if ( directory.exists() ) {
+            FileUtil.deltree(directory);
+        }
+        if ( !directory.mkdirs() ) {
+            throw new IOException("Unable to create directory [" + directory.getAbsolutePath() + "]");
+        }
+
+        Logger.info(this.getClass(), "***\t [" + getName() + "] -- Directory [" + directory.getAbsolutePath() + "], segment size ["
+                + segmentSize + "], max segments [" + maxSegments + "].");
+
+        isInitialized = true;
+        Logger.info(this.getClass(), "*** Initialized Cache Provider [" + getName() + "].");
+    }
+
+    @Override
+    public boolean isInitialized () throws Exception {
+        return isInitialized;
+    }
+
+    @Override
+    public void put ( String group, String key, Object content ) {
+
+        if ( key == null || group == null ) {
+            return;
+        }
+
+        group = group.toLowerCase();
+        key = key.toLowerCase();
+
+        String compoundKey = group + ";" + key;
+        if ( cannotCacheCache.get(compoundKey) != null ) {
+            Logger.debug(this, "Returning because object is in cannot cache cache - Mapped: group [" + group + "] - key [" + key + "].");
+            return;
+        }
+
+        //Check if we must exclude this record from this cache
+        if ( group.equals(ONLY_MEMORY_GROUP) ) {
+            cannotCacheCache.put(compoundKey, compoundKey);
+            return;
+        }
+
+        MappedGroupStore store = getStore(group);
+        try {
+            store.put(key, CacheSerializers.toBytes(content));
+        } catch ( NotSerializableException ex ) {
+            store.remove(key);
+            cannotCacheCache.put(compoundKey, compoundKey);
+            Logger.error(this, "Error Adding to Mapped Cache [NotSerializableException]: group [" + group + "] - key [" + key + "].", ex);
+        } catch ( Exception e ) {
+            store.remove(key);
+            Logger.error(this, "Error Adding to Mapped Cache: group [" + group + "] - key [" + key + "].", e);
+        }
+    }
+
+    @Override
+    public Object get ( String group, String key ) {
+
+        if ( key == null || group == null ) {
+            return null;
+        }
+
+        MappedGroupStore store = groups.get(group.toLowerCase());
+        if ( store == null ) {
+            return null;
+        }
+
+        byte[] data = store.get(key.toLowerCase());
+        if ( data == null ) {
+            return null;
+        }
+
+        try {
+            return CacheSerializers.fromBytes(data);
+        } catch ( Exception e ) {
+            Logger.error(this, "Error retrieving from Mapped Cache: group [" + group + "] - key [" + key + "].", e);
+            store.remove(key.toLowerCase());
+        }
+
+        return null;
+    }
+
+    @Override
+    public void remove ( String group, String key ) {
+
+        if ( key == null || group == null ) {
+            return;
+        }
+
+        MappedGroupStore store = groups.get(group.toLowerCase());
+        if ( store != null ) {
+            store.remove(key.toLowerCase());
+        }
+    }
+
+    @Override
+    public void remove ( String group ) {
+
+        if ( group == null ) {
+            return;
+        }
+
+        MappedGroupStore store = groups.get(group.toLowerCase());
+        if ( store != null ) {
+            store.clear();
+        }
+    }
+
+    @Override
+    public void removeAll () {
+
+        for ( MappedGroupStore store : groups.values() ) {
+            store.clear();
+        }
+
+        //Reset the list of objects that cannot be in the Cache
+        cannotCacheCache = Collections.synchronizedMap(new LRUMap(1000));
+    }
+
+    @Override
+    public Set<String> getKeys ( String group ) {
+
+        if ( group == null ) {
+            return null;
+        }
+
+        MappedGroupStore store = groups.get(group.toLowerCase());
+        return store != null ? store.keys() : new HashSet<String>();
+    }
+
+    @Override
+    public Set<String> getGroups () {
+        return groups.keySet();
+    }
+
+    @Override
+    public List<Map<String, Object>> getStats () {
+
+        List<Map<String, Object>> list = new ArrayList<>();
+
+        for ( MappedGroupStore store : groups.values() ) {
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("name", getName());
+            stats.put("key", getKey());
+            stats.put("region", store.getGroup());
+            stats.put("toDisk", true);
+
+            stats.put("isDefault", false);
+            stats.put("memory", -1);
+            stats.put("disk", store.size());
+            stats.put("configuredSize", -1);
+
+            stats.put("hits", store.getHits());
+            stats.put("misses", store.getMisses());
+            stats.put("evictions", store.getEvictions());
+            stats.put("rejected", store.getRejected());
+            stats.put("mappedBytes", store.getMappedBytes());
+            stats.put("configuredBytes", store.getConfiguredBytes());
+            stats.put("CacheStats", new CacheStats(store.getHits(), store.getMisses(), 0, 0, 0, store.getEvictions()));
+
+            list.add(stats);
+        }
+
+        return list;
+    }
+
+    @Override
+    public void shutdown () {
+
+        Logger.info(this.getClass(), "*** Destroying [" + getName() + "] segments.");
+
+        for ( MappedGroupStore store : groups.values() ) {
+            store.close();
+        }
+        groups.clear();
+
+        if ( directory != null ) {
+            FileUtil.deltree(directory);
+        }
+
+        isInitialized = false;
+    }
+
+    private MappedGroupStore getStore ( String group ) {
+
+        MappedGroupStore store = groups.get(group);
+        if ( store == null ) {
+
+            int groupSegments = Config.getIntProperty("mapped.cache." + group + ".max.segments", maxSegments);
+            MappedGroupStore newStore = new MappedGroupStore(group, new File(directory, group), segmentSize, groupSegments);
+
+            store = groups.putIfAbsent(group, newStore);
+            if ( store == null ) {
+                store = newStore;
+            }
+        }
+
+        return store;
+    }
+
+}
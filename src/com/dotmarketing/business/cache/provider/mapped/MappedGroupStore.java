@@ -0,0 +1,469 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotmarketing.util.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Stores the serialized entries of a single cache group in a fixed ring of memory-mapped segment files.
+ * <p/>
+ * Entries are appended to the current segment as <code>[key length][value length][key][value]</code>, when the
+ * current segment is full the next segment of the ring is reused and every entry it still held is evicted, so the
+ * memory used by a group never goes over <code>segmentSize * maxSegments</code>.
+ * <p/>
+ * Keys are located with an open addressing hash index kept in a direct buffer, each slot holds the key hash, the
+ * generation of the segment the entry was written to and the offset of the entry inside that segment. Slots
+ * pointing to a generation older than the oldest live segment are considered evicted and are purged on rehash.
+ */
+class MappedGroupStore {
+
+    private static final int SLOT_SIZE = 12;
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final float MAX_LOAD = 0.75f;
+
+    //Generation markers for the index slots, real generations start at 1
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private final String group;
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Segment[] segments;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer index;
+    private int capacity;
+    private int usedSlots;
+    private int size;
+
+    private int currentGeneration = 0;
+    private int oldestGeneration = 1;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    MappedGroupStore ( String group, File directory, int segmentSize, int maxSegments ) {
+
+        this.group = group;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.segments = new Segment[maxSegments];
+
+        this.capacity = INITIAL_CAPACITY;
+        this.index = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    /**
+     * Returns the stored bytes for the given key, null if the key is not in this group
+     */
+    byte[] get ( String key ) {
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(keyBytes);
+
+        lock.readLock().lock();
+        try {
+
+            int slot = find(hash, keyBytes);
+            if ( slot < 0 ) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            ByteBuffer buffer = segmentFor(index.getInt(slot * SLOT_SIZE + 4)).buffer.duplicate();
+            int offset = index.getInt(slot * SLOT_SIZE + 8);
+            int keyLength = buffer.getInt(offset);
+            int valueLength = buffer.getInt(offset + 4);
+
+            byte[] value = new byte[valueLength];
+            buffer.position(offset + ENTRY_HEADER_SIZE + keyLength);
+            buffer.get(value);
+
+            hits.incrementAndGet();
+            return value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the given bytes for the given key, entries bigger than a segment are rejected
+     *
+     * @return false if the entry was rejected
+     */
+    boolean put ( String key, byte[] value ) throws IOException {
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(keyBytes);
+        int entrySize = ENTRY_HEADER_SIZE + keyBytes.length + value.length;
+
+        lock.writeLock().lock();
+        try {
+
+            if ( entrySize > segmentSize ) {
+                rejected.incrementAndGet();
+                //Never leave behind an older value for a key we were asked to replace
+                remove(hash, keyBytes);
+                return false;
+            }
+
+            Segment segment = writableSegment(entrySize);
+            int offset = segment.position;
+
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(offset);
+            buffer.putInt(keyBytes.length);
+            buffer.putInt(value.length);
+            buffer.put(keyBytes);
+            buffer.put(value);
+
+            segment.position += entrySize;
+            segment.live++;
+
+            int slot = find(hash, keyBytes);
+            if ( slot >= 0 ) {
+                //Replacing an existing entry, the old bytes stay in their segment until it is reused
+                segmentFor(index.getInt(slot * SLOT_SIZE + 4)).live--;
+            } else {
+                ensureCapacity();
+                slot = freeSlot(hash);
+                if ( index.getInt(slot * SLOT_SIZE + 4) == EMPTY ) {
+                    usedSlots++;
+                }
+                size++;
+            }
+
+            writeSlot(index, slot, hash, segment.generation, offset);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove ( String key ) {
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        lock.writeLock().lock();
+        try {
+            remove(hash(keyBytes), keyBytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every entry of this group, the segment files are kept to be reused
+     */
+    void clear () {
+
+        lock.writeLock().lock();
+        try {
+            for ( Segment segment : segments ) {
+                if ( segment != null ) {
+                    segment.generation = EMPTY;
+                    segment.position = 0;
+                    segment.live = 0;
+                }
+            }
+
+            capacity = INITIAL_CAPACITY;
+            index = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+            usedSlots = 0;
+            size = 0;
+            currentGeneration = 0;
+            oldestGeneration = 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Set<String> keys () {
+
+        Set<String> keys = new HashSet<>();
+
+        lock.readLock().lock();
+        try {
+            for ( int slot = 0; slot < capacity; slot++ ) {
+
+                int generation = index.getInt(slot * SLOT_SIZE + 4);
+                if ( !isLive(generation) ) {
+                    continue;
+                }
+
+                ByteBuffer buffer = segmentFor(generation).buffer.duplicate();
+                int offset = index.getInt(slot * SLOT_SIZE + 8);
+                byte[] keyBytes = new byte[buffer.getInt(offset)];
+                buffer.position(offset + ENTRY_HEADER_SIZE);
+                buffer.get(keyBytes);
+                keys.add(new String(keyBytes, StandardCharsets.UTF_8));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return keys;
+    }
+
+    /**
+     * Releases the segments of this group and deletes their files, the mapped memory itself is released once the
+     * buffers are garbage collected
+     */
+    void close () {
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            for ( int i = 0; i < segments.length; i++ ) {
+                segments[i] = null;
+                File segmentFile = segmentFile(i);
+                if ( segmentFile.exists() && !segmentFile.delete() ) {
+                    Logger.warn(this.getClass(), "Unable to delete mapped cache segment [" + segmentFile.getAbsolutePath() + "].");
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    String getGroup () {
+        return group;
+    }
+
+    int size () {
+        return size;
+    }
+
+    long getMappedBytes () {
+
+        long mapped = 0;
+        for ( Segment segment : segments ) {
+            if ( segment != null ) {
+                mapped += segmentSize;
+            }
+        }
+
+        return mapped;
+    }
+
+    long getConfiguredBytes () {
+        return (long) segmentSize * maxSegments;
+    }
+
+    long getHits () {
+        return hits.get();
+    }
+
+    long getMisses () {
+        return misses.get();
+    }
+
+    long getEvictions () {
+        return evictions.get();
+    }
+
+    long getRejected () {
+        return rejected.get();
+    }
+
+    private void remove ( int hash, byte[] keyBytes ) {
+
+        int slot = find(hash, keyBytes);
+        if ( slot < 0 ) {
+            return;
+        }
+
+        segmentFor(index.getInt(slot * SLOT_SIZE + 4)).live--;
+        index.putInt(slot * SLOT_SIZE + 4, DELETED);
+        size--;
+    }
+
+    /**
+     * Returns the segment with room for an entry of the given size, moving to the next segment of the ring
+     * and evicting whatever it held if the current one is full
+     */
+    private Segment writableSegment ( int entrySize ) throws IOException {
+
+        if ( currentGeneration != EMPTY ) {
+            Segment current = segmentFor(currentGeneration);
+            if ( current.position + entrySize <= segmentSize ) {
+                return current;
+            }
+        }
+
+        currentGeneration++;
+        int position = (currentGeneration - 1) % maxSegments;
+
+        Segment segment = segments[position];
+        if ( segment == null ) {
+            segment = new Segment(map(segmentFile(position)));
+            segments[position] = segment;
+        } else if ( segment.generation != EMPTY ) {
+            evictions.addAndGet(segment.live);
+            size -= segment.live;
+        }
+
+        segment.generation = currentGeneration;
+        segment.position = 0;
+        segment.live = 0;
+        oldestGeneration = Math.max(1, currentGeneration - maxSegments + 1);
+
+        return segment;
+    }
+
+    private int find ( int hash, byte[] keyBytes ) {
+
+        int slot = (hash & 0x7fffffff) % capacity;
+        for ( int probes = 0; probes < capacity; probes++ ) {
+
+            int generation = index.getInt(slot * SLOT_SIZE + 4);
+            if ( generation == EMPTY ) {
+                return -1;
+            }
+
+            if ( isLive(generation) && index.getInt(slot * SLOT_SIZE) == hash
+                    && keyMatches(generation, index.getInt(slot * SLOT_SIZE + 8), keyBytes) ) {
+                return slot;
+            }
+
+            slot = (slot + 1) % capacity;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the first empty, deleted or evicted slot for the given hash
+     */
+    private int freeSlot ( int hash ) {
+
+        int slot = (hash & 0x7fffffff) % capacity;
+        while ( isLive(index.getInt(slot * SLOT_SIZE + 4)) ) {
+            slot = (slot + 1) % capacity;
+        }
+
+        return slot;
+    }
+
+    private boolean keyMatches ( int generation, int offset, byte[] keyBytes ) {
+
+        ByteBuffer buffer = segmentFor(generation).buffer;
+        if ( buffer.getInt(offset) != keyBytes.length ) {
+            return false;
+        }
+
+        int keyOffset = offset + ENTRY_HEADER_SIZE;
+        for ( int i = 0; i < keyBytes.length; i++ ) {
+            if ( buffer.get(keyOffset + i) != keyBytes[i] ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void ensureCapacity () {
+
+        if ( usedSlots + 1 <= capacity * MAX_LOAD ) {
+            return;
+        }
+
+        //If most of the used slots are deleted or evicted a rehash at the same capacity is enough
+        int newCapacity = (size + 1) > capacity / 2 ? capacity * 2 : capacity;
+        ByteBuffer newIndex = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+
+        int newUsedSlots = 0;
+        for ( int slot = 0; slot < capacity; slot++ ) {
+
+            int generation = index.getInt(slot * SLOT_SIZE + 4);
+            if ( !isLive(generation) ) {
+                continue;
+            }
+
+            int hash = index.getInt(slot * SLOT_SIZE);
+            int newSlot = (hash & 0x7fffffff) % newCapacity;
+            while ( newIndex.getInt(newSlot * SLOT_SIZE + 4) != EMPTY ) {
+                newSlot = (newSlot + 1) % newCapacity;
+            }
+
+            writeSlot(newIndex, newSlot, hash, generation, index.getInt(slot * SLOT_SIZE + 8));
+            newUsedSlots++;
+        }
+
+        index = newIndex;
+        capacity = newCapacity;
+        usedSlots = newUsedSlots;
+    }
+
+    private boolean isLive ( int generation ) {
+        return generation != EMPTY && generation != DELETED && generation >= oldestGeneration;
+    }
+
+    private Segment segmentFor ( int generation ) {
+        return segments[(generation - 1) % maxSegments];
+    }
+
+    private File segmentFile ( int position ) {
+        return new File(directory, "segment-" + position + ".dat");
+    }
+
+    private MappedByteBuffer map ( File segmentFile ) throws IOException {
+
+        if ( !directory.exists() && !directory.mkdirs() ) {
+            throw new IOException("Unable to create mapped cache directory [" + directory.getAbsolutePath() + "]");
+        }
+
+        //The mapping stays valid after the file is closed
+        try ( RandomAccessFile file = new RandomAccessFile(segmentFile, "rw") ) {
+            file.setLength(segmentSize);
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static void writeSlot ( ByteBuffer index, int slot, int hash, int generation, int offset ) {
+        index.putInt(slot * SLOT_SIZE, hash);
+        index.putInt(slot * SLOT_SIZE + 4, generation);
+        index.putInt(slot * SLOT_SIZE + 8, offset);
+    }
+
+    private static int hash ( byte[] keyBytes ) {
+
+        //FNV-1a
+        int hash = 0x811c9dc5;
+        for ( byte b : keyBytes ) {
+            hash ^= b;
+            hash *= 0x01000193;
+        }
+
+        return hash;
+    }
+
+    private static class Segment {
+
+        final MappedByteBuffer buffer;
+        int generation = EMPTY;
+        int position = 0;
+        int live = 0;
+
+        Segment ( MappedByteBuffer buffer ) {
+            this.buffer = buffer;
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.dotmarketing.business.cache.provider.redis;
+
+import com.dotcms.repackage.com.google.common.cache.Cache;
+import com.dotcms.repackage.com.google.common.cache.CacheBuilder;
+import com.dotcms.repackage.com.google.common.cache.CacheStats;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of deserialized objects used by the {@link RedisProvider} when
+ * <strong>redis.nearcache.enabled</strong> is set, so repeated reads of the same key do not go to Redis.
+ * <p/>
+ * Entries are versioned: every entry remembers the version of its group when it was loaded, flushing a group or the
+ * whole cache only bumps a counter and entries with an older version are treated as misses. To avoid caching a value
+ * that was invalidated while it was being read from Redis, a read takes a stamp with {@link #loadStamp(String)}
+ * before going to Redis and the value is only kept if no invalidation touched its group in the meantime.
+ * <p/>
+ * Invalidations coming from other nodes arrive as the messages built by {@link #keyMessage(String, String)},
+ * {@link #groupMessage(String)} and {@link #ALL_MESSAGE} and are applied with {@link #onMessage(String)}.
+ */
+class RedisNearCache {
+
+    static final String ALL_MESSAGE = "A";
+    private static final String GROUP_PREFIX = "G:";
+    private static final String KEY_PREFIX = "K:";
+    private static final char DELIMIT = ';';
+
+    private final Cache<String, Entry> entries;
+    private final AtomicLong flushes = new AtomicLong();
+    private final ConcurrentHashMap<String, GroupState> groups = new ConcurrentHashMap<>();
+
+    RedisNearCache ( int maxSize, int ttlSeconds ) {
+
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maxSize);
+        if ( ttlSeconds > 0 ) {
+            //Safety net for invalidation messages lost while the subscription was down
+            builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+        }
+        entries = builder.build();
+    }
+
+    /**
+     * Returns the cached value if it is still valid, null otherwise
+     */
+    Object get ( String group, String key ) {
+
+        GroupState state = getState(group);
+        String compoundKey = group + DELIMIT + key;
+
+        Entry entry = entries.getIfPresent(compoundKey);
+        if ( entry != null ) {
+            if ( entry.version == version(state) ) {
+                state.hits.incrementAndGet();
+                return entry.value;
+            }
+            entries.invalidate(compoundKey);
+        }
+
+        state.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Must be taken before reading a value from Redis and handed back to {@link #put(String, String, Object, long)}
+     */
+    long loadStamp ( String group ) {
+        return loadStamp(getState(group));
+    }
+
+    /**
+     * Keeps a value read from Redis unless its group was invalidated since the given stamp was taken
+     */
+    void put ( String group, String key, Object value, long stamp ) {
+
+        if ( value == null ) {
+            return;
+        }
+
+        GroupState state = getState(group);
+        long version = version(state);
+        if ( stamp == loadStamp(state) ) {
+            entries.put(group + DELIMIT + key, new Entry(value, version));
+
+            //An invalidation may have happened between the check and the put
+            if ( stamp != loadStamp(state) ) {
+                entries.invalidate(group + DELIMIT + key);
+            }
+        }
+    }
+
+    void invalidate ( String group, String key ) {
+        getState(group).invalidations.incrementAndGet();
+        entries.invalidate(group + DELIMIT + key);
+    }
+
+    void invalidateGroup ( String group ) {
+        GroupState state = getState(group);
+        state.invalidations.incrementAndGet();
+        state.flushes.incrementAndGet();
+    }
+
+    void invalidateAll () {
+        flushes.incrementAndGet();
+        entries.invalidateAll();
+    }
+
+    /**
+     * Applies an invalidation message published by any node
+     */
+    void onMessage ( String message ) {
+
+        if ( message.startsWith(KEY_PREFIX) ) {
+            int i = message.indexOf(DELIMIT, KEY_PREFIX.length());
+            if ( i > 0 ) {
+                invalidate(message.substring(KEY_PREFIX.length(), i), message.substring(i + 1));
+                return;
+            }
+        } else if ( message.startsWith(GROUP_PREFIX) ) {
+            invalidateGroup(message.substring(GROUP_PREFIX.length()));
+            return;
+        }
+
+        //Anything we do not understand flushes everything, serving stale data is worse than a few misses
+        invalidateAll();
+    }
+
+    static String keyMessage ( String group, String key ) {
+        return KEY_PREFIX + group + DELIMIT + key;
+    }
+
+    static String groupMessage ( String group ) {
+        return GROUP_PREFIX + group;
+    }
+
+    /**
+     * Near cache hits and misses for the given group, the rest of the values are always 0
+     */
+    CacheStats getStats ( String group ) {
+        GroupState state = getState(group);
+        return new CacheStats(state.hits.get(), state.misses.get(), 0, 0, 0, 0);
+    }
+
+    Map<String, Object> getStatsMap ( String group ) {
+
+        GroupState state = getState(group);
+        long hits = state.hits.get();
+        long misses = state.misses.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nearCacheHits", hits);
+        stats.put("nearCacheMisses", misses);
+        stats.put("nearCacheHitRate", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+        stats.put("CacheStats", getStats(group));
+        return stats;
+    }
+
+    long size () {
+        return entries.size();
+    }
+
+    private long version ( GroupState state ) {
+        return flushes.get() + state.flushes.get();
+    }
+
+    private long loadStamp ( GroupState state ) {
+        return flushes.get() + state.invalidations.get();
+    }
+
+    private GroupState getState ( String group ) {
+
+        GroupState state = groups.get(group);
+        if ( state == null ) {
+            GroupState newState = new GroupState();
+            state = groups.putIfAbsent(group, newState);
+            if ( state == null ) {
+                state = newState;
+            }
+        }
+
+        return state;
+    }
+
+    private static class Entry {
+
+        final Object value;
+        final long version;
+
+        Entry ( Object value, long version ) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+    private static class GroupState {
+
+        //Group flushes, entries loaded before the last flush are no longer valid
+        final AtomicLong flushes = new AtomicLong();
+        //Any invalidation of the group, used to discard values read from Redis while it happened
+        final AtomicLong invalidations = new AtomicLong();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+
+}
@@ -2,6 +2,7 @@ package com.dotmarketing.business.cache.provider.redis;
 
 import com.dotcms.repackage.org.apache.commons.collections.map.LRUMap;
 import com.dotmarketing.business.cache.provider.CacheProvider;
+import com.dotmarketing.business.cache.provider.serializer.CacheSerializers;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -12,6 +13,11 @@ import java.io.*;
 import java.util.*;
 
 /**
+ * When <strong>redis.nearcache.enabled</strong> is set the objects read from Redis are also kept in a bounded
+ * in-process {@link RedisNearCache} of <strong>redis.nearcache.size</strong> entries. Every write to Redis publishes
+ * an invalidation on the <strong>redis.nearcache.channel</strong> channel that all the nodes listen to, entries also
+ * expire after <strong>redis.nearcache.ttl</strong> seconds in case a message is lost.
+ *
  * @author Jonathan Gamba
  *         Date: 10/9/15
  */
@@ -28,6 +34,10 @@ public class RedisProvider extends CacheProvider {
     private JedisPool readPool;//Slave
     private final char delimit = ';';
 
+    private RedisNearCache nearCache;
+    private NearCacheSubscriber nearCacheSubscriber;
+    private String nearCacheChannel;
+
     @Override
     public String getName () {
         return "Redis Provider";
@@ -88,6 +98,20 @@ public class RedisProvider extends CacheProvider {
             Logger.info(this.getClass(), "***\t [" + getName() + "] -- Slave [" + readHost + ":" + readPort + "].");
         }
 
+        if ( Config.getBooleanProperty("redis.nearcache.enabled", false) ) {
+
+            int nearCacheSize = Config.getIntProperty("redis.nearcache.size", 10000);
+            nearCache = new RedisNearCache(nearCacheSize, Config.getIntProperty("redis.nearcache.ttl", 300));
+            nearCacheChannel = Config.getStringProperty("redis.nearcache.channel", "dotcms.nearcache.invalidations");
+
+            nearCacheSubscriber = new NearCacheSubscriber();
+            Thread subscriberThread = new Thread(nearCacheSubscriber, "RedisNearCacheSubscriber");
+            subscriberThread.setDaemon(true);
+            subscriberThread.start();
+
+            Logger.info(this.getClass(), "***\t [" + getName() + "] -- Near cache of [" + nearCacheSize + "] entries, channel [" + nearCacheChannel + "].");
+        }
+
         isInitialized = true;
         Logger.info(this.getClass(), "*** Initialized Cache Provider [" + getName() + "].");
     }
@@ -123,20 +147,10 @@ public class RedisProvider extends CacheProvider {
             return;
         }
 
-        ObjectOutputStream output = null;
-        OutputStream outputStream;
-
         try ( Jedis jedis = writePool.getResource() ) {
 
             //Prepare the object to be store
-            ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
-            outputStream = new BufferedOutputStream(arrayOutputStream, 8192);
-
-            output = new ObjectOutputStream(outputStream);
-            output.writeObject(content);
-            output.flush();
-
-            byte[] data = arrayOutputStream.toByteArray();
+            byte[] data = CacheSerializers.toBytes(content);
             if ( data == null || data.length == 0 ) {
                 return;
             }
@@ -144,20 +158,14 @@ public class RedisProvider extends CacheProvider {
             //Add the object to redis master
             jedis.set(compoundKey.toString().getBytes(), data);
 
+            invalidateNearCache(jedis, RedisNearCache.keyMessage(group, key));
+
         } catch ( NotSerializableException ex ) {
             remove(group, key);
             cannotCacheCache.put(compoundKey.toString(), compoundKey.toString());
             Logger.error(this, "Error Adding to Redis [NotSerializableException]: group [" + group + "] - key [" + key + "].", ex);
         } catch ( Exception e ) {
             Logger.error(this, "Error Adding to Redis: group [" + group + "] - key [" + key + "].", e);
-        } finally {
-            try {
-                if ( output != null ) {
-                    output.close();
-                }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
-            }
         }
     }
 
@@ -168,11 +176,24 @@ public class RedisProvider extends CacheProvider {
             return null;
         }
 
+        group = group.toLowerCase();
+        key = key.toLowerCase();
+
+        //Repeated reads are served from the near cache
+        long nearCacheStamp = 0;
+        if ( nearCache != null ) {
+            Object cached = nearCache.get(group, key);
+            if ( cached != null ) {
+                return cached;
+            }
+            nearCacheStamp = nearCache.loadStamp(group);
+        }
+
         //Building the key
         StringWriter compoundKey = new StringWriter();
-        compoundKey.append(group.toLowerCase());
+        compoundKey.append(group);
         compoundKey.append(delimit);
-        compoundKey.append(key.toLowerCase());
+        compoundKey.append(key);
 
         //Reading the record from the Redis slave
         byte[] data = null;
@@ -187,39 +208,14 @@ public class RedisProvider extends CacheProvider {
         }
 
         //Reconstructing the object to send it back
-        ObjectInputStream input = null;
-        InputStream bin = null;
-        InputStream is = null;
-
         try {
-            is = new ByteArrayInputStream(data);
-            bin = new BufferedInputStream(is, 8192);
-            input = new ObjectInputStream(bin);
-            return input.readObject();
+            Object content = CacheSerializers.fromBytes(data);
+            if ( nearCache != null ) {
+                nearCache.put(group, key, content, nearCacheStamp);
+            }
+            return content;
         } catch ( Exception e ) {
             Logger.error(this, "Error retrieving from Redis: group [" + group + "] - key [" + key + "].", e);
-        } finally {
-            try {
-                if ( input != null ) {
-                    input.close();
-                }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
-            }
-            try {
-                if ( bin != null ) {
-                    bin.close();
-                }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
-            }
-            try {
-                if ( is != null ) {
-                    is.close();
-                }
-            } catch ( Exception e ) {
-                Logger.error(this, "Error trying to close Stream.", e);
-            }
         }
 
         return null;
@@ -244,6 +240,8 @@ public class RedisProvider extends CacheProvider {
         } catch ( Exception e ) {
             Logger.error(this, "Error removing from Redis: group [" + group + "] - key [" + key + "].", e);
         }
+
+        invalidateNearCache(RedisNearCache.keyMessage(group.toLowerCase(), key.toLowerCase()));
     }
 
     @Override
@@ -293,6 +291,8 @@ public class RedisProvider extends CacheProvider {
         } catch ( Exception e ) {
             Logger.error(this, "Error removing from Redis: group [" + group + "].", e);
         }
+
+        invalidateNearCache(RedisNearCache.groupMessage(group));
     }
 
     @Override
@@ -304,6 +304,8 @@ public class RedisProvider extends CacheProvider {
             Logger.error(this, "Error removing all from Redis.", e);
         }
 
+        invalidateNearCache(RedisNearCache.ALL_MESSAGE);
+
         //Reset the list of objects that cannot be in the Cache
         resetCannotCacheCache();
     }
@@ -389,6 +391,10 @@ public class RedisProvider extends CacheProvider {
                 stats.put("disk", getKeys(group).size());
                 stats.put("configuredSize", memoryUsage);
 
+                if ( nearCache != null ) {
+                    stats.putAll(nearCache.getStatsMap(group));
+                }
+
                 /*
                 Show the complete memory usage just one time,
                 the cache stats page needs improvements (html/portlet/ext/cmsmaintenance/cachestats_guava.jsp), that page was not
@@ -410,6 +416,11 @@ public class RedisProvider extends CacheProvider {
     public void shutdown () {
 
         Logger.info(this.getClass(), "*** Destroying [" + getName() + "] pool.");
+
+        if ( nearCacheSubscriber != null ) {
+            nearCacheSubscriber.stop();
+            nearCacheSubscriber = null;
+        }
         writePool.destroy();
         readPool.destroy();
 
@@ -450,6 +461,42 @@ public class RedisProvider extends CacheProvider {
         return value;
     }
 
+    /**
+     * Applies the given invalidation to the local near cache and publishes it so the other nodes do the same.
+     * The local near cache is invalidated even if Redis can not be reached.
+     *
+     * @param message
+     */
+    private void invalidateNearCache ( String message ) {
+
+        if ( nearCache == null ) {
+            return;
+        }
+
+        nearCache.onMessage(message);
+        try ( Jedis jedis = writePool.getResource() ) {
+            jedis.publish(nearCacheChannel, message);
+        } catch ( Exception e ) {
+            Logger.error(this, "Error publishing near cache invalidation to Redis.", e);
+        }
+    }
+
+    /**
+     * Same as {@link #invalidateNearCache(String)} reusing an already open connection
+     *
+     * @param jedis
+     * @param message
+     */
+    private void invalidateNearCache ( Jedis jedis, String message ) {
+
+        if ( nearCache == null ) {
+            return;
+        }
+
+        nearCache.onMessage(message);
+        jedis.publish(nearCacheChannel, message);
+    }
+
     /**
      * Resets the Map of cache records that could be added to this cache
      */
@@ -487,4 +534,61 @@ public class RedisProvider extends CacheProvider {
         return exclude;
     }
 
-}
\ No newline at end of file
+    /**
+     * Listens to the invalidations published by all the nodes, while it is not subscribed nothing can be trusted
+     * so the near cache is flushed every time the subscription is (re)established or lost.
+     */
+    private class NearCacheSubscriber extends JedisPubSub implements Runnable {
+
+        private volatile boolean running = true;
+
+        @Override
+        public void run () {
+
+            while ( running ) {
+
+                try ( Jedis jedis = writePool.getResource() ) {
+                    //Blocks until unsubscribed or until the connection is lost
+                    jedis.subscribe(this, nearCacheChannel);
+                } catch ( Exception e ) {
+                    if ( running ) {
+                        Logger.warn(RedisProvider.class, "Near cache subscription lost: " + e.getMessage());
+                    }
+                }
+
+                nearCache.invalidateAll();
+
+                if ( running ) {
+                    try {
+                        Thread.sleep(1000);
+                    } catch ( InterruptedException e ) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onSubscribe ( String channel, int subscribedChannels ) {
+            nearCache.invalidateAll();
+        }
+
+        @Override
+        public void onMessage ( String channel, String message ) {
+            nearCache.onMessage(message);
+        }
+
+        void stop () {
+
+            running = false;
+            try {
+                if ( isSubscribed() ) {
+                    unsubscribe();
+                }
+            } catch ( Exception e ) {
+                Logger.debug(RedisProvider.class, "Unable to unsubscribe the near cache: " + e.getMessage(), e);
+            }
+        }
+    }
+
+}
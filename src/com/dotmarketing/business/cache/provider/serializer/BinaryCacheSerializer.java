@@ -0,0 +1,344 @@
+package com.dotmarketing.business.cache.provider.serializer;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.structure.model.Structure;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link CacheSerializer} with a compact binary format for the objects the caches store the most:
+ * {@link Contentlet}, {@link Identifier}, {@link Permission} lists, {@link Folder} and {@link Structure}.
+ * <p/>
+ * Every value is written with a one byte tag. Strings, numbers, dates, {@link ArrayList}s and {@link HashMap}s are
+ * written inline, the hot types are written field by field following a schema built once per class, and any other
+ * object is written with Java serialization. A schema id is stored with each hot type so entries written by a
+ * different version of a class are rejected instead of being read wrong.
+ * <p/>
+ * Data written by the {@link JavaCacheSerializer} is still readable, it is detected by the Java serialization
+ * stream header.
+ */
+public class BinaryCacheSerializer implements CacheSerializer {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    //First byte of a Java serialization stream (0xACED)
+    private static final byte JAVA_STREAM_MAGIC = (byte) 0xAC;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN_TRUE = 4;
+    private static final byte BOOLEAN_FALSE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DATE = 8;
+    private static final byte TIMESTAMP = 9;
+    private static final byte ARRAY_LIST = 10;
+    private static final byte HASH_MAP = 11;
+    private static final byte CONTENTLET = 20;
+    private static final byte IDENTIFIER = 21;
+    private static final byte PERMISSION = 22;
+    private static final byte FOLDER = 23;
+    private static final byte STRUCTURE = 24;
+    private static final byte JAVA = 127;
+
+    private static final Map<Byte, Schema> SCHEMAS_BY_TAG = new HashMap<>();
+    private static final Map<Class<?>, Schema> SCHEMAS_BY_CLASS = new HashMap<>();
+
+    static {
+        register(new Schema(IDENTIFIER, Identifier.class));
+        register(new Schema(PERMISSION, Permission.class));
+        register(new Schema(FOLDER, Folder.class));
+        register(new Schema(STRUCTURE, Structure.class));
+    }
+
+    private static void register ( Schema schema ) {
+        SCHEMAS_BY_TAG.put(schema.tag, schema);
+        SCHEMAS_BY_CLASS.put(schema.type, schema);
+    }
+
+    @Override
+    public void serialize ( Object object, OutputStream out ) throws IOException {
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, 8192));
+        output.writeByte(FORMAT_VERSION);
+        writeValue(output, object);
+        output.flush();
+    }
+
+    @Override
+    public Object deserialize ( InputStream in ) throws IOException, ClassNotFoundException {
+
+        PushbackInputStream pushback = new PushbackInputStream(new BufferedInputStream(in, 8192), 1);
+        int first = pushback.read();
+        if ( first == -1 ) {
+            throw new EOFException();
+        }
+
+        if ( (byte) first == JAVA_STREAM_MAGIC ) {
+            //Written by the Java serializer
+            pushback.unread(first);
+            return new ObjectInputStream(pushback).readObject();
+        }
+
+        if ( (byte) first != FORMAT_VERSION ) {
+            throw new StreamCorruptedException("Unknown cache serialization format [" + first + "]");
+        }
+
+        return readValue(new DataInputStream(pushback));
+    }
+
+    private void writeValue ( DataOutputStream output, Object value ) throws IOException {
+
+        if ( value == null ) {
+            output.writeByte(NULL);
+            return;
+        }
+
+        //Exact class checks, subclasses may carry state the inline formats would lose
+        Class<?> type = value.getClass();
+        if ( type == String.class ) {
+            output.writeByte(STRING);
+            writeString(output, (String) value);
+        } else if ( type == Integer.class ) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) value);
+        } else if ( type == Long.class ) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if ( type == Boolean.class ) {
+            output.writeByte((Boolean) value ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        } else if ( type == Double.class ) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if ( type == Float.class ) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if ( type == Date.class ) {
+            output.writeByte(DATE);
+            output.writeLong(((Date) value).getTime());
+        } else if ( type == Timestamp.class ) {
+            output.writeByte(TIMESTAMP);
+            output.writeLong(((Timestamp) value).getTime());
+            output.writeInt(((Timestamp) value).getNanos());
+        } else if ( type == ArrayList.class ) {
+            List<?> list = (List<?>) value;
+            output.writeByte(ARRAY_LIST);
+            output.writeInt(list.size());
+            for ( Object item : list ) {
+                writeValue(output, item);
+            }
+        } else if ( type == HashMap.class && hasStringKeys((Map<?, ?>) value) ) {
+            output.writeByte(HASH_MAP);
+            writeMap(output, (Map<?, ?>) value);
+        } else if ( type == Contentlet.class ) {
+            Contentlet contentlet = (Contentlet) value;
+            output.writeByte(CONTENTLET);
+            output.writeBoolean(contentlet.isLowIndexPriority());
+            writeMap(output, contentlet.getMap());
+        } else if ( SCHEMAS_BY_CLASS.containsKey(type) ) {
+            Schema schema = SCHEMAS_BY_CLASS.get(type);
+            output.writeByte(schema.tag);
+            output.writeInt(schema.id);
+            for ( Field field : schema.fields ) {
+                try {
+                    writeValue(output, field.get(value));
+                } catch ( IllegalAccessException e ) {
+                    throw new IOException("Unable to read field [" + field.getName() + "] of " + type.getName(), e);
+                }
+            }
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream javaOutput = new ObjectOutputStream(bytes);
+            javaOutput.writeObject(value);
+            javaOutput.flush();
+
+            output.writeByte(JAVA);
+            output.writeInt(bytes.size());
+            bytes.writeTo(output);
+        }
+    }
+
+    private Object readValue ( DataInputStream input ) throws IOException, ClassNotFoundException {
+
+        byte tag = input.readByte();
+        switch ( tag ) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(input);
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case BOOLEAN_TRUE:
+                return Boolean.TRUE;
+            case BOOLEAN_FALSE:
+                return Boolean.FALSE;
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case DATE:
+                return new Date(input.readLong());
+            case TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(input.readLong());
+                timestamp.setNanos(input.readInt());
+                return timestamp;
+            }
+            case ARRAY_LIST: {
+                int size = input.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for ( int i = 0; i < size; i++ ) {
+                    list.add(readValue(input));
+                }
+                return list;
+            }
+            case HASH_MAP: {
+                Map<String, Object> map = new HashMap<>();
+                readMap(input, map);
+                return map;
+            }
+            case CONTENTLET: {
+                Contentlet contentlet = new Contentlet();
+                contentlet.setLowIndexPriority(input.readBoolean());
+                //Drop the defaults set by the constructor, the map is restored as it was
+                contentlet.getMap().clear();
+                readMap(input, contentlet.getMap());
+                return contentlet;
+            }
+            case JAVA: {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+            }
+            default: {
+                Schema schema = SCHEMAS_BY_TAG.get(tag);
+                if ( schema == null ) {
+                    throw new StreamCorruptedException("Unknown cache serialization tag [" + tag + "]");
+                }
+                return readSchema(input, schema);
+            }
+        }
+    }
+
+    private Object readSchema ( DataInputStream input, Schema schema ) throws IOException, ClassNotFoundException {
+
+        if ( input.readInt() != schema.id ) {
+            throw new InvalidClassException(schema.type.getName(), "Cached entry was written with a different version of the class");
+        }
+
+        try {
+            Object value = schema.type.newInstance();
+            for ( Field field : schema.fields ) {
+                field.set(value, readValue(input));
+            }
+            return value;
+        } catch ( InstantiationException | IllegalAccessException | IllegalArgumentException e ) {
+            throw new InvalidClassException(schema.type.getName(), e.getMessage());
+        }
+    }
+
+    private void writeMap ( DataOutputStream output, Map<?, ?> map ) throws IOException {
+
+        //Copy first, content maps are concurrent and may change while we write
+        List<Map.Entry<?, ?>> entries = new ArrayList<Map.Entry<?, ?>>(map.entrySet());
+        output.writeInt(entries.size());
+        for ( Map.Entry<?, ?> entry : entries ) {
+            writeString(output, (String) entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    private void readMap ( DataInputStream input, Map<String, Object> map ) throws IOException, ClassNotFoundException {
+
+        int size = input.readInt();
+        for ( int i = 0; i < size; i++ ) {
+            //Null values are written with the NULL tag, a contentlet map drops them itself on put
+            map.put(readString(input), readValue(input));
+        }
+    }
+
+    private boolean hasStringKeys ( Map<?, ?> map ) {
+
+        for ( Object key : map.keySet() ) {
+            if ( !(key instanceof String) ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void writeString ( DataOutputStream output, String value ) throws IOException {
+
+        //writeUTF is limited to 64K, content bodies are usually bigger than that
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private String readString ( DataInputStream input ) throws IOException {
+
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The ordered list of persistent fields of a class and its super classes. Fields are accessed directly instead of
+     * through the setters as some of the setters of these beans have side effects (lookups, normalization).
+     */
+    private static class Schema {
+
+        final byte tag;
+        final Class<?> type;
+        final Field[] fields;
+        final int id;
+
+        Schema ( byte tag, Class<?> type ) {
+
+            this.tag = tag;
+            this.type = type;
+
+            List<Field> found = new ArrayList<>();
+            for ( Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass() ) {
+                for ( Field field : current.getDeclaredFields() ) {
+                    int modifiers = field.getModifiers();
+                    if ( Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) ) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    found.add(field);
+                }
+            }
+
+            Collections.sort(found, new Comparator<Field>() {
+                @Override
+                public int compare ( Field field1, Field field2 ) {
+                    int byName = field1.getName().compareTo(field2.getName());
+                    return byName != 0 ? byName : field1.getDeclaringClass().getName().compareTo(field2.getDeclaringClass().getName());
+                }
+            });
+            this.fields = found.toArray(new Field[found.size()]);
+
+            int schemaId = type.getName().hashCode();
+            for ( Field field : this.fields ) {
+                schemaId = 31 * schemaId + field.getName().hashCode();
+                schemaId = 31 * schemaId + field.getType().getName().hashCode();
+            }
+            this.id = schemaId;
+        }
+    }
+
+}
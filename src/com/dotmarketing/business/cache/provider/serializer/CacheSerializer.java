@@ -0,0 +1,35 @@
+package com.dotmarketing.business.cache.provider.serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts the objects stored by the disk and remote {@link com.dotmarketing.business.cache.provider.CacheProvider}s
+ * to bytes and back.
+ * <p/>
+ * The implementation to use is configured with the <strong>CACHE_SERIALIZER</strong> property and obtained through
+ * {@link CacheSerializers#getSerializer()}, implementations must be thread safe.
+ */
+public interface CacheSerializer {
+
+    /**
+     * Writes the given object to the given stream, the stream is not closed
+     *
+     * @param object
+     * @param out
+     * @throws IOException
+     */
+    void serialize ( Object object, OutputStream out ) throws IOException;
+
+    /**
+     * Reads an object previously written with {@link #serialize(Object, OutputStream)}
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    Object deserialize ( InputStream in ) throws IOException, ClassNotFoundException;
+
+}
@@ -0,0 +1,68 @@
+package com.dotmarketing.business.cache.provider.serializer;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Gives access to the {@link CacheSerializer} configured with the <strong>CACHE_SERIALIZER</strong> property,
+ * {@link JavaCacheSerializer} is used by default. Nodes of older versions only read Java serialization, so the
+ * {@link BinaryCacheSerializer} must only be configured once no node sharing a cache with this one runs them.
+ */
+public class CacheSerializers {
+
+    private static volatile CacheSerializer serializer;
+
+    private CacheSerializers () {
+    }
+
+    public static CacheSerializer getSerializer () {
+
+        if ( serializer == null ) {
+            synchronized ( CacheSerializers.class ) {
+                if ( serializer == null ) {
+                    serializer = loadSerializer();
+                }
+            }
+        }
+
+        return serializer;
+    }
+
+    /**
+     * Serializes the given object with the configured serializer
+     */
+    public static byte[] toBytes ( Object object ) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        getSerializer().serialize(object, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserializes the given bytes with the configured serializer
+     */
+    public static Object fromBytes ( byte[] data ) throws IOException, ClassNotFoundException {
+        return getSerializer().deserialize(new ByteArrayInputStream(data));
+    }
+
+    private static CacheSerializer loadSerializer () {
+
+        String className = Config.getStringProperty("CACHE_SERIALIZER", JavaCacheSerializer.class.getName());
+        if ( UtilMethods.isSet(className) ) {
+            try {
+                return (CacheSerializer) Class.forName(className).newInstance();
+            } catch ( Exception e ) {
+                Logger.error(CacheSerializers.class, "Unable to create cache serializer [" + className + "], using "
+                        + JavaCacheSerializer.class.getName(), e);
+            }
+        }
+
+        return new JavaCacheSerializer();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.dotmarketing.business.cache.provider.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * {@link CacheSerializer} using plain Java serialization, this is the format the cache providers always used.
+ * <p/>
+ * Data written by the {@link BinaryCacheSerializer} is still readable, so a cache shared with nodes that write it can
+ * be read while they are switched back to this serializer.
+ */
+public class JavaCacheSerializer implements CacheSerializer {
+
+    //First byte of a Java serialization stream (0xACED)
+    private static final byte JAVA_STREAM_MAGIC = (byte) 0xAC;
+
+    @Override
+    public void serialize ( Object object, OutputStream out ) throws IOException {
+
+        ObjectOutputStream output = new ObjectOutputStream(out);
+        output.writeObject(object);
+        output.flush();
+    }
+
+    @Override
+    public Object deserialize ( InputStream in ) throws IOException, ClassNotFoundException {
+
+        PushbackInputStream pushback = new PushbackInputStream(new BufferedInputStream(in, 8192), 1);
+        int first = pushback.read();
+        if ( first == -1 ) {
+            throw new EOFException();
+        }
+        pushback.unread(first);
+
+        if ( (byte) first != JAVA_STREAM_MAGIC ) {
+            //Written by the binary serializer
+            return new BinaryCacheSerializer().deserialize(pushback);
+        }
+        return new ObjectInputStream(pushback).readObject();
+    }
+
+}
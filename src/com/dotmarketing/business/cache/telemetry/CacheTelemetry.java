@@ -0,0 +1,324 @@
+package com.dotmarketing.business.cache.telemetry;
+
+import com.dotcms.repackage.com.google.common.cache.Cache;
+import com.dotcms.repackage.com.google.common.cache.CacheBuilder;
+import com.dotcms.repackage.com.google.common.cache.CacheStats;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per group cache telemetry collected by the {@link com.dotmarketing.business.ChainableCacheAdministratorImpl} when
+ * <strong>CACHE_TELEMETRY_ENABLED</strong> is set, exposed through JMX as <strong>org.dotcms:type=CacheTelemetry</strong>
+ * and through the <strong>/api/cache/telemetry</strong> endpoint.
+ * <p/>
+ * Hits, misses, puts, removes and flushes are always counted. To keep the overhead low the rest is sampled:
+ * <ul>
+ * <li>One in <strong>CACHE_TELEMETRY_SAMPLE_RATE</strong> reads is timed and counted in a count-min sketch that
+ * keeps the <strong>CACHE_TELEMETRY_TOP_KEYS</strong> most read keys of the group.</li>
+ * <li>One in <strong>CACHE_TELEMETRY_SAMPLE_RATE</strong> keys, chosen by hash so the same key is always followed,
+ * is tracked from a miss to the put that fills it (load latency) and from a put to a remove happening within
+ * <strong>CACHE_TELEMETRY_CHURN_WINDOW</strong> seconds (churn).</li>
+ * </ul>
+ * The hit rate of every tier of the chain is taken from the stats the cache providers already report.
+ */
+public class CacheTelemetry implements CacheTelemetryMBean {
+
+    public static final String OBJECT_NAME = "org.dotcms:type=CacheTelemetry";
+
+    private static final char DELIMIT = ';';
+
+    private final DotCacheAdministrator cacheAdministrator;
+    private final int sampleRate;
+    private final int topKeys;
+    private final int sketchWidth;
+
+    private final ConcurrentHashMap<String, GroupTelemetry> groups = new ConcurrentHashMap<>();
+    private final Cache<String, Long> putTimes;
+    private final Cache<String, Long> missTimes;
+
+    public CacheTelemetry ( DotCacheAdministrator cacheAdministrator ) {
+        this(cacheAdministrator,
+                Config.getIntProperty("CACHE_TELEMETRY_SAMPLE_RATE", 16),
+                Config.getIntProperty("CACHE_TELEMETRY_TOP_KEYS", 20),
+                Config.getIntProperty("CACHE_TELEMETRY_SKETCH_WIDTH", 512),
+                Config.getIntProperty("CACHE_TELEMETRY_CHURN_WINDOW", 30));
+    }
+
+    CacheTelemetry ( DotCacheAdministrator cacheAdministrator, int sampleRate, int topKeys, int sketchWidth, int churnWindowSeconds ) {
+
+        this.cacheAdministrator = cacheAdministrator;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.topKeys = Math.max(1, topKeys);
+        this.sketchWidth = sketchWidth;
+
+        this.putTimes = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(Math.max(1, churnWindowSeconds), TimeUnit.SECONDS)
+                .build();
+        //A miss not followed by a put in a minute is not a load we can time
+        this.missTimes = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Decides if the read about to happen is sampled, returns the current time in nanos to hand to
+     * {@link #recordGet(String, String, boolean, long)} or -1 if it is not sampled
+     */
+    public long startSample () {
+        return ThreadLocalRandom.current().nextInt(sampleRate) == 0 ? System.nanoTime() : -1;
+    }
+
+    public void recordGet ( String group, String key, boolean hit, long start ) {
+
+        GroupTelemetry telemetry = getGroup(group);
+        if ( hit ) {
+            telemetry.hits.incrementAndGet();
+        } else {
+            telemetry.misses.incrementAndGet();
+        }
+
+        if ( start >= 0 ) {
+            telemetry.getLatency.record(System.nanoTime() - start);
+            telemetry.sampleKey(key);
+        }
+
+        if ( !hit && isTrackedKey(group, key) ) {
+            missTimes.put(group + DELIMIT + key, System.nanoTime());
+        }
+    }
+
+    public void recordPut ( String group, String key ) {
+
+        GroupTelemetry telemetry = getGroup(group);
+        telemetry.puts.incrementAndGet();
+
+        if ( isTrackedKey(group, key) ) {
+            String compoundKey = group + DELIMIT + key;
+            long now = System.nanoTime();
+            telemetry.trackedPuts.incrementAndGet();
+            putTimes.put(compoundKey, now);
+
+            Long missedAt = missTimes.asMap().remove(compoundKey);
+            if ( missedAt != null ) {
+                telemetry.loadLatency.record(now - missedAt);
+            }
+        }
+    }
+
+    public void recordRemove ( String group, String key ) {
+
+        GroupTelemetry telemetry = getGroup(group);
+        telemetry.removes.incrementAndGet();
+
+        if ( isTrackedKey(group, key) && putTimes.asMap().remove(group + DELIMIT + key) != null ) {
+            //Still there, so it was put less than CACHE_TELEMETRY_CHURN_WINDOW seconds ago
+            telemetry.churned.incrementAndGet();
+        }
+    }
+
+    public void recordFlush ( String group ) {
+        getGroup(group).flushes.incrementAndGet();
+    }
+
+    public void recordFlushAll () {
+        for ( GroupTelemetry telemetry : groups.values() ) {
+            telemetry.flushes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Telemetry of every group that has been used since the last reset
+     */
+    public Map<String, Map<String, Object>> getReport () {
+
+        List<Map<String, Object>> providerStats = getProviderStats();
+
+        Map<String, Map<String, Object>> report = new LinkedHashMap<>();
+        for ( String group : new TreeSet<>(groups.keySet()) ) {
+            report.put(group, getGroupReport(group, providerStats));
+        }
+
+        return report;
+    }
+
+    /**
+     * Telemetry of the given group, null if the group has not been used since the last reset
+     */
+    public Map<String, Object> getGroupReport ( String group ) {
+
+        if ( group == null || !groups.containsKey(group.toLowerCase()) ) {
+            return null;
+        }
+
+        return getGroupReport(group.toLowerCase(), getProviderStats());
+    }
+
+    @Override
+    public String[] getGroupNames () {
+        return new TreeSet<>(groups.keySet()).toArray(new String[0]);
+    }
+
+    @Override
+    public double getHitRate ( String group ) {
+
+        GroupTelemetry telemetry = groups.get(group.toLowerCase());
+        if ( telemetry == null ) {
+            return 1.0;
+        }
+
+        long hits = telemetry.hits.get();
+        long misses = telemetry.misses.get();
+        return hits + misses == 0 ? 1.0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public double getChurnRate ( String group ) {
+
+        GroupTelemetry telemetry = groups.get(group.toLowerCase());
+        if ( telemetry == null || telemetry.trackedPuts.get() == 0 ) {
+            return 0.0;
+        }
+
+        return (double) telemetry.churned.get() / telemetry.trackedPuts.get();
+    }
+
+    @Override
+    public String[] getHotKeys ( String group ) {
+
+        GroupTelemetry telemetry = groups.get(group.toLowerCase());
+        if ( telemetry == null ) {
+            return new String[0];
+        }
+
+        List<Map.Entry<String, Long>> hotKeys = telemetry.getHotKeys();
+        String[] result = new String[hotKeys.size()];
+        for ( int i = 0; i < result.length; i++ ) {
+            result[i] = hotKeys.get(i).getKey() + "=" + hotKeys.get(i).getValue() * sampleRate;
+        }
+
+        return result;
+    }
+
+    @Override
+    public String getReport ( String group ) {
+
+        Map<String, Object> report = getGroupReport(group);
+        return report == null ? null : new JSONObject(report).toString();
+    }
+
+    @Override
+    public void reset () {
+        groups.clear();
+        putTimes.invalidateAll();
+        missTimes.invalidateAll();
+    }
+
+    /**
+     * Publishes the given telemetry in the platform MBean server, replacing any previous one
+     */
+    public static void register ( CacheTelemetry telemetry ) {
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if ( mbs.isRegistered(name) ) {
+                mbs.unregisterMBean(name);
+            }
+            mbs.registerMBean(telemetry, name);
+        } catch ( Exception e ) {
+            Logger.warn(CacheTelemetry.class, "Unable to register the cache telemetry MBean: " + e.getMessage(), e);
+        }
+    }
+
+    public static void unregister () {
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if ( mbs.isRegistered(name) ) {
+                mbs.unregisterMBean(name);
+            }
+        } catch ( Exception e ) {
+            Logger.debug(CacheTelemetry.class, "Unable to unregister the cache telemetry MBean: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Keys are tracked by hash instead of randomly so the miss, put and remove of a key are all seen. The group and
+     * key hashes are combined, the compound key is only built for the tracked keys.
+     */
+    boolean isTrackedKey ( String group, String key ) {
+
+        int h = (31 * group.hashCode() + (key != null ? key.hashCode() : 0)) * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % sampleRate == 0;
+    }
+
+    private Map<String, Object> getGroupReport ( String group, List<Map<String, Object>> providerStats ) {
+
+        GroupTelemetry telemetry = groups.get(group);
+        Map<String, Object> report = telemetry == null ? new LinkedHashMap<String, Object>() : telemetry.toMap(sampleRate);
+        report.put("sampleRate", sampleRate);
+
+        Map<String, Object> tiers = new LinkedHashMap<>();
+        for ( Map<String, Object> stats : providerStats ) {
+            if ( group.equals(stats.get("region")) && stats.get("CacheStats") instanceof CacheStats ) {
+                CacheStats cacheStats = (CacheStats) stats.get("CacheStats");
+
+                Map<String, Object> tier = new LinkedHashMap<>();
+                tier.put("hits", cacheStats.hitCount());
+                tier.put("misses", cacheStats.missCount());
+                tier.put("hitRate", cacheStats.hitRate());
+                tier.put("evictions", cacheStats.evictionCount());
+                tiers.put(String.valueOf(stats.get("name")), tier);
+            }
+        }
+        report.put("tiers", tiers);
+
+        return report;
+    }
+
+    private List<Map<String, Object>> getProviderStats () {
+
+        try {
+            List<Map<String, Object>> stats = cacheAdministrator != null ? cacheAdministrator.getCacheStatsList() : null;
+            if ( stats != null ) {
+                return stats;
+            }
+        } catch ( Exception e ) {
+            Logger.debug(this.getClass(), "Unable to read the cache providers stats: " + e.getMessage(), e);
+        }
+
+        return Collections.emptyList();
+    }
+
+    private GroupTelemetry getGroup ( String group ) {
+
+        GroupTelemetry telemetry = groups.get(group);
+        if ( telemetry == null ) {
+            GroupTelemetry newTelemetry = new GroupTelemetry(sketchWidth, topKeys);
+            telemetry = groups.putIfAbsent(group, newTelemetry);
+            if ( telemetry == null ) {
+                telemetry = newTelemetry;
+            }
+        }
+
+        return telemetry;
+    }
+
+}
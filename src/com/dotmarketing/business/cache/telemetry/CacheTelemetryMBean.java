@@ -0,0 +1,17 @@
+package com.dotmarketing.business.cache.telemetry;
+
+public interface CacheTelemetryMBean {
+
+	public abstract String[] getGroupNames();
+
+	public abstract double getHitRate(String group);
+
+	public abstract double getChurnRate(String group);
+
+	public abstract String[] getHotKeys(String group);
+
+	public abstract String getReport(String group);
+
+	public abstract void reset();
+
+}
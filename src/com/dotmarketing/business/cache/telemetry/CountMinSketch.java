@@ -0,0 +1,82 @@
+package com.dotmarketing.business.cache.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size frequency estimator. Each key is counted in one cell of every row and its frequency is the smallest of
+ * those cells, so an estimate can be higher than the real count (collisions) but never lower. Counters are halved once
+ * <code>width * 10</code> increments were seen so the estimates follow the recent traffic instead of the whole uptime.
+ */
+class CountMinSketch {
+
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C };
+
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray counters;
+    private final AtomicLong additions = new AtomicLong();
+    private final AtomicLong agings = new AtomicLong();
+    private final long resetThreshold;
+
+    CountMinSketch ( int depth, int width ) {
+        this.depth = Math.max(1, Math.min(depth, SEEDS.length));
+        this.width = Math.max(16, width);
+        this.counters = new AtomicLongArray(this.depth * this.width);
+        this.resetThreshold = this.width * 10L;
+    }
+
+    /**
+     * Counts an occurrence of the given key and returns its estimated frequency, including this occurrence
+     */
+    long add ( String key ) {
+
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for ( int row = 0; row < depth; row++ ) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, hash)));
+        }
+
+        if ( additions.incrementAndGet() % resetThreshold == 0 ) {
+            age();
+        }
+
+        return estimate;
+    }
+
+    long estimate ( String key ) {
+
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for ( int row = 0; row < depth; row++ ) {
+            estimate = Math.min(estimate, counters.get(index(row, hash)));
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Number of times the counters were halved
+     */
+    long getAgings () {
+        return agings.get();
+    }
+
+    /**
+     * Halves every counter, racing increments may be lost which is fine for an estimation
+     */
+    private void age () {
+        for ( int i = 0; i < counters.length(); i++ ) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+        agings.incrementAndGet();
+    }
+
+    private int index ( int row, int hash ) {
+
+        int h = (hash ^ SEEDS[row]) * 0x45D9F3B;
+        h ^= h >>> 16;
+        return row * width + ((h & 0x7FFFFFFF) % width);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.dotmarketing.business.cache.telemetry;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a single cache group, see {@link CacheTelemetry}
+ */
+class GroupTelemetry {
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong puts = new AtomicLong();
+    final AtomicLong removes = new AtomicLong();
+    final AtomicLong flushes = new AtomicLong();
+
+    //Only the keys selected by CacheTelemetry.isTrackedKey are followed from put to remove
+    final AtomicLong trackedPuts = new AtomicLong();
+    final AtomicLong churned = new AtomicLong();
+
+    final LatencyHistogram getLatency = new LatencyHistogram();
+    final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    private final CountMinSketch sketch;
+    private final int topKeys;
+    private final ConcurrentHashMap<String, Long> candidates = new ConcurrentHashMap<>();
+    private volatile long candidateThreshold = 0;
+    private volatile long seenAgings = 0;
+
+    GroupTelemetry ( int sketchWidth, int topKeys ) {
+        this.sketch = new CountMinSketch(4, sketchWidth);
+        this.topKeys = topKeys;
+    }
+
+    /**
+     * Counts a sampled read of the given key and keeps it as a hot key candidate when it is read often enough
+     */
+    void sampleKey ( String key ) {
+
+        long estimate = sketch.add(key);
+        if ( sketch.getAgings() != seenAgings ) {
+            //The sketch counters were halved, so must be the bar to become a candidate
+            seenAgings = sketch.getAgings();
+            candidateThreshold >>>= 1;
+        }
+
+        if ( estimate > candidateThreshold || candidates.size() < topKeys ) {
+            candidates.put(key, estimate);
+            if ( candidates.size() > topKeys * 2 ) {
+                pruneCandidates();
+            }
+        }
+    }
+
+    /**
+     * Most read keys with their estimated number of sampled reads, most read first
+     */
+    List<Map.Entry<String, Long>> getHotKeys () {
+
+        List<Map.Entry<String, Long>> hotKeys = new ArrayList<>();
+        for ( String key : candidates.keySet() ) {
+            hotKeys.add(new AbstractMap.SimpleImmutableEntry<>(key, sketch.estimate(key)));
+        }
+
+        Collections.sort(hotKeys, BY_COUNT_DESC);
+        return hotKeys.size() > topKeys ? new ArrayList<>(hotKeys.subList(0, topKeys)) : hotKeys;
+    }
+
+    Map<String, Object> toMap ( int sampleRate ) {
+
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long tracked = trackedPuts.get();
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", hitCount);
+        map.put("misses", missCount);
+        map.put("hitRate", hitCount + missCount == 0 ? 1.0 : (double) hitCount / (hitCount + missCount));
+        map.put("puts", puts.get());
+        map.put("removes", removes.get());
+        map.put("flushes", flushes.get());
+        map.put("churned", churned.get());
+        map.put("churnRate", tracked == 0 ? 0.0 : (double) churned.get() / tracked);
+        map.put("getLatency", getLatency.toMap());
+        map.put("loadLatency", loadLatency.toMap());
+
+        Map<String, Long> hotKeys = new LinkedHashMap<>();
+        for ( Map.Entry<String, Long> hotKey : getHotKeys() ) {
+            //Scaled back to the estimated number of reads
+            hotKeys.put(hotKey.getKey(), hotKey.getValue() * sampleRate);
+        }
+        map.put("hotKeys", hotKeys);
+
+        return map;
+    }
+
+    private synchronized void pruneCandidates () {
+
+        if ( candidates.size() <= topKeys * 2 ) {
+            return;
+        }
+
+        List<Map.Entry<String, Long>> hotKeys = getHotKeys();
+        candidates.clear();
+        for ( Map.Entry<String, Long> hotKey : hotKeys ) {
+            candidates.put(hotKey.getKey(), hotKey.getValue());
+        }
+        candidateThreshold = hotKeys.isEmpty() ? 0 : hotKeys.get(hotKeys.size() - 1).getValue();
+    }
+
+    private static final Comparator<Map.Entry<String, Long>> BY_COUNT_DESC = new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare ( Map.Entry<String, Long> a, Map.Entry<String, Long> b ) {
+            return Long.compare(b.getValue(), a.getValue());
+        }
+    };
+
+}
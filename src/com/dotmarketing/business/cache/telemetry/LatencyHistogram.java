@@ -0,0 +1,81 @@
+package com.dotmarketing.business.cache.telemetry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed buckets, from 10 microseconds to 1 second. Percentiles are reported as the upper bound
+ * of the bucket they fall in.
+ */
+class LatencyHistogram {
+
+    private static final long[] BOUNDS_MICROS = { 10, 50, 100, 500, 1000, 5000, 10000, 50000, 100000, 500000, 1000000 };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    void record ( long nanos ) {
+
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = 0;
+        while ( bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket] ) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+    }
+
+    long getCount () {
+        return count.get();
+    }
+
+    /**
+     * Upper bound in microseconds of the bucket holding the given percentile, -1 if nothing was recorded or the
+     * percentile falls in the last, unbounded, bucket
+     */
+    long getPercentile ( double percentile ) {
+
+        long total = count.get();
+        if ( total == 0 ) {
+            return -1;
+        }
+
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for ( int i = 0; i < BOUNDS_MICROS.length; i++ ) {
+            seen += buckets.get(i);
+            if ( seen >= target ) {
+                return BOUNDS_MICROS[i];
+            }
+        }
+
+        return -1;
+    }
+
+    Map<String, Object> toMap () {
+
+        long total = count.get();
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total);
+        map.put("meanMicros", total == 0 ? 0 : totalMicros.get() / total);
+        map.put("p50Micros", getPercentile(50));
+        map.put("p90Micros", getPercentile(90));
+        map.put("p99Micros", getPercentile(99));
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for ( int i = 0; i < BOUNDS_MICROS.length; i++ ) {
+            histogram.put("<=" + BOUNDS_MICROS[i], buckets.get(i));
+        }
+        histogram.put(">" + BOUNDS_MICROS[BOUNDS_MICROS.length - 1], buckets.get(BOUNDS_MICROS.length));
+        map.put("buckets", histogram);
+
+        return map;
+    }
+
+}
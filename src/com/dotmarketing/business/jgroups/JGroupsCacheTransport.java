@@ -16,6 +16,7 @@ import com.dotmarketing.util.UtilMethods;
 import com.dotmarketing.velocity.DotResourceCache;
 import com.liferay.portal.struts.MultiMessageResources;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -208,6 +209,8 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
             messages.reload();
         } else if ( v.toString().equals(ChainableCacheAdministratorImpl.DUMMY_TEXT_TO_SEND) ) {
             //Don't do anything is we are only checking sending.
+        } else if ( v.toString().startsWith(ChainableCacheAdministratorImpl.INVALIDATE_BATCH) ) {
+            invalidateBatchFromCluster(v.toString().substring(ChainableCacheAdministratorImpl.INVALIDATE_BATCH.length()));
         } else {
             invalidateCacheFromCluster(v.toString());
         }
@@ -259,6 +262,13 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
 
     }
 
+    /**
+     * Applies a batch of <code>key:group</code> invalidations, see {@link LocalCacheInvalidator#invalidate(Iterable)}
+     */
+    private void invalidateBatchFromCluster ( String batch ) {
+        LocalCacheInvalidator.invalidate(Arrays.asList(batch.split(ChainableCacheAdministratorImpl.INVALIDATE_BATCH_SEPARATOR)));
+    }
+
     public Map<String, Boolean> validateCacheInCluster ( String dateInMillis, int numberServers, int maxWaitSeconds ) throws CacheTransportException {
 
         cacheStatus = new HashMap<>();
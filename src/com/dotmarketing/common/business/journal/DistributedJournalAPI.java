@@ -16,21 +16,34 @@ import com.dotmarketing.portlets.folders.model.Folder;
 public interface DistributedJournalAPI<T> {
 	
 	/**
-	 * Will return only the entries for the specific server the code is executed on
-	 * This method will also delete all entries from the table that are returned in the select 
-	 * @return
+	 * Will return the cache entries added by other servers since the last call, following the cursor of the
+	 * server the code is executed on in the cache journal
+	 * @return entries in the key:group format
 	 * @throws DotDataException
 	 */
 	public List<String> findCacheEntriesToRemove() throws DotDataException;
+
+	/**
+	 * Deletes the cache journal entries every server has already read
+	 * @throws DotDataException
+	 */
+	public void pruneCacheEntries() throws DotDataException;
 	
 	/**
-	 * Will add cache entries for all servers other then himself in the process table
+	 * Will add a cache entry to the cache journal for all servers other then himself
 	 * @param key
 	 * @param group
 	 * @throws DotDataException
 	 */
 	public void addCacheEntry(String key, String group) throws DotDataException;
 
+	/**
+	 * Will add the given cache entries to the cache journal for all servers other then himself using a single batch
+	 * @param entries entries in the key:group format
+	 * @throws DotDataException
+	 */
+	public void addCacheEntries(List<String> entries) throws DotDataException;
+
 	/**
 	 * Will return only the reindex entries for the specific server the code is executed on
 	 * This method will also delete all entries from the table that are returned in the select
@@ -75,6 +88,13 @@ public interface DistributedJournalAPI<T> {
 	 * @throws DotDataException
 	 */
 	public void addBuildNewIndexEntries() throws DotDataException;
+
+	/**
+	 * Adds reindex entries for the given content identifiers
+	 * @param identifiers
+	 * @throws DotDataException
+	 */
+	public void addIdentifierReindexEntries(List<String> identifiers) throws DotDataException;
 	
 	/**
 	 * Deletes the specific build new index entry for the local server.  
@@ -35,13 +35,27 @@ public class DistributedJournalAPIImpl<T> implements DistributedJournalAPI<T> {
 		distFac.addCacheEntry(key, group);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.dotmarketing.business.DistributedJournalAPI#addCacheEntries(java.util.List)
+	 */
+	public void addCacheEntries(List<String> entries) throws DotDataException {
+		distFac.addCacheEntries(entries);
+	}
+
 	/* (non-Javadoc)
 	 * @see com.dotmarketing.business.DistributedJournalAPI#findCacheEntriesToRemove()
 	 */
 	public List<String> findCacheEntriesToRemove() throws DotDataException {
 		return distFac.findCacheEntriesToRemove();
 	}
-	
+
+	/* (non-Javadoc)
+	 * @see com.dotmarketing.business.DistributedJournalAPI#pruneCacheEntries()
+	 */
+	public void pruneCacheEntries() throws DotDataException {
+		distFac.pruneCacheEntries();
+	}
+
 	public void addStructureReindexEntries(T structureInode) throws DotDataException {
 		distFac.addStructureReindexEntries(structureInode);
 	}
@@ -50,6 +64,10 @@ public class DistributedJournalAPIImpl<T> implements DistributedJournalAPI<T> {
 		distFac.addBuildNewIndexEntries();
 	}
 	
+	public void addIdentifierReindexEntries(List<String> identifiers) throws DotDataException {
+		distFac.addIdentifierReindexEntries(identifiers);
+	}
+	
 	public List<IndexJournal<T>> findContentReindexEntriesToReindex() throws DotDataException {
 		return distFac.findContentReindexEntriesToReindex();
 	}
@@ -36,11 +36,17 @@ public abstract class DistributedJournalFactory<T> {
 	}
 		
 	/**
-	 * Will return only the entries for the specific server the code is executed on
+	 * Will return the cache entries added by other servers since the last call
 	 * @return
 	 * @throws DotDataException
 	 */
 	protected abstract List<String> findCacheEntriesToRemove() throws DotDataException;
+
+	/**
+	 * Deletes the cache journal entries every server has already read
+	 * @throws DotDataException
+	 */
+	protected abstract void pruneCacheEntries() throws DotDataException;
 	
 	/**
 	 * Will add cache entries for all servers other then himself
@@ -49,6 +55,13 @@ public abstract class DistributedJournalFactory<T> {
 	 */
 	protected abstract void addCacheEntry(String key, String group) throws DotDataException;
 
+	/**
+	 * Will add the given key:group cache entries for all servers other then himself in a single batch
+	 * @param entries
+	 * @throws DotDataException
+	 */
+	protected abstract void addCacheEntries(List<String> entries) throws DotDataException;
+
 	/**
 	 * Will return only the reindex entries for the specific server the code is executed on
 	 * @return
@@ -106,6 +119,13 @@ public abstract class DistributedJournalFactory<T> {
 	 * @throws DotDataException
 	 */
 	protected abstract void addBuildNewIndexEntries() throws DotDataException;
+
+	/**
+	 * Adds reindex entries for the given content identifiers
+	 * @param identifiers
+	 * @throws DotDataException
+	 */
+	protected abstract void addIdentifierReindexEntries(List<String> identifiers) throws DotDataException;
 	
 	/**
 	 * This method will add all content identifier for a structure to the index
@@ -0,0 +1,446 @@
+package com.dotmarketing.common.reindex;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
+import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
+import com.dotcms.content.elasticsearch.util.ESClient;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.util.SQLUtil;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Builds the new index of a full reindex reading the contents straight from the {@code contentlet_version_info}
+ * table, in chunks of {@code reindex.stream.chunksize} identifiers ordered by identifier, instead of pushing every
+ * identifier into the {@code dist_reindex_journal} table first. The journal only gets the changes made while the
+ * new index is being built and the identifiers that could not be indexed here.
+ * <p>
+ * After each chunk the last identifier indexed is saved in the {@code reindex_checkpoint} table, so a restart or a
+ * crash resumes the reindex where it stopped. Only one server of the cluster streams at a time: the one owning the
+ * checkpoint, which another server takes over when it is not updated for {@code reindex.stream.lease.seconds}.
+ * The {@link ReindexThread} resumes the stream and does not switch to the new index until it is done.
+ * </p>
+ */
+public class FullReindexStreamer implements Runnable {
+
+	static final String STATUS_RUNNING = "RUNNING";
+	static final String STATUS_DONE = "DONE";
+
+	//Changes that happened this close to the read of a chunk are reindexed again through the journal
+	private static final long CLOCK_MARGIN_MILLIS = 60 * 1000;
+	private static final long PROGRESS_LOG_MILLIS = 60 * 1000;
+
+	private static FullReindexStreamer running;
+
+	private final String indexName;
+	private final String serverId;
+	private final int chunkSize;
+	private final long leaseMillis;
+
+	private volatile boolean stop = false;
+	private volatile long streamed;
+	private volatile long total;
+	private volatile long startedAt;
+
+	private FullReindexStreamer ( String indexName ) {
+		this(indexName, ConfigUtils.getServerId(), Config.getIntProperty("reindex.stream.chunksize", 500),
+				Config.getIntProperty("reindex.stream.lease.seconds", 300) * 1000L);
+	}
+
+	FullReindexStreamer ( String indexName, String serverId, int chunkSize, long leaseMillis ) {
+		this.indexName = indexName;
+		this.serverId = serverId;
+		this.chunkSize = chunkSize;
+		this.leaseMillis = leaseMillis;
+	}
+
+	/**
+	 * Whether full reindexes stream the contents instead of adding them all to the reindex journal
+	 */
+	public static boolean isEnabled () {
+		return Config.getBooleanProperty("reindex.stream.enabled", true);
+	}
+
+	/**
+	 * Creates the checkpoint of a full reindex into the given new working index, replacing the ones of previous
+	 * reindexes. Meant to be called in the transaction that sets up the new index, the stream is started by the
+	 * {@link ReindexThread}.
+	 */
+	public static void prepare ( String indexName ) throws DotDataException {
+
+		DotConnect dc = new DotConnect();
+		dc.setSQL("delete from reindex_checkpoint");
+		dc.loadResult();
+
+		dc.setSQL("insert into reindex_checkpoint(index_name, last_identifier, processed, status, server_id, mod_date) values (?,?,?,?,?,?)");
+		dc.addParam(indexName);
+		dc.addParam("");
+		dc.addParam(0L);
+		dc.addParam(STATUS_RUNNING);
+		dc.addObject(null);
+		dc.addParam(new Timestamp(System.currentTimeMillis()));
+		dc.loadResult();
+	}
+
+	/**
+	 * Whether the new index of the current full reindex has been completely streamed. Full reindexes started without
+	 * a checkpoint fed the journal with every content, so there is nothing to stream for them.
+	 */
+	public static boolean isFinished ( Connection conn ) throws DotDataException {
+
+		Map<String, Object> checkpoint = loadCheckpoint(conn);
+		return checkpoint == null || STATUS_DONE.equals(checkpoint.get("status"));
+	}
+
+	/**
+	 * Number of contents already streamed into the new index of the current full reindex, -1 when it is not being
+	 * streamed or it is done
+	 */
+	public static long getStreamedCount () throws DotDataException {
+
+		Map<String, Object> checkpoint = loadCheckpoint(DbConnectionFactory.getConnection());
+		return checkpoint == null || STATUS_DONE.equals(checkpoint.get("status"))
+				? -1 : Long.parseLong(checkpoint.get("processed").toString());
+	}
+
+	/**
+	 * Starts streaming the current full reindex in this server, unless it is already streaming here. If another
+	 * server owns the checkpoint the stream ends right away.
+	 */
+	public static synchronized void resume () {
+
+		if ( running != null ) {
+			return;
+		}
+
+		try {
+			IndiciesInfo info = APILocator.getIndiciesAPI().loadIndicies();
+			if ( info.reindex_working == null ) {
+				return;
+			}
+
+			running = new FullReindexStreamer(info.reindex_working);
+			Thread thread = new Thread(running, "FullReindexStreamer");
+			thread.setDaemon(true);
+			thread.start();
+		} catch ( DotDataException e ) {
+			Logger.error(FullReindexStreamer.class, "Unable to start streaming the full reindex: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Stops the stream running in this server, if any. The checkpoint is kept so it can be resumed.
+	 */
+	public static synchronized void stop () {
+		if ( running != null ) {
+			running.stopStreaming();
+		}
+	}
+
+	/**
+	 * Stops this stream once the chunk being indexed is saved in the checkpoint
+	 */
+	void stopStreaming () {
+		stop = true;
+	}
+
+	private static synchronized void finished ( FullReindexStreamer streamer ) {
+		if ( running == streamer ) {
+			running = null;
+		}
+	}
+
+	/**
+	 * Progress of the stream running in this server: contents indexed per second since it started and estimated
+	 * seconds left, null when this server is not streaming
+	 */
+	public static synchronized Map<String, Object> getProgress () {
+
+		if ( running == null || running.startedAt == 0 ) {
+			return null;
+		}
+
+		double seconds = Math.max(1, System.currentTimeMillis() - running.startedAt) / 1000d;
+		double rate = running.streamed / seconds;
+		long left = Math.max(0, running.total - running.streamed);
+
+		Map<String, Object> progress = new HashMap<String, Object>();
+		progress.put("streamRate", Math.round(rate));
+		progress.put("streamEtaSeconds", rate > 0 ? Math.round(left / rate) : -1);
+		return progress;
+	}
+
+	@Override
+	public void run () {
+
+		try {
+			if ( !claim() ) {
+				Logger.debug(this, "The full reindex into " + indexName + " is being streamed by another server");
+				return;
+			}
+
+			Map<String, Object> checkpoint = loadCheckpoint(DbConnectionFactory.getConnection());
+			String lastIdentifier = checkpoint.get("last_identifier") != null ? checkpoint.get("last_identifier").toString() : "";
+			long processed = Long.parseLong(checkpoint.get("processed").toString());
+
+			total = countContentToIndex() - processed;
+			stream(lastIdentifier, processed);
+		} catch ( Exception e ) {
+			Logger.error(this, "Error streaming the full reindex into " + indexName + ", it will be resumed from its last checkpoint", e);
+		} finally {
+			closeSession();
+			finished(this);
+		}
+	}
+
+	/**
+	 * Indexes the chunks of identifiers after the given one, saving the checkpoint after each of them, until they are
+	 * all indexed, the stream is stopped or the full reindex is over
+	 */
+	void stream ( String lastIdentifier, long processed ) throws Exception {
+
+		startedAt = System.currentTimeMillis();
+		long lastLog = startedAt;
+		Logger.info(this, "Streaming full reindex into " + indexName + (UtilMethods.isSet(lastIdentifier)
+				? ", resuming after identifier " + lastIdentifier + " with " + processed + " contents already indexed" : ""));
+
+		while ( !stop ) {
+
+			if ( !isCurrentReindex() ) {
+				Logger.info(this, "The full reindex into " + indexName + " is over, stopping its stream");
+				return;
+			}
+
+			List<String> identifiers = nextIdentifiers(lastIdentifier);
+			if ( identifiers.isEmpty() ) {
+				markDone();
+				Logger.info(this, "Finished streaming full reindex into " + indexName + ", " + streamed + " contents in "
+						+ (System.currentTimeMillis() - startedAt) / 1000 + " seconds");
+				return;
+			}
+
+			int indexed = indexChunk(identifiers);
+			lastIdentifier = identifiers.get(identifiers.size() - 1);
+			processed += indexed;
+			streamed += indexed;
+
+			if ( !saveCheckpoint(lastIdentifier, processed) ) {
+				Logger.warn(this, "Lost the checkpoint of the full reindex into " + indexName + ", stopping its stream");
+				return;
+			}
+
+			if ( System.currentTimeMillis() - lastLog > PROGRESS_LOG_MILLIS ) {
+				lastLog = System.currentTimeMillis();
+				Map<String, Object> progress = getProgress();
+				Logger.info(this, "Full reindex into " + indexName + ": " + processed + " contents indexed"
+						+ (progress != null ? ", " + progress.get("streamRate") + " per second, about "
+						+ progress.get("streamEtaSeconds") + " seconds left" : ""));
+			}
+		}
+	}
+
+	boolean isCurrentReindex () throws DotDataException {
+		return indexName.equals(APILocator.getIndiciesAPI().loadIndicies().reindex_working);
+	}
+
+	/**
+	 * Indexes the working and live versions of the given identifiers into the new index
+	 *
+	 * @return the number of contents (identifier and language) of the chunk
+	 */
+	int indexChunk ( List<String> identifiers ) throws Exception {
+
+		Timestamp readStart = new Timestamp(System.currentTimeMillis() - CLOCK_MARGIN_MILLIS);
+		Set<String> toJournal = new LinkedHashSet<String>();
+		int contents = 0;
+
+		try {
+			DotConnect dc = new DotConnect();
+			dc.setSQL("select identifier, working_inode, live_inode from contentlet_version_info where identifier in ("
+					+ SQLUtil.placeholders(identifiers.size()) + ")");
+			for ( String identifier : identifiers ) {
+				dc.addParam(identifier);
+			}
+
+			List<String> inodes = new ArrayList<String>();
+			for ( Map<String, Object> row : dc.loadObjectResults() ) {
+				String workingInode = row.get("working_inode").toString();
+				Object liveInode = row.get("live_inode");
+				inodes.add(workingInode);
+				if ( liveInode != null && UtilMethods.isSet(liveInode.toString()) && !workingInode.equals(liveInode.toString()) ) {
+					inodes.add(liveInode.toString());
+				}
+				contents++;
+			}
+
+			List<Contentlet> contentlets = APILocator.getContentletAPI().findContentlets(inodes);
+			ContentletIndexAPI indexAPI = APILocator.getContentletIndexAPI();
+			BulkRequestBuilder bulk = new ESClient().getClient().prepareBulk();
+			try {
+				indexAPI.addContentToIndex(contentlets, true, bulk);
+			} catch ( DotDataException e ) {
+				Logger.warn(this, "Unable to index a chunk of the full reindex, indexing it one by one: " + e.getMessage());
+				bulk = new ESClient().getClient().prepareBulk();
+				for ( Contentlet con : contentlets ) {
+					try {
+						indexAPI.addContentToIndex(con, false, true, true, bulk);
+					} catch ( Exception recordException ) {
+						Logger.debug(this, "Unable to index " + con.getIdentifier() + ": " + recordException.getMessage(), recordException);
+						toJournal.add(con.getIdentifier());
+					}
+				}
+			}
+
+			if ( bulk.numberOfActions() > 0 ) {
+				BulkResponse response = bulk.execute().actionGet();
+				if ( response.hasFailures() ) {
+					for ( BulkItemResponse item : response.getItems() ) {
+						if ( item.isFailed() ) {
+							Logger.warn(this, "Unable to index " + item.getId() + ": " + item.getFailureMessage());
+							toJournal.add(item.getId().substring(0, item.getId().lastIndexOf('_')));
+						}
+					}
+				}
+			}
+
+			//What was changed while the chunk was being indexed could have been overwritten with older data
+			dc.setSQL("select identifier from contentlet_version_info where version_ts >= ? and identifier in ("
+					+ SQLUtil.placeholders(identifiers.size()) + ")");
+			dc.addParam(readStart);
+			for ( String identifier : identifiers ) {
+				dc.addParam(identifier);
+			}
+			for ( Map<String, Object> row : dc.loadObjectResults() ) {
+				toJournal.add(row.get("identifier").toString());
+			}
+
+			if ( !toJournal.isEmpty() ) {
+				APILocator.getDistributedJournalAPI().addIdentifierReindexEntries(new ArrayList<String>(toJournal));
+			}
+		} finally {
+			closeSession();
+		}
+
+		return contents;
+	}
+
+	List<String> nextIdentifiers ( String lastIdentifier ) throws DotDataException {
+
+		DotConnect dc = new DotConnect();
+		if ( UtilMethods.isSet(lastIdentifier) ) {
+			dc.setSQL("select distinct identifier from contentlet_version_info where identifier > ? order by identifier", chunkSize);
+			dc.addParam(lastIdentifier);
+		} else {
+			dc.setSQL("select distinct identifier from contentlet_version_info order by identifier", chunkSize);
+		}
+
+		List<String> identifiers = new ArrayList<String>();
+		for ( Map<String, Object> row : dc.loadObjectResults() ) {
+			identifiers.add(row.get("identifier").toString());
+		}
+		return identifiers;
+	}
+
+	private long countContentToIndex () throws DotDataException {
+
+		DotConnect dc = new DotConnect();
+		dc.setSQL("select count(*) as cc from contentlet_version_info");
+		return Long.parseLong(dc.loadObjectResults().get(0).get("cc").toString());
+	}
+
+	/**
+	 * Takes the checkpoint for this server when nobody owns it, this server already did or its owner stopped
+	 * updating it
+	 */
+	private boolean claim () throws Exception {
+		return update("update reindex_checkpoint set server_id=?, mod_date=? where index_name=? and status=? "
+						+ "and (server_id is null or server_id=? or mod_date<?)",
+				serverId, now(), indexName, STATUS_RUNNING, serverId, new Timestamp(System.currentTimeMillis() - leaseMillis));
+	}
+
+	boolean saveCheckpoint ( String lastIdentifier, long processed ) throws Exception {
+		return update("update reindex_checkpoint set last_identifier=?, processed=?, mod_date=? where index_name=? and server_id=?",
+				lastIdentifier, processed, now(), indexName, serverId);
+	}
+
+	void markDone () throws Exception {
+		update("update reindex_checkpoint set status=?, mod_date=? where index_name=? and server_id=?",
+				STATUS_DONE, now(), indexName, serverId);
+	}
+
+	/**
+	 * Runs the given update in its own connection
+	 *
+	 * @return whether a row was updated
+	 */
+	private boolean update ( String sql, Object... params ) throws Exception {
+
+		Connection conn = DbConnectionFactory.getDataSource().getConnection();
+		try {
+			conn.setAutoCommit(true);
+			PreparedStatement statement = conn.prepareStatement(sql);
+			try {
+				for ( int i = 0; i < params.length; i++ ) {
+					statement.setObject(i + 1, params[i]);
+				}
+				return statement.executeUpdate() > 0;
+			} finally {
+				statement.close();
+			}
+		} finally {
+			conn.close();
+		}
+	}
+
+	private static Map<String, Object> loadCheckpoint ( Connection conn ) throws DotDataException {
+
+		IndiciesInfo info = APILocator.getIndiciesAPI().loadIndicies(conn);
+		if ( info.reindex_working == null ) {
+			return null;
+		}
+
+		DotConnect dc = new DotConnect();
+		dc.setSQL("select last_identifier, processed, status, server_id from reindex_checkpoint where index_name=?");
+		dc.addParam(info.reindex_working);
+		List<Map<String, Object>> results = dc.loadObjectResults(conn);
+		return results.isEmpty() ? null : results.get(0);
+	}
+
+	private static Timestamp now () {
+		return new Timestamp(System.currentTimeMillis());
+	}
+
+	private void closeSession () {
+		try {
+			HibernateUtil.closeSession();
+		} catch ( Exception e ) {
+			Logger.debug(this, e.getMessage(), e);
+		}
+		try {
+			DbConnectionFactory.closeConnection();
+		} catch ( Exception e ) {
+			Logger.debug(this, "Unable to close connection : " + e.getMessage(), e);
+		}
+	}
+
+}
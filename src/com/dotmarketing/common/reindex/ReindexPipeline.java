@@ -0,0 +1,180 @@
+package com.dotmarketing.common.reindex;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dotmarketing.common.business.journal.IndexJournal;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Stages of the {@link ReindexThread} that come after fetching records from the {@code dist_reindex_journal} table.
+ * Every fetched batch is built into a bulk request by one of the builder threads, so several batches are built at the
+ * same time, and the bulk requests are sent with a limit on how many can be waiting for an answer from Elastic.
+ * <p>
+ * Both stages are bounded: the fetcher waits while {@code builders * 2} batches are queued and a builder waits
+ * before sending while {@code maxInFlightBulks} bulk requests have not been answered, so a slow cluster slows down the
+ * whole pipeline instead of piling up documents in memory.
+ * </p>
+ * <p>
+ * A batch with a record for an identifier of a batch not answered yet is only queued once that batch was answered,
+ * so the documents of an identifier are indexed in the order its records were fetched. A batch that fails before it
+ * is sent is requeued, its records are fetched again later.
+ * </p>
+ */
+class ReindexPipeline {
+
+	/**
+	 * Builds the documents of a batch into a bulk request and sends it, calling {@code answered} once the request was
+	 * answered or when there was nothing to send
+	 */
+	interface BatchIndexer {
+		void buildAndSend ( List<IndexJournal<String>> records, Runnable answered ) throws Exception;
+
+		/**
+		 * Makes the records of a batch that failed available again for the reindex process
+		 */
+		void requeue ( List<IndexJournal<String>> records );
+	}
+
+	private final BatchIndexer indexer;
+	private final ExecutorService builders;
+	private final Semaphore queuedBatches;
+	private final Semaphore inFlightBulks;
+	// identifiers of the batches queued and not answered yet
+	private final Set<String> pendingIdentifiers = new HashSet<>();
+
+	ReindexPipeline ( BatchIndexer indexer, int builderThreads, int maxInFlightBulks ) {
+
+		final int threads = Math.max(1, builderThreads);
+		this.indexer = indexer;
+		this.queuedBatches = new Semaphore(threads * 2);
+		this.inFlightBulks = new Semaphore(Math.max(1, maxInFlightBulks));
+		this.builders = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread ( Runnable runnable ) {
+				Thread thread = new Thread(runnable, "ReindexBuilder-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		Logger.info(this, "Reindex pipeline started with " + threads + " builders and " + Math.max(1, maxInFlightBulks) + " in flight bulk requests");
+	}
+
+	/**
+	 * Queues a batch of records to be built and sent, waits while the builders are too far behind and while a batch
+	 * with any of its identifiers was not answered
+	 */
+	void submit ( final List<IndexJournal<String>> records ) throws InterruptedException {
+
+		final Set<String> identifiers = new HashSet<>();
+		for ( IndexJournal<String> record : records ) {
+			identifiers.add(record.getIdentToIndex());
+		}
+		claim(identifiers);
+
+		final Runnable answered = new Runnable() {
+
+			private boolean done = false;
+
+			@Override
+			public synchronized void run () {
+				if ( !done ) {
+					done = true;
+					release(identifiers);
+				}
+			}
+		};
+
+		try {
+			queuedBatches.acquire();
+		} catch ( InterruptedException e ) {
+			answered.run();
+			throw e;
+		}
+		try {
+			builders.execute(new Runnable() {
+				@Override
+				public void run () {
+					try {
+						indexer.buildAndSend(records, answered);
+					} catch ( Exception e ) {
+						if ( e instanceof InterruptedException ) {
+							Thread.currentThread().interrupt();
+						}
+						Logger.error(ReindexPipeline.class, "Unable to index a batch of " + records.size() + " records, requeuing them", e);
+						indexer.requeue(records);
+						answered.run();
+					} finally {
+						queuedBatches.release();
+					}
+				}
+			});
+		} catch ( RejectedExecutionException e ) {
+			queuedBatches.release();
+			answered.run();
+			throw e;
+		}
+	}
+
+	private void claim ( Set<String> identifiers ) throws InterruptedException {
+
+		synchronized ( pendingIdentifiers ) {
+			while ( !Collections.disjoint(pendingIdentifiers, identifiers) ) {
+				pendingIdentifiers.wait();
+			}
+			pendingIdentifiers.addAll(identifiers);
+		}
+	}
+
+	private void release ( Set<String> identifiers ) {
+
+		synchronized ( pendingIdentifiers ) {
+			pendingIdentifiers.removeAll(identifiers);
+			pendingIdentifiers.notifyAll();
+		}
+	}
+
+	/**
+	 * Must be called before sending a bulk request, waits while too many are waiting for an answer
+	 */
+	void acquireBulkSlot () throws InterruptedException {
+		inFlightBulks.acquire();
+	}
+
+	/**
+	 * Must be called once a bulk request was answered, successfully or not
+	 */
+	void releaseBulkSlot () {
+		inFlightBulks.release();
+	}
+
+	/**
+	 * Lets the builders finish the batches already queued and stops them
+	 */
+	void shutdown () {
+
+		builders.shutdown();
+		try {
+			if ( !builders.awaitTermination(30, TimeUnit.SECONDS) ) {
+				builders.shutdownNow();
+			}
+		} catch ( InterruptedException e ) {
+			builders.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -10,6 +10,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
 import com.dotcms.content.elasticsearch.util.ESClient;
@@ -75,6 +76,13 @@ import com.liferay.portal.model.User;
  * in the system anymore.</li>
  * </ul>
  * </p>
+ * <p>
+ * The work is pipelined: this thread only fetches records from the journal and
+ * hands each fetched batch to a {@link ReindexPipeline}, where a pool of
+ * {@code reindex.thread.builders} threads builds the documents of several
+ * batches at the same time and sends them with no more than
+ * {@code reindex.thread.maxinflightbulks} bulk requests waiting for an answer.
+ * </p>
  * 
  * @author root
  * @version 3.3
@@ -91,6 +99,8 @@ public class ReindexThread extends Thread {
 
 	private static ReindexThread instance;
 
+	private ReindexPipeline pipeline;
+
 	private boolean start = false;
 	private boolean work = false;
 	private int sleep = 100;
@@ -145,7 +155,7 @@ public class ReindexThread extends Thread {
 						conn = DbConnectionFactory.getDataSource().getConnection();
 						conn.setAutoCommit(false);
 						long foundRecords = jAPI.recordsLeftToIndexForServer(conn);
-						if ( foundRecords == 0 ) {
+						if ( foundRecords == 0 && FullReindexStreamer.isFinished(conn) ) {
 							stopFullReindexation();
 							stopThread();
 						}
@@ -212,7 +222,11 @@ public class ReindexThread extends Thread {
 					if(remoteQ.size()==0)
 					    fillRemoteQ();
 					
-					if(remoteQ.size()==0 && ESReindexationProcessStatus.inFullReindexation() && jAPI.recordsLeftToIndexForServer()==0) {
+					if(remoteQ.size()==0 && ESReindexationProcessStatus.inFullReindexation()
+							&& !FullReindexStreamer.isFinished(DbConnectionFactory.getConnection())) {
+						// The new index is still being streamed, here or in another server
+						FullReindexStreamer.resume();
+					} else if(remoteQ.size()==0 && ESReindexationProcessStatus.inFullReindexation() && jAPI.recordsLeftToIndexForServer()==0) {
 						// The re-indexation process has finished successfully
 						reindexSwitchover(false);
 						sendNotification("notification.reindexing.success", null, null);
@@ -249,215 +263,16 @@ public class ReindexThread extends Thread {
 					}
 					else if(!remoteQ.isEmpty()) {
 					    wait=false;
-					    Client client=new ESClient().getClient();
-						BulkRequestBuilder bulk=client.prepareBulk();
-						final ArrayList<IndexJournal<String>> recordsToDelete= new ArrayList<>();
-						while(!remoteQ.isEmpty()) {
-
-							IndexJournal<String> idx = remoteQ.removeFirst();
-
-							try {
-								writeDocumentToIndex(bulk, idx);
-							} catch ( Exception e ) {
-
-								Logger.error(this, "Unable to index record with id [" + idx.getIdentToIndex() + "]", e);
-
-								//Counts the failed attempts when indexing and handles error notifications
-								addIndexingFailedAttempt();
-
-								try {
-									/*
-									Reset to null the server id of the failed records in the reindex journal table
-									in order to make them available again for the reindex process.
-									 */
-									List<IndexJournal<String>> failedRecords = new ArrayList<>();
-									failedRecords.add(idx);
-									jAPI.resetServerForReindexEntry(failedRecords);
-								} catch ( DotDataException dataException ) {
-									Logger.error(this, "Error adding back failed records to reindex queue", dataException);
-								}
-								// The total number of re-tries minus 1 will
-								// indicate the last opportunity of a record to
-								// be re-indexed.
-								int totalAttempts = (DistributedJournalFactory.REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + DistributedJournalFactory.RETRY_FAILED_INDEX_TIMES);
-								String identToIndex = idx.getIdentToIndex();
-								if (!this.notifiedFailingRecords.contains(identToIndex) && idx.getPriority() >= totalAttempts) {
-									// The record was not able to be re-indexed,
-									// so a notification will be generated and
-									// the record will not be processed anymore
-									String msg = "Could not re-index record with the Identifier '"
-											+ identToIndex
-											+ "'. The record is in a bad state or can be associated to orphaned records. You can try running the Fix Assets Inconsistencies tool and re-start the reindex.";
-									sendNotification("notification.reindexing.error.processrecord", new Object[] { identToIndex }, msg);
-									this.notifiedFailingRecords.add(identToIndex);
-								}
-
-								try {
-									Thread.sleep(delayOnError);
-								} catch ( InterruptedException ie ) {
-									Logger.error(this, ie.getMessage(), ie);
-								}
-
-								/*
-								This continue will avoid to remove this failed record from the index journal table so
-								can be grab it again in another iteration.
-								 */
-								continue;
-							}
-
-							recordsToDelete.add(idx);
-
-							//If the REINDEX_SLEEP_DURING_INDEX was set
-							if ( reindexSleepDuringIndex ) {
-								try {
-									int sleepTime = getReindexSleepDuringIndexTime();
-									Thread.sleep(sleepTime);
-								} catch ( InterruptedException e ) {
-									Logger.error(this, e.getMessage(), e);
-								}
-							}
-
-						}
-
-						HibernateUtil.closeSession();
-				        if(bulk.numberOfActions()>0) {
-				            bulk.execute(new ActionListener<BulkResponse>() {
-
-								void handleRecords (List<IndexJournal<String>> failedRecords) {
-
-									//List of records to delete from the reindex journal table
-									addRecordsToDelete(recordsToDelete);
-
-									try {
-										if ( failedRecords != null && !failedRecords.isEmpty() ) {
-											/*
-											Reset to null the server id of the failed records in the reindex journal table
-											in order to make them available again for the reindex process.
-											 */
-											jAPI.resetServerForReindexEntry(failedRecords);
-										}
-									} catch ( DotDataException e ) {
-										Logger.error(this, "Error adding back failed records to reindex queue", e);
-									}
-								}
-
-								public void onResponse ( BulkResponse resp ) {
-
-									//Handle failures on the re-index process if any
-									List<IndexJournal<String>> failedRecords = failureHandler(resp);
-
-									//Handle the processed records
-									handleRecords(failedRecords);
-								}
-
-								public void onFailure ( Throwable ex ) {
-
-									Logger.error(ReindexThread.class, "Indexing process failed", ex);
-
-									//Handle the processed records
-									handleRecords(null);
-
-									//Reset the failed attempts count as the onFailure will finish the indexing process
-									failedAttemptsCount = 0;
-								}
-
-								/**
-								 * Checks if we had failures when indexing, on failure we will retry the indexing process of the records that failed,
-								 * the process WON'T continue with failed records.
-								 *
-								 * @param resp
-								 */
-								private List<IndexJournal<String>> failureHandler ( BulkResponse resp ) {
-
-									//List of records that failed and will be added to the queue for more attempts
-									List<IndexJournal<String>> failedRecords = new ArrayList<>();
-
-									//Verify if we have failures to handle
-									if ( resp.hasFailures() && isWorking() ) {
-
-										Logger.error(this, "Error indexing content [" + resp.buildFailureMessage() + "]");
-
-										//Counts the failed attempts when indexing and handles error notifications
-										addIndexingFailedAttempt();
-
-										//Search for the failed items
-										for ( BulkItemResponse itemResponse : resp.getItems() ) {
-
-											//Check if the indexing process failed for this item
-											if ( itemResponse.isFailed() ) {
-
-												//Get the data of the failed record
-												String initialId = itemResponse.getId();
-												//Remove the language from the id in order to get just the inode/identifier
-												int languageIndex = initialId.lastIndexOf("_");
-												String failedId = initialId;
-												if ( languageIndex != -1 ) {
-													failedId = initialId.substring(0, languageIndex);
-												}
-
-												//Search the failed record into the list of records to delete
-												Iterator<IndexJournal<String>> toDeleteIterator = recordsToDelete.iterator();
-												while ( toDeleteIterator.hasNext() ) {
-
-													IndexJournal<String> indexToDelete = toDeleteIterator.next();
-													if ( indexToDelete.getInodeToIndex().equals(failedId) || indexToDelete.getIdentToIndex().equals(failedId) ) {
-
-														//Add it to the list of records that failed and needs to be added back to the reindex queue
-														if ( !exist(failedRecords, indexToDelete) ) {
-															failedRecords.add(indexToDelete);
-														}
-
-														/*
-														Remove the record from the list of contents to remove from the index journal table
-														as it indexing process failed and we want a re-try with those records.
-														 */
-														toDeleteIterator.remove();
-													}
-												}
-											}
-										}
-
-										if ( !failedRecords.isEmpty() ) {
-
-											Logger.error(this, "Reindex thread will try to re-index [" + String.valueOf(failedRecords.size()) + "] failed records.");
-
-											try {
-												Thread.sleep(delayOnError);
-											} catch ( InterruptedException e ) {
-												Logger.error(this, e.getMessage(), e);
-											}
-										}
-									}
-
-									return failedRecords;
-								}
-
-								/**
-								 * Checks if a given record already exist on a given list
-								 *
-								 * @param toRestore
-								 * @param toCompare
-								 * @return
-								 */
-								private boolean exist ( List<IndexJournal<String>> toRestore, IndexJournal<String> toCompare ) {
-
-									boolean exist = false;
-									for ( IndexJournal<String> current : toRestore ) {
-
-										if ( current.getId() == toCompare.getId() ) {
-											exist = true;
-											break;
-										}
-									}
-
-									return exist;
-								}
-
-							});
-				        }
-				        else if(recordsToDelete.size()>0) {
-				            addRecordsToDelete(recordsToDelete);
-				        }
+					    List<IndexJournal<String>> records = new ArrayList<>(remoteQ);
+					    remoteQ.clear();
+					    try {
+					        //Waits while the builders are busy with other batches
+					        pipeline.submit(records);
+					    } catch ( InterruptedException | RejectedExecutionException e ) {
+					        //Kept for the next iteration
+					        remoteQ.addAll(0, records);
+					        throw e;
+					    }
 					}
 					
 				} catch (Exception ex) {
@@ -498,6 +313,343 @@ public class ReindexThread extends Thread {
 				}
 			}
 		}
+
+		pipeline.shutdown();
+		FullReindexStreamer.stop();
+	}
+
+	/**
+	 * Builds the documents of a batch of records fetched from the {@code dist_reindex_journal} table into a single bulk
+	 * request and sends it. Runs in the builder threads of the {@link ReindexPipeline}, several batches are built at
+	 * the same time. {@code answered} is called once the bulk request was answered, or when there was nothing to send.
+	 */
+	void buildAndSend ( List<IndexJournal<String>> records, Runnable answered ) throws InterruptedException {
+
+		final ArrayList<IndexJournal<String>> recordsToDelete = new ArrayList<>();
+		final List<IndexJournal<String>> loadedRecords = new ArrayList<>();
+		final List<List<Contentlet>> loadedContentlets = new ArrayList<>();
+		BulkRequestBuilder bulk;
+		try {
+			Client client = new ESClient().getClient();
+			bulk = client.prepareBulk();
+			for ( IndexJournal<String> idx : records ) {
+
+				try {
+					if ( idx.isDelete() ) {
+						//Keeps the order of the requests in the bulk
+						indexLoadedRecords(bulk, loadedRecords, loadedContentlets, recordsToDelete);
+						writeDocumentToIndex(bulk, idx);
+						recordsToDelete.add(idx);
+					} else {
+						//The documents of these records are built all together below
+						loadedContentlets.add(loadContentlets(idx));
+						loadedRecords.add(idx);
+					}
+				} catch ( Exception e ) {
+
+					handleFailedRecord(idx, e);
+
+					/*
+					This continue will avoid to remove this failed record from the index journal table so
+					can be grab it again in another iteration.
+					 */
+					continue;
+				}
+
+				//If the REINDEX_SLEEP_DURING_INDEX was set
+				if ( reindexSleepDuringIndex ) {
+					try {
+						int sleepTime = getReindexSleepDuringIndexTime();
+						Thread.sleep(sleepTime);
+					} catch ( InterruptedException e ) {
+						Logger.error(this, e.getMessage(), e);
+					}
+				}
+			}
+
+			indexLoadedRecords(bulk, loadedRecords, loadedContentlets, recordsToDelete);
+		} finally {
+			//Every builder thread has its own session and connection
+			try {
+				HibernateUtil.closeSession();
+			} catch ( DotHibernateException e ) {
+				Logger.error(this, e.getMessage(), e);
+			}
+			try {
+				DbConnectionFactory.closeConnection();
+			} catch ( Exception e ) {
+				Logger.debug(this, "Unable to close connection : " + e.getMessage(), e);
+			}
+		}
+
+		sendBulk(bulk, recordsToDelete, answered);
+	}
+
+	/**
+	 * Makes the records of a batch that could not be indexed available again for the reindex process
+	 */
+	void requeue ( List<IndexJournal<String>> records ) {
+
+		try {
+			jAPI.resetServerForReindexEntry(records);
+		} catch ( DotDataException e ) {
+			Logger.error(this, "Error adding back failed records to reindex queue", e);
+		}
+	}
+
+	/**
+	 * Adds to the bulk the documents of the given records, building them all together. When that fails the records
+	 * are indexed one by one so only the ones that really fail are retried.
+	 */
+	private void indexLoadedRecords ( BulkRequestBuilder bulk, List<IndexJournal<String>> loadedRecords,
+									  List<List<Contentlet>> loadedContentlets, List<IndexJournal<String>> recordsToDelete ) {
+
+		if ( loadedRecords.isEmpty() ) {
+			return;
+		}
+
+		try {
+			List<Contentlet> contentlets = new ArrayList<>();
+			for ( List<Contentlet> recordContentlets : loadedContentlets ) {
+				contentlets.addAll(recordContentlets);
+			}
+			indexAPI.addContentToIndex(contentlets, indexAPI.isInFullReindex(), bulk);
+			recordsToDelete.addAll(loadedRecords);
+		} catch ( Exception e ) {
+			Logger.warn(this, "Unable to index a batch of " + loadedRecords.size() + " records, indexing them one by one: " + e.getMessage());
+
+			for ( int i = 0; i < loadedRecords.size(); i++ ) {
+				IndexJournal<String> idx = loadedRecords.get(i);
+				try {
+					for ( Contentlet con : loadedContentlets.get(i) ) {
+						indexAPI.addContentToIndex(con, false, true, indexAPI.isInFullReindex(), bulk);
+					}
+					recordsToDelete.add(idx);
+				} catch ( Exception recordException ) {
+					handleFailedRecord(idx, recordException);
+				}
+			}
+		}
+
+		loadedRecords.clear();
+		loadedContentlets.clear();
+	}
+
+	/**
+	 * Handles a record whose document could not be built: makes it available again for the reindex process and,
+	 * when it ran out of attempts, notifies the user about it.
+	 */
+	private void handleFailedRecord ( IndexJournal<String> idx, Exception e ) {
+
+		Logger.error(this, "Unable to index record with id [" + idx.getIdentToIndex() + "]", e);
+
+		//Counts the failed attempts when indexing and handles error notifications
+		addIndexingFailedAttempt();
+
+		try {
+			/*
+			Reset to null the server id of the failed records in the reindex journal table
+			in order to make them available again for the reindex process.
+			 */
+			List<IndexJournal<String>> failedRecords = new ArrayList<>();
+			failedRecords.add(idx);
+			jAPI.resetServerForReindexEntry(failedRecords);
+		} catch ( DotDataException dataException ) {
+			Logger.error(this, "Error adding back failed records to reindex queue", dataException);
+		}
+		// The total number of re-tries minus 1 will
+		// indicate the last opportunity of a record to
+		// be re-indexed.
+		int totalAttempts = (DistributedJournalFactory.REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + DistributedJournalFactory.RETRY_FAILED_INDEX_TIMES);
+		String identToIndex = idx.getIdentToIndex();
+		if (!this.notifiedFailingRecords.contains(identToIndex) && idx.getPriority() >= totalAttempts) {
+			// The record was not able to be re-indexed,
+			// so a notification will be generated and
+			// the record will not be processed anymore
+			String msg = "Could not re-index record with the Identifier '"
+					+ identToIndex
+					+ "'. The record is in a bad state or can be associated to orphaned records. You can try running the Fix Assets Inconsistencies tool and re-start the reindex.";
+			try {
+				sendNotification("notification.reindexing.error.processrecord", new Object[] { identToIndex }, msg);
+			} catch ( DotDataException | LanguageException notificationException ) {
+				Logger.error(this, "Error creating a system notification for the record [" + identToIndex + "]", notificationException);
+			}
+			this.notifiedFailingRecords.add(identToIndex);
+		}
+
+		try {
+			Thread.sleep(delayOnError);
+		} catch ( InterruptedException ie ) {
+			Logger.error(this, ie.getMessage(), ie);
+		}
+	}
+
+	/**
+	 * Sends a bulk request built by {@link #buildAndSend(List, Runnable)}. The records of the documents indexed successfully are
+	 * removed from the {@code dist_reindex_journal} table, the failed ones are made available again for the
+	 * reindex process. When the whole request fails all its records are made available again.
+	 */
+	private void sendBulk ( BulkRequestBuilder bulk, final ArrayList<IndexJournal<String>> recordsToDelete,
+							final Runnable answered ) throws InterruptedException {
+
+	    if(bulk.numberOfActions()>0) {
+	        //Waits while there are too many bulk requests waiting for an answer
+	        pipeline.acquireBulkSlot();
+	        try {
+	            bulk.execute(new ActionListener<BulkResponse>() {
+
+				void handleRecords (List<IndexJournal<String>> failedRecords) {
+
+					//List of records to delete from the reindex journal table
+					addRecordsToDelete(recordsToDelete);
+
+					try {
+						if ( failedRecords != null && !failedRecords.isEmpty() ) {
+							/*
+							Reset to null the server id of the failed records in the reindex journal table
+							in order to make them available again for the reindex process.
+							 */
+							jAPI.resetServerForReindexEntry(failedRecords);
+						}
+					} catch ( DotDataException e ) {
+						Logger.error(this, "Error adding back failed records to reindex queue", e);
+					}
+				}
+
+				public void onResponse ( BulkResponse resp ) {
+
+					try {
+						//Handle failures on the re-index process if any
+						List<IndexJournal<String>> failedRecords = failureHandler(resp);
+
+						//Handle the processed records
+						handleRecords(failedRecords);
+					} finally {
+						pipeline.releaseBulkSlot();
+						answered.run();
+					}
+				}
+
+				public void onFailure ( Throwable ex ) {
+
+					try {
+						Logger.error(ReindexThread.class, "Indexing process failed", ex);
+
+						//None of the records was indexed, they are fetched again later
+						requeue(recordsToDelete);
+
+						//Reset the failed attempts count as the onFailure will finish the indexing process
+						failedAttemptsCount = 0;
+					} finally {
+						pipeline.releaseBulkSlot();
+						answered.run();
+					}
+				}
+
+				/**
+				 * Checks if we had failures when indexing, on failure we will retry the indexing process of the records that failed,
+				 * the process WON'T continue with failed records.
+				 *
+				 * @param resp
+				 */
+				private List<IndexJournal<String>> failureHandler ( BulkResponse resp ) {
+
+					//List of records that failed and will be added to the queue for more attempts
+					List<IndexJournal<String>> failedRecords = new ArrayList<>();
+
+					//Verify if we have failures to handle
+					if ( resp.hasFailures() && isWorking() ) {
+
+						Logger.error(this, "Error indexing content [" + resp.buildFailureMessage() + "]");
+
+						//Counts the failed attempts when indexing and handles error notifications
+						addIndexingFailedAttempt();
+
+						//Search for the failed items
+						for ( BulkItemResponse itemResponse : resp.getItems() ) {
+
+							//Check if the indexing process failed for this item
+							if ( itemResponse.isFailed() ) {
+
+								//Get the data of the failed record
+								String initialId = itemResponse.getId();
+								//Remove the language from the id in order to get just the inode/identifier
+								int languageIndex = initialId.lastIndexOf("_");
+								String failedId = initialId;
+								if ( languageIndex != -1 ) {
+									failedId = initialId.substring(0, languageIndex);
+								}
+
+								//Search the failed record into the list of records to delete
+								Iterator<IndexJournal<String>> toDeleteIterator = recordsToDelete.iterator();
+								while ( toDeleteIterator.hasNext() ) {
+
+									IndexJournal<String> indexToDelete = toDeleteIterator.next();
+									if ( indexToDelete.getInodeToIndex().equals(failedId) || indexToDelete.getIdentToIndex().equals(failedId) ) {
+
+										//Add it to the list of records that failed and needs to be added back to the reindex queue
+										if ( !exist(failedRecords, indexToDelete) ) {
+											failedRecords.add(indexToDelete);
+										}
+
+										/*
+										Remove the record from the list of contents to remove from the index journal table
+										as it indexing process failed and we want a re-try with those records.
+										 */
+										toDeleteIterator.remove();
+									}
+								}
+							}
+						}
+
+						if ( !failedRecords.isEmpty() ) {
+
+							Logger.error(this, "Reindex thread will try to re-index [" + String.valueOf(failedRecords.size()) + "] failed records.");
+
+							try {
+								Thread.sleep(delayOnError);
+							} catch ( InterruptedException e ) {
+								Logger.error(this, e.getMessage(), e);
+							}
+						}
+					}
+
+					return failedRecords;
+				}
+
+				/**
+				 * Checks if a given record already exist on a given list
+				 *
+				 * @param toRestore
+				 * @param toCompare
+				 * @return
+				 */
+				private boolean exist ( List<IndexJournal<String>> toRestore, IndexJournal<String> toCompare ) {
+
+					boolean exist = false;
+					for ( IndexJournal<String> current : toRestore ) {
+
+						if ( current.getId() == toCompare.getId() ) {
+							exist = true;
+							break;
+						}
+					}
+
+					return exist;
+				}
+
+			});
+	        } catch ( RuntimeException e ) {
+	            pipeline.releaseBulkSlot();
+	            throw e;
+	        }
+	    }
+	    else {
+	        if(recordsToDelete.size()>0) {
+	            addRecordsToDelete(recordsToDelete);
+	        }
+	        answered.run();
+	    }
 	}
 
 	public void unlockCluster() throws DotDataException {
@@ -590,6 +742,20 @@ public class ReindexThread extends Thread {
 			instance.delay = Config.getIntProperty("reindex.thread.delay", 7500);
 			instance.delayOnError = Config.getIntProperty("reindex.thread.delayonerror", 500);
 			instance.reindexSleepDuringIndex = Config.getBooleanProperty("reindex.thread.reindexsleepduringindex", false);
+			final ReindexThread indexer = instance;
+			instance.pipeline = new ReindexPipeline(new ReindexPipeline.BatchIndexer() {
+						@Override
+						public void buildAndSend ( List<IndexJournal<String>> records, Runnable answered ) throws Exception {
+							indexer.buildAndSend(records, answered);
+						}
+
+						@Override
+						public void requeue ( List<IndexJournal<String>> records ) {
+							indexer.requeue(records);
+						}
+					},
+					Config.getIntProperty("reindex.thread.builders", Math.min(4, Runtime.getRuntime().availableProcessors())),
+					Config.getIntProperty("reindex.thread.maxinflightbulks", 2));
 			instance.start();
 			int i = Config.getIntProperty("REINDEX_SLEEP_DURING_INDEX", 0);
 			if(i>0){
@@ -641,9 +807,24 @@ public class ReindexThread extends Thread {
 	    }
 	}
 
-	@SuppressWarnings("unchecked")
 	private void writeDocumentToIndex(BulkRequestBuilder bulk, IndexJournal<String> idx) throws DotDataException, DotSecurityException {
 	    Logger.debug(this, "Indexing document "+idx.getIdentToIndex());
+
+        for(Contentlet con : loadContentlets(idx)) {
+            if(idx.isDelete() && idx.getIdentToIndex().equals(con.getIdentifier()))
+                // we delete contentlets from the identifier pointed on index journal record
+                // its dependencies are reindexed in order to update its relationships fields
+                indexAPI.removeContentFromIndex(con);
+            else
+                indexAPI.addContentToIndex(con,false,true,indexAPI.isInFullReindex(),bulk);
+        }
+	}
+
+	/**
+	 * Loads the working and live versions of the identifier of the given record
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Contentlet> loadContentlets(IndexJournal<String> idx) throws DotDataException, DotSecurityException {
 	    System.setProperty("IN_FULL_REINDEX", "true");
 	    
 	    String sql = "select working_inode,live_inode from contentlet_version_info where identifier=?";
@@ -661,18 +842,13 @@ public class ReindexThread extends Thread {
         		inodes.add(liveInode);
         	}
         }
+        List<Contentlet> contentlets = new ArrayList<Contentlet>();
         for(String inode : inodes) {
-            Contentlet con = FactoryLocator.getContentletFactory().convertFatContentletToContentlet(
+            contentlets.add(FactoryLocator.getContentletFactory().convertFatContentletToContentlet(
                     (com.dotmarketing.portlets.contentlet.business.Contentlet)
-                        HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode));
-            
-            if(idx.isDelete() && idx.getIdentToIndex().equals(con.getIdentifier()))
-                // we delete contentlets from the identifier pointed on index journal record
-                // its dependencies are reindexed in order to update its relationships fields
-                indexAPI.removeContentFromIndex(con);
-            else
-                indexAPI.addContentToIndex(con,false,true,indexAPI.isInFullReindex(),bulk);
+                        HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode)));
         }
+        return contentlets;
 	}
 	
 	int threadsPausing = 0;
@@ -132,6 +132,24 @@ public class SQLUtil {
 		}
 		return bob.toString();
 	}
+	/**
+	 * Returns the comma separated list of parameters for an IN clause of the given size
+	 * @param count number of parameters
+	 * @return i.e. "?,?,?" for 3
+	 */
+	public static String placeholders ( int count ) {
+
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < count; i++ ) {
+			if ( i > 0 ) {
+				sb.append(',');
+			}
+			sb.append('?');
+		}
+
+		return sb.toString();
+	}
+
 	//http://jira.dotmarketing.net/browse/DOTCMS-3689
 	public static String addLimits(String query, long offSet, long limit) {
 
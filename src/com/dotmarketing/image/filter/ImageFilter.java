@@ -1,5 +1,6 @@
 package com.dotmarketing.image.filter;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.security.MessageDigest;
@@ -10,6 +11,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.imageio.ImageIO;
+
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.exception.DotRuntimeException;
@@ -108,6 +111,59 @@ public abstract class ImageFilter implements ImageFilterIf {
 		return buf.toString();
 	}
 
+	/**
+	 * Runs the filter on an image in memory. Filters return the image they
+	 * were given when there is nothing to do.
+	 *
+	 * @param src
+	 * @param parameters
+	 * @return the filtered image
+	 * @throws IOException
+	 */
+	public abstract BufferedImage filterImage(BufferedImage src, Map<String, String[]> parameters) throws IOException;
+
+	/**
+	 * Runs the filter on a file, writing the result next to the other
+	 * generated files.
+	 */
+	public File runFilter(File file, Map<String, String[]> parameters) {
+		File resultFile = getResultsFile(file, parameters, getFileExtension());
+
+		if (!overwrite(resultFile, parameters)) {
+			return resultFile;
+		}
+
+		try {
+			BufferedImage src = ImageIO.read(file);
+			BufferedImage dst = filterImage(src, parameters);
+			if (dst == src) {
+				return file;
+			}
+			resultFile.delete();
+			writeImage(dst, resultFile, parameters);
+		} catch (IOException e) {
+			Logger.error(this.getClass(), e.getMessage());
+		}
+
+		return resultFile;
+	}
+
+	/**
+	 * @return the extension of the files written by this filter
+	 */
+	protected String getFileExtension() {
+		return FILE_EXT;
+	}
+
+	/**
+	 * Writes the image in the format of this filter.
+	 */
+	protected void writeImage(BufferedImage image, File file, Map<String, String[]> parameters) throws IOException {
+		if (!ImageIO.write(image, FILE_EXT, file)) {
+			throw new IOException("No writer for " + FILE_EXT);
+		}
+	}
+
 	protected String getFilterName() {
 		return this.getClass().getSimpleName().replaceAll("ImageFilter", "").toLowerCase();
 	}
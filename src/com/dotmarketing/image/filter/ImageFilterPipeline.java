@@ -0,0 +1,153 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.imageio.ImageIO;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Runs a chain of filters on an image decoded once, writing only the result of
+ * the last filter that changed it. The result is named exactly like the chain
+ * of files the filters write when run one by one, where a filter with nothing
+ * to do returns the file it was given, so both share the same renditions.
+ * Requests for a rendition being generated wait for it instead of generating
+ * it again.
+ */
+public class ImageFilterPipeline {
+
+	private static final ImageRenditionCache renditions = new ImageRenditionCache(
+			Config.getIntProperty("IMAGE_RENDITION_CACHE_MAX_MB", 1024) * 1024L * 1024L);
+
+	private static final ConcurrentMap<String, FutureTask<File>> running = new ConcurrentHashMap<String, FutureTask<File>>();
+
+	private final List<ImageFilter> filters;
+	private final ImageRenditionCache cache;
+
+	public ImageFilterPipeline(List<ImageFilter> filters) {
+		this(filters, renditions);
+	}
+
+	ImageFilterPipeline(List<ImageFilter> filters, ImageRenditionCache cache) {
+		this.filters = filters;
+		this.cache = cache;
+	}
+
+	/**
+	 * @param file
+	 *            - The original image.
+	 * @param parameters
+	 *            - The parameters of the filters.
+	 * @return The rendition, or the original image when the filters left it
+	 *         as it was.
+	 * @throws IOException
+	 */
+	public File run(final File file, final Map<String, String[]> parameters) throws IOException {
+		if (filters.isEmpty()) {
+			return file;
+		}
+		// The name when every filter changes the image, known without decoding it
+		final File resultFile = getResultsFile(file, filters, parameters);
+		if (!filters.get(filters.size() - 1).overwrite(resultFile, parameters)) {
+			cache.touch(resultFile);
+			return resultFile;
+		}
+
+		String key = resultFile.getAbsolutePath();
+		FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+			public File call() throws IOException {
+				return render(file, parameters);
+			}
+		});
+		FutureTask<File> current = running.putIfAbsent(key, task);
+		if (current == null) {
+			try {
+				task.run();
+			} finally {
+				running.remove(key, task);
+			}
+			current = task;
+		}
+
+		try {
+			return current.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for " + resultFile.getName());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return The file the filters write to when run one by one and every one
+	 *         of them changes the image.
+	 */
+	static File getResultsFile(File file, List<ImageFilter> filters, Map<String, String[]> parameters) {
+		File named = file;
+		for (ImageFilter filter : filters) {
+			named = filter.getResultsFile(named, parameters, filter.getFileExtension());
+		}
+		return named;
+	}
+
+	private File render(File file, Map<String, String[]> parameters) throws IOException {
+		long start = System.currentTimeMillis();
+		BufferedImage original = ImageIO.read(file);
+		if (original == null) {
+			throw new IOException("Unable to read the image " + file.getName());
+		}
+
+		BufferedImage image = original;
+		File resultFile = file;
+		ImageFilter writer = null;
+		for (ImageFilter filter : filters) {
+			BufferedImage filtered = filter.filterImage(image, parameters);
+			// Left out of the name, like the one by one run that goes on with the file it had
+			if (filtered != image) {
+				resultFile = filter.getResultsFile(resultFile, parameters, filter.getFileExtension());
+				writer = filter;
+				image = filtered;
+			}
+		}
+		if (writer == null) {
+			return file;
+		}
+		if (!writer.overwrite(resultFile, parameters)) {
+			// Written before, or by a request that finished in the meantime
+			cache.touch(resultFile);
+			return resultFile;
+		}
+
+		// Written aside and renamed, so nobody serves a half written image
+		File temp = new File(resultFile.getParentFile(), resultFile.getName() + "."
+				+ Thread.currentThread().getId() + ".tmp");
+		try {
+			writer.writeImage(image, temp, parameters);
+			resultFile.delete();
+			if (!temp.renameTo(resultFile)) {
+				throw new IOException("Unable to write " + resultFile.getAbsolutePath());
+			}
+		} finally {
+			temp.delete();
+		}
+		cache.add(resultFile);
+
+		Logger.debug(this, "Rendered " + resultFile.getName() + " in " + (System.currentTimeMillis() - start) + "ms");
+		return resultFile;
+	}
+
+}
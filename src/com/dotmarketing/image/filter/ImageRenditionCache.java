@@ -0,0 +1,113 @@
+package com.dotmarketing.image.filter;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Bounds the disk used by the images generated by the filters. The files
+ * generated or served are remembered in the order they were last used, and the
+ * least recently used ones are deleted once they take more than the maximum
+ * size. Files generated before a restart are counted again once they are used.
+ * <p>
+ * A request may be sending a rendition when it is evicted, and an open file
+ * can not be deleted on Windows, so evicted files are only deleted once they
+ * went unused for a grace period. A file that can not be deleted yet is tried
+ * again on the next eviction.
+ */
+public class ImageRenditionCache {
+
+	private final long maxBytes;
+	private final long graceMillis;
+	private final LinkedHashMap<String, Long> files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	// The evicted files waiting to be deleted, and when they were evicted
+	private final LinkedHashMap<String, Long> evicted = new LinkedHashMap<String, Long>();
+	private long bytes = 0;
+
+	/**
+	 * @param maxBytes
+	 *            - The disk the renditions can take, 0 or less never deletes
+	 *            them.
+	 */
+	public ImageRenditionCache(long maxBytes) {
+		this(maxBytes, 60 * 1000);
+	}
+
+	/**
+	 * @param graceMillis
+	 *            - How long an evicted rendition is kept on disk, for the
+	 *            requests that may still be sending it.
+	 */
+	ImageRenditionCache(long maxBytes, long graceMillis) {
+		this.maxBytes = maxBytes;
+		this.graceMillis = graceMillis;
+	}
+
+	/**
+	 * Marks a rendition as used, counting it when it was not.
+	 */
+	public synchronized void touch(File file) {
+		if (files.get(file.getAbsolutePath()) == null) {
+			add(file);
+		}
+	}
+
+	/**
+	 * Counts a rendition that was just written, deleting the least recently
+	 * used ones when needed.
+	 */
+	public synchronized void add(File file) {
+		long now = System.currentTimeMillis();
+		evicted.remove(file.getAbsolutePath());
+		Long previous = files.put(file.getAbsolutePath(), file.length());
+		bytes += file.length() - (previous != null ? previous : 0);
+		if (maxBytes <= 0) {
+			return;
+		}
+		Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+		// The file just added is the last one, it is never deleted
+		while (bytes > maxBytes && files.size() > 1) {
+			Map.Entry<String, Long> entry = eldest.next();
+			evicted.put(entry.getKey(), now);
+			bytes -= entry.getValue();
+			eldest.remove();
+		}
+		deleteEvicted(now);
+	}
+
+	/**
+	 * Deletes the evicted files whose grace period is over.
+	 */
+	synchronized void deleteEvicted(long now) {
+		Iterator<Map.Entry<String, Long>> it = evicted.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			if (now - entry.getValue() < graceMillis) {
+				// Evicted in order, the rest are newer
+				break;
+			}
+			File file = new File(entry.getKey());
+			if (!file.exists() || file.delete()) {
+				it.remove();
+			} else {
+				Logger.debug(this, "Unable to delete the rendition " + entry.getKey() + ", trying again later");
+			}
+		}
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized int size() {
+		return files.size();
+	}
+
+	synchronized int getEvictedCount() {
+		return evicted.size();
+	}
+
+}
@@ -1,15 +1,10 @@
 package com.dotmarketing.image.filter;
 
 import java.awt.Color;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.awt.image.BufferedImage;
 import java.util.Map;
 
 import com.dotmarketing.util.ImageResizeUtils;
-import com.dotmarketing.util.Logger;
 
 public class ThumbnailImageFilter extends ImageFilter {
 	public String[] getAcceptedParameters() {
@@ -19,7 +14,7 @@ public class ThumbnailImageFilter extends ImageFilter {
 		};
 	}
 
-	public File runFilter(File file,  Map<String, String[]> parameters) {
+	public BufferedImage filterImage(BufferedImage src,  Map<String, String[]> parameters) {
 
 		int height = parameters.get(getPrefix() + "h") != null ? Integer.parseInt(parameters.get(getPrefix() + "h")[0])
 				: 0;
@@ -29,34 +24,7 @@ public class ThumbnailImageFilter extends ImageFilter {
 		Color color = new Color(Integer.parseInt(rgb.substring(0, 3)), Integer.parseInt(rgb.substring(3, 6)),
 				Integer.parseInt(rgb.substring(6)));
 
-		File resultFile = getResultsFile(file, parameters);
-
-		if (!overwrite(resultFile, parameters)) {
-			return resultFile;
-		}
-
-		FileOutputStream fos = null;
-		try {
-			resultFile.delete();
-			fos = new FileOutputStream(resultFile);
-			ImageResizeUtils.generateThumbnail(new FileInputStream(file), fos, FILE_EXT, width, height, color);
-		} catch (FileNotFoundException e) {
-			Logger.error(this.getClass(), e.getMessage());
-		} catch (IOException e) {
-			Logger.error(this.getClass(), e.getMessage());
-		} catch (InterruptedException e) {
-			Logger.error(this.getClass(), e.getMessage());
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (IOException e) {
-					Logger.error(this.getClass(), "should not be here");
-				}
-			}
-		}
-
-		return resultFile;
+		return ImageResizeUtils.generateThumbnail(src, width, height, color);
 
 	}
 
@@ -1,5 +1,6 @@
 package com.dotmarketing.listeners;
 
+import com.dotcms.content.elasticsearch.business.FileMetaDataExtractor;
 import com.dotcms.enterprise.ClusterThreadProxy;
 import com.dotcms.util.AsciiArt;
 import com.dotmarketing.business.CacheLocator;
@@ -48,6 +49,12 @@ public class ContextLifecycleListener implements ServletContextListener {
             Logger.error(this, "A error ocurred trying to shutdown the ClusterThread.");
         }
 
+        try {
+        	FileMetaDataExtractor.shutdownInstance();
+        } catch (Exception e) {
+            Logger.error(this, "A error ocurred trying to shutdown the metadata extraction.");
+        }
+
         try {
         	CacheLocator.getCacheAdministrator().shutdown();
         } catch (Exception e) {
@@ -23,6 +23,7 @@ import com.dotmarketing.filters.DotUrlRewriteFilter;
 import com.dotmarketing.portlets.languagesmanager.model.Language;
 import com.dotmarketing.portlets.rules.actionlet.RuleActionlet;
 import com.dotmarketing.portlets.rules.actionlet.RuleActionletOSGIService;
+import com.dotmarketing.portlets.rules.business.RulesEngine;
 import com.dotcms.enterprise.rules.RulesAPI;
 import com.dotmarketing.portlets.rules.conditionlet.Conditionlet;
 import com.dotmarketing.portlets.rules.conditionlet.ConditionletOSGIService;
@@ -647,6 +648,7 @@ public abstract class GenericBundleActivator implements BundleActivator {
         this.actionletOSGIService = (RuleActionletOSGIService)context.getService(serviceRefSelected);
         this.actionletOSGIService.addRuleActionlet(actionlet.getClass());
         ruleActionlets.add(actionlet);
+        RulesEngine.componentsChanged();
         registerBundleResourceMessages(context);
     }
 
@@ -672,6 +674,7 @@ public abstract class GenericBundleActivator implements BundleActivator {
         this.conditionletOSGIService = (ConditionletOSGIService) context.getService( serviceRefSelected );
         this.conditionletOSGIService.addConditionlet(conditionlet.getClass());
         conditionlets.add( conditionlet );
+        RulesEngine.componentsChanged();
 
         Logger.info( this, "Added Rule Conditionlet: " + conditionlet.getId() );
         registerBundleResourceMessages(context);
@@ -927,6 +930,7 @@ public abstract class GenericBundleActivator implements BundleActivator {
                 this.conditionletOSGIService.removeConditionlet(conditionlet.getClass().getSimpleName());
                 Logger.info( this, "Removed Rules Conditionlet: " + conditionlet.getClass().getSimpleName());
             }
+            RulesEngine.componentsChanged();
         }
     }
 
@@ -941,6 +945,7 @@ public abstract class GenericBundleActivator implements BundleActivator {
                 this.actionletOSGIService.removeRuleActionlet(actionlet.getClass().getSimpleName());
                 Logger.info( this, "Removed Rules Actionlet: " + actionlet.getClass().getSimpleName());
             }
+            RulesEngine.componentsChanged();
         }
     }
 
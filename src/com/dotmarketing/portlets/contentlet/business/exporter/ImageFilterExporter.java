@@ -1,14 +1,18 @@
 package com.dotmarketing.portlets.contentlet.business.exporter;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.UserAPI;
 import com.dotmarketing.image.filter.ImageFilter;
+import com.dotmarketing.image.filter.ImageFilterPipeline;
 import com.dotmarketing.portlets.contentlet.business.BinaryContentExporter;
 import com.dotmarketing.portlets.contentlet.business.BinaryContentExporterException;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 
 /**
@@ -40,13 +44,13 @@ public class ImageFilterExporter implements BinaryContentExporter {
 				filter= parameters.get("filters")[0].split(","); 
 			}
 
+			List<ImageFilter> filters = new ArrayList<ImageFilter>();
 			for(String s : filter){
 				String clazz =null;
 				try {
 					clazz ="com.dotmarketing.image.filter." + s + "ImageFilter";
 					Class<ImageFilter> iFilter = (Class<ImageFilter>) Class.forName( clazz );
-					ImageFilter i=	iFilter.newInstance();
-					file = i.runFilter(file,   parameters);
+					filters.add(iFilter.newInstance());
 				} catch (ClassNotFoundException e) {
 					Logger.error(ImageFilterExporter.class, "Unable to instanciate : " +  clazz );
 				} catch (InstantiationException e) {
@@ -54,10 +58,28 @@ public class ImageFilterExporter implements BinaryContentExporter {
 				} catch (IllegalAccessException e) {
 					Logger.error(ImageFilterExporter.class, "IllegalAccessException : " +  clazz );
 				}
-				catch (Exception e) {
-					Logger.error(ImageFilterExporter.class, "Exception in " +  clazz + " :" + e.getMessage() );
+			}
+
+			File result = null;
+			if (Config.getBooleanProperty("IMAGE_FILTER_PIPELINE", true)) {
+				try {
+					result = new ImageFilterPipeline(filters).run(file, parameters);
+				} catch (Exception e) {
+					Logger.warn(ImageFilterExporter.class, "Unable to run the filters in memory, running them one by one: " + e.getMessage());
+				}
+			}
+			if (result == null) {
+				result = file;
+				for (ImageFilter i : filters) {
+					try {
+						result = i.runFilter(result,   parameters);
+					}
+					catch (Exception e) {
+						Logger.error(ImageFilterExporter.class, "Exception in " +  i.getClass().getName() + " :" + e.getMessage() );
+					}
 				}
 			}
+			file = result;
 
 
 			data = new BinaryContentExporterData(file);
@@ -0,0 +1,64 @@
+package com.dotmarketing.portlets.rules.business;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How long firing a rule takes, counted in buckets of milliseconds so the slow rules of a site show up without logging
+ * every slow request.
+ */
+public final class RuleLatencyHistogram {
+
+    /**
+     * Upper bounds of the buckets, in milliseconds. The last bucket counts everything slower.
+     */
+    static final long[] BUCKETS_MILLIS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_MILLIS.length + 1);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        final long millis = nanos / 1000000;
+        int bucket = 0;
+        while (bucket < BUCKETS_MILLIS.length && millis >= BUCKETS_MILLIS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * The counts by bucket, as in {@code "<1ms": 120, "<5ms": 3, ">=1000ms": 0}, with the average and max times
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long count = 0;
+        for (int i = 0; i < BUCKETS_MILLIS.length; i++) {
+            map.put("<" + BUCKETS_MILLIS[i] + "ms", counts.get(i));
+            count += counts.get(i);
+        }
+        long slowest = counts.get(BUCKETS_MILLIS.length);
+        map.put(">=" + BUCKETS_MILLIS[BUCKETS_MILLIS.length - 1] + "ms", slowest);
+        count += slowest;
+
+        map.put("count", count);
+        map.put("avgMillis", count > 0 ? totalNanos.get() / count / 1000000.0 : 0.0);
+        map.put("maxMillis", maxNanos.get() / 1000000.0);
+        return map;
+    }
+}
@@ -0,0 +1,347 @@
+package com.dotmarketing.portlets.rules.business;
+
+import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.actionlet.RuleActionlet;
+import com.dotmarketing.portlets.rules.conditionlet.Conditionlet;
+import com.dotmarketing.portlets.rules.exception.RuleEngineException;
+import com.dotmarketing.portlets.rules.model.Condition;
+import com.dotmarketing.portlets.rules.model.ConditionGroup;
+import com.dotmarketing.portlets.rules.model.LogicalOperator;
+import com.dotmarketing.portlets.rules.model.Rule;
+import com.dotmarketing.portlets.rules.model.RuleAction;
+import com.dotmarketing.util.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The rules of a site for one {@link Rule.FireOn}, validated and compiled once so firing them on a request only
+ * evaluates conditions.
+ * <p>
+ * The conditions of a group, and the groups of a rule, are compiled into ANDs and ORs that give the same result as the
+ * {@link com.dotmarketing.portlets.rules.util.LogicalStatement} built by {@link Rule#evaluateConditions}. The terms of
+ * each AND and OR are sorted by {@link Conditionlet#getEvaluationCost()} so the expensive conditions are only evaluated
+ * when the cheap ones did not decide the result already.
+ * </p>
+ * <p>
+ * A plan is compiled from the set of rules in the {@link RulesCache} and the conditionlets and actionlets registered
+ * at the time. It stays valid while the cache returns the same rules, by id and modification date, and no
+ * conditionlet or actionlet is registered or removed. A plan that left invalid rules out is also compiled again every
+ * {@link #RETRY_MILLIS}.
+ * </p>
+ */
+public final class RulePlan {
+
+    static final long RETRY_MILLIS = 60 * 1000;
+
+    private final Set<Rule> source;
+    // id and modification date of each source rule, in their order
+    private final List<String> sourceVersions;
+    private final List<CompiledRule> rules;
+    private final int excluded;
+    private final long componentsVersion;
+    private final long compiledAt = System.currentTimeMillis();
+
+    private RulePlan(Set<Rule> source, List<CompiledRule> rules, long componentsVersion) {
+        this.source = source;
+        this.sourceVersions = versionsOf(source);
+        this.rules = Collections.unmodifiableList(rules);
+        this.excluded = source.size() - rules.size();
+        this.componentsVersion = componentsVersion;
+    }
+
+    /**
+     * Validates and compiles the given rules, in their order. A rule that is not valid is left out of the plan.
+     *
+     * @param conditionlets finds the conditionlet registered for a condition, null when there is none
+     * @param actionlets finds the actionlet registered for an action, null when there is none
+     * @param componentsVersion changes whenever conditionlets or actionlets are registered or removed
+     */
+    public static RulePlan compile(Set<Rule> rules, Function<Condition, Conditionlet> conditionlets,
+                                   Function<RuleAction, RuleActionlet> actionlets, long componentsVersion) {
+        List<CompiledRule> compiled = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            try {
+                compiled.add(new CompiledRule(rule, conditionlets, actionlets));
+            } catch (RuleEngineException e) {
+                Logger.error(RulePlan.class, "Rule is not valid and will not be fired. Rule Id: " + rule.getId(), e);
+            }
+        }
+        return new RulePlan(rules, compiled, componentsVersion);
+    }
+
+    /**
+     * Whether this plan can still fire these rules: it was compiled from them, with the conditionlets and actionlets
+     * registered now, and the rules it left out were not due to be tried again
+     */
+    public boolean isCurrent(Set<Rule> rules, long componentsVersion, long now) {
+        return this.componentsVersion == componentsVersion && (excluded == 0 || now - compiledAt < RETRY_MILLIS)
+               && isCompiledFrom(rules);
+    }
+
+    /**
+     * Whether this plan was compiled from these rules: the same ids in the same order, none modified since. The cache
+     * may return copies of the rules it returned then.
+     */
+    public boolean isCompiledFrom(Set<Rule> rules) {
+        if(rules == source) {
+            return true;
+        }
+        if(rules.size() != sourceVersions.size()) {
+            return false;
+        }
+        int i = 0;
+        for (Rule rule : rules) {
+            if(!sourceVersions.get(i++).equals(versionOf(rule))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> versionsOf(Set<Rule> rules) {
+        List<String> versions = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            versions.add(versionOf(rule));
+        }
+        return versions;
+    }
+
+    private static String versionOf(Rule rule) {
+        return rule.getId() + "@" + (rule.getModDate() != null ? rule.getModDate().getTime() : 0);
+    }
+
+    public List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    public int getExcludedCount() {
+        return excluded;
+    }
+
+    /**
+     * Compiles terms joined by the operators returned by the given function. As in
+     * {@link com.dotmarketing.portlets.rules.util.LogicalStatement}, the operator of a term joins it with the previous
+     * one, and no terms is true.
+     * <p>
+     * The terms are split in AND chains joined by OR, and the chains after the first one are evaluated as
+     * {@code (B && C) || (D && E)}. LogicalStatement returns false as soon as a term of the first chain followed by an
+     * AND is false, so only the last term of that chain falls through to the others: {@code A && B || C && D} is
+     * {@code A && (B || (C && D))}, and {@code false && B || C} is false.
+     * </p>
+     */
+    static <T> Clause compile(List<T> terms, Function<T, LogicalOperator> operator, Function<T, Clause> clause) {
+        List<List<Clause>> chains = new ArrayList<>();
+        List<Clause> chain = new ArrayList<>();
+        for (T term : terms) {
+            if(!chain.isEmpty() && operator.apply(term) != LogicalOperator.AND) {
+                chains.add(chain);
+                chain = new ArrayList<>();
+            }
+            chain.add(clause.apply(term));
+        }
+        if(!chain.isEmpty()) {
+            chains.add(chain);
+        }
+        if(chains.size() <= 1) {
+            return AllOf.of(chain);
+        }
+
+        List<Clause> first = chains.get(0);
+        List<Clause> alternatives = new ArrayList<>();
+        alternatives.add(first.get(first.size() - 1));
+        for (List<Clause> other : chains.subList(1, chains.size())) {
+            alternatives.add(AllOf.of(other));
+        }
+        List<Clause> all = new ArrayList<>(first.subList(0, first.size() - 1));
+        all.add(AnyOf.of(alternatives));
+        return AllOf.of(all);
+    }
+
+    /**
+     * Compiles the conditions of the groups of a rule
+     */
+    static Clause compileConditions(Rule rule, Function<Condition, Conditionlet> conditionlets) {
+        return compile(rule.getGroups(), ConditionGroup::getOperator,
+                       group -> compile(group.getConditions(), Condition::getOperator,
+                                        condition -> new ConditionClause(condition, conditionlets.apply(condition))));
+    }
+
+    /**
+     * A rule with its conditions compiled and its actions validated
+     */
+    public static final class CompiledRule {
+
+        private final Rule rule;
+        private final Clause conditions;
+        private final List<CompiledAction> actions;
+
+        CompiledRule(Rule rule, Function<Condition, Conditionlet> conditionlets, Function<RuleAction, RuleActionlet> actionlets) {
+            this.rule = rule;
+            this.conditions = compileConditions(rule, conditionlets);
+            List<CompiledAction> compiledActions = new ArrayList<>();
+            List<RuleAction> ruleActions = rule.getRuleActions();
+            if(ruleActions != null) {
+                for (RuleAction action : ruleActions) {
+                    compiledActions.add(new CompiledAction(action, actionlets.apply(action)));
+                }
+            }
+            this.actions = Collections.unmodifiableList(compiledActions);
+        }
+
+        public Rule getRule() {
+            return rule;
+        }
+
+        /**
+         * Evaluates the conditions of the rule, and its actions when they are met
+         */
+        public void fire(HttpServletRequest req, HttpServletResponse res) {
+            if(conditions.evaluate(req, res)) {
+                for (CompiledAction action : actions) {
+                    try {
+                        action.evaluate(req, res);
+                    } catch (Exception e) {
+                        Logger.warn(this.getClass(),
+                                    String.format("Rule evaluation failed on action '%s' for rule %s.",
+                                                  action.id,
+                                                  rule.getName()), e);
+                    }
+                }
+            }
+        }
+    }
+
+    interface Clause {
+
+        boolean evaluate(HttpServletRequest req, HttpServletResponse res);
+
+        int getCost();
+    }
+
+    private static final Comparator<Clause> BY_COST = (a, b) -> Integer.compare(a.getCost(), b.getCost());
+
+    private static int cost(List<Clause> clauses) {
+        int cost = 0;
+        for (Clause clause : clauses) {
+            cost += clause.getCost();
+        }
+        return cost;
+    }
+
+    private static final class AllOf implements Clause {
+
+        private final Clause[] clauses;
+        private final int cost;
+
+        private AllOf(List<Clause> clauses) {
+            List<Clause> sorted = new ArrayList<>(clauses);
+            // stable, conditions of the same cost keep their priority order
+            Collections.sort(sorted, BY_COST);
+            this.clauses = sorted.toArray(new Clause[sorted.size()]);
+            this.cost = cost(clauses);
+        }
+
+        static Clause of(List<Clause> clauses) {
+            return clauses.size() == 1 ? clauses.get(0) : new AllOf(clauses);
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            for (Clause clause : clauses) {
+                if(!clause.evaluate(req, res)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    private static final class AnyOf implements Clause {
+
+        private final Clause[] clauses;
+        private final int cost;
+
+        private AnyOf(List<Clause> clauses) {
+            List<Clause> sorted = new ArrayList<>(clauses);
+            Collections.sort(sorted, BY_COST);
+            this.clauses = sorted.toArray(new Clause[sorted.size()]);
+            this.cost = cost(clauses);
+        }
+
+        static Clause of(List<Clause> clauses) {
+            return clauses.size() == 1 ? clauses.get(0) : new AnyOf(clauses);
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            for (Clause clause : clauses) {
+                if(clause.evaluate(req, res)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    private static final class ConditionClause implements Clause {
+
+        private final Conditionlet<RuleComponentInstance> conditionlet;
+        private final RuleComponentInstance instance;
+
+        @SuppressWarnings("unchecked")
+        ConditionClause(Condition condition, Conditionlet conditionlet) {
+            this.conditionlet = conditionlet;
+            if(this.conditionlet == null) {
+                throw new RuleEngineException("Conditionlet %s not found for condition %s", condition.getConditionletId(), condition.getId());
+            }
+            this.instance = conditionlet.doCheckValid(condition);
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            return conditionlet.doEvaluate(req, res, instance);
+        }
+
+        @Override
+        public int getCost() {
+            return Math.max(1, conditionlet.getEvaluationCost());
+        }
+    }
+
+    private static final class CompiledAction {
+
+        private final String id;
+        private final RuleActionlet<RuleComponentInstance> actionlet;
+        private final RuleComponentInstance instance;
+
+        @SuppressWarnings("unchecked")
+        CompiledAction(RuleAction action, RuleActionlet actionlet) {
+            this.id = action.getId();
+            this.actionlet = actionlet;
+            if(this.actionlet == null) {
+                throw new RuleEngineException("Actionlet %s not found for action %s", action.getActionlet(), action.getId());
+            }
+            this.instance = actionlet.doCheckValid(action);
+        }
+
+        void evaluate(HttpServletRequest req, HttpServletResponse res) {
+            actionlet.doEvaluate(req, res, instance);
+        }
+    }
+}
@@ -7,15 +7,20 @@ import com.dotmarketing.business.web.WebAPILocator;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.rules.exception.RuleEngineException;
 import com.dotmarketing.portlets.rules.model.Rule;
-import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.liferay.portal.model.User;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 public final class RulesEngine {
-	private static int SLOW_RULE_LOG_MIN=Config.getIntProperty("SLOW_RULE_LOG_MIN", 100);
+
+    private static final ConcurrentMap<String, RulePlan> plans = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, RuleLatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private static final AtomicLong componentsVersion = new AtomicLong();
 
     public static void fireRules(HttpServletRequest req, HttpServletResponse res, Rule.FireOn fireOn) {
 
@@ -46,17 +51,14 @@ public final class RulesEngine {
 
             Set<Rule> rules = APILocator.getRulesAPI().getRulesByParentFireOn(host.getIdentifier(), systemUser, false, fireOn);
 
-            for (Rule rule : rules) {
+            for (RulePlan.CompiledRule compiled : getPlan(host.getIdentifier() + ":" + fireOn, rules).getRules()) {
+                final long before = System.nanoTime();
                 try {
-                	long before = System.currentTimeMillis();
-                    rule.checkValid(); // @todo ggranum: this should actually be done on writing to the DB, or at worst reading from.
-                    rule.evaluate(req, res);
-                    long after = System.currentTimeMillis();
-        			if((after - before) > SLOW_RULE_LOG_MIN) {
-        				Logger.warn(RulesEngine.class, "Rule ID:"+rule.getId()+" is running too slow. The rule is fired on: "+ rule.getFireOn().name());
-        			}
+                    compiled.fire(req, res);
                 } catch (RuleEngineException e) {
-                    Logger.error(RulesEngine.class, "Rule could not be evaluated. Rule Id: " + rule.getId(), e);
+                    Logger.error(RulesEngine.class, "Rule could not be evaluated. Rule Id: " + compiled.getRule().getId(), e);
+                } finally {
+                    getLatency(compiled.getRule().getId()).record(System.nanoTime() - before);
                 }
             }
 
@@ -64,4 +66,45 @@ public final class RulesEngine {
             Logger.error(RulesEngine.class, "Unable process rules." + e.getMessage(), e);
         }
     }
+
+    /**
+     * Returns the plan compiled for these rules, compiling them again when the cache returned other rules since, when
+     * conditionlets or actionlets were registered or removed since, or when some rules were not valid and it is time
+     * to try them again
+     */
+    private static RulePlan getPlan(String key, Set<Rule> rules) {
+        RulePlan plan = plans.get(key);
+        long version = componentsVersion.get();
+        if(plan == null || !plan.isCurrent(rules, version, System.currentTimeMillis())) {
+            plan = RulePlan.compile(rules,
+                                    condition -> APILocator.getRulesAPI().findConditionlet(condition.getConditionletId()),
+                                    action -> APILocator.getRulesAPI().findActionlet(action.getActionlet()),
+                                    version);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Makes the compiled plans stale, to be called when a conditionlet or an actionlet is registered or removed
+     */
+    public static void componentsChanged() {
+        componentsVersion.incrementAndGet();
+    }
+
+    private static RuleLatencyHistogram getLatency(String ruleId) {
+        RuleLatencyHistogram latency = latencies.get(ruleId);
+        if(latency == null) {
+            latencies.putIfAbsent(ruleId, new RuleLatencyHistogram());
+            latency = latencies.get(ruleId);
+        }
+        return latency;
+    }
+
+    /**
+     * How long the given rule took to fire since the server started, null when it was never fired
+     */
+    public static RuleLatencyHistogram getRuleLatency(String ruleId) {
+        return latencies.get(ruleId);
+    }
 }
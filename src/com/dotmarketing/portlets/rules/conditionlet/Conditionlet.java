@@ -11,4 +11,13 @@ public abstract class Conditionlet<T extends RuleComponentInstance> extends Rule
     protected Conditionlet(String i18nKey, ParameterDefinition... parameterDefinitions) {
         super(i18nKey, parameterDefinitions);
     }
+
+    /**
+     * How expensive evaluating this conditionlet is compared to the others, 1 being reading something from the request.
+     * The cheaper conditions of a rule are evaluated first, so an expensive one is skipped when a cheap one already
+     * decided the result.
+     */
+    public int getEvaluationCost() {
+        return 1;
+    }
 }
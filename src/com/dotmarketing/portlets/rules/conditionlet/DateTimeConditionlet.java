@@ -1,26 +1,21 @@
 package com.dotmarketing.portlets.rules.conditionlet;
 
 import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
-import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.dotcms.repackage.org.apache.logging.log4j.util.Strings;
 import com.dotcms.util.GeoIp2CityDbUtil;
-import com.dotcms.util.HttpRequestDataUtil;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
-import com.dotmarketing.portlets.rules.exception.RuleEvaluationFailedException;
 import com.dotmarketing.portlets.rules.model.ParameterModel;
 import com.dotmarketing.portlets.rules.parameter.ParameterDefinition;
 import com.dotmarketing.portlets.rules.parameter.comparison.Comparison;
 import com.dotmarketing.portlets.rules.parameter.display.*;
 import com.dotmarketing.portlets.rules.parameter.type.*;
+import com.dotmarketing.portlets.rules.util.RequestFacts;
 import com.dotmarketing.util.Logger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Calendar;
@@ -80,7 +75,7 @@ public class DateTimeConditionlet extends Conditionlet<DateTimeConditionlet.Inst
 
     @Override
     public boolean evaluate(HttpServletRequest request, HttpServletResponse response, Instance instance) {
-        LocalDateTime usersDateTime = lookupDateTime(request);
+        LocalDateTime usersDateTime = RequestFacts.get(request, RequestFacts.DATE_TIME, () -> lookupDateTime(request));
         boolean evaluation;
 
         if(instance.comparison==BETWEEN) {
@@ -94,17 +89,8 @@ public class DateTimeConditionlet extends Conditionlet<DateTimeConditionlet.Inst
 
     private LocalDateTime lookupDateTime(HttpServletRequest request) {
         LocalDateTime localDateTime = null;
-        InetAddress address;
-        try {
-            address = HttpRequestDataUtil.getIpAddress(request);
-        } catch (UnknownHostException e) {
-            throw new RuleEvaluationFailedException(e, "Unknown host.");
-        }
-        String ipAddress = address.getHostAddress();
-        Calendar dateTime = null;
-        try {
-            dateTime = geoIp2Util.getDateTime(ipAddress);
-        } catch (IOException | GeoIp2Exception e) {
+        Calendar dateTime = geoIp2Util.getDateTime(request);
+        if(dateTime==null) {
             Logger.error(this, "Could not look up country for request. Using 'unknown': " + request.getRequestURL());
         }
 
@@ -114,6 +100,12 @@ public class DateTimeConditionlet extends Conditionlet<DateTimeConditionlet.Inst
         return localDateTime;
     }
 
+    @Override
+    public int getEvaluationCost() {
+        // GeoIP lookup
+        return 10;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
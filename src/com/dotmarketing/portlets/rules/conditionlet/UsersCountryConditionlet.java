@@ -1,22 +1,18 @@
 package com.dotmarketing.portlets.rules.conditionlet;
 
 import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
-import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.dotcms.util.GeoIp2CityDbUtil;
-import com.dotcms.util.HttpRequestDataUtil;
+import com.dotcms.util.GeoLocation;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
-import com.dotmarketing.portlets.rules.exception.RuleEvaluationFailedException;
 import com.dotmarketing.portlets.rules.model.ParameterModel;
 import com.dotmarketing.portlets.rules.parameter.ParameterDefinition;
 import com.dotmarketing.portlets.rules.parameter.comparison.Comparison;
 import com.dotmarketing.portlets.rules.parameter.display.DropdownInput;
 import com.dotmarketing.portlets.rules.parameter.type.TextType;
+import com.dotmarketing.portlets.rules.util.RequestFacts;
 import com.dotmarketing.util.Logger;
-import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -307,25 +303,23 @@ public class UsersCountryConditionlet extends Conditionlet<UsersCountryCondition
      */
     @Override
     public boolean evaluate(HttpServletRequest request, HttpServletResponse response, Instance instance) {
-        String requestCountry = lookupCountry(request);
+        String requestCountry = RequestFacts.get(request, RequestFacts.COUNTRY_ISO_CODE, () -> lookupCountry(request));
         return instance.comparison.perform(requestCountry, instance.countryCode);
     }
 
     private String lookupCountry(HttpServletRequest request) {
-        String country = "unknown";
-        InetAddress address;
-        try {
-            address = HttpRequestDataUtil.getIpAddress(request);
-        } catch (UnknownHostException e) {
-            throw new RuleEvaluationFailedException(e, "Unknown host.");
-        }
-        String ipAddress = address.getHostAddress();
-        try {
-            country = geoIp2Util.getCountryIsoCode(ipAddress);
-        } catch (IOException | GeoIp2Exception e) {
+        GeoLocation location = geoIp2Util.getLocation(request);
+        if(location == null) {
             Logger.error(this, "Could not look up country for request. Using 'unknown': " + request.getRequestURL());
+            return "unknown";
         }
-        return country;
+        return location.getCountryIsoCode();
+    }
+
+    @Override
+    public int getEvaluationCost() {
+        // GeoIP lookup
+        return 10;
     }
 
     @Override
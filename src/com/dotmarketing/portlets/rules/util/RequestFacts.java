@@ -0,0 +1,70 @@
+package com.dotmarketing.portlets.rules.util;
+
+import com.dotcms.repackage.eu.bitwalker.useragentutils.UserAgent;
+import com.dotcms.util.HttpRequestDataUtil;
+import com.dotmarketing.portlets.rules.exception.RuleEvaluationFailedException;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Facts about a request that several conditionlets look up, like the address of the visitor or its browser. Each fact
+ * is looked up the first time a condition asks for it and kept in the request, so a page with many rules does the
+ * GeoIP lookup or parses the user agent once.
+ */
+public final class RequestFacts {
+
+    public static final String IP_ADDRESS = "ipAddress";
+    public static final String COUNTRY_ISO_CODE = "countryIsoCode";
+    public static final String DATE_TIME = "dateTime";
+    public static final String USER_AGENT = "userAgent";
+
+    private static final String ATTRIBUTE = RequestFacts.class.getName();
+
+    private RequestFacts() {
+    }
+
+    /**
+     * The address of the visitor, see {@link HttpRequestDataUtil#getIpAddress(HttpServletRequest)}
+     */
+    public static String getIpAddress(HttpServletRequest request) {
+        return get(request, IP_ADDRESS, () -> {
+            try {
+                return HttpRequestDataUtil.getIpAddress(request).getHostAddress();
+            } catch (UnknownHostException e) {
+                throw new RuleEvaluationFailedException(e, "Unknown host.");
+            }
+        });
+    }
+
+    /**
+     * The parsed User-Agent header of the request
+     */
+    public static UserAgent getUserAgent(HttpServletRequest request) {
+        return get(request, USER_AGENT, () -> UserAgent.parseUserAgentString(request.getHeader("User-Agent")));
+    }
+
+    /**
+     * Returns the fact kept in the request, looking it up when no condition did it before. Null values are kept too.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(HttpServletRequest request, String fact, Supplier<T> lookup) {
+        Object attribute = request.getAttribute(ATTRIBUTE);
+        Map<String, Object> facts;
+        if(attribute instanceof Map) {
+            facts = (Map<String, Object>)attribute;
+        } else {
+            facts = new HashMap<>();
+            request.setAttribute(ATTRIBUTE, facts);
+        }
+
+        if(facts.containsKey(fact)) {
+            return (T)facts.get(fact);
+        }
+        T value = lookup.get();
+        facts.put(fact, value);
+        return value;
+    }
+}
@@ -0,0 +1,191 @@
+package com.dotmarketing.servlets;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers what the {@link BinaryExporterServlet} served for a request, so
+ * the next anonymous request for the same asset is answered from the exported
+ * file without searching the content or running the exporter again. An entry
+ * is only used while it is younger than its time to live, the file on disk
+ * still has the size and modification date it had when it was served, and the
+ * {@link Validator} says the content version it came from would still be
+ * served to an anonymous user.
+ */
+public class BinaryAssetIndex {
+
+	/**
+	 * Checks, on every hit, that the version of the content an entry was
+	 * exported from is the one an anonymous request gets, and that it can
+	 * still be read by anonymous users. It should only use cached lookups.
+	 */
+	public interface Validator {
+		boolean isServable(Entry entry);
+	}
+
+	private final long ttlMillis;
+	private final Validator validator;
+	private final Map<String, Entry> entries;
+
+	/**
+	 * @param maxEntries
+	 *            - How many assets are remembered, the least recently used
+	 *            ones are forgotten first.
+	 * @param ttlSeconds
+	 *            - How long an asset is remembered, 0 remembers nothing.
+	 * @param validator
+	 *            - Checks the content of an entry is still served.
+	 */
+	public BinaryAssetIndex(final int maxEntries, int ttlSeconds, Validator validator) {
+		this.ttlMillis = ttlSeconds * 1000L;
+		this.validator = validator;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return ttlMillis > 0;
+	}
+
+	/**
+	 * @return The asset served for the key, or {@code null} when it is not
+	 *         known or it changed since.
+	 */
+	public Entry get(String key) {
+		if (!isEnabled() || key == null) {
+			return null;
+		}
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null) {
+			return null;
+		}
+		if (entry.indexed + ttlMillis <= System.currentTimeMillis()
+				|| !entry.isCurrent() || !validator.isServable(entry)) {
+			remove(key);
+			return null;
+		}
+		return entry;
+	}
+
+	public void put(String key, Entry entry) {
+		if (!isEnabled() || key == null) {
+			return;
+		}
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	public void remove(String key) {
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * An exported file, the headers it is served with and the content version
+	 * it was exported from.
+	 */
+	public static class Entry {
+
+		final String path;
+		final long size;
+		final long lastModified;
+		final String mimeType;
+		final String downloadName;
+		final String eTag;
+		final String inode;
+		final String identifier;
+		final long languageId;
+		final boolean byInode;
+		final long indexed = System.currentTimeMillis();
+
+		/**
+		 * @param assetInode
+		 *            - The inode of the content version the file was exported
+		 *            from.
+		 * @param byInode
+		 *            - Whether the request named that inode, instead of the
+		 *            identifier of the content.
+		 */
+		public Entry(File file, String mimeType, String downloadName,
+				String assetInode, String identifier, long languageId,
+				boolean byInode) {
+			this.path = file.getAbsolutePath();
+			this.size = file.length();
+			// rounded to seconds, as it is sent in the Last-Modified header
+			this.lastModified = Math.max(file.lastModified(), 0) / 1000 * 1000;
+			this.mimeType = mimeType;
+			this.downloadName = downloadName;
+			this.eTag = "dot:" + assetInode + ":" + lastModified + ":" + size;
+			this.inode = assetInode;
+			this.identifier = identifier;
+			this.languageId = languageId;
+			this.byInode = byInode;
+		}
+
+		public File getFile() {
+			return new File(path);
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getMimeType() {
+			return mimeType;
+		}
+
+		public String getDownloadName() {
+			return downloadName;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public String getInode() {
+			return inode;
+		}
+
+		public String getIdentifier() {
+			return identifier;
+		}
+
+		public long getLanguageId() {
+			return languageId;
+		}
+
+		public boolean isByInode() {
+			return byInode;
+		}
+
+		boolean isCurrent() {
+			File file = getFile();
+			return file.length() == size
+					&& Math.max(file.lastModified(), 0) / 1000 * 1000 == lastModified
+					&& file.exists();
+		}
+	}
+
+}
@@ -3,13 +3,12 @@ package com.dotmarketing.servlets;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -29,7 +28,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import com.dotcms.repackage.com.google.common.io.Files;
 import com.dotcms.repackage.org.apache.commons.collections.LRUMap;
 import com.dotcms.util.DownloadUtil;
 import com.dotmarketing.beans.Identifier;
@@ -52,6 +50,7 @@ import com.dotmarketing.portlets.contentlet.business.BinaryContentExporterExcept
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
 import com.dotmarketing.portlets.contentlet.business.DotContentletStateException;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.portlets.files.business.FileAPI;
 import com.dotmarketing.portlets.structure.model.Field;
 import com.dotmarketing.util.Config;
@@ -95,6 +94,8 @@ public class BinaryExporterServlet extends HttpServlet {
 	private static String assetPath = "/assets";
 	private static String realPath = null;
 	private long defaultLang = APILocator.getLanguageAPI().getDefaultLanguage().getId();
+	private static BinaryAssetIndex assetIndex = new BinaryAssetIndex(0, 0, null);
+	private static boolean useSendFile = true;
 
 	@SuppressWarnings("unchecked")
 	@Override
@@ -106,6 +107,9 @@ public class BinaryExporterServlet extends HttpServlet {
         if(UtilMethods.isSet(Config.getStringProperty("ASSET_PATH"))){
             assetPath = Config.getStringProperty("ASSET_PATH");
         }
+		assetIndex = new BinaryAssetIndex(Config.getIntProperty("BINARY_EXPORTER_INDEX_SIZE", 5000),
+				Config.getIntProperty("BINARY_EXPORTER_INDEX_TTL_SECONDS", 60), BinaryExporterServlet::isServableToAnonymous);
+		useSendFile = Config.getBooleanProperty("BINARY_EXPORTER_SENDFILE", true);
 		exportersByPathMapping = new HashMap<String, BinaryContentExporter>();
 
 		Iterator<String> keys = Config.getKeys();
@@ -202,15 +206,6 @@ public class BinaryExporterServlet extends HttpServlet {
         
         
         
-		ServletOutputStream out = null;
-		FileChannel from = null;
-		WritableByteChannel to = null;
-		RandomAccessFile input = null;
-		FileInputStream is = null;
-
-        
-        
-        
 		try {
 			User user = userWebAPI.getLoggedInUser(req);
 			boolean respectFrontendRoles = !userWebAPI.isLoggedToBackend(req);
@@ -234,6 +229,18 @@ public class BinaryExporterServlet extends HttpServlet {
 				// Number parsing exception
 			}
 
+			// Anonymous requests for an asset served before skip straight to the file
+			String indexKey = null;
+			if (user == null && session == null && req.getParameter(WebKeys.IMAGE_TOOL_SAVE_FILES) == null) {
+				indexKey = getIndexKey(uri, params, lang);
+				BinaryAssetIndex.Entry asset = assetIndex.get(indexKey);
+				if (asset != null) {
+					sendAsset(req, resp, asset, session);
+					return;
+				}
+			}
+
+			Contentlet content = null;
 			boolean isContent = false;
 			try {
 				isContent = isContent(uuid, byInode, lang, respectFrontendRoles);
@@ -243,7 +250,6 @@ public class BinaryExporterServlet extends HttpServlet {
 			}
 
 			if (isContent){
-				Contentlet content = null;
 				if(byInode) {
 					if(isTempBinaryImage)
 						content = contentAPI.find(assetInode, APILocator.getUserAPI().getSystemUser(), respectFrontendRoles);
@@ -451,187 +457,14 @@ public class BinaryExporterServlet extends HttpServlet {
 			if (mimeType == null) {
 				mimeType = "application/octet-stream";
 			}
-			resp.setContentType(mimeType);
-			resp.setHeader("Content-Disposition", "inline; filename=" + UtilMethods.encodeURL(downloadName));
-
-			if (req.getParameter("dotcms_force_download") != null || req.getParameter("force_download") != null) {
-
-				// if we are downloading a jpeg version of a png or gif
-				String x = UtilMethods.getFileExtension(downloadName);
-				String y = UtilMethods.getFileExtension(data.getDataFile().getName());
-				if(!x.equals(y)){
-					downloadName = downloadName.replaceAll("\\." + x, "\\." + y);
-				}
-				resp.setHeader("Content-Disposition", "attachment; filename=" + UtilMethods.encodeURL(downloadName));
-				resp.setHeader("Content-Type", "application/force-download");
-			} else {
-
-				boolean _adminMode = false;
-				try {
-				    _adminMode = (session!=null && session.getAttribute(com.dotmarketing.util.WebKeys.ADMIN_MODE_SESSION) != null);
-				}catch(Exception e){
-
-				}
-
-			    // Set the expiration time
-				if (!_adminMode) {
-
-				    int _daysCache = 365;
-				    GregorianCalendar expiration = new GregorianCalendar();
-					expiration.add(java.util.Calendar.DAY_OF_MONTH, _daysCache);
-					int seconds = (_daysCache * 24 * 60 * 60);
-
-					long _lastModified = data.getDataFile().lastModified();
-					if(_lastModified < 0) {
-					    _lastModified = 0;
-					}
-					// we need to round the _lastmodified to get rid of the milliseconds.
-					_lastModified = _lastModified / 1000;
-					_lastModified = _lastModified * 1000;
-					Date _lastModifiedDate = new java.util.Date(_lastModified);
-
-					long _fileLength = data.getDataFile().length();
-					String _eTag = "dot:" + assetInode + ":" + _lastModified + ":" + _fileLength;
-
-					SimpleDateFormat httpDate = new SimpleDateFormat(Constants.RFC2822_FORMAT);
-					httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
-		            /* Setting cache friendly headers */
-		            resp.setHeader("Expires", httpDate.format(expiration.getTime()));
-		            resp.setHeader("Cache-Control", "public, max-age="+seconds);
-
-		            String ifModifiedSince = req.getHeader("If-Modified-Since");
-		            String ifNoneMatch = req.getHeader("If-None-Match");
-
-		            /*
-		             * If the etag matches then the file is the same
-		             *
-		            */
-		            if(ifNoneMatch != null){
-		                if(_eTag.equals(ifNoneMatch) || ifNoneMatch.equals("*")){
-		                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED );
-		                    return;
-		                }
-		            }
-
-		            /* Using the If-Modified-Since Header */
-		             if(ifModifiedSince != null){
-					    try{
-					        Date ifModifiedSinceDate = httpDate.parse(ifModifiedSince);
-					        if(_lastModifiedDate.getTime() <= ifModifiedSinceDate.getTime()){
-					            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED );
-					            return;
-					        }
-					    }
-					    catch(Exception e){}
-					}
-
-		            resp.setHeader("Last-Modified", httpDate.format(_lastModifiedDate));
-		            resp.setHeader("Content-Length", String.valueOf(_fileLength));
-		            resp.setHeader("ETag", _eTag);
-
-                /* if we are in ADMIN MODE, don't cache */
-				}else{
-				    GregorianCalendar expiration = new GregorianCalendar();
-					expiration.add(java.util.Calendar.MONTH, -1);
-					resp.setHeader("Expires", DownloadUtil.httpDate.get().format(expiration.getTime()));
-					resp.setHeader("Cache-Control", "max-age=-1");
-				}
+			BinaryAssetIndex.Entry asset = new BinaryAssetIndex.Entry(data.getDataFile(), mimeType, downloadName, assetInode,
+					assetIdentifier, lang, byInode);
+			// Only content is indexed, the validator knows how to check it is still the version served
+			if (content != null && !isTempBinaryImage && (byInode || content.getLanguageId() == lang)) {
+				assetIndex.put(indexKey, asset);
 			}
+			sendAsset(req, resp, asset, session);
 
-			String rangeHeader = req.getHeader("range");
-			if(UtilMethods.isSet(rangeHeader)){
-
-				try {
-					out = resp.getOutputStream();
-					from = new FileInputStream(data.getDataFile()).getChannel();
-					to = Channels.newChannel(out);
-					//DOTCMS-5716
-					//32 MB at a time	
-					int maxTransferSize = (32 * 1024 * 1024) ;
-					long size = from.size();
-					long position = 0;
-					
-					boolean responseSent = false;
-					byte[] dataBytes = Files.toByteArray(data.getDataFile());
-		            //ServletOutputStream sos = resp.getOutputStream();
-					//extract range header
-					 resp.setHeader("Accept-Ranges", "bytes");
-					// Range header should match format "bytes=n-n,n-n,n-n...". If not, then return 416.
-					if (!rangeHeader.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
-						resp.setHeader("Content-Range", "bytes */" + dataBytes.length); // Required in 416.
-						resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-						return;
-					}
-					//parse multiple range bytes
-					ArrayList<SpeedyAssetServletUtil.ByteRange> ranges = SpeedyAssetServletUtil.parseRange(rangeHeader, dataBytes.length);
-					if (ranges != null){
-						SpeedyAssetServletUtil.ByteRange full = new SpeedyAssetServletUtil.ByteRange(0, data.getDataFile().length() - 1, data.getDataFile().length());
-						if (ranges.isEmpty() || ranges.get(0).equals(full)) {
-							// Return full file.
-							input = new RandomAccessFile(data.getDataFile(), "r");
-							SpeedyAssetServletUtil.ByteRange r = full;
-							resp.setContentType(fileAPI.getMimeType(data.getDataFile().getName()));
-							resp.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
-							resp.setHeader("Content-Length", String.valueOf(r.length));
-							// Copy full range.
-							SpeedyAssetServletUtil.copy(input, out, r.start, r.length);
-						} else if (ranges.size() == 1){
-							SpeedyAssetServletUtil.ByteRange range = ranges.get(0);
-							input = new RandomAccessFile(data.getDataFile(), "r");
-							// Check if Range is syntactically valid. If not, then return 416.
-							if (range.start > range.end) {
-								resp.setHeader("Content-Range", "bytes */" + dataBytes.length); // Required in 416.
-								resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-								return;
-							}
-							resp.setContentType(fileAPI.getMimeType(data.getDataFile().getName()));
-							resp.setHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + range.total);
-							resp.setHeader("Content-Length", String.valueOf(range.length));
-				            resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
-							SpeedyAssetServletUtil.copy(input, out, range.start, range.length);
-						}else{
-							resp.setContentType("multipart/byteranges; boundary=" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
-							resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-						    input = new RandomAccessFile(data.getDataFile(), "r");
-							for (SpeedyAssetServletUtil.ByteRange r : ranges) {
-								if (r.start > r.end) {
-									resp.setHeader("Content-Range", "bytes */" + dataBytes.length); // Required in 416.
-									resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-									return;
-								}
-								// Add multipart boundary and header fields for every range.
-								out.println();
-								out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
-								out.println("Content-Type: " + fileAPI.getMimeType(data.getDataFile().getName()));
-								out.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
-								out.println();
-
-								// Copy single part range of multi part range.
-								SpeedyAssetServletUtil.copy(input, out, r.start, r.length);
-							}
-							// End with multipart boundary.
-							out.println();
-							out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "--");
-						}
-						responseSent = true;
-					}
-				} catch (Exception e) {
-					Logger.warn(this, e + " Error for = " + req.getRequestURI() + (req.getQueryString() != null?"?"+req.getQueryString():"") );
-					Logger.debug(this, "Error serving asset = " + req.getRequestURI() + (req.getQueryString() != null?"?"+req.getQueryString():""), e);
-
-				} 
-			}else{
-				is = new FileInputStream(data.getDataFile());
-	            int count = 0;
-	            byte[] buffer = new byte[4096];
-	            out = resp.getOutputStream();
-	            
-	            while((count = is.read(buffer)) > 0) {
-	            	out.write(buffer, 0, count);
-	            }
-	            
-			}
-            
 		} catch (DotContentletStateException e) {
 			Logger.debug(BinaryExporterServlet.class, e.getMessage(),e);
 			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
@@ -671,56 +504,238 @@ public class BinaryExporterServlet extends HttpServlet {
 			Logger.error(BinaryExporterServlet.class, e.getMessage());
 			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
 		}
-		// close our resources no matter what
-		finally{
-			if(from!=null){
-				try{
-					from.close();
-				}
-				catch(Exception e){
-					Logger.debug(BinaryExporterServlet.class, e.getMessage());
-				}
+
+	}
+
+	/**
+	 * Sends the exported file, answering conditional requests with a 304 and
+	 * range requests with the requested ranges of the file.
+	 */
+	private void sendAsset(HttpServletRequest req, HttpServletResponse resp, BinaryAssetIndex.Entry asset, HttpSession session) throws IOException {
+		File file = asset.getFile();
+		String downloadName = asset.getDownloadName();
+		long length = asset.getSize();
+		String eTag = "\"" + asset.getETag() + "\"";
+
+		resp.setContentType(asset.getMimeType());
+		resp.setHeader("Content-Disposition", "inline; filename=" + UtilMethods.encodeURL(downloadName));
+
+		if (req.getParameter("dotcms_force_download") != null || req.getParameter("force_download") != null) {
+
+			// if we are downloading a jpeg version of a png or gif
+			String x = UtilMethods.getFileExtension(downloadName);
+			String y = UtilMethods.getFileExtension(file.getName());
+			if(!x.equals(y)){
+				downloadName = downloadName.replaceAll("\\." + x, "\\." + y);
 			}
+			resp.setHeader("Content-Disposition", "attachment; filename=" + UtilMethods.encodeURL(downloadName));
+			resp.setHeader("Content-Type", "application/force-download");
+		} else {
+
+			boolean _adminMode = false;
+			try {
+			    _adminMode = (session!=null && session.getAttribute(com.dotmarketing.util.WebKeys.ADMIN_MODE_SESSION) != null);
+			}catch(Exception e){
 
-			if(to!=null){
-				try{
-					to.close();
-				}
-				catch(Exception e){
-					Logger.debug(BinaryExporterServlet.class, e.getMessage());
-				}
 			}
-			
-			if(input!=null){
-				try{
-					input.close();
-				}
-				catch(Exception e){
-					Logger.debug(BinaryExporterServlet.class, e.getMessage());
+
+		    // Set the expiration time
+			if (!_adminMode) {
+
+			    int _daysCache = 365;
+			    GregorianCalendar expiration = new GregorianCalendar();
+				expiration.add(java.util.Calendar.DAY_OF_MONTH, _daysCache);
+				int seconds = (_daysCache * 24 * 60 * 60);
+
+				SimpleDateFormat httpDate = new SimpleDateFormat(Constants.RFC2822_FORMAT);
+				httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
+	            /* Setting cache friendly headers */
+	            resp.setHeader("Expires", httpDate.format(expiration.getTime()));
+	            resp.setHeader("Cache-Control", "public, max-age="+seconds);
+	            resp.setHeader("ETag", eTag);
+
+	            if(isNotModified(req, httpDate, eTag, asset.getLastModified())){
+	                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+	                return;
+	            }
+
+	            resp.setHeader("Last-Modified", httpDate.format(new Date(asset.getLastModified())));
+
+            /* if we are in ADMIN MODE, don't cache */
+			}else{
+			    GregorianCalendar expiration = new GregorianCalendar();
+				expiration.add(java.util.Calendar.MONTH, -1);
+				resp.setHeader("Expires", DownloadUtil.httpDate.get().format(expiration.getTime()));
+				resp.setHeader("Cache-Control", "max-age=-1");
+			}
+		}
+
+		resp.setHeader("Accept-Ranges", "bytes");
+		List<SpeedyAssetServletUtil.ByteRange> ranges = null;
+		String rangeHeader = req.getHeader("Range");
+		if(UtilMethods.isSet(rangeHeader) && isRangeCurrent(req, eTag, asset.getLastModified())){
+			// Range header should match format "bytes=n-n,n-n,n-n...". If not, then return 416.
+			if (!rangeHeader.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
+				resp.setHeader("Content-Range", "bytes */" + length); // Required in 416.
+				resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			ranges = new ArrayList<SpeedyAssetServletUtil.ByteRange>();
+			for (SpeedyAssetServletUtil.ByteRange range : SpeedyAssetServletUtil.parseRange(rangeHeader, length)) {
+				if (SpeedyAssetServletUtil.isSatisfiable(range, length)) {
+					ranges.add(range);
 				}
 			}
-			
-			if(is!=null){
-				try{
-					is.close();
+			if (ranges.isEmpty()) {
+				resp.setHeader("Content-Range", "bytes */" + length); // Required in 416.
+				resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			if (ranges.size() == 1 && ranges.get(0).length == length) {
+				// Return full file.
+				ranges = null;
+			}
+		}
+
+		FileChannel from = null;
+		try {
+			if (ranges == null) {
+				resp.setHeader("Content-Length", String.valueOf(length));
+				if (!sendFile(req, file, 0, length)) {
+					from = new FileInputStream(file).getChannel();
+					SpeedyAssetServletUtil.transfer(from, Channels.newChannel(resp.getOutputStream()), 0, length);
 				}
-				catch(Exception e){
-					Logger.debug(BinaryExporterServlet.class, e.getMessage());
+			} else if (ranges.size() == 1) {
+				SpeedyAssetServletUtil.ByteRange range = ranges.get(0);
+				resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
+				resp.setHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + range.total);
+				resp.setHeader("Content-Length", String.valueOf(range.length));
+				if (!sendFile(req, file, range.start, range.length)) {
+					from = new FileInputStream(file).getChannel();
+					SpeedyAssetServletUtil.transfer(from, Channels.newChannel(resp.getOutputStream()), range.start, range.length);
 				}
+			} else {
+				resp.setContentType("multipart/byteranges; boundary=" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
+				resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				from = new FileInputStream(file).getChannel();
+				ServletOutputStream out = resp.getOutputStream();
+				WritableByteChannel to = Channels.newChannel(out);
+				for (SpeedyAssetServletUtil.ByteRange r : ranges) {
+					// Add multipart boundary and header fields for every range.
+					out.println();
+					out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
+					out.println("Content-Type: " + asset.getMimeType());
+					out.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
+					out.println();
+
+					// Copy single part range of multi part range.
+					SpeedyAssetServletUtil.transfer(from, to, r.start, r.length);
+				}
+				// End with multipart boundary.
+				out.println();
+				out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "--");
 			}
-			
-			if(out!=null){
+		} catch (IOException e) {
+			// Mostly players and browsers closing the connection once they have what they need
+			Logger.debug(this, "Unable to send " + req.getRequestURI() + ": " + e.getMessage());
+		} finally {
+			if(from!=null){
 				try{
-					out.close();
+					from.close();
 				}
 				catch(Exception e){
 					Logger.debug(BinaryExporterServlet.class, e.getMessage());
 				}
 			}
-			
-			
 		}
-		
+	}
+
+	/**
+	 * If-None-Match wins over If-Modified-Since when the client sends both.
+	 */
+	private boolean isNotModified(HttpServletRequest req, SimpleDateFormat httpDate, String eTag, long lastModified) {
+		String ifNoneMatch = req.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return SpeedyAssetServletUtil.matchesETag(ifNoneMatch, eTag);
+		}
+		String ifModifiedSince = req.getHeader("If-Modified-Since");
+		if (ifModifiedSince != null) {
+			try {
+				return lastModified <= httpDate.parse(ifModifiedSince).getTime();
+			} catch (Exception e) {
+				Logger.debug(this, "Invalid If-Modified-Since: " + ifModifiedSince);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The ranges are only sent when the If-Range header, if any, still names
+	 * the file being sent, otherwise the whole file is.
+	 */
+	private boolean isRangeCurrent(HttpServletRequest req, String eTag, long lastModified) {
+		String ifRange = req.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+			return SpeedyAssetServletUtil.matchesETag(ifRange, eTag, true);
+		}
+		try {
+			return DownloadUtil.httpDate.get().parse(ifRange).getTime() == lastModified;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Lets the container send the file straight to the socket when it can.
+	 */
+	private boolean sendFile(HttpServletRequest req, File file, long start, long length) throws IOException {
+		if (!useSendFile || "HEAD".equals(req.getMethod())
+				|| !Boolean.TRUE.equals(req.getAttribute("org.apache.tomcat.sendfile.support"))) {
+			return false;
+		}
+		req.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+		req.setAttribute("org.apache.tomcat.sendfile.start", start);
+		req.setAttribute("org.apache.tomcat.sendfile.end", start + length);
+		return true;
+	}
+
+	/**
+	 * Checks an indexed asset the way an anonymous request checks the content:
+	 * a request by identifier gets the working version while the content has a
+	 * live one, a request by inode gets that version while the content has a
+	 * live one, and anonymous users need to be able to read it. The version
+	 * info, the contentlet and its permissions all come from their caches, so
+	 * a publish, unpublish, archive, delete or permission change is seen on
+	 * the next request.
+	 */
+	private static boolean isServableToAnonymous(BinaryAssetIndex.Entry asset) {
+		try {
+			ContentletVersionInfo info = APILocator.getVersionableAPI().getContentletVersionInfo(asset.getIdentifier(),
+					asset.getLanguageId());
+			if (info == null || info.isDeleted() || !UtilMethods.isSet(info.getLiveInode())) {
+				return false;
+			}
+			if (!asset.isByInode() && !asset.getInode().equals(info.getWorkingInode())) {
+				return false;
+			}
+			Contentlet content = APILocator.getContentletAPI().find(asset.getInode(), APILocator.getUserAPI().getSystemUser(), false);
+			return content != null && asset.getIdentifier().equals(content.getIdentifier())
+					&& APILocator.getPermissionAPI().doesUserHavePermission(content, PermissionAPI.PERMISSION_READ, null, true);
+		} catch (Exception e) {
+			Logger.debug(BinaryExporterServlet.class, "Unable to check the indexed asset " + asset.getInode() + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	private String getIndexKey(String uri, Map<String, String[]> params, long lang) {
+		StringBuilder key = new StringBuilder(uri).append('|').append(lang);
+		for (Map.Entry<String, String[]> param : params.entrySet()) {
+			key.append('|').append(param.getKey()).append('=').append(Arrays.toString(param.getValue()));
+		}
+		return key.toString();
 	}
 
 	@SuppressWarnings("unchecked")
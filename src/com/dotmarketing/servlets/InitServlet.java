@@ -1,5 +1,6 @@
 package com.dotmarketing.servlets;
 
+import com.dotcms.content.elasticsearch.business.FileMetaDataExtractor;
 import com.dotcms.content.elasticsearch.util.ESClient;
 import com.dotcms.enterprise.LicenseUtil;
 import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
@@ -271,6 +272,11 @@ public class InitServlet extends HttpServlet {
 			}
 			Logger.info(this, "");
 		}
+
+        // parses the metadata of the file assets left pending when the server last stopped
+        if(Config.getBooleanProperty("TIKA_ASYNC_EXTRACTION", true)) {
+            FileMetaDataExtractor.getInstance().resumePending();
+        }
 		
         /*
          * SHOULD BE LAST THING THAT HAPPENS
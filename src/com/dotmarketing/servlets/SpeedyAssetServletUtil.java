@@ -3,6 +3,8 @@ package com.dotmarketing.servlets;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 
 /**
@@ -35,7 +37,7 @@ public class SpeedyAssetServletUtil {
 	 * @param dataLen length of the byte range
 	 * @return
 	 */
-	protected static ArrayList<ByteRange> parseRange(String rangeHeader, int length){
+	protected static ArrayList<ByteRange> parseRange(String rangeHeader, long length){
         ArrayList<ByteRange> ranges = null;
         if (rangeHeader != null && rangeHeader.startsWith("bytes")){            
             ranges = new ArrayList<ByteRange>(8);
@@ -46,7 +48,7 @@ public class SpeedyAssetServletUtil {
             long end = sublong(part, part.indexOf("-") + 1, part.length());
 
             if (start == -1) {
-                start = length - end;
+                start = Math.max(length - end, 0);
                 end = length - 1;
             } else if (end == -1 || end > length - 1) {
                 end = length - 1;
@@ -92,7 +94,80 @@ public class SpeedyAssetServletUtil {
 		}
 	}
 
-    
+    /**
+     * Transfers the given byte range of the given file to the given channel. The file
+     * channel lets the JVM use the fastest copy the platform has for the target channel.
+     * @param from The file to transfer the range of.
+     * @param to The channel of the response.
+     * @param start Start of the byte range.
+     * @param length Length of the byte range.
+     * @throws IOException If something fails at I/O level.
+     */
+	protected static void transfer(FileChannel from, WritableByteChannel to, long start, long length) throws IOException {
+		long position = start;
+		long end = start + length;
+		while (position < end) {
+			long transferred = from.transferTo(position, end - position, to);
+			if (transferred <= 0) {
+				throw new IOException("File truncated while sending it, " + (end - position) + " bytes missing");
+			}
+			position += transferred;
+		}
+	}
+
+	/**
+	 * @param ifNoneMatch The value of the If-None-Match header.
+	 * @param eTag The entity tag of the file, with or without quotes.
+	 * @return true if any of the entity tags of the header is the one of the file, weak tags included.
+	 */
+	protected static boolean matchesETag(String ifNoneMatch, String eTag) {
+		return matchesETag(ifNoneMatch, eTag, false);
+	}
+
+	/**
+	 * @param header The value of the If-None-Match or If-Range header.
+	 * @param eTag The entity tag of the file, with or without quotes.
+	 * @param strong true for If-Range, where a weak tag never matches (RFC 7233, section 3.2).
+	 * @return true if any of the entity tags of the header is the one of the file.
+	 */
+	protected static boolean matchesETag(String header, String eTag, boolean strong) {
+		if (header == null) {
+			return false;
+		}
+		String tag = unquote(eTag);
+		for (String candidate : header.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.equals("*") && !strong) {
+				return true;
+			}
+			if (candidate.startsWith("W/")) {
+				if (strong) {
+					continue;
+				}
+				candidate = candidate.substring(2);
+			}
+			if (unquote(candidate).equals(tag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the range can be sent from a file of the given length.
+	 */
+	protected static boolean isSatisfiable(ByteRange range, long length) {
+		return range.start >= 0 && range.start <= range.end && range.start < length;
+	}
+
+	private static String unquote(String tag) {
+		tag = tag.trim();
+		if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+			return tag.substring(1, tag.length() - 1);
+		}
+		return tag;
+	}
+
    protected static class ByteRange {
 	   long start;
        long end;
@@ -0,0 +1,84 @@
+package com.dotmarketing.startup.runonce;
+
+import java.util.List;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.startup.AbstractJDBCStartupTask;
+
+/**
+ * Task to create the table where the full reindex saves how far it got streaming the contents into the new index.
+ */
+public class Task03540CreateReindexCheckpointTable extends AbstractJDBCStartupTask {
+
+    private static final String SQL = "create table reindex_checkpoint (index_name varchar(100) not null, "
+            + "last_identifier varchar(36), processed %s, status varchar(16) not null, server_id varchar(36), "
+            + "mod_date %s, primary key (index_name))";
+
+    @Override
+    public boolean forceRun() {
+        try {
+            DotConnect dc = new DotConnect();
+            dc.setSQL("select * from reindex_checkpoint");
+            dc.loadResult();
+            return false;
+        } catch (Exception ex) {
+            return true;
+        }
+    }
+
+    /**
+     * The SQL for Postgres
+     *
+     * @return
+     */
+    @Override
+    public String getPostgresScript() {
+        return String.format(SQL, "int8", "timestamp") + ";";
+    }
+
+    /**
+     * The SQL for MySQL
+     *
+     * @return
+     */
+    @Override
+    public String getMySQLScript() {
+        return String.format(SQL, "bigint", "datetime") + ";";
+    }
+
+    /**
+     * The SQL for Oracle
+     *
+     * @return
+     */
+    @Override
+    public String getOracleScript() {
+        return String.format(SQL, "number(19,0)", "timestamp").replaceAll("varchar\\(", "varchar2\\(") + ";";
+    }
+
+    /**
+     * The SQL for MSSQL
+     *
+     * @return
+     */
+    @Override
+    public String getMSSQLScript() {
+        return String.format(SQL, "numeric(19,0)", "datetime") + ";";
+    }
+
+    /**
+     * The SQL for H2
+     *
+     * @return
+     */
+    @Override
+    public String getH2Script() {
+        return String.format(SQL, "bigint", "timestamp") + ";";
+    }
+
+    @Override
+    protected List<String> getTablesToDropConstraints() {
+        return null;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.dotmarketing.startup.runonce;
+
+import java.util.List;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.startup.AbstractJDBCStartupTask;
+
+/**
+ * Task to add the time a record of the reindex journal was claimed by a server, claims older than the lease can be
+ * taken by other servers.
+ */
+public class Task03545AddReindexJournalClaimedAt extends AbstractJDBCStartupTask {
+
+    @Override
+    public boolean forceRun() {
+        try {
+            DotConnect dc = new DotConnect();
+            dc.setSQL("SELECT claimed_at FROM dist_reindex_journal WHERE 1=0");
+            dc.loadResult();
+            return false;
+        } catch (Exception ex) {
+            return true;
+        }
+    }
+
+    /**
+     * The SQL for Postgres
+     *
+     * @return
+     */
+    @Override
+    public String getPostgresScript() {
+        return "ALTER TABLE dist_reindex_journal ADD COLUMN claimed_at timestamp;";
+    }
+
+    /**
+     * The SQL for MySQL
+     *
+     * @return
+     */
+    @Override
+    public String getMySQLScript() {
+        return "ALTER TABLE dist_reindex_journal ADD claimed_at datetime;";
+    }
+
+    /**
+     * The SQL for Oracle
+     *
+     * @return
+     */
+    @Override
+    public String getOracleScript() {
+        return "ALTER TABLE dist_reindex_journal ADD claimed_at timestamp;";
+    }
+
+    /**
+     * The SQL for MSSQL
+     *
+     * @return
+     */
+    @Override
+    public String getMSSQLScript() {
+        return "ALTER TABLE dist_reindex_journal ADD claimed_at datetime;";
+    }
+
+    /**
+     * The SQL for H2
+     *
+     * @return
+     */
+    @Override
+    public String getH2Script() {
+        return "ALTER TABLE dist_reindex_journal ADD claimed_at timestamp;";
+    }
+
+    @Override
+    protected List<String> getTablesToDropConstraints() {
+        return null;
+    }
+
+}
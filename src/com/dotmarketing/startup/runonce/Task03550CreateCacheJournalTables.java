@@ -0,0 +1,104 @@
+package com.dotmarketing.startup.runonce;
+
+import java.util.List;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.startup.AbstractJDBCStartupTask;
+
+/**
+ * Task to create the cache journal, where cache invalidations are written once for the whole cluster, and the table
+ * where every server saves the last record of the journal it has read.
+ */
+public class Task03550CreateCacheJournalTables extends AbstractJDBCStartupTask {
+
+    private static final String CURSOR_SQL = "create table cache_journal_cursor (server_id varchar(64) not null, "
+            + "last_id %s not null, mod_date %s not null, primary key (server_id));";
+
+    @Override
+    public boolean forceRun() {
+        try {
+            DotConnect dc = new DotConnect();
+            dc.setSQL("select * from cache_journal_cursor");
+            dc.loadResult();
+            return false;
+        } catch (Exception ex) {
+            return true;
+        }
+    }
+
+    /**
+     * The SQL for Postgres
+     *
+     * @return
+     */
+    @Override
+    public String getPostgresScript() {
+        return "create table cache_journal (id bigserial not null, object_to_index varchar(1024) not null, "
+                + "serverid varchar(64), time_entered timestamp not null, primary key (id));\n"
+                + String.format(CURSOR_SQL, "int8", "timestamp");
+    }
+
+    /**
+     * The SQL for MySQL
+     *
+     * @return
+     */
+    @Override
+    public String getMySQLScript() {
+        return "create table cache_journal (id bigint not null auto_increment, object_to_index varchar(1024) not null, "
+                + "serverid varchar(64), time_entered datetime not null, primary key (id));\n"
+                + String.format(CURSOR_SQL, "bigint", "datetime");
+    }
+
+    /**
+     * The SQL for Oracle
+     *
+     * @return
+     */
+    @Override
+    public String getOracleScript() {
+        return "create table cache_journal (id number(19,0) not null, object_to_index varchar2(1024) not null, "
+                + "serverid varchar2(64), time_entered timestamp not null, primary key (id));\n"
+                + "create sequence cache_journal_id_seq start with 1 increment by 1;\n"
+                + "create trigger cache_journal_trg\n"
+                + "before insert on cache_journal\n"
+                + "for each row\n"
+                + "when (new.id is null)\n"
+                + "begin\n"
+                + "select cache_journal_id_seq.nextval into :new.id from dual;\n"
+                + "end;\n"
+                + "/\n"
+                + String.format(CURSOR_SQL, "number(19,0)", "timestamp").replaceAll("varchar\\(", "varchar2\\(");
+    }
+
+    /**
+     * The SQL for MSSQL
+     *
+     * @return
+     */
+    @Override
+    public String getMSSQLScript() {
+        return "create table cache_journal (id bigint not null identity (1, 1), object_to_index varchar(1024) not null, "
+                + "serverid varchar(64), time_entered datetime not null, primary key (id));\n"
+                + String.format(CURSOR_SQL, "bigint", "datetime");
+    }
+
+    /**
+     * The SQL for H2
+     *
+     * @return
+     */
+    @Override
+    public String getH2Script() {
+        return "create table cache_journal (id bigint generated by default as identity (start with 1), "
+                + "object_to_index varchar(1024) not null, serverid varchar(64), time_entered timestamp not null, "
+                + "primary key (id));\n"
+                + String.format(CURSOR_SQL, "bigint", "timestamp");
+    }
+
+    @Override
+    protected List<String> getTablesToDropConstraints() {
+        return null;
+    }
+
+}
@@ -146,6 +146,9 @@ public class TaskLocatorUtil {
 		ret.add(Task03525LowerTagsTagname.class);
 		ret.add(Task03530AlterTagInode.class);
 		ret.add(Task03535RemoveTagsWithoutATagname.class);
+		ret.add(Task03540CreateReindexCheckpointTable.class);
+		ret.add(Task03545AddReindexJournalClaimedAt.class);
+		ret.add(Task03550CreateCacheJournalTables.class);
         return ret;
     }
 
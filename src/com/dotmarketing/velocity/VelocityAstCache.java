@@ -0,0 +1,229 @@
+package com.dotmarketing.velocity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Keeps the parsed, not yet initialized, velocity templates on the local disk,
+ * so a template whose source did not change is not parsed again after a
+ * restart or a cache flush. Every template has one file, named after its
+ * resource key, holding the checksum of the source it was parsed from.
+ * Files whose source changed are deleted when they are read, and files not
+ * read for VELOCITY_AST_CACHE_MAX_AGE_DAYS, templates that are gone or no
+ * longer used, are deleted at most once an hour.
+ */
+public class VelocityAstCache {
+
+	// Changes whenever the format of the files or the nodes changes
+	private static final int FORMAT = 1;
+
+	private static final long PRUNE_INTERVAL = 60 * 60 * 1000L;
+
+	private static VelocityAstCache instance;
+
+	private final boolean enabled;
+	private final File directory;
+	private final long maxAgeMillis;
+
+	private volatile long lastPrune = System.currentTimeMillis();
+
+	VelocityAstCache(boolean enabled, File directory, long maxAgeMillis) {
+		this.enabled = enabled;
+		this.directory = directory;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	public static synchronized VelocityAstCache getInstance() {
+		if (instance == null) {
+			String path = Config.getStringProperty("VELOCITY_AST_CACHE_DIR", null);
+			if (!UtilMethods.isSet(path)) {
+				path = ConfigUtils.getDynamicContentPath() + File.separator
+						+ "velocity" + File.separator + "ast";
+			}
+			instance = new VelocityAstCache(Config.getBooleanProperty(
+					"VELOCITY_AST_CACHE_ENABLED", true), new File(path),
+					Config.getIntProperty("VELOCITY_AST_CACHE_MAX_AGE_DAYS", 30)
+							* 24L * 60 * 60 * 1000);
+		}
+		return instance;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param source
+	 *            - The bytes of the template.
+	 * @param encoding
+	 *            - The encoding the template is read with.
+	 * @return The checksum identifying the source of a template.
+	 */
+	public static String checksum(byte[] source, String encoding) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			digest.update(String.valueOf(encoding).getBytes("UTF-8"));
+			digest.update((byte) 0);
+			return toHex(digest.digest(source));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return The template parsed from the source with the given checksum, or
+	 *         {@code null} when it was not kept or its source changed.
+	 */
+	public SimpleNode get(String name, String checksum) {
+		if (!enabled) {
+			return null;
+		}
+		File file = getFile(name);
+		if (!file.exists()) {
+			return null;
+		}
+		ObjectInputStream in = null;
+		boolean stale = true;
+		try {
+			in = new ObjectInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			if (in.readInt() != FORMAT || !name.equals(in.readUTF())
+					|| !checksum.equals(in.readUTF())) {
+				return null;
+			}
+			SimpleNode data = (SimpleNode) in.readObject();
+			stale = false;
+			return data;
+		} catch (Exception e) {
+			// Written by another version of the nodes, it is parsed again
+			Logger.debug(this, "Unable to read the parsed template " + name
+					+ ": " + e.getMessage());
+			return null;
+		} finally {
+			close(in);
+			if (stale) {
+				file.delete();
+			} else {
+				// Read files are kept by the prune
+				file.setLastModified(System.currentTimeMillis());
+			}
+		}
+	}
+
+	/**
+	 * Keeps a template that was just parsed. It must not be initialized yet.
+	 */
+	public void put(String name, String checksum, SimpleNode data) {
+		if (!enabled || data == null) {
+			return;
+		}
+		if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+			Logger.warn(this, "Unable to create " + directory.getAbsolutePath());
+			return;
+		}
+		File file = getFile(name);
+		File temp = new File(directory, file.getName() + "."
+				+ Thread.currentThread().getId() + ".tmp");
+		ObjectOutputStream out = null;
+		try {
+			out = new ObjectOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temp)));
+			out.writeInt(FORMAT);
+			out.writeUTF(name);
+			out.writeUTF(checksum);
+			out.writeObject(data);
+			out.close();
+			out = null;
+			// Readers only ever see complete files
+			if (!temp.renameTo(file)) {
+				file.delete();
+				if (!temp.renameTo(file)) {
+					Logger.debug(this, "Unable to keep the parsed template " + name);
+				}
+			}
+		} catch (Exception e) {
+			Logger.warn(this, "Unable to keep the parsed template " + name
+					+ ": " + e.getMessage());
+		} finally {
+			close(out);
+			temp.delete();
+		}
+		pruneIfDue(System.currentTimeMillis());
+	}
+
+	/**
+	 * Deletes the files not read for the max age, and the temp files left
+	 * by writes that did not finish, at most once an hour.
+	 */
+	void pruneIfDue(long now) {
+		if (now - lastPrune < PRUNE_INTERVAL) {
+			return;
+		}
+		lastPrune = now;
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		int deleted = 0;
+		for (File file : files) {
+			long age = now - file.lastModified();
+			boolean expired = file.getName().endsWith(".ast") ? age > maxAgeMillis
+					: file.getName().endsWith(".tmp") && age > PRUNE_INTERVAL;
+			if (expired && file.delete()) {
+				deleted++;
+			}
+		}
+		if (deleted > 0) {
+			Logger.info(this, "Deleted " + deleted + " parsed templates not used for "
+					+ maxAgeMillis / (24L * 60 * 60 * 1000) + " days");
+		}
+	}
+
+	File getFile(String name) {
+		try {
+			return new File(directory, toHex(MessageDigest.getInstance("MD5")
+					.digest(name.getBytes("UTF-8"))) + ".ast");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+			hex.append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	private static void close(java.io.Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+}
@@ -49,6 +49,7 @@ import com.dotmarketing.beans.UserProxy;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.BlockPageCache;
 import com.dotmarketing.business.BlockPageCache.PageCacheParameters;
+import com.dotmarketing.business.BlockPageCacheEntry;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.business.portal.PortletAPI;
@@ -588,51 +589,60 @@ public abstract class VelocityServlet extends HttpServlet {
 			PageCacheParameters cacheParameters = new BlockPageCache.PageCacheParameters(userId, language, urlMap, queryString, persona);
 
     		boolean buildCache = false;
+    		BlockPageCache pageCache = CacheLocator.getBlockPageCache();
     		String key = VelocityUtil.getPageCacheKey(request, response);
     		if (key != null) {
-    			String cachedPage = CacheLocator.getBlockPageCache().get(page, cacheParameters);
-    			if (cachedPage == null || "refresh".equals(request.getParameter("dotcache"))
+    			boolean refresh = "refresh".equals(request.getParameter("dotcache"))
     					|| "refresh".equals(request.getAttribute("dotcache"))
-    					|| (request.getSession(false) !=null && "refresh".equals(request.getSession(true).getAttribute("dotcache")))) {
-    				// build cached response
+    					|| (request.getSession(false) !=null && "refresh".equals(request.getSession(true).getAttribute("dotcache")));
+    			BlockPageCacheEntry cachedPage = pageCache.lookup(page, cacheParameters, refresh);
+    			if (cachedPage == null) {
+    				// build cached response, other requests of this page get the stale version or wait for it
     				buildCache = true;
     			} else {
     				// have cached response and are not refreshing, send it
-    				response.getWriter().write(cachedPage);
+    				cachedPage.writeTo(request, response);
     				return;
     			}
     		}
-    
-    		Writer out = (buildCache) ? new StringWriter(4096) : new VelocityFilterWriter(response.getWriter());
-    		//get the context from the requst if possible
-    		Context context = VelocityUtil.getWebContext(request, response);
-    		request.setAttribute("velocityContext", context);
-    		Logger.debug(VelocityServlet.class, "HTMLPage Identifier:" + ident.getInode());
 
     		try {
+    			Writer out = (buildCache) ? new StringWriter(4096) : new VelocityFilterWriter(response.getWriter());
+    			//get the context from the requst if possible
+    			Context context = VelocityUtil.getWebContext(request, response);
+    			request.setAttribute("velocityContext", context);
+    			Logger.debug(VelocityServlet.class, "HTMLPage Identifier:" + ident.getInode());
+
+    			long renderStart = System.currentTimeMillis();
+    			try {
+
+    				if ( page.isContent() ) {
+    					VelocityUtil.getEngine().getTemplate("/live/" + ident.getInode() + "_" + page.getLanguageId()
+    							+ "." + VELOCITY_HTMLPAGE_EXTENSION).merge(context, out);
+    				} else {
+    					VelocityUtil.getEngine().getTemplate("/live/" + ident.getInode()
+    							+ "." + VELOCITY_HTMLPAGE_EXTENSION).merge(context, out);
+    				}
 
-				if ( page.isContent() ) {
-					VelocityUtil.getEngine().getTemplate("/live/" + ident.getInode() + "_" + page.getLanguageId()
-							+ "." + VELOCITY_HTMLPAGE_EXTENSION).merge(context, out);
-				} else {
-					VelocityUtil.getEngine().getTemplate("/live/" + ident.getInode()
-							+ "." + VELOCITY_HTMLPAGE_EXTENSION).merge(context, out);
-				}
-
-			} catch (Throwable e) {
-    			Logger.warn(this, "can't do live mode merge", e);
-    		}
-    		session = request.getSession(false);
-    		if (buildCache) {
-    			String trimmedPage = out.toString().trim();
-    			response.getWriter().write(trimmedPage);
-    			response.getWriter().close();
-    			synchronized (key.intern()) {
-    				//CacheLocator.getHTMLPageCache().remove(page);
-    				CacheLocator.getBlockPageCache().add(page, trimmedPage, cacheParameters);
+    			} catch (Throwable e) {
+    				Logger.warn(this, "can't do live mode merge", e);
+    			}
+    			session = request.getSession(false);
+    			if (buildCache) {
+    				String trimmedPage = out.toString().trim();
+    				// cached before writing it, so the requests waiting for it can be answered
+    				pageCache.add(page, trimmedPage, response.getCharacterEncoding(), cacheParameters,
+    						System.currentTimeMillis() - renderStart);
+    				pageCache.release(page, cacheParameters);
+    				response.getWriter().write(trimmedPage);
+    				response.getWriter().close();
+    			} else {
+    				out.close();
+    			}
+    		} finally {
+    			if (buildCache) {
+    				pageCache.release(page, cacheParameters);
     			}
-    		} else {
-    			out.close();
     		}
 	    }
 	    finally {
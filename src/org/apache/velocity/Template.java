@@ -20,6 +20,7 @@ package org.apache.velocity;
  */
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -43,9 +44,11 @@ import org.apache.velocity.runtime.parser.node.SimpleNode;
 import org.apache.velocity.runtime.resource.Resource;
 import org.apache.velocity.runtime.resource.ResourceManager;
 
+import com.dotcms.repackage.org.apache.commons.io.IOUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.VelocityUtil;
 import com.dotmarketing.velocity.DotResourceLoader;
+import com.dotmarketing.velocity.VelocityAstCache;
 
 /**
  * This class is used for controlling all template
@@ -135,8 +138,28 @@ public class Template extends Resource
 
             try
             {
-                BufferedReader br = new BufferedReader( new InputStreamReader( is, encoding ) );
-                data = VelocityUtil.getEngine().getRuntimeServices().parse( br, name);
+                VelocityAstCache astCache = VelocityAstCache.getInstance();
+                if (astCache.isEnabled())
+                {
+                    /*
+                     *  reuse the template parsed from the same source, it is
+                     *  kept before being initialized
+                     */
+                    byte[] source = IOUtils.toByteArray(is);
+                    String checksum = VelocityAstCache.checksum(source, encoding);
+                    data = astCache.get(name, checksum);
+                    if (data == null)
+                    {
+                        BufferedReader br = new BufferedReader( new InputStreamReader( new ByteArrayInputStream(source), encoding ) );
+                        data = VelocityUtil.getEngine().getRuntimeServices().parse( br, name);
+                        astCache.put(name, checksum, (SimpleNode) data);
+                    }
+                }
+                else
+                {
+                    BufferedReader br = new BufferedReader( new InputStreamReader( is, encoding ) );
+                    data = VelocityUtil.getEngine().getRuntimeServices().parse( br, name);
+                }
                 initDocument();
                 return true;
             }
@@ -148,6 +171,11 @@ public class Template extends Resource
                 errorCondition  = new ParseErrorException( msg );
                 throw errorCondition;
             }
+            catch( IOException ioe )
+            {
+                errorCondition = new VelocityException("Exception reading Template " + name, ioe);
+                throw errorCondition;
+            }
             catch ( ParseException pex )
             {
                 /*
@@ -12,8 +12,10 @@ import org.apache.velocity.runtime.parser.node.SimpleNodeTest;
 
 import com.dotcms.cmis.DotCMSCMISTest;
 import com.dotcms.content.elasticsearch.business.ESContentFactoryImplTest;
+import com.dotcms.content.elasticsearch.business.ESContentletAPIImplTest;
 import com.dotcms.content.elasticsearch.business.ESContentletIndexAPITest;
 import com.dotcms.content.elasticsearch.business.ESIndexSpeedTest;
+import com.dotcms.content.elasticsearch.business.ESMappingAPITest;
 import com.dotcms.csspreproc.CSSPreProcessServletTest;
 import com.dotcms.csspreproc.LessCompilerTest;
 import com.dotcms.csspreproc.SassCompilerTest;
@@ -103,6 +105,8 @@ import com.dotmarketing.webdav.WebDavTest;
     SiteSearchAjaxActionTest.class,
     CSSPreProcessServletTest.class, //Needs Enterprise License
     ESContentFactoryImplTest.class,
+    ESContentletAPIImplTest.class,
+    ESMappingAPITest.class,
     HibernateUtilTest.class,
     WorkflowAPITest.class,
     ContentletAjaxTest.class,
@@ -3,8 +3,10 @@ package com.dotcms.content.elasticsearch.business;
 import com.dotcms.repackage.org.junit.Assert;
 import com.dotcms.repackage.org.junit.Test;
 import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 
@@ -36,6 +38,39 @@ public class ESContentFactoryImplTest {
         Assert.assertEquals(0, inodesSet.size());
     }
 
+    @Test
+    public void findContentlets_InTheOrderOfTheInodes() throws Exception {
+        List<String> inodes = workingInodes(20);
+        Collections.reverse(inodes);
+
+        //Some of them in cache, the rest loaded in several batches
+        CacheLocator.getContentletCache().clearCache();
+        for ( int i = 0; i < inodes.size(); i += 3 ) {
+            instance.find(inodes.get(i));
+        }
+        int batchSize = Config.getIntProperty("BULK_LOAD_BATCH_SIZE", 200);
+        Config.setProperty("BULK_LOAD_BATCH_SIZE", 4);
+        List<Contentlet> contentlets;
+        try {
+            contentlets = instance.findContentlets(inodes);
+        } finally {
+            Config.setProperty("BULK_LOAD_BATCH_SIZE", batchSize);
+        }
+
+        Assert.assertEquals(inodes, inodesOf(contentlets));
+    }
+
+    @Test
+    public void findContentlets_DuplicatedAndUnknownInodes() throws Exception {
+        List<String> inodes = workingInodes(3);
+        String a = inodes.get(0), b = inodes.get(1), c = inodes.get(2);
+
+        CacheLocator.getContentletCache().clearCache();
+        List<Contentlet> contentlets = instance.findContentlets(Arrays.asList(b, "not-an-inode", a, b, c, a));
+
+        Assert.assertEquals(Arrays.asList(b, a, c), inodesOf(contentlets));
+    }
+
     @Test
     public void saveContentlets() throws Exception {
         try {
@@ -99,4 +134,24 @@ public class ESContentFactoryImplTest {
         assertTrue(searchHits.getHits()[0].getScore() > searchHits.getHits()[1].getScore());
     }
 
-}
\ No newline at end of file
+    private static List<String> workingInodes ( int max ) throws Exception {
+        DotConnect dc = new DotConnect();
+        dc.setSQL("select working_inode from contentlet_version_info order by identifier, lang");
+        dc.setMaxRows(max);
+        List<String> inodes = new ArrayList<String>();
+        for ( Map<String, Object> r : dc.loadObjectResults() ) {
+            inodes.add((String) r.get("working_inode"));
+        }
+        Assert.assertEquals(max, inodes.size());
+        return inodes;
+    }
+
+    private static List<String> inodesOf ( List<Contentlet> contentlets ) {
+        List<String> inodes = new ArrayList<String>();
+        for ( Contentlet contentlet : contentlets ) {
+            inodes.add(contentlet.getInode());
+        }
+        return inodes;
+    }
+
+}
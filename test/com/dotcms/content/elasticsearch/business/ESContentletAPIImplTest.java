@@ -0,0 +1,243 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.TestBase;
+import com.dotcms.repackage.org.junit.Test;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.PermissionAPI;
+import com.dotmarketing.business.Role;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.json.JSONArray;
+import com.dotmarketing.util.json.JSONObject;
+import com.liferay.portal.model.User;
+
+import java.util.*;
+
+import static com.dotcms.repackage.org.junit.Assert.*;
+
+/**
+ * Checks the terms of the permission filter against the ones {@link ESMappingAPIImpl} indexes for each role, and the
+ * contentlets loaded for a page of search results
+ */
+public class ESContentletAPIImplTest extends TestBase {
+
+    final ESContentletAPIImpl instance = new ESContentletAPIImpl();
+
+    @Test
+    public void buildPermissionFilter_TermsOfTheUserRoles() throws Exception {
+        User user = APILocator.getUserAPI().loadUserById("dotcms.org.2806");
+        List<Role> roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
+        assertFalse(roles.isEmpty());
+
+        JSONObject filter = new JSONObject(instance.buildPermissionFilter(user, roles, false).toString());
+
+        assertEquals(readTerms(roles), cachedTerms(filter));
+        assertOwner(filter, user);
+    }
+
+    @Test
+    public void buildPermissionFilter_FrontendTermsOfALoggedInUser() throws Exception {
+        User user = APILocator.getUserAPI().loadUserById("dotcms.org.2806");
+        List<Role> roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
+
+        JSONObject filter = new JSONObject(instance.buildPermissionFilter(user, roles, true).toString());
+
+        List<String> expected = readTerms(roles);
+        expected.add(readTerm(APILocator.getRoleAPI().loadCMSAnonymousRole()));
+        expected.add(readTerm(APILocator.getRoleAPI().loadLoggedinSiteRole()));
+        assertEquals(expected, cachedTerms(filter));
+        assertOwner(filter, user);
+    }
+
+    @Test
+    public void buildPermissionFilter_CMSAnonymous() throws Exception {
+        List<String> anonymousOnly = Collections.singletonList(readTerm(APILocator.getRoleAPI().loadCMSAnonymousRole()));
+
+        //No user at all, only what CMS Anonymous can read
+        JSONObject filter = new JSONObject(instance.buildPermissionFilter(null, new ArrayList<Role>(), true).toString());
+        assertEquals(anonymousOnly, cachedTerms(filter));
+        assertNull(owner(filter));
+
+        //The anonymous user does not get the logged in site role
+        User anonymous = APILocator.getUserAPI().getAnonymousUser();
+        filter = new JSONObject(instance.buildPermissionFilter(anonymous, new ArrayList<Role>(), true).toString());
+        assertEquals(anonymousOnly, cachedTerms(filter));
+        assertOwner(filter, anonymous);
+    }
+
+    @Test
+    public void findContentletsByIdentifiers_InTheOrderOfTheIdentifiers() throws Exception {
+        List<String> identifiers = identifiers("select identifier from contentlet_version_info where lang=? order by identifier", 20);
+        Collections.reverse(identifiers);
+
+        //Some of them in cache, the rest loaded in several batches
+        CacheLocator.getContentletCache().clearCache();
+        CacheLocator.getIdentifierCache().clearCache();
+        for ( int i = 0; i < identifiers.size(); i += 3 ) {
+            instance.findContentletsByIdentifiers(Collections.singletonList(identifiers.get(i)), false, defaultLanguage(),
+                    APILocator.getUserAPI().getSystemUser(), false);
+        }
+        int batchSize = Config.getIntProperty("BULK_LOAD_BATCH_SIZE", 200);
+        Config.setProperty("BULK_LOAD_BATCH_SIZE", 4);
+        List<Contentlet> contentlets;
+        try {
+            contentlets = instance.findContentletsByIdentifiers(identifiers, false, defaultLanguage(),
+                    APILocator.getUserAPI().getSystemUser(), false);
+        } finally {
+            Config.setProperty("BULK_LOAD_BATCH_SIZE", batchSize);
+        }
+
+        assertEquals(identifiers, identifiersOf(contentlets));
+        for ( Contentlet contentlet : contentlets ) {
+            assertEquals(defaultLanguage().get(0).longValue(), contentlet.getLanguageId());
+        }
+    }
+
+    @Test
+    public void findContentletsByIdentifiers_DuplicatedIdentifiers() throws Exception {
+        List<String> identifiers = identifiers("select identifier from contentlet_version_info where lang=? order by identifier", 3);
+        String a = identifiers.get(0), b = identifiers.get(1), c = identifiers.get(2);
+
+        List<Contentlet> contentlets = instance.findContentletsByIdentifiers(Arrays.asList(b, a, b, c, a), false,
+                defaultLanguage(), APILocator.getUserAPI().getSystemUser(), false);
+
+        assertEquals(Arrays.asList(b, a, c), identifiersOf(contentlets));
+    }
+
+    @Test
+    public void findContentletsByIdentifiers_SkipsIdentifiersWithoutTheVersion() throws Exception {
+        List<String> live = identifiers("select identifier from contentlet_version_info where lang=? and live_inode is not null order by identifier", 2);
+        List<String> workingOnly = identifiers("select identifier from contentlet_version_info where lang=? and live_inode is null order by identifier", -2);
+
+        List<String> identifiers = new ArrayList<String>();
+        identifiers.add(live.get(0));
+        identifiers.addAll(workingOnly);
+        identifiers.add("not-an-identifier");
+        identifiers.add(live.get(1));
+
+        List<Contentlet> contentlets = instance.findContentletsByIdentifiers(identifiers, true, defaultLanguage(),
+                APILocator.getUserAPI().getSystemUser(), false);
+        assertEquals(live, identifiersOf(contentlets));
+
+        //The working versions are all there, the unknown identifier is still skipped
+        contentlets = instance.findContentletsByIdentifiers(identifiers, false, defaultLanguage(),
+                APILocator.getUserAPI().getSystemUser(), false);
+        identifiers.remove("not-an-identifier");
+        assertEquals(identifiers, identifiersOf(contentlets));
+    }
+
+    private static List<Long> defaultLanguage () {
+        return Collections.singletonList(APILocator.getLanguageAPI().getDefaultLanguage().getId());
+    }
+
+    /**
+     * The identifiers returned by the given query on the default language, failing when there are less than
+     * {@code max} of them unless {@code max} is negative
+     */
+    private static List<String> identifiers ( String sql, int max ) throws Exception {
+        DotConnect dc = new DotConnect();
+        dc.setSQL(sql);
+        dc.addParam(defaultLanguage().get(0));
+        dc.setMaxRows(Math.abs(max));
+        List<String> identifiers = new ArrayList<String>();
+        for ( Map<String, Object> r : dc.loadObjectResults() ) {
+            identifiers.add((String) r.get("identifier"));
+        }
+        if ( max > 0 ) {
+            assertEquals(max, identifiers.size());
+        }
+        return identifiers;
+    }
+
+    private static List<String> identifiersOf ( List<Contentlet> contentlets ) {
+        List<String> identifiers = new ArrayList<String>();
+        for ( Contentlet contentlet : contentlets ) {
+            identifiers.add(contentlet.getIdentifier());
+        }
+        return identifiers;
+    }
+
+    private static List<String> readTerms ( List<Role> roles ) {
+        List<String> terms = new ArrayList<String>();
+        for ( Role role : roles ) {
+            terms.add(readTerm(role));
+        }
+        return terms;
+    }
+
+    /**
+     * The term indexed for a role that can read, lowercased as the permissions field is
+     */
+    private static String readTerm ( Role role ) {
+        return ESMappingAPIImpl.permissionTerm(role.getId(), PermissionAPI.PERMISSION_READ).toLowerCase();
+    }
+
+    /**
+     * The terms of the cached terms filter on the permissions field
+     */
+    private static List<String> cachedTerms ( JSONObject filter ) throws Exception {
+        for ( JSONObject should : shouldClauses(filter) ) {
+            if ( should.has("terms") ) {
+                JSONObject terms = should.getJSONObject("terms");
+                assertTrue(terms.getBoolean("_cache"));
+                JSONArray permissions = terms.getJSONArray("permissions");
+                List<String> values = new ArrayList<String>();
+                for ( int i = 0; i < permissions.length(); i++ ) {
+                    values.add(permissions.getString(i));
+                }
+                return values;
+            }
+        }
+        fail("No terms filter on the permissions: " + filter);
+        return null;
+    }
+
+    private static void assertOwner ( JSONObject filter, User user ) throws Exception {
+        JSONObject owner = owner(filter);
+        assertNotNull("No owner clause: " + filter, owner);
+
+        Map<String, String> terms = new HashMap<String, String>();
+        for ( JSONObject must : clauses(owner.getJSONObject("bool"), "must") ) {
+            JSONObject term = must.getJSONObject("term");
+            String field = (String) term.keys().next();
+            terms.put(field, term.getString(field));
+        }
+        assertEquals(user.getUserId().toLowerCase(), terms.get("owner"));
+        assertEquals("true", terms.get("ownercanread"));
+    }
+
+    private static JSONObject owner ( JSONObject filter ) throws Exception {
+        for ( JSONObject should : shouldClauses(filter) ) {
+            if ( should.has("bool") ) {
+                return should;
+            }
+        }
+        return null;
+    }
+
+    private static List<JSONObject> shouldClauses ( JSONObject filter ) throws Exception {
+        return clauses(filter.getJSONObject("bool"), "should");
+    }
+
+    /**
+     * The clauses of a bool filter, written as an object when there is only one
+     */
+    private static List<JSONObject> clauses ( JSONObject bool, String occur ) throws Exception {
+        List<JSONObject> clauses = new ArrayList<JSONObject>();
+        if ( !bool.has(occur) ) {
+            return clauses;
+        }
+        Object value = bool.get(occur);
+        if ( value instanceof JSONArray ) {
+            for ( int i = 0; i < ((JSONArray) value).length(); i++ ) {
+                clauses.add(((JSONArray) value).getJSONObject(i));
+            }
+        } else {
+            clauses.add((JSONObject) value);
+        }
+        return clauses;
+    }
+
+}
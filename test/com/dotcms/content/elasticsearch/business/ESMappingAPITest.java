@@ -0,0 +1,80 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.TestBase;
+import com.dotcms.repackage.org.junit.Test;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.Permissionable;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+
+import java.util.*;
+
+import static com.dotcms.repackage.org.junit.Assert.*;
+
+/**
+ * Checks the maps built with the prefetched data of several contentlets against the ones built one by one
+ */
+public class ESMappingAPITest extends TestBase {
+
+    @Test
+    public void toMaps_SameAsToMapOfEachContentlet() throws Exception {
+        List<Contentlet> contentlets = findWorkingContentlets(200);
+        ESMappingAPIImpl mappingAPI = new ESMappingAPIImpl();
+
+        //Half of the permissions in cache, the other half loaded by the prefetch
+        CacheLocator.getPermissionCache().clearCache();
+        for ( int i = 0; i < contentlets.size(); i += 2 ) {
+            APILocator.getPermissionAPI().getPermissions(contentlets.get(i), false, false, false);
+        }
+        Map<String, Map<String, Object>> prefetched = mappingAPI.toMaps(contentlets);
+
+        assertEquals(contentlets.size(), prefetched.size());
+        for ( Contentlet con : contentlets ) {
+            Map<String, Object> map = mappingAPI.toMap(con);
+            assertEquals(con.getInode(), map.get("permissions"), prefetched.get(con.getInode()).get("permissions"));
+            assertEquals(con.getInode(), map, prefetched.get(con.getInode()));
+        }
+    }
+
+    @Test
+    public void getPermissions_OfSeveral_SameAsOneByOne() throws Exception {
+        List<Contentlet> contentlets = findWorkingContentlets(200);
+        List<Permissionable> permissionables = new ArrayList<Permissionable>(contentlets);
+
+        for ( boolean bitPermissions : new boolean[]{ true, false } ) {
+            CacheLocator.getPermissionCache().clearCache();
+            Map<Permissionable, List<Permission>> several = APILocator.getPermissionAPI().getPermissions(permissionables, bitPermissions);
+
+            CacheLocator.getPermissionCache().clearCache();
+            for ( Contentlet con : contentlets ) {
+                List<Permission> one = APILocator.getPermissionAPI().getPermissions(con, bitPermissions);
+                assertEquals(con.getInode(), permissionStrings(one), permissionStrings(several.get(con)));
+            }
+        }
+    }
+
+    private List<Contentlet> findWorkingContentlets ( int max ) throws Exception {
+        DotConnect dc = new DotConnect();
+        dc.setSQL("select working_inode from contentlet_version_info");
+        dc.setMaxRows(max);
+        List<String> inodes = new ArrayList<String>();
+        for ( Map<String, Object> r : dc.loadObjectResults() ) {
+            inodes.add((String) r.get("working_inode"));
+        }
+
+        List<Contentlet> contentlets = new ESContentFactoryImpl().findContentlets(inodes);
+        assertFalse(contentlets.isEmpty());
+        return contentlets;
+    }
+
+    private Set<String> permissionStrings ( List<Permission> permissions ) {
+        Set<String> strings = new TreeSet<String>();
+        for ( Permission p : permissions ) {
+            strings.add(p.getType() + ":" + p.getInode() + ":" + p.getRoleId() + ":" + p.getPermission());
+        }
+        return strings;
+    }
+
+}
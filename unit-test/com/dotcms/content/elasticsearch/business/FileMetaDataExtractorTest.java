@@ -0,0 +1,240 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the queue and the limits of the extraction with the parse and the save of the metadata stubbed out
+ */
+public class FileMetaDataExtractorTest {
+
+    private static final Map<String, String> BASIC = Collections.singletonMap("contentType", "application/pdf");
+    private static final Map<String, String> PARSED = Collections.singletonMap("content", "parsed");
+
+    private File file;
+    private FileMetaDataExtractor extractor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = File.createTempFile("document", ".pdf");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[100]);
+        out.close();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        if ( extractor != null ) {
+            extractor.shutdown();
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testSubmit_WhenQueueIsFull_RetriesWithoutParsingOnTheCaller() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> extracted = new CopyOnWriteArrayList<>();
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        extractor = new FileMetaDataExtractor(1, 1, 0, 0, 50, 2, null) {
+            @Override
+            void extract(String inode) throws Exception {
+                threads.add(Thread.currentThread());
+                release.await(5, TimeUnit.SECONDS);
+                extracted.add(inode);
+            }
+        };
+
+        extractor.submit("running");
+        extractor.submit("queued");
+        long start = System.currentTimeMillis();
+        extractor.submit("retried");
+        extractor.submit("dropped");
+        long waited = System.currentTimeMillis() - start;
+
+        //Each submit waits at most the submit wait, and never runs the extraction itself
+        assertTrue(waited < 1000, "Waited " + waited + "ms");
+        assertFalse(threads.contains(Thread.currentThread()));
+        Map<String, Object> stats = extractor.getStats();
+        assertEquals(stats.get("retried"), 1L);
+        assertEquals(stats.get("dropped"), 1L);
+
+        release.countDown();
+        waitFor(extracted, 3);
+        assertEquals(new HashSet<>(extracted), new HashSet<>(Arrays.asList("running", "queued", "retried")));
+        assertEquals(extractor.getStats().get("retryQueued"), 0);
+    }
+
+    @Test
+    public void testGetMetaDataMap_WhenFileIsTooBig_OnlyKeepsSizeAndType() {
+        final AtomicInteger parsed = new AtomicInteger();
+        extractor = new Stub(0, 50) {
+            @Override
+            Map<String, String> parse(String inode, File binFile) {
+                parsed.incrementAndGet();
+                return PARSED;
+            }
+        };
+
+        assertEquals(extractor.getMetaDataMap("inode", file), BASIC);
+        assertEquals(parsed.get(), 0);
+
+        extractor = new Stub(0, 100) {
+            @Override
+            Map<String, String> parse(String inode, File binFile) {
+                return PARSED;
+            }
+        };
+        assertEquals(extractor.getMetaDataMap("inode", file), PARSED);
+    }
+
+    @Test
+    public void testGetMetaDataMap_WhenParserIgnoresTheTimeout_StopsWaitingForIt() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        extractor = new Stub(100, 0) {
+            @Override
+            Map<String, String> parse(String inode, File binFile) {
+                //Stuck on the CPU, it neither reads nor checks for interrupts
+                while ( release.getCount() > 0 ) {
+                    Thread.interrupted();
+                }
+                return PARSED;
+            }
+        };
+
+        long start = System.currentTimeMillis();
+        assertEquals(extractor.getMetaDataMap("inode", file), BASIC);
+        long waited = System.currentTimeMillis() - start;
+
+        assertTrue(waited >= 100 && waited < 2000, "Waited " + waited + "ms");
+        assertEquals(extractor.getStats().get("timedOut"), 1L);
+        assertEquals(extractor.getStats().get("abandonedParsers"), 1);
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 2000;
+        while ( !Integer.valueOf(0).equals(extractor.getStats().get("abandonedParsers")) && System.currentTimeMillis() < deadline ) {
+            Thread.sleep(10);
+        }
+        assertEquals(extractor.getStats().get("abandonedParsers"), 0);
+    }
+
+    @Test
+    public void testGetMetaDataMap_WhileTooManyParsersAreStuck_DoesNotParse() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger parsed = new AtomicInteger();
+        extractor = new FileMetaDataExtractor(1, 1, 50, 0, 0, 1, null) {
+            @Override
+            Map<String, String> parse(String inode, File binFile) {
+                parsed.incrementAndGet();
+                while ( release.getCount() > 0 ) {
+                    Thread.interrupted();
+                }
+                return PARSED;
+            }
+
+            @Override
+            Map<String, String> getBasicMetaDataMap(File binFile) {
+                return BASIC;
+            }
+        };
+
+        try {
+            assertEquals(extractor.getMetaDataMap("first", file), BASIC);
+            assertEquals(extractor.getMetaDataMap("second", file), BASIC);
+            assertEquals(parsed.get(), 1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testResumePending_AfterACrash_ParsesTheFilesThatWereNotSaved() throws Exception {
+        final File pending = Files.createTempDirectory("metadata_pending").toFile();
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> extracted = new CopyOnWriteArrayList<>();
+        FileMetaDataExtractor crashed = new FileMetaDataExtractor(1, 1, 0, 0, 0, 2, pending) {
+            @Override
+            void extract(String inode) throws Exception {
+                if ( !"saved".equals(inode) ) {
+                    //Still parsing when the server goes away
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                extracted.add(inode);
+            }
+        };
+        try {
+            crashed.submit("saved");
+            waitFor(extracted, 1);
+            crashed.submit("running");
+            crashed.submit("queued");
+            crashed.submit("retried");
+            crashed.submit("dropped");
+            assertTrue((Long) crashed.getStats().get("dropped") >= 1L);
+            //Only the saved one is gone
+            waitForFiles(pending, 4);
+            assertEquals(new HashSet<>(Arrays.asList(pending.list())), new HashSet<>(Arrays.asList("running", "queued", "retried", "dropped")));
+
+            //The next start, with the same pending directory
+            final List<String> resumed = new CopyOnWriteArrayList<>();
+            extractor = new FileMetaDataExtractor(1, 10, 0, 0, 0, 2, pending) {
+                @Override
+                void extract(String inode) throws Exception {
+                    resumed.add(inode);
+                }
+            };
+            extractor.resumePending();
+            waitFor(resumed, 4);
+
+            assertEquals(new HashSet<>(resumed), new HashSet<>(Arrays.asList("running", "queued", "retried", "dropped")));
+            waitForFiles(pending, 0);
+            assertEquals(pending.list().length, 0);
+        } finally {
+            release.countDown();
+            crashed.shutdown();
+            FileUtils.deleteDirectory(pending);
+        }
+    }
+
+    private void waitFor(List<String> extracted, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( extracted.size() < count && System.currentTimeMillis() < deadline ) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void waitForFiles(File dir, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while ( dir.list().length != count && System.currentTimeMillis() < deadline ) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class Stub extends FileMetaDataExtractor {
+
+        Stub(long timeoutMillis, long maxFileSize) {
+            super(1, 1, timeoutMillis, maxFileSize, 0, 2, null);
+        }
+
+        @Override
+        Map<String, String> getBasicMetaDataMap(File binFile) {
+            return BASIC;
+        }
+    }
+
+}
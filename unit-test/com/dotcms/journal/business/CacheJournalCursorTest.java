@@ -0,0 +1,181 @@
+package com.dotcms.journal.business;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Follows and prunes a cache journal in an in memory H2 database
+ */
+public class CacheJournalCursorTest {
+
+    private Connection conn;
+
+    @BeforeMethod
+    public void createJournal() throws Exception {
+        Class.forName("org.h2.Driver");
+        conn = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID());
+        Statement statement = conn.createStatement();
+        statement.execute("create table cache_journal (id bigint generated by default as identity, "
+                + "object_to_index varchar(1024) not null, serverid varchar(64), time_entered timestamp not null, primary key (id))");
+        statement.execute("create table cache_journal_cursor (server_id varchar(64) not null, last_id bigint not null, "
+                + "mod_date timestamp not null, primary key (server_id))");
+        statement.close();
+    }
+
+    @AfterMethod
+    public void dropJournal() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void testStart_SkipsTheRecordsWrittenBefore() throws Exception {
+        insert(1, "old:group", "server2", 0);
+
+        CacheJournalCursor cursor = new CacheJournalCursor("server1", 5000);
+        cursor.start(conn);
+        insert(2, "new:group", "server2", 0);
+
+        assertEquals(cursor.read(conn, 100), Arrays.asList("new:group"));
+        assertEquals(cursor.getPosition(), 2);
+        assertEquals(acknowledgedBy("server1"), 1);
+    }
+
+    @Test
+    public void testRead_SkipsTheRecordsOfTheSameServerAndReadsEachRecordOnce() throws Exception {
+        CacheJournalCursor cursor = started("server1", 5000);
+        insert(1, "a:group", "server2", 0);
+        insert(2, "b:group", "server1", 0);
+        insert(3, "c:group", "server3", 0);
+
+        assertEquals(cursor.read(conn, 2), Arrays.asList("a:group"));
+        assertEquals(cursor.read(conn, 2), Arrays.asList("c:group"));
+        assertTrue(cursor.read(conn, 2).isEmpty());
+        assertEquals(cursor.getPosition(), 3);
+    }
+
+    @Test
+    public void testRead_WhenAnIdIsMissing_WaitsForItsTransaction() throws Exception {
+        CacheJournalCursor cursor = started("server1", 60000);
+        insert(1, "a:group", "server2", 0);
+        insert(3, "c:group", "server2", 0);
+
+        assertEquals(cursor.read(conn, 100), Arrays.asList("a:group", "c:group"));
+        assertEquals(cursor.getPosition(), 1);
+
+        //The record committed late is applied, the ones after it are not applied again
+        insert(2, "b:group", "server2", 0);
+        assertEquals(cursor.read(conn, 100), Arrays.asList("b:group"));
+        assertEquals(cursor.getPosition(), 3);
+    }
+
+    @Test
+    public void testRead_WhenAnIdIsMissing_KeepsReadingTheRecordsAfterIt() throws Exception {
+        CacheJournalCursor cursor = started("server1", 60000);
+        insert(1, "a:group", "server2", 0);
+        for ( int i = 3; i <= 6; i++ ) {
+            insert(i, "key" + i + ":group", "server2", 0);
+        }
+
+        assertEquals(cursor.read(conn, 2), Arrays.asList("a:group", "key3:group"));
+        assertEquals(cursor.read(conn, 2), Arrays.asList("key4:group", "key5:group"));
+        assertEquals(cursor.read(conn, 2), Arrays.asList("key6:group"));
+        assertEquals(cursor.getPosition(), 1);
+
+        insert(2, "b:group", "server2", 0);
+        assertEquals(cursor.read(conn, 2), Arrays.asList("b:group"));
+        assertEquals(cursor.getPosition(), 6);
+    }
+
+    @Test
+    public void testRead_WhenAnIdIsMissingForTooLong_MovesPastIt() throws Exception {
+        CacheJournalCursor cursor = started("server1", 0);
+        insert(1, "a:group", "server2", 0);
+        insert(5, "e:group", "server2", 0);
+
+        assertEquals(cursor.read(conn, 100), Arrays.asList("a:group", "e:group"));
+        assertEquals(cursor.getPosition(), 5);
+    }
+
+    @Test
+    public void testPrune_DeletesTheRecordsReadByEveryLiveServer() throws Exception {
+        for ( int i = 1; i <= 6; i++ ) {
+            insert(i, "key" + i + ":group", "server3", 0);
+        }
+        acknowledge("server1", 4, 0);
+        acknowledge("server2", 2, 0);
+        acknowledge("deadServer", 0, 600000);
+
+        assertEquals(CacheJournalCursor.prune(conn, 300000, 3600000), 2);
+        assertEquals(count("cache_journal"), 4);
+        assertEquals(count("cache_journal_cursor"), 2);
+    }
+
+    @Test
+    public void testPrune_WithoutServers_DeletesOnlyOldRecords() throws Exception {
+        insert(1, "old:group", "server2", 7200000);
+        insert(2, "new:group", "server2", 0);
+
+        assertEquals(CacheJournalCursor.prune(conn, 300000, 3600000), 1);
+        assertEquals(count("cache_journal"), 1);
+    }
+
+    private CacheJournalCursor started(String serverId, long gapMillis) throws Exception {
+        CacheJournalCursor cursor = new CacheJournalCursor(serverId, gapMillis);
+        cursor.start(conn);
+        return cursor;
+    }
+
+    private void insert(long id, String entry, String serverId, long ageMillis) throws Exception {
+        PreparedStatement statement = conn.prepareStatement("insert into cache_journal "
+                + "(id, object_to_index, serverid, time_entered) values (?,?,?,?)");
+        statement.setLong(1, id);
+        statement.setString(2, entry);
+        statement.setString(3, serverId);
+        statement.setTimestamp(4, new Timestamp(System.currentTimeMillis() - ageMillis));
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private void acknowledge(String serverId, long lastId, long ageMillis) throws Exception {
+        PreparedStatement statement = conn.prepareStatement("insert into cache_journal_cursor "
+                + "(server_id, last_id, mod_date) values (?,?,?)");
+        statement.setString(1, serverId);
+        statement.setLong(2, lastId);
+        statement.setTimestamp(3, new Timestamp(System.currentTimeMillis() - ageMillis));
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private long acknowledgedBy(String serverId) throws Exception {
+        PreparedStatement statement = conn.prepareStatement("select last_id from cache_journal_cursor where server_id = ?");
+        statement.setString(1, serverId);
+        ResultSet rs = statement.executeQuery();
+        rs.next();
+        long lastId = rs.getLong(1);
+        statement.close();
+        return lastId;
+    }
+
+    private int count(String table) throws Exception {
+        Statement statement = conn.createStatement();
+        ResultSet rs = statement.executeQuery("select count(*) from " + table);
+        rs.next();
+        int count = rs.getInt(1);
+        statement.close();
+        return count;
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.dotcms.journal.business;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the optimistic claim, the one used with H2, against an in memory H2 database
+ */
+public class ReindexQueueClaimerTest {
+
+    private static final long LEASE = 60 * 1000;
+
+    private Connection conn;
+
+    @BeforeMethod
+    public void createJournal() throws Exception {
+        Class.forName("org.h2.Driver");
+        conn = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID());
+        Statement statement = conn.createStatement();
+        statement.execute("create table dist_reindex_journal (id bigint generated by default as identity, "
+                + "inode_to_index varchar(100) not null, ident_to_index varchar(100) not null, serverid varchar(64), "
+                + "priority integer not null, claimed_at timestamp, primary key (id))");
+        statement.close();
+    }
+
+    @AfterMethod
+    public void dropJournal() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void testStrategyFor_WhenH2_IsOptimistic() throws Exception {
+        assertEquals(ReindexQueueClaimer.strategyFor(conn, true), ReindexQueueClaimer.Strategy.OPTIMISTIC);
+    }
+
+    @Test
+    public void testClaim_TakesLowerPrioritiesFirstUpToTheLimit() throws Exception {
+        insert("a", 30, null, null);
+        insert("b", 10, null, null);
+        insert("c", 20, null, null);
+        insert("d", 50, null, null);
+
+        List<Map<String, Object>> claimed = claimer().claim(conn, "server1", 2, 30);
+
+        assertEquals(claimed.size(), 2);
+        assertEquals(claimed.get(0).get("ident_to_index"), "b");
+        assertEquals(claimed.get(1).get("ident_to_index"), "c");
+        assertEquals(serverOf("b"), "server1");
+        assertNull(serverOf("a"));
+    }
+
+    @Test
+    public void testClaim_WhenClaimedByAnotherServer_SkipsThem() throws Exception {
+        for ( int i = 0; i < 10; i++ ) {
+            insert("ident" + i, 10, null, null);
+        }
+
+        List<Map<String, Object>> first = claimer().claim(conn, "server1", 6, 30);
+        List<Map<String, Object>> second = claimer().claim(conn, "server2", 6, 30);
+
+        assertEquals(first.size(), 6);
+        assertEquals(second.size(), 4);
+        Set<Object> ids = new HashSet<>();
+        for ( Map<String, Object> record : first ) {
+            ids.add(record.get("id"));
+        }
+        for ( Map<String, Object> record : second ) {
+            assertTrue(ids.add(record.get("id")), "Record claimed twice: " + record);
+        }
+        assertTrue(claimer().claim(conn, "server3", 6, 30).isEmpty());
+    }
+
+    @Test
+    public void testClaim_WhenLeaseExpired_ClaimsThemAgain() throws Exception {
+        insert("expired", 10, "deadServer", new Timestamp(System.currentTimeMillis() - LEASE * 2));
+        insert("leased", 10, "liveServer", new Timestamp(System.currentTimeMillis()));
+
+        List<Map<String, Object>> claimed = claimer().claim(conn, "server1", 10, 30);
+
+        assertEquals(claimed.size(), 1);
+        assertEquals(claimed.get(0).get("ident_to_index"), "expired");
+        assertEquals(serverOf("expired"), "server1");
+        assertEquals(serverOf("leased"), "liveServer");
+    }
+
+    @Test
+    public void testClaim_KeepsTheAutoCommitOfTheConnection() throws Exception {
+        insert("a", 10, null, null);
+        conn.setAutoCommit(false);
+
+        claimer().claim(conn, "server1", 10, 30);
+
+        assertFalse(conn.getAutoCommit());
+    }
+
+    private ReindexQueueClaimer claimer() {
+        return new ReindexQueueClaimer(ReindexQueueClaimer.Strategy.OPTIMISTIC, LEASE);
+    }
+
+    private void insert(String identifier, int priority, String serverId, Timestamp claimedAt) throws Exception {
+        PreparedStatement statement = conn.prepareStatement("insert into dist_reindex_journal "
+                + "(inode_to_index, ident_to_index, serverid, priority, claimed_at) values (?,?,?,?,?)");
+        statement.setString(1, identifier);
+        statement.setString(2, identifier);
+        statement.setString(3, serverId);
+        statement.setInt(4, priority);
+        statement.setTimestamp(5, claimedAt);
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private String serverOf(String identifier) throws Exception {
+        PreparedStatement statement = conn.prepareStatement("select serverid from dist_reindex_journal where ident_to_index = ?");
+        statement.setString(1, identifier);
+        ResultSet rs = statement.executeQuery();
+        rs.next();
+        String serverId = rs.getString(1);
+        statement.close();
+        return serverId;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.dotcms.publisher.business;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the order the {@link PublisherQueueJob} publishes its bundles in, with bundles that record when they ran
+ */
+public class PublishingBundlesTest {
+
+    private ExecutorService pool;
+    private ExecutorService job;
+    private List<String> events;
+
+    @BeforeMethod
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        job = Executors.newSingleThreadExecutor();
+        events = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pool.shutdownNow();
+        job.shutdownNow();
+    }
+
+    @Test
+    public void testPublish_WhenBundlesShareAnAsset_TheSecondWaitsForTheFirst() throws Exception {
+        PublishingBundles publishing = new PublishingBundles(pool);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch finishFirst = new CountDownLatch(1);
+
+        publishing.publish(Arrays.asList("asset1", "asset2"), bundle("first", firstStarted, finishFirst));
+        assertTrue(firstStarted.await(2, TimeUnit.SECONDS));
+
+        //The job thread waits for the first bundle before submitting the second
+        Future<?> submitting = job.submit(() -> {
+            publishing.publish(Collections.singletonList("asset2"), bundle("second", null, null));
+            return null;
+        });
+        try {
+            submitting.get(200, TimeUnit.MILLISECONDS);
+            fail("The second bundle was submitted while the first one still publishes");
+        } catch ( TimeoutException e ) {
+            //Expected
+        }
+        assertEquals(events, Collections.singletonList("first started"));
+
+        finishFirst.countDown();
+        submitting.get(2, TimeUnit.SECONDS);
+        job.submit(() -> {
+            publishing.waitForAll();
+            return null;
+        }).get(2, TimeUnit.SECONDS);
+
+        assertEquals(events, Arrays.asList("first started", "first finished", "second started", "second finished"));
+    }
+
+    @Test
+    public void testPublish_WhenBundlesShareNoAsset_TheyPublishTogether() throws Exception {
+        PublishingBundles publishing = new PublishingBundles(pool);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        publishing.publish(Collections.singletonList("asset1"), bundle("first", firstStarted, finish));
+        publishing.publish(Collections.singletonList("asset2"), bundle("second", secondStarted, finish));
+
+        assertTrue(firstStarted.await(2, TimeUnit.SECONDS));
+        assertTrue(secondStarted.await(2, TimeUnit.SECONDS));
+
+        finish.countDown();
+        publishing.waitForAll();
+        assertEquals(events.size(), 4);
+    }
+
+    @Test
+    public void testWaitForAll_WhenABundleFails_WaitsForTheOthers() throws Exception {
+        PublishingBundles publishing = new PublishingBundles(pool);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        publishing.publish(Collections.singletonList("asset1"), () -> {
+            throw new IllegalStateException("Unable to bundle");
+        });
+        publishing.publish(Collections.singletonList("asset2"), bundle("second", null, finish));
+        //A bundle sharing the asset of the failed one still publishes
+        publishing.publish(Collections.singletonList("asset1"), bundle("third", null, null));
+
+        finish.countDown();
+        publishing.waitForAll();
+        assertTrue(events.contains("second finished"));
+        assertTrue(events.contains("third finished"));
+    }
+
+    private Runnable bundle(String name, CountDownLatch started, CountDownLatch finish) {
+        return () -> {
+            events.add(name + " started");
+            if ( started != null ) {
+                started.countDown();
+            }
+            try {
+                if ( finish != null ) {
+                    assertTrue(finish.await(2, TimeUnit.SECONDS));
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(name + " finished");
+        };
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.dotcms.publisher.pusher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the readers of a bundle while it is written, with content written by the tests instead of the tar.gz
+ */
+public class CompressedBundleTest {
+
+    private File file;
+    private ExecutorService threads;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = File.createTempFile("bundle", ".tar.gz");
+        threads = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        threads.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void testOpen_WhileWritten_ReadsTheBytesAsTheyAreWritten() throws Exception {
+        CompressedBundle bundle = new CompressedBundle(file);
+        CountDownLatch firstRead = new CountDownLatch(1);
+        InputStream in = bundle.open();
+
+        Future<?> writing = threads.submit(() -> {
+            bundle.write(out -> {
+                try {
+                    out.write("first".getBytes("UTF-8"));
+                    out.flush();
+                    //The second part is only written once the reader got the first one
+                    assertTrue(firstRead.await(2, TimeUnit.SECONDS));
+                    out.write("second".getBytes("UTF-8"));
+                } catch ( InterruptedException e ) {
+                    throw new IOException(e);
+                } finally {
+                    out.close();
+                }
+            });
+            return null;
+        });
+
+        byte[] first = new byte[5];
+        assertEquals(readFully(in, first), 5);
+        assertEquals(new String(first, "UTF-8"), "first");
+        firstRead.countDown();
+
+        assertEquals(readAll(in), "second");
+        writing.get(2, TimeUnit.SECONDS);
+        in.close();
+    }
+
+    @Test
+    public void testRead_WhenNothingNewWasWritten_WaitsForTheEnd() throws Exception {
+        CompressedBundle bundle = new CompressedBundle(file);
+        CountDownLatch finish = new CountDownLatch(1);
+        InputStream in = bundle.open();
+
+        Future<?> writing = threads.submit(() -> {
+            bundle.write(out -> {
+                try {
+                    out.write('a');
+                    out.flush();
+                    assertTrue(finish.await(2, TimeUnit.SECONDS));
+                } catch ( InterruptedException e ) {
+                    throw new IOException(e);
+                } finally {
+                    out.close();
+                }
+            });
+            return null;
+        });
+
+        assertEquals((char) in.read(), 'a');
+        Future<Integer> end = threads.submit(() -> in.read());
+        try {
+            end.get(200, TimeUnit.MILLISECONDS);
+            fail("The end of the bundle was read before it was written");
+        } catch ( TimeoutException e ) {
+            //Expected, still waiting for the writer
+        }
+
+        finish.countDown();
+        assertEquals(end.get(2, TimeUnit.SECONDS).intValue(), -1);
+        writing.get(2, TimeUnit.SECONDS);
+
+        //A reader opened once the bundle is written reads it whole
+        try ( InputStream after = bundle.open() ) {
+            assertEquals(readAll(after), "a");
+        }
+    }
+
+    @Test
+    public void testRead_WhenWriteFails_ReadersGetTheFailure() throws Exception {
+        CompressedBundle bundle = new CompressedBundle(file);
+        CountDownLatch failing = new CountDownLatch(1);
+        InputStream in = bundle.open();
+
+        Future<?> writing = threads.submit(() -> {
+            bundle.write(out -> {
+                try {
+                    out.write('a');
+                    out.flush();
+                    assertTrue(failing.await(2, TimeUnit.SECONDS));
+                } catch ( InterruptedException e ) {
+                    throw new IOException(e);
+                } finally {
+                    out.close();
+                }
+                throw new IOException("No space left on device");
+            });
+            return null;
+        });
+
+        assertEquals((char) in.read(), 'a');
+        Future<Integer> waiting = threads.submit(() -> in.read());
+        failing.countDown();
+
+        try {
+            waiting.get(2, TimeUnit.SECONDS);
+            fail("The reader did not get the failure of the writer");
+        } catch ( ExecutionException e ) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals(e.getCause().getMessage(), "No space left on device");
+        }
+        try {
+            writing.get(2, TimeUnit.SECONDS);
+            fail("The writer did not fail");
+        } catch ( ExecutionException e ) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        in.close();
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException {
+        int read = 0;
+        while ( read < b.length ) {
+            int n = in.read(b, read, b.length - read);
+            if ( n == -1 ) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8];
+        int n;
+        while ( (n = in.read(buffer)) != -1 ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+
+}
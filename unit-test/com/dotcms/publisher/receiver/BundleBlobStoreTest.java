@@ -0,0 +1,105 @@
+package com.dotcms.publisher.receiver;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+
+import com.dotcms.publishing.BundleManifest;
+import com.dotcms.publishing.DotPublishingException;
+import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class BundleBlobStoreTest {
+
+    @Test
+    public void testRestore_CompletesTheBundleWithTheFilesOfAPreviousOne() throws Exception {
+        File store = Files.createTempDirectory("blobs").toFile();
+        File first = Files.createTempDirectory("bundle").toFile();
+        File second = Files.createTempDirectory("bundle").toFile();
+        try {
+            write(new File(first, "bundle.xml"), "first");
+            write(new File(first, "live/1/binary.jpg"), "a big binary");
+            BundleManifest manifest = BundleManifest.create(first);
+            manifest.write(first);
+
+            BundleBlobStore blobs = new BundleBlobStore(store);
+            assertEquals(blobs.getMissing(manifest.getDistinctHashes()), manifest.getDistinctHashes());
+            blobs.restore(first, BundleManifest.read(first));
+            assertTrue(blobs.getMissing(manifest.getDistinctHashes()).isEmpty());
+
+            // Same binary, new bundle.xml: only the bundle.xml is sent
+            write(new File(second, "bundle.xml"), "second");
+            File binary = new File(second, "live/1/binary.jpg");
+            write(binary, "a big binary");
+            BundleManifest delta = BundleManifest.create(second);
+            delta.write(second);
+            Set<String> missing = blobs.getMissing(delta.getDistinctHashes());
+            assertEquals(missing.size(), 1);
+            assertTrue(missing.contains(delta.getHash(second, new File(second, "bundle.xml"))));
+
+            binary.delete();
+            blobs.restore(second, BundleManifest.read(second));
+            assertEquals(FileUtils.readFileToString(binary, "UTF-8"), "a big binary");
+        } finally {
+            FileUtils.deleteDirectory(store);
+            FileUtils.deleteDirectory(first);
+            FileUtils.deleteDirectory(second);
+        }
+    }
+
+    @Test(expectedExceptions = DotPublishingException.class)
+    public void testRestore_FailsWhenALeftOutFileIsNotStored() throws Exception {
+        File store = Files.createTempDirectory("blobs").toFile();
+        File bundle = Files.createTempDirectory("bundle").toFile();
+        try {
+            File binary = new File(bundle, "binary.jpg");
+            write(binary, "never stored");
+            BundleManifest.create(bundle).write(bundle);
+            binary.delete();
+
+            new BundleBlobStore(store).restore(bundle, BundleManifest.read(bundle));
+        } finally {
+            FileUtils.deleteDirectory(store);
+            FileUtils.deleteDirectory(bundle);
+        }
+    }
+
+    @Test(expectedExceptions = DotPublishingException.class)
+    public void testRestore_RejectsFilesOutsideOfTheBundle() throws Exception {
+        File store = Files.createTempDirectory("blobs").toFile();
+        File bundle = Files.createTempDirectory("bundle").toFile();
+        try {
+            write(new File(bundle, BundleManifest.FILE_NAME),
+                  "0000000000000000000000000000000000000000000000000000000000000000 ../outside.xml\n");
+
+            new BundleBlobStore(store).restore(bundle, BundleManifest.read(bundle));
+        } finally {
+            FileUtils.deleteDirectory(store);
+            FileUtils.deleteDirectory(bundle);
+        }
+    }
+
+    @Test
+    public void testGetMissing_IgnoresWhatIsNotAHash() throws Exception {
+        File store = Files.createTempDirectory("blobs").toFile();
+        try {
+            assertTrue(new BundleBlobStore(store).getMissing(Arrays.asList("../../etc/passwd", "")).isEmpty());
+        } finally {
+            FileUtils.deleteDirectory(store);
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.dotcms.publisher.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dotcms.publisher.pusher.wrapper.CategoryWrapper;
+import com.dotcms.publishing.BundleCodec;
+import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import com.dotmarketing.portlets.categories.model.Category;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class PushCategoryUtilTest {
+
+    @Test
+    public void testFindTopLevelWrappers_ReadsBinaryAndXmlBundles() throws Exception {
+        File bundle = Files.createTempDirectory("bundle").toFile();
+        try {
+            File binary = write(new File(bundle, "top.category.xml"), wrapper("inode1", true), BundleCodec.BINARY);
+            File xml = write(new File(bundle, "child.category.xml"), wrapper("inode2", false), BundleCodec.XML);
+            PushCategoryUtil categories = new PushCategoryUtil(Arrays.asList(binary, xml));
+
+            List<CategoryWrapper> topLevels = categories.findTopLevelWrappers();
+            assertEquals(topLevels.size(), 1);
+            assertEquals(topLevels.get(0).getCategory().getInode(), "inode1");
+            assertFalse(categories.getCategoryWrapperFromInode("inode2").isTopLevel());
+        } finally {
+            FileUtils.deleteDirectory(bundle);
+        }
+    }
+
+    private static CategoryWrapper wrapper(String inode, boolean topLevel) {
+        Category category = new Category();
+        category.setInode(inode);
+        category.setCategoryName("Category " + inode);
+        CategoryWrapper wrapper = new CategoryWrapper();
+        wrapper.setCategory(category);
+        wrapper.setTopLevel(topLevel);
+        return wrapper;
+    }
+
+    private static File write(File file, CategoryWrapper wrapper, BundleCodec codec) throws Exception {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            codec.encode(wrapper, out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+}
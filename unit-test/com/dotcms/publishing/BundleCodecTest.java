@@ -0,0 +1,92 @@
+package com.dotcms.publishing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import com.dotcms.publisher.pusher.PushPublisherConfig;
+import com.dotcms.publisher.pusher.wrapper.CategoryWrapper;
+import com.dotmarketing.portlets.categories.model.Category;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class BundleCodecTest {
+
+    @Test
+    public void testDecode_ReadsBothFormats() throws Exception {
+        Map<String, Object> wrapper = wrapper();
+
+        for (BundleCodec codec : new BundleCodec[] { BundleCodec.XML, BundleCodec.BINARY }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.encode(wrapper, out);
+
+            assertEquals(BundleCodec.decode(new ByteArrayInputStream(out.toByteArray())), wrapper, codec.getName());
+        }
+    }
+
+    @Test
+    public void testDecode_ReadsBundleWrappers() throws Exception {
+        for (BundleCodec codec : new BundleCodec[] { BundleCodec.XML, BundleCodec.BINARY }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.encode(categoryWrapper(), out);
+
+            CategoryWrapper read = (CategoryWrapper) BundleCodec.decode(new ByteArrayInputStream(out.toByteArray()));
+            assertTrue(read.isTopLevel(), codec.getName());
+            assertEquals(read.getOperation(), PushPublisherConfig.Operation.PUBLISH, codec.getName());
+            assertEquals(read.getChildren(), categoryWrapper().getChildren(), codec.getName());
+            assertEquals(read.getCategory().getInode(), "5b8a7c2d-1e3f-4a5b-8c7d-6e5f4a3b2c1d", codec.getName());
+            assertEquals(read.getCategory().getCategoryName(), "Sports & <Outdoors>", codec.getName());
+            assertEquals(read.getCategory().getKey(), "sports", codec.getName());
+        }
+    }
+
+    @Test
+    public void testXml_IsStillReadableXml() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BundleCodec.XML.encode(wrapper(), out);
+
+        assertTrue(new String(out.toByteArray(), "UTF-8").startsWith("<map>"));
+    }
+
+    @Test
+    public void testBinary_IsSmallerThanXml() throws Exception {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        BundleCodec.XML.encode(wrapper(), xml);
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BundleCodec.BINARY.encode(wrapper(), binary);
+
+        assertTrue(binary.size() < xml.size());
+    }
+
+    @Test
+    public void testForName_DefaultsToXml() {
+        assertSame(BundleCodec.forName("binary"), BundleCodec.BINARY);
+        assertSame(BundleCodec.forName("xml"), BundleCodec.XML);
+        assertSame(BundleCodec.forName("unknown"), BundleCodec.XML);
+    }
+
+    static CategoryWrapper categoryWrapper() {
+        Category category = new Category();
+        category.setInode("5b8a7c2d-1e3f-4a5b-8c7d-6e5f4a3b2c1d");
+        category.setCategoryName("Sports & <Outdoors>");
+        category.setKey("sports");
+        CategoryWrapper wrapper = new CategoryWrapper();
+        wrapper.setCategory(category);
+        wrapper.setTopLevel(true);
+        wrapper.setChildren(new HashSet<String>(Arrays.asList("child1", "child2")));
+        wrapper.setOperation(PushPublisherConfig.Operation.PUBLISH);
+        return wrapper;
+    }
+
+    private static Map<String, Object> wrapper() {
+        Map<String, Object> wrapper = new HashMap<String, Object>();
+        wrapper.put("identifier", "0f6a7b1c-5d2e-4e3f-9a8b-7c6d5e4f3a2b");
+        wrapper.put("title", "A title with <markup> & áccents");
+        wrapper.put("sortOrder", 3L);
+        return wrapper;
+    }
+}
@@ -0,0 +1,133 @@
+package com.dotcms.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.dotcms.repackage.com.maxmind.geoip2.exception.AddressNotFoundException;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the lookup cache and the reload of the database, with locators standing in for the database file
+ */
+public class GeoIp2CityDbUtilTest {
+
+    private File file;
+    private ExecutorService otherRequests;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = File.createTempFile("GeoLite2-City", ".mmdb");
+        file.setLastModified(1000000L);
+        otherRequests = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        otherRequests.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void testGetLocation_WhenLookedUpAgain_ReadsTheDatabaseOnce() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        GeoIp2CityDbUtil geoIp2Util = new GeoIp2CityDbUtil(file, f -> address -> {
+            lookups.incrementAndGet();
+            return location(address, "US");
+        }, 100, 60000);
+
+        GeoLocation first = geoIp2Util.getLocation("10.0.0.1");
+        GeoLocation second = geoIp2Util.getLocation("10.0.0.1");
+        geoIp2Util.getLocation("10.0.0.2");
+
+        assertEquals(first.getCountryIsoCode(), "US");
+        assertSame(second, first);
+        assertEquals(lookups.get(), 2);
+    }
+
+    @Test
+    public void testGetLocation_WhenAddressIsNotInTheDatabase_RemembersIt() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        GeoIp2CityDbUtil geoIp2Util = new GeoIp2CityDbUtil(file, f -> address -> {
+            lookups.incrementAndGet();
+            throw new AddressNotFoundException("The address is not in the database.");
+        }, 100, 60000);
+
+        for ( int i = 0; i < 2; i++ ) {
+            try {
+                geoIp2Util.getLocation("10.0.0.1");
+                fail("The address is not in the database");
+            } catch ( AddressNotFoundException e ) {
+                //Expected, the second time from the cache
+            }
+        }
+        assertEquals(lookups.get(), 1);
+    }
+
+    @Test
+    public void testGetLocation_WhileNewDatabaseOpens_OtherLookupsUseThePreviousOne() throws Exception {
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch opened = new CountDownLatch(1);
+        AtomicInteger opens = new AtomicInteger();
+        //Checks the file date on every lookup
+        GeoIp2CityDbUtil geoIp2Util = new GeoIp2CityDbUtil(file, f -> {
+            if ( opens.incrementAndGet() == 1 ) {
+                return address -> location(address, "US");
+            }
+            opening.countDown();
+            try {
+                opened.await();
+            } catch ( InterruptedException e ) {
+                throw new IOException(e);
+            }
+            return address -> location(address, "CA");
+        }, 100, 0);
+        assertEquals(geoIp2Util.getLocation("10.0.0.1").getCountryIsoCode(), "US");
+
+        file.setLastModified(2000000L);
+        Future<GeoLocation> reloading = otherRequests.submit(() -> geoIp2Util.getLocation("10.0.0.2"));
+        assertTrue(opening.await(2, TimeUnit.SECONDS));
+
+        //Does not wait for the new database
+        GeoLocation during = otherRequests.submit(() -> geoIp2Util.getLocation("10.0.0.1")).get(2, TimeUnit.SECONDS);
+        assertEquals(during.getCountryIsoCode(), "US");
+
+        opened.countDown();
+        assertEquals(reloading.get(2, TimeUnit.SECONDS).getCountryIsoCode(), "CA");
+        //The cache of the previous database went away with it
+        assertEquals(geoIp2Util.getLocation("10.0.0.1").getCountryIsoCode(), "CA");
+        assertEquals(opens.get(), 2);
+    }
+
+    @Test
+    public void testGetLocation_WhenNewDatabaseCanNotBeOpened_KeepsThePreviousOne() throws Exception {
+        AtomicInteger opens = new AtomicInteger();
+        GeoIp2CityDbUtil geoIp2Util = new GeoIp2CityDbUtil(file, f -> {
+            if ( opens.incrementAndGet() > 1 ) {
+                throw new IOException("Half written");
+            }
+            return address -> location(address, "US");
+        }, 100, 0);
+
+        file.setLastModified(2000000L);
+
+        assertEquals(geoIp2Util.getLocation("10.0.0.1").getCountryIsoCode(), "US");
+        assertEquals(opens.get(), 2);
+    }
+
+    private static GeoLocation location(InetAddress address, String countryIsoCode) {
+        return new GeoLocation(address.getHostAddress(), countryIsoCode, null, null, null, null, "UTC", null, null);
+    }
+
+}
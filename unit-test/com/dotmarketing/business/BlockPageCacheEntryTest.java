@@ -0,0 +1,72 @@
+package com.dotmarketing.business;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class BlockPageCacheEntryTest {
+
+    @Test
+    public void testEntry_KeepsThePageEncodedAndGzipped() throws Exception {
+        StringBuilder page = new StringBuilder();
+        for ( int i = 0; i < 200; i++ ) {
+            page.append("<p>Café ").append(i).append("</p>");
+        }
+
+        BlockPageCacheEntry entry = new BlockPageCacheEntry(page.toString(), "ISO-8859-1", 60, 1024);
+
+        assertEquals(entry.getCharset(), "ISO-8859-1");
+        assertTrue(Arrays.equals(entry.getRaw(), page.toString().getBytes("ISO-8859-1")));
+        assertEquals(entry.getValue(), page.toString());
+        assertNotNull(entry.getGzipped());
+        assertTrue(entry.getGzipped().length < entry.getRaw().length);
+        assertTrue(Arrays.equals(gunzip(entry.getGzipped()), entry.getRaw()));
+    }
+
+    @Test
+    public void testEntry_SmallOrUnknownCharsetPages() {
+        BlockPageCacheEntry entry = new BlockPageCacheEntry("<p>small</p>", "not-a-charset", 60, 1024);
+
+        assertEquals(entry.getCharset(), "UTF-8");
+        assertNull(entry.getGzipped());
+        assertNull(new BlockPageCacheEntry("<p>small</p>", null, 60, -1).getGzipped());
+    }
+
+    @Test
+    public void testFreshAndUsable_FollowTheTtlAndTheStaleWindow() {
+        BlockPageCacheEntry entry = new BlockPageCacheEntry("<p>page</p>", null, 10, -1);
+        long created = entry.getCreated();
+
+        assertTrue(entry.isFresh(created + 9999));
+        assertFalse(entry.isFresh(created + 10000));
+        assertTrue(entry.isUsable(created + 14999, 5000));
+        assertFalse(entry.isUsable(created + 15000, 5000));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(BlockPageCacheEntry.acceptsGzip("gzip, deflate"));
+        assertTrue(BlockPageCacheEntry.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertFalse(BlockPageCacheEntry.acceptsGzip("gzip;q=0"));
+        assertFalse(BlockPageCacheEntry.acceptsGzip("identity, x-gzip2"));
+        assertFalse(BlockPageCacheEntry.acceptsGzip(null));
+    }
+
+    private byte[] gunzip(byte[] gzipped) throws Exception {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ( (read = in.read(buffer)) > 0 ) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+}
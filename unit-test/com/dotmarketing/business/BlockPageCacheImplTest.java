@@ -0,0 +1,166 @@
+package com.dotmarketing.business;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.dotmarketing.business.BlockPageCache.PageCacheParameters;
+import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
+
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the render of a page version by a single request, with a map standing in for the cache administrator
+ */
+public class BlockPageCacheImplTest {
+
+    private final PageCacheParameters params = new PageCacheParameters("user1", "1", null, null, null);
+
+    private Map<String, Object> cached;
+    private DotCacheAdministrator cacheAdministrator;
+    private ExecutorService otherRequests;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        cached = new ConcurrentHashMap<>();
+        cacheAdministrator = mock(DotCacheAdministrator.class);
+        doAnswer(invocation -> cached.put((String) invocation.getArguments()[0], invocation.getArguments()[1]))
+                .when(cacheAdministrator).put(anyString(), anyObject(), anyString());
+        when(cacheAdministrator.get(anyString(), anyString()))
+                .thenAnswer(invocation -> cached.get((String) invocation.getArguments()[0]));
+        otherRequests = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        otherRequests.shutdownNow();
+    }
+
+    @Test
+    public void testLookup_WhilePageRenders_OtherRequestsWaitForTheRender() throws Exception {
+        BlockPageCacheImpl pageCache = new BlockPageCacheImpl(cacheAdministrator, true, 0, 5000, -1, 100, 100);
+        IHTMLPage page = page(60);
+
+        assertNull(pageCache.lookup(page, params, false));
+        Future<BlockPageCacheEntry> waiting = otherRequests.submit(() -> pageCache.lookup(page, params, false));
+        waitForStat(pageCache, page, "waits", 1);
+
+        pageCache.add(page, "<p>rendered</p>", null, params, 10);
+        pageCache.release(page, params);
+
+        assertEquals(waiting.get(2, TimeUnit.SECONDS).getValue(), "<p>rendered</p>");
+        assertEquals(stats(pageCache, page).get("misses"), 1L);
+        assertEquals(stats(pageCache, page).get("renders"), 1L);
+    }
+
+    @Test
+    public void testLookup_WhileStalePageRenders_OtherRequestsGetTheStaleVersion() throws Exception {
+        BlockPageCacheImpl pageCache = new BlockPageCacheImpl(cacheAdministrator, true, 60000, 5000, -1, 100, 100);
+        //A time to live of 0 makes the version stale as soon as it is added
+        IHTMLPage page = page(0);
+        pageCache.add(page, "<p>old</p>", null, params, 10);
+
+        assertNull(pageCache.lookup(page, params, false));
+        BlockPageCacheEntry stale = otherRequests.submit(() -> pageCache.lookup(page, params, false)).get(2, TimeUnit.SECONDS);
+
+        assertEquals(stale.getValue(), "<p>old</p>");
+        assertEquals(stats(pageCache, page).get("staleHits"), 1L);
+        assertEquals(stats(pageCache, page).get("waits"), 0L);
+    }
+
+    @Test
+    public void testLookup_WhenRenderNeverEnds_OtherRequestsWaitAtMostTheRenderWait() throws Exception {
+        BlockPageCacheImpl pageCache = new BlockPageCacheImpl(cacheAdministrator, true, 0, 200, -1, 100, 100);
+        IHTMLPage page = page(60);
+
+        assertNull(pageCache.lookup(page, params, false));
+        long start = System.currentTimeMillis();
+        BlockPageCacheEntry entry = otherRequests.submit(() -> pageCache.lookup(page, params, false)).get(2, TimeUnit.SECONDS);
+        long waited = System.currentTimeMillis() - start;
+
+        assertNull(entry);
+        assertTrue(waited >= 150 && waited < 2000, "Waited " + waited + "ms");
+        assertEquals(stats(pageCache, page).get("waits"), 1L);
+    }
+
+    @Test
+    public void testLookup_WhenRenderIsOlderThanTheRenderWait_AnotherRequestTakesItOver() throws Exception {
+        BlockPageCacheImpl pageCache = new BlockPageCacheImpl(cacheAdministrator, true, 0, 500, -1, 100, 100);
+        IHTMLPage page = page(60);
+
+        assertNull(pageCache.lookup(page, params, false));
+        Thread.sleep(600);
+
+        //Takes the render over right away, without waiting
+        assertNull(otherRequests.submit(() -> pageCache.lookup(page, params, false)).get(2, TimeUnit.SECONDS));
+        assertEquals(stats(pageCache, page).get("misses"), 2L);
+        assertEquals(stats(pageCache, page).get("waits"), 0L);
+
+        //The first request no longer owns the render, its release leaves the new one in place
+        pageCache.release(page, params);
+        assertNull(otherRequests.submit(() -> pageCache.lookup(page, params, false)).get(2, TimeUnit.SECONDS));
+        assertEquals(stats(pageCache, page).get("waits"), 1L);
+    }
+
+    @Test
+    public void testAdd_DropsExpiredVersionsOfThePage() throws Exception {
+        BlockPageCacheImpl pageCache = new BlockPageCacheImpl(cacheAdministrator, true, 0, 5000, -1, 100, 100);
+        PageCacheParameters otherParams = new PageCacheParameters("user2", "1", null, null, null);
+        pageCache.add(page(0), "<p>expired</p>", null, params, 10);
+        Thread.sleep(5);
+
+        pageCache.add(page(60), "<p>other</p>", null, otherParams, 10);
+
+        Map<?, ?> versions = (Map<?, ?>) cached.get("inode1_1000");
+        assertEquals(versions.size(), 1);
+        assertTrue(versions.containsKey(otherParams.getKey()));
+    }
+
+    @Test
+    public void testAdd_WhenPageHasTooManyVersions_DropsTheOldest() throws Exception {
+        BlockPageCacheImpl pageCache = new BlockPageCacheImpl(cacheAdministrator, true, 0, 5000, -1, 100, 2);
+        IHTMLPage page = page(60);
+        for ( int i = 1; i <= 3; i++ ) {
+            pageCache.add(page, "<p>" + i + "</p>", null, new PageCacheParameters("user" + i, "1", null, null, null), 10);
+            Thread.sleep(5);
+        }
+
+        Map<?, ?> versions = (Map<?, ?>) cached.get("inode1_1000");
+        assertEquals(versions.size(), 2);
+        assertFalse(versions.containsKey(new PageCacheParameters("user1", "1", null, null, null).getKey()));
+        assertEquals(pageCache.get(page, new PageCacheParameters("user3", "1", null, null, null)), "<p>3</p>");
+    }
+
+    private IHTMLPage page(long ttl) {
+        IHTMLPage page = mock(IHTMLPage.class);
+        when(page.getInode()).thenReturn("inode1");
+        when(page.getIdentifier()).thenReturn("identifier1");
+        when(page.getModDate()).thenReturn(new Date(1000));
+        when(page.getCacheTTL()).thenReturn(ttl);
+        return page;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stats(BlockPageCacheImpl pageCache, IHTMLPage page) {
+        return (Map<String, Object>) pageCache.getStats().get(page.getIdentifier());
+    }
+
+    private void waitForStat(BlockPageCacheImpl pageCache, IHTMLPage page, String stat, long value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while ( !Long.valueOf(value).equals(stats(pageCache, page).get(stat)) && System.currentTimeMillis() < deadline ) {
+            Thread.sleep(10);
+        }
+    }
+
+}
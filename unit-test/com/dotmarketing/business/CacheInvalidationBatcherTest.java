@@ -0,0 +1,49 @@
+package com.dotmarketing.business;
+
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class CacheInvalidationBatcherTest {
+
+    @Test
+    public void testToMessages_WhenSingleEntry_SendsPlainFormat() {
+        List<String> messages = CacheInvalidationBatcher.toMessages(Arrays.asList("key1:group1"), 10);
+
+        assertEquals(messages, Arrays.asList("key1:group1"));
+    }
+
+    @Test
+    public void testToMessages_WhenManyEntries_JoinsThemInOneMessage() {
+        List<String> messages = CacheInvalidationBatcher.toMessages(Arrays.asList("key1:group1", "key2:group2", "0:group3"), 10);
+
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0), ChainableCacheAdministratorImpl.INVALIDATE_BATCH + "key1:group1\nkey2:group2\n0:group3");
+    }
+
+    @Test
+    public void testToMessages_WhenMoreEntriesThanMax_SplitsMessages() {
+        List<String> messages = CacheInvalidationBatcher.toMessages(Arrays.asList("a:g", "b:g", "c:g", "d:g", "e:g"), 2);
+
+        assertEquals(messages, Arrays.asList(
+                ChainableCacheAdministratorImpl.INVALIDATE_BATCH + "a:g\nb:g",
+                ChainableCacheAdministratorImpl.INVALIDATE_BATCH + "c:g\nd:g",
+                "e:g"));
+    }
+
+    @Test
+    public void testToMessages_WhenMaxIsOne_SendsEveryEntryInThePlainFormat() {
+        List<String> messages = CacheInvalidationBatcher.toMessages(Arrays.asList("a:g", "b:g", "c:g"), 1);
+
+        assertEquals(messages, Arrays.asList("a:g", "b:g", "c:g"));
+    }
+
+    @Test
+    public void testToMessages_WhenEntryContainsSeparator_SendsItAlone() {
+        List<String> messages = CacheInvalidationBatcher.toMessages(Arrays.asList("a:g", "multi\nline:g", "b:g"), 10);
+
+        assertEquals(messages, Arrays.asList("multi\nline:g", ChainableCacheAdministratorImpl.INVALIDATE_BATCH + "a:g\nb:g"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.dotmarketing.business;
+
+import com.dotmarketing.beans.Permission;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares filtering a collection of 10,000 permissionables the way {@link PermissionBitAPIImpl#filterCollection}
+ * did before the {@link PermissionDecisionCache}, matching role id lists and removing the denied items one by one,
+ * with the compiled role sets and permissions, the decision cache and the copy of the allowed items.
+ * <p/>
+ * Only the role matching is measured, the lookups of the roles and permissions in their caches are the same for both.
+ * Run it with the unit-test classpath: <code>java com.dotmarketing.business.PermissionCheckBenchmark [items] [iterations]</code>
+ */
+public class PermissionCheckBenchmark {
+
+    private static final int ROLES = 50;
+    private static final int PERMISSION_LISTS = 200;
+
+    public static void main(String[] args) {
+
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Random random = new Random(42);
+        List<String> roleIds = new ArrayList<>();
+        for ( int i = 0; i < ROLES; i++ ) {
+            roleIds.add("role" + i);
+        }
+
+        //Most assets inherit their permissions, so a few lists are shared by many items
+        List<List<Permission>> permissionLists = new ArrayList<>();
+        for ( int i = 0; i < PERMISSION_LISTS; i++ ) {
+            List<Permission> permissions = new ArrayList<>();
+            for ( int j = 0; j < 4; j++ ) {
+                permissions.add(new Permission("inode" + i, roleIds.get(random.nextInt(ROLES)),
+                        PermissionAPI.PERMISSION_READ | (random.nextBoolean() ? PermissionAPI.PERMISSION_EDIT : 0), true));
+            }
+            permissionLists.add(permissions);
+        }
+        List<List<Permission>> itemPermissions = new ArrayList<>();
+        for ( int i = 0; i < items; i++ ) {
+            itemPermissions.add(permissionLists.get(random.nextInt(PERMISSION_LISTS)));
+        }
+
+        List<String> userRoleIds = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ ) {
+            userRoleIds.add(roleIds.get(random.nextInt(ROLES)));
+        }
+
+        PermissionDecisionCache cache = new PermissionDecisionCache(true, 100000);
+        PermissionDecisionCache.SystemRoles system = new PermissionDecisionCache.SystemRoles(cache.roleIndex("admin"),
+                cache.roleIndex("anonymous"), cache.roleIndex("loggedIn"), cache.roleIndex("owner"), cache.roleIndex("anonymousKey"));
+        BitSet bits = new BitSet();
+        for ( String roleId : userRoleIds ) {
+            bits.set(cache.roleIndex(roleId));
+        }
+        PermissionDecisionCache.RoleSet userRoles = new PermissionDecisionCache.RoleSet(cache.internRoleSet(bits), bits, null, system);
+
+        //What the compiled permissions cache holds once warm, one entry per permission list
+        List<PermissionDecisionCache.CompiledPermissions> compiledLists = new ArrayList<>();
+        for ( int i = 0; i < PERMISSION_LISTS; i++ ) {
+            compiledLists.add(cache.compile(i, null, permissionLists.get(i)));
+        }
+        List<PermissionDecisionCache.CompiledPermissions> itemCompiled = new ArrayList<>();
+        for ( List<Permission> permissions : itemPermissions ) {
+            itemCompiled.add(compiledLists.get(permissionLists.indexOf(permissions)));
+        }
+
+        //Warm up before measuring
+        int allowed = 0;
+        for ( int i = 0; i < iterations / 10; i++ ) {
+            allowed += filterBefore(itemPermissions, userRoleIds).size();
+            allowed += filterCompiled(cache, system, userRoles, itemCompiled).size();
+        }
+
+        long start = System.nanoTime();
+        for ( int i = 0; i < iterations; i++ ) {
+            allowed += filterBefore(itemPermissions, userRoleIds).size();
+        }
+        double before = (System.nanoTime() - start) / 1000.0 / iterations;
+
+        start = System.nanoTime();
+        for ( int i = 0; i < iterations; i++ ) {
+            allowed += filterCompiled(cache, system, userRoles, itemCompiled).size();
+        }
+        double compiled = (System.nanoTime() - start) / 1000.0 / iterations;
+
+        System.out.println(String.format("%-10s %8s %16s %16s", "items", "allowed", "before us/op", "compiled us/op"));
+        System.out.println(String.format("%-10d %8d %16.1f %16.1f", items, filterBefore(itemPermissions, userRoleIds).size(), before, compiled));
+        //Keeps the filtering from being optimized away
+        if ( allowed < 0 ) {
+            System.out.println(allowed);
+        }
+    }
+
+    private static List<List<Permission>> filterBefore(List<List<Permission>> input, List<String> userRoleIds) {
+
+        List<List<Permission>> permissionables = new ArrayList<>(input);
+        int i = 0;
+        while ( i < permissionables.size() ) {
+            boolean permitted = false;
+            for ( Permission permission : permissionables.get(i) ) {
+                if ( permission.matchesPermission(PermissionAPI.PERMISSION_EDIT) && userRoleIds.contains(permission.getRoleId()) ) {
+                    permitted = true;
+                    break;
+                }
+            }
+            if ( !permitted ) {
+                permissionables.remove(i);
+            } else {
+                ++i;
+            }
+        }
+        return permissionables;
+    }
+
+    private static List<PermissionDecisionCache.CompiledPermissions> filterCompiled(PermissionDecisionCache cache,
+            PermissionDecisionCache.SystemRoles system, PermissionDecisionCache.RoleSet userRoles,
+            List<PermissionDecisionCache.CompiledPermissions> input) {
+
+        List<PermissionDecisionCache.CompiledPermissions> permissionables = new ArrayList<>(input.size());
+        for ( PermissionDecisionCache.CompiledPermissions permissions : input ) {
+            if ( cache.decide(system, userRoles, permissions, PermissionAPI.PERMISSION_EDIT, true, false, false) ) {
+                permissionables.add(permissions);
+            }
+        }
+        return permissionables;
+    }
+
+}
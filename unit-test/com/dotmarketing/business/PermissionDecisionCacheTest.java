@@ -0,0 +1,206 @@
+package com.dotmarketing.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.dotmarketing.beans.Permission;
+
+import static org.testng.Assert.*;
+
+public class PermissionDecisionCacheTest {
+
+    @Test
+    public void testCompile_MatchesLikeThePermissions() {
+        PermissionDecisionCache cache = new PermissionDecisionCache(true, 100);
+        Permission bitPermission = new Permission("inode", "role1", PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true);
+        Permission plainPermission = new Permission("inode", "role2", PermissionAPI.PERMISSION_READ, false);
+
+        PermissionDecisionCache.CompiledPermissions compiled = cache.compile(1, null, Arrays.asList(bitPermission, plainPermission));
+
+        for ( int type : new int[] { PermissionAPI.PERMISSION_READ, PermissionAPI.PERMISSION_EDIT, PermissionAPI.PERMISSION_PUBLISH } ) {
+            assertEquals(compiled.matches(0, type), bitPermission.matchesPermission(type));
+            assertEquals(compiled.matches(1, type), plainPermission.matchesPermission(type));
+        }
+    }
+
+    @Test
+    public void testAnyRoleMatches_OnlyForTheRolesOfTheUser() {
+        PermissionDecisionCache cache = new PermissionDecisionCache(true, 100);
+        PermissionDecisionCache.CompiledPermissions compiled = cache.compile(1, null, Arrays.asList(
+                new Permission("inode", "editor", PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true),
+                new Permission("inode", "reader", PermissionAPI.PERMISSION_READ, true)));
+
+        BitSet readerRoles = new BitSet();
+        readerRoles.set(cache.roleIndex("reader"));
+        readerRoles.set(cache.roleIndex("other"));
+
+        assertTrue(compiled.anyRoleMatches(readerRoles, PermissionAPI.PERMISSION_READ));
+        assertFalse(compiled.anyRoleMatches(readerRoles, PermissionAPI.PERMISSION_EDIT));
+    }
+
+    @Test
+    public void testInternRoleSet_SameRolesShareTheId() {
+        PermissionDecisionCache cache = new PermissionDecisionCache(true, 100);
+        BitSet first = new BitSet();
+        first.set(cache.roleIndex("a"));
+        first.set(cache.roleIndex("b"));
+        BitSet second = new BitSet();
+        second.set(cache.roleIndex("b"));
+        second.set(cache.roleIndex("a"));
+        BitSet third = new BitSet();
+        third.set(cache.roleIndex("a"));
+
+        assertEquals(cache.internRoleSet(first), cache.internRoleSet(second));
+        assertTrue(cache.internRoleSet(first) != cache.internRoleSet(third));
+    }
+
+    @Test
+    public void testClear_KeepsTheRoleBitsAndNeverReusesRoleSetIds() {
+        PermissionDecisionCache cache = new PermissionDecisionCache(true, 100);
+        int roleIndex = cache.roleIndex("a");
+        BitSet roles = new BitSet();
+        roles.set(roleIndex);
+        int id = cache.internRoleSet(roles);
+
+        cache.clear();
+
+        assertEquals(cache.roleIndex("a"), roleIndex);
+        assertTrue(cache.internRoleSet(roles) != id);
+    }
+
+    @Test
+    public void testSameSource_ComparesTheCachedListsByValue() {
+        List<Permission> built = Arrays.asList(new Permission("inode", "role1", PermissionAPI.PERMISSION_READ, true));
+        List<Permission> copy = new ArrayList<>(Arrays.asList(new Permission("inode", "role1", PermissionAPI.PERMISSION_READ, true)));
+        List<Permission> changed = Arrays.asList(new Permission("inode", "role1", PermissionAPI.PERMISSION_EDIT, true));
+
+        assertTrue(PermissionDecisionCache.sameSource(built, copy));
+        assertFalse(PermissionDecisionCache.sameSource(built, changed));
+        assertFalse(PermissionDecisionCache.sameSource(built, null));
+    }
+
+    @Test
+    public void testDecide_AgreesWithTheRoleChecksOfThePermissionAPI() {
+        PermissionDecisionCache cache = new PermissionDecisionCache(true, 1000);
+        String[] roleIds = { ADMIN, ANONYMOUS, LOGGED_IN, OWNER, ANONYMOUS_KEY, "role1", "role2", "role3", "role4" };
+        int[] types = { PermissionAPI.PERMISSION_READ, PermissionAPI.PERMISSION_EDIT, PermissionAPI.PERMISSION_PUBLISH };
+        PermissionDecisionCache.SystemRoles system = new PermissionDecisionCache.SystemRoles(cache.roleIndex(ADMIN),
+                cache.roleIndex(ANONYMOUS), cache.roleIndex(LOGGED_IN), cache.roleIndex(OWNER), cache.roleIndex(ANONYMOUS_KEY));
+
+        Random random = new Random(42);
+        for ( int run = 0; run < 5000; run++ ) {
+            List<Permission> permissions = new ArrayList<>();
+            for ( int i = random.nextInt(5); i > 0; i-- ) {
+                permissions.add(new Permission("inode", roleIds[random.nextInt(roleIds.length)], 1 + random.nextInt(7), random.nextBoolean()));
+            }
+
+            List<String> userRoleIds = null;
+            PermissionDecisionCache.RoleSet userRoles = null;
+            if ( random.nextInt(4) > 0 ) {
+                userRoleIds = new ArrayList<>();
+                BitSet bits = new BitSet();
+                for ( int i = random.nextInt(4); i > 0; i-- ) {
+                    String roleId = roleIds[random.nextInt(roleIds.length)];
+                    userRoleIds.add(roleId);
+                    bits.set(cache.roleIndex(roleId));
+                }
+                userRoles = new PermissionDecisionCache.RoleSet(cache.internRoleSet(bits), bits, null, system);
+            }
+
+            int type = types[random.nextInt(types.length)];
+            boolean respectFrontendRoles = random.nextBoolean();
+            boolean owner = userRoleIds != null && random.nextBoolean();
+            boolean form = random.nextInt(10) == 0;
+
+            Boolean expected = permissionAPIDecision(userRoleIds, permissions, type, respectFrontendRoles, owner, form);
+            Boolean decision = cache.decide(system, userRoles, cache.compile(run, null, permissions), type, respectFrontendRoles, owner, form);
+
+            String context = "run " + run + ": roles " + userRoleIds + ", permissions " + permissions + ", type " + type
+                    + ", frontend " + respectFrontendRoles + ", owner " + owner + ", form " + form;
+            if ( decision == null ) {
+                assertTrue(expected == null || form, context);
+            } else {
+                assertEquals(decision, expected, context);
+            }
+        }
+    }
+
+    @Test
+    public void testRoleSet_FlagsAdminsAndFrontEndOnlyUsers() {
+        PermissionDecisionCache.SystemRoles system = new PermissionDecisionCache.SystemRoles(0, 1, 2, 3, 4);
+
+        BitSet frontEnd = new BitSet();
+        frontEnd.set(1);
+        frontEnd.set(4);
+        BitSet backEnd = new BitSet();
+        backEnd.set(2);
+        backEnd.set(7);
+        BitSet admin = new BitSet();
+        admin.set(0);
+
+        assertTrue(new PermissionDecisionCache.RoleSet(1, frontEnd, null, system).onlyFrontEnd);
+        assertFalse(new PermissionDecisionCache.RoleSet(2, backEnd, null, system).onlyFrontEnd);
+        assertTrue(new PermissionDecisionCache.RoleSet(3, admin, null, system).admin);
+        assertFalse(new PermissionDecisionCache.RoleSet(2, backEnd, null, system).admin);
+    }
+
+    private static final String ADMIN = "admin";
+    private static final String ANONYMOUS = "anonymous";
+    private static final String LOGGED_IN = "loggedIn";
+    private static final String OWNER = "owner";
+    private static final String ANONYMOUS_KEY = "anonymousKey";
+
+    /**
+     * The role checks of PermissionBitAPIImpl.doesUserHavePermission as they were before the decision cache, on role
+     * ids. Null when the answer depends on more than the roles: the related permissions of the owner or the roles of
+     * a form.
+     */
+    private static Boolean permissionAPIDecision(List<String> userRoleIds, List<Permission> permissions, int type,
+                                                 boolean respectFrontendRoles, boolean owner, boolean form) {
+        if ( userRoleIds != null && userRoleIds.contains(ADMIN) ) {
+            return true;
+        }
+
+        boolean ownerHasPermission = false;
+        for ( Permission p : permissions ) {
+            if ( p.matchesPermission(type) ) {
+                if ( respectFrontendRoles ) {
+                    if ( p.getRoleId().equals(ANONYMOUS) ) {
+                        return true;
+                    } else if ( userRoleIds != null && p.getRoleId().equals(LOGGED_IN) ) {
+                        return true;
+                    }
+                }
+                if ( p.getRoleId().equals(OWNER) && owner ) {
+                    ownerHasPermission = true;
+                }
+            }
+        }
+        if ( ownerHasPermission ) {
+            return null;
+        }
+
+        if ( userRoleIds == null ) {
+            return false;
+        }
+        if ( form ) {
+            return null;
+        }
+        if ( !respectFrontendRoles && Arrays.asList(ANONYMOUS, LOGGED_IN, ANONYMOUS_KEY).containsAll(userRoleIds) ) {
+            return false;
+        }
+
+        for ( Permission p : permissions ) {
+            if ( p.matchesPermission(type) && userRoleIds.contains(p.getRoleId()) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
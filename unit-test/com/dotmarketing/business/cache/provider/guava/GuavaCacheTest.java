@@ -0,0 +1,81 @@
+package com.dotmarketing.business.cache.provider.guava;
+
+import java.util.AbstractList;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the reconfiguration of the default cache while groups sharing it are invalidated. The invalidations run
+ * while the entries are copied, from a value the byte weighted new cache weighs as it copies it.
+ */
+public class GuavaCacheTest {
+
+    private static final CacheGroupSettings BYTE_LIMITED = new CacheGroupSettings(0, 10 * 1024 * 1024, 0);
+
+    @Test
+    public void testReconfigure_WhenSharingGroupRemovesAKeyDuringTheCopy_KeyIsNotReadBack() {
+        final GuavaCache provider = new GuavaCache();
+        provider.put("group1", "key1", "value1");
+        provider.put("group1", "key2", "value2");
+        provider.put("group2", "trigger", new OnWeigh(() -> provider.remove("group1", "key1")));
+
+        provider.reconfigure(GuavaCache.DEFAULT_CACHE, BYTE_LIMITED);
+
+        assertNull(provider.get("group1", "key1"));
+        assertEquals(provider.get("group1", "key2"), "value2");
+        assertEquals(provider.getSettings(GuavaCache.DEFAULT_CACHE), BYTE_LIMITED);
+    }
+
+    @Test
+    public void testReconfigure_WhenSharingGroupIsFlushedDuringTheCopy_NothingIsReadBack() {
+        final GuavaCache provider = new GuavaCache();
+        provider.put("group1", "key1", "value1");
+        provider.put("group2", "trigger", new OnWeigh(() -> provider.remove("group1")));
+
+        provider.reconfigure(GuavaCache.DEFAULT_CACHE, BYTE_LIMITED);
+
+        assertNull(provider.get("group1", "key1"));
+        assertNull(provider.get("group2", "trigger"));
+    }
+
+    @Test
+    public void testReconfigure_WhenKeyIsPutDuringTheCopy_KeepsTheNewValue() {
+        final GuavaCache provider = new GuavaCache();
+        provider.put("group1", "key1", "old");
+        provider.put("group2", "trigger", new OnWeigh(() -> provider.put("group1", "key1", "new")));
+
+        provider.reconfigure(GuavaCache.DEFAULT_CACHE, BYTE_LIMITED);
+
+        assertEquals(provider.get("group1", "key1"), "new");
+    }
+
+    /**
+     * Runs the given invalidation the first time it is weighed
+     */
+    private static class OnWeigh extends AbstractList<String> {
+
+        private Runnable onWeigh;
+
+        OnWeigh ( Runnable onWeigh ) {
+            this.onWeigh = onWeigh;
+        }
+
+        @Override
+        public String get ( int index ) {
+            return "element";
+        }
+
+        @Override
+        public int size () {
+            if ( onWeigh != null ) {
+                Runnable run = onWeigh;
+                onWeigh = null;
+                run.run();
+            }
+            return 1;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.dotmarketing.business.cache.provider.guava;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class ObjectSizeEstimatorTest {
+
+    @Test
+    public void testEstimate_GrowsWithContent() {
+        assertEquals(ObjectSizeEstimator.estimate(null), 0);
+        assertTrue(ObjectSizeEstimator.estimate("a long string value") > ObjectSizeEstimator.estimate("a"));
+        assertTrue(ObjectSizeEstimator.estimate(new byte[10000]) >= 10000);
+    }
+
+    @Test
+    public void testEstimate_WhenCollectionIsSampled_ScalesToItsSize() {
+        List<String> small = new ArrayList<>();
+        List<String> big = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            if ( i < 10 ) {
+                small.add("value" + i);
+            }
+            big.add("value" + i);
+        }
+
+        long smallSize = ObjectSizeEstimator.estimate(small);
+        long bigSize = ObjectSizeEstimator.estimate(big);
+        assertTrue(bigSize > smallSize * 50, smallSize + " vs " + bigSize);
+    }
+
+    @Test
+    public void testEstimate_WhenGraphIsCyclic_Terminates() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("self", map);
+        map.put("value", "text");
+
+        assertTrue(ObjectSizeEstimator.estimate(map) > 0);
+    }
+
+    @Test
+    public void testEstimate_FollowsFields() {
+        assertTrue(ObjectSizeEstimator.estimate(new Holder(new char[5000])) > 10000);
+    }
+
+    private static class Holder {
+
+        private final char[] chars;
+
+        Holder(char[] chars) {
+            this.chars = chars;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.dotmarketing.business.cache.provider.h2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dotcms.repackage.org.jboss.cache.Fqn;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the write behind queue with a batch writer that records what the {@link H2CacheLoader} would write
+ */
+public class H2WriteBehindQueueTest {
+
+	private List<H2WriteBehindQueue.PendingWrite> written;
+	private Map<String, Map> rows;
+	private H2WriteBehindQueue queue;
+
+	@BeforeMethod
+	public void setUp () {
+		written = Collections.synchronizedList(new ArrayList<H2WriteBehindQueue.PendingWrite>());
+		rows = new ConcurrentHashMap<>();
+		//A flush interval long enough for the writer to never drain on its own during a test
+		queue = new H2WriteBehindQueue(batch -> {
+			written.addAll(batch);
+			return batch;
+		}, write -> rows.remove(write.key), 100, 50, 60000, 10);
+	}
+
+	@AfterMethod
+	public void tearDown () {
+		queue.stop();
+	}
+
+	@Test
+	public void testGet_WhenWriteIsPending_ReturnsTheNewValue () {
+		offer("group1", "key1", "value1");
+		offer("group1", "key1", "value2");
+
+		assertEquals(queue.get("group1key1").get("value"), "value2");
+		assertTrue(written.isEmpty());
+		assertEquals(queue.getPendingByGroup().get("group1"), Integer.valueOf(1));
+	}
+
+	@Test
+	public void testStop_WritesEverythingPending () {
+		queue.start();
+		offer("group1", "key1", "value1");
+		offer("group1", "key2", "value2");
+		offer("group2", "key1", "value3");
+
+		queue.stop();
+
+		assertEquals(written.size(), 3);
+		assertNull(queue.get("group1key1"));
+		assertTrue(queue.getPendingByGroup().isEmpty());
+		assertEquals(queue.getStats("group1", queue.getPendingByGroup()).get("writeBehindWritten"), 2L);
+	}
+
+	@Test
+	public void testStop_WhenKeyRemovedOrGroupRemoved_DoesNotWriteIt () {
+		offer("group1", "key1", "value1");
+		offer("group1", "key2", "value2");
+		offer("group2", "key1", "value3");
+
+		queue.remove("group1key1");
+		queue.removeGroup("group2");
+		queue.stop();
+
+		assertEquals(written.size(), 1);
+		assertEquals(written.get(0).key, "group1key2");
+	}
+
+	@Test
+	public void testOffer_WhenQueueFull_DropsTheWrite () {
+		H2WriteBehindQueue small = new H2WriteBehindQueue(batch -> batch, write -> rows.remove(write.key), 1, 1, 60000, 0);
+		assertTrue(small.offer(Fqn.fromString("/group1/key1"), "group1key1", "group1", attrs("value1")));
+		assertFalse(small.offer(Fqn.fromString("/group1/key2"), "group1key2", "group1", attrs("value2")));
+
+		assertNull(small.get("group1key2"));
+		assertEquals(small.getStats("group1", small.getPendingByGroup()).get("writeBehindDropped"), 1L);
+	}
+
+	@Test
+	public void testOffer_WhenDroppedOverAnExistingRow_TheOldValueIsNotReadBack () {
+		//The row written by an earlier put of the key, what the disk tier would serve once the memory tier evicts it
+		rows.put("group1key2", attrs("old"));
+		H2WriteBehindQueue small = new H2WriteBehindQueue(batch -> {
+			for ( H2WriteBehindQueue.PendingWrite write : batch ) {
+				rows.put(write.key, write.attrs);
+			}
+			return batch;
+		}, write -> rows.remove(write.key), 1, 1, 60000, 0);
+		assertTrue(small.offer(Fqn.fromString("/group1/key1"), "group1key1", "group1", attrs("value1")));
+		assertFalse(small.offer(Fqn.fromString("/group1/key2"), "group1key2", "group1", attrs("new")));
+
+		assertNull(small.get("group1key2"));
+		assertNull(rows.get("group1key2"));
+		small.stop();
+		assertEquals(rows.get("group1key1").get("value"), "value1");
+		assertNull(rows.get("group1key2"));
+	}
+
+	@Test
+	public void testStop_WhenBatchFails_DeletesTheRowsOfItsKeys () {
+		rows.put("group1key1", attrs("old"));
+		H2WriteBehindQueue failing = new H2WriteBehindQueue(batch -> Collections.emptyList(),
+				write -> rows.remove(write.key), 100, 50, 60000, 10);
+		assertTrue(failing.offer(Fqn.fromString("/group1/key1"), "group1key1", "group1", attrs("new")));
+
+		failing.stop();
+		assertNull(rows.get("group1key1"));
+		assertEquals(failing.getStats("group1", failing.getPendingByGroup()).get("writeBehindFailed"), 1L);
+	}
+
+	private void offer ( String group, String key, String value ) {
+		assertTrue(queue.offer(Fqn.fromString("/" + group + "/" + key), group + key, group, attrs(value)));
+	}
+
+	private static Map attrs ( String value ) {
+		Map<String, Object> attrs = new HashMap<>();
+		attrs.put("value", value);
+		return attrs;
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class MappedGroupStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File directory;
+    private MappedGroupStore store;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("mappedgroupstore").toFile();
+        store = new MappedGroupStore("testgroup", directory, SEGMENT_SIZE, 3);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        store.close();
+        directory.delete();
+    }
+
+    @Test
+    public void testPutGet_WhenKeyStored_ReturnsSameBytes() throws Exception {
+        store.put("key1", bytes("value1"));
+        store.put("key2", bytes("value2"));
+
+        assertEquals(string(store.get("key1")), "value1");
+        assertEquals(string(store.get("key2")), "value2");
+        assertNull(store.get("key3"));
+        assertEquals(store.size(), 2);
+        assertEquals(store.getHits(), 2);
+        assertEquals(store.getMisses(), 1);
+    }
+
+    @Test
+    public void testPut_WhenKeyReplaced_ReturnsNewValue() throws Exception {
+        store.put("key1", bytes("value1"));
+        store.put("key1", bytes("another value"));
+
+        assertEquals(string(store.get("key1")), "another value");
+        assertEquals(store.size(), 1);
+    }
+
+    @Test
+    public void testRemove_WhenKeyRemoved_ReturnsNull() throws Exception {
+        store.put("key1", bytes("value1"));
+        store.remove("key1");
+
+        assertNull(store.get("key1"));
+        assertEquals(store.size(), 0);
+        assertTrue(store.keys().isEmpty());
+    }
+
+    @Test
+    public void testPut_WhenRingIsFull_EvictsOldestSegment() throws Exception {
+        byte[] value = new byte[1000];
+        for ( int i = 0; i < 16; i++ ) {
+            store.put("key" + i, value);
+        }
+
+        //Only three segments of four entries each can be alive
+        assertNull(store.get("key0"));
+        assertNotNull(store.get("key15"));
+        assertTrue(store.getEvictions() > 0);
+        assertEquals(store.size(), store.keys().size());
+        assertTrue(store.getMappedBytes() <= store.getConfiguredBytes());
+    }
+
+    @Test
+    public void testPut_WhenEntryBiggerThanSegment_IsRejected() throws Exception {
+        store.put("big", bytes("small"));
+
+        assertFalse(store.put("big", new byte[SEGMENT_SIZE]));
+        assertNull(store.get("big"));
+        assertEquals(store.getRejected(), 1);
+    }
+
+    @Test
+    public void testPut_WhenIndexGrows_KeepsAllKeys() throws Exception {
+        store.close();
+        store = new MappedGroupStore("testgroup", directory, 1024 * 1024, 2);
+        for ( int i = 0; i < 5000; i++ ) {
+            store.put("key" + i, bytes("value" + i));
+        }
+
+        assertEquals(store.size(), 5000);
+        for ( int i = 0; i < 5000; i++ ) {
+            assertEquals(string(store.get("key" + i)), "value" + i);
+        }
+    }
+
+    @Test
+    public void testClear_RemovesEverything() throws Exception {
+        store.put("key1", bytes("value1"));
+        store.clear();
+
+        assertNull(store.get("key1"));
+        assertEquals(store.size(), 0);
+
+        store.put("key1", bytes("value2"));
+        assertEquals(string(store.get("key1")), "value2");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
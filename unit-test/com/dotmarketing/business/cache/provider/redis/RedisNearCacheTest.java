@@ -0,0 +1,114 @@
+package com.dotmarketing.business.cache.provider.redis;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the near cache the way the {@link RedisProvider} does, with a plain map standing in for Redis
+ */
+public class RedisNearCacheTest {
+
+    private Map<String, Object> redis;
+    private RedisNearCache nearCache;
+
+    @BeforeMethod
+    public void setUp() {
+        redis = new HashMap<>();
+        nearCache = new RedisNearCache(100, 0);
+    }
+
+    @Test
+    public void testGet_WhenReadTwice_SecondReadIsServedLocally() {
+        redis.put("group1;key1", "value1");
+
+        assertEquals(read("group1", "key1"), "value1");
+        redis.put("group1;key1", "changed without an invalidation");
+        assertEquals(read("group1", "key1"), "value1");
+
+        assertEquals(nearCache.getStats("group1").hitCount(), 1);
+        assertEquals(nearCache.getStats("group1").missCount(), 1);
+    }
+
+    @Test
+    public void testOnMessage_WhenKeyInvalidated_ReadsFromRedisAgain() {
+        redis.put("group1;key1", "value1");
+        read("group1", "key1");
+
+        write("group1", "key1", "value2");
+
+        assertEquals(read("group1", "key1"), "value2");
+    }
+
+    @Test
+    public void testOnMessage_WhenGroupInvalidated_OnlyThatGroupIsReloaded() {
+        redis.put("group1;key1", "value1");
+        redis.put("group2;key1", "value1");
+        read("group1", "key1");
+        read("group2", "key1");
+
+        redis.put("group1;key1", "value2");
+        redis.put("group2;key1", "value2");
+        nearCache.onMessage(RedisNearCache.groupMessage("group1"));
+
+        assertEquals(read("group1", "key1"), "value2");
+        assertEquals(read("group2", "key1"), "value1");
+    }
+
+    @Test
+    public void testOnMessage_WhenAllInvalidated_EverythingIsReloaded() {
+        redis.put("group1;key1", "value1");
+        read("group1", "key1");
+
+        redis.put("group1;key1", "value2");
+        nearCache.onMessage(RedisNearCache.ALL_MESSAGE);
+
+        assertEquals(read("group1", "key1"), "value2");
+    }
+
+    @Test
+    public void testPut_WhenInvalidatedWhileLoading_ValueIsNotKept() {
+        redis.put("group1;key1", "value1");
+
+        //A read starts, an invalidation arrives before the value read from Redis is stored
+        long stamp = nearCache.loadStamp("group1");
+        Object loaded = redis.get("group1;key1");
+        write("group1", "key1", "value2");
+        nearCache.put("group1", "key1", loaded, stamp);
+
+        assertEquals(read("group1", "key1"), "value2");
+    }
+
+    @Test
+    public void testGetStatsMap_ReportsHitRate() {
+        redis.put("group1;key1", "value1");
+        for ( int i = 0; i < 4; i++ ) {
+            read("group1", "key1");
+        }
+
+        Map<String, Object> stats = nearCache.getStatsMap("group1");
+        assertEquals(stats.get("nearCacheHits"), 3L);
+        assertEquals(stats.get("nearCacheMisses"), 1L);
+        assertEquals((Double) stats.get("nearCacheHitRate"), 0.75, 0.0001);
+    }
+
+    private Object read(String group, String key) {
+        Object cached = nearCache.get(group, key);
+        if ( cached != null ) {
+            return cached;
+        }
+
+        long stamp = nearCache.loadStamp(group);
+        Object value = redis.get(group + ";" + key);
+        nearCache.put(group, key, value, stamp);
+        return value;
+    }
+
+    private void write(String group, String key, Object value) {
+        redis.put(group + ";" + key, value);
+        nearCache.onMessage(RedisNearCache.keyMessage(group, key));
+    }
+}
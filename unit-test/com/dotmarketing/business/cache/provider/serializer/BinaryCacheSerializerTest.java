@@ -0,0 +1,135 @@
+package com.dotmarketing.business.cache.provider.serializer;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.structure.model.Structure;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class BinaryCacheSerializerTest {
+
+    private final BinaryCacheSerializer serializer = new BinaryCacheSerializer();
+
+    @Test
+    public void testRoundTrip_Contentlet() throws Exception {
+        Contentlet contentlet = CacheSerializerBenchmark.contentlet();
+
+        Contentlet read = (Contentlet) roundTrip(contentlet);
+        assertEquals(read.getMap(), contentlet.getMap());
+        assertEquals(read.isLowIndexPriority(), contentlet.isLowIndexPriority());
+    }
+
+    @Test
+    public void testRoundTrip_Identifier() throws Exception {
+        Identifier identifier = CacheSerializerBenchmark.identifier();
+
+        Identifier read = (Identifier) roundTrip(identifier);
+        assertEquals(read.getId(), identifier.getId());
+        assertEquals(read.getAssetName(), identifier.getAssetName());
+        assertEquals(read.getParentPath(), identifier.getParentPath());
+        assertEquals(read.getHostId(), identifier.getHostId());
+        assertEquals(read.getSysPublishDate(), identifier.getSysPublishDate());
+    }
+
+    @Test
+    public void testRoundTrip_PermissionList() throws Exception {
+        List<Permission> permissions = CacheSerializerBenchmark.permissions();
+
+        @SuppressWarnings("unchecked")
+        List<Permission> read = (List<Permission>) roundTrip(permissions);
+        assertEquals(read, permissions);
+        assertEquals(read.get(0).getType(), permissions.get(0).getType());
+        assertEquals(read.get(0).isBitPermission(), permissions.get(0).isBitPermission());
+    }
+
+    @Test
+    public void testRoundTrip_Folder() throws Exception {
+        Folder folder = CacheSerializerBenchmark.folder();
+
+        Folder read = (Folder) roundTrip(folder);
+        assertEquals(read.getInode(), folder.getInode());
+        assertEquals(read.getIdentifier(), folder.getIdentifier());
+        assertEquals(read.getHostId(), folder.getHostId());
+        assertEquals(read.getName(), folder.getName());
+        assertEquals(read.getSortOrder(), folder.getSortOrder());
+        assertEquals(read.isShowOnMenu(), folder.isShowOnMenu());
+        assertEquals(read.getModDate(), folder.getModDate());
+    }
+
+    @Test
+    public void testRoundTrip_Structure() throws Exception {
+        Structure structure = CacheSerializerBenchmark.structure();
+
+        Structure read = (Structure) roundTrip(structure);
+        assertEquals(read.getInode(), structure.getInode());
+        assertEquals(read.getName(), structure.getName());
+        assertEquals(read.getVelocityVarName(), structure.getVelocityVarName());
+        assertEquals(read.getStructureType(), structure.getStructureType());
+        assertEquals(read.isFixed(), structure.isFixed());
+    }
+
+    @Test
+    public void testRoundTrip_MapWithUnknownTypes_FallsBackToJavaSerialization() throws Exception {
+        Map<String, Object> attrs = new HashMap<>();
+        attrs.put("builder", new StringBuilder("value"));
+        attrs.put("date", new Date(1000));
+        attrs.put("list", new ArrayList<>());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> read = (Map<String, Object>) roundTrip(attrs);
+        assertEquals(read.get("builder").toString(), "value");
+        assertEquals(read.get("date"), new Date(1000));
+        assertEquals(read.get("list"), new ArrayList<>());
+    }
+
+    @Test
+    public void testRoundTrip_MapWithNullValues_KeepsTheKeys() throws Exception {
+        Map<String, Object> attrs = new HashMap<>();
+        attrs.put("title", "value");
+        attrs.put("empty", null);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> read = (Map<String, Object>) roundTrip(attrs);
+        assertEquals(read, attrs);
+        assertTrue(read.containsKey("empty"));
+    }
+
+    @Test
+    public void testDeserialize_WhenWrittenWithJavaSerializer_ReadsIt() throws Exception {
+        Identifier identifier = CacheSerializerBenchmark.identifier();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JavaCacheSerializer().serialize(identifier, out);
+
+        Identifier read = (Identifier) serializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(read.getId(), identifier.getId());
+    }
+
+    @Test
+    public void testJavaSerializer_WhenWrittenWithBinarySerializer_ReadsIt() throws Exception {
+        Identifier identifier = CacheSerializerBenchmark.identifier();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(identifier, out);
+
+        Identifier read = (Identifier) new JavaCacheSerializer().deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(read.getId(), identifier.getId());
+        assertEquals(read.getAssetName(), identifier.getAssetName());
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(value, out);
+        return serializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,135 @@
+package com.dotmarketing.business.cache.provider.serializer;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.PermissionAPI;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.structure.model.Structure;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares the serialized size and the round trip time of the {@link JavaCacheSerializer} and the
+ * {@link BinaryCacheSerializer} for the types the caches store the most.
+ * <p/>
+ * Run it with the unit-test classpath: <code>java com.dotmarketing.business.cache.provider.serializer.CacheSerializerBenchmark [iterations]</code>
+ */
+public class CacheSerializerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        Map<String, Object> samples = new LinkedHashMap<>();
+        samples.put("Contentlet", contentlet());
+        samples.put("Identifier", identifier());
+        samples.put("Permission list", permissions());
+        samples.put("Folder", folder());
+        samples.put("Structure", structure());
+
+        CacheSerializer java = new JavaCacheSerializer();
+        CacheSerializer binary = new BinaryCacheSerializer();
+
+        System.out.println(String.format("%-16s %12s %12s %14s %14s", "type", "java bytes", "binary bytes", "java us/op", "binary us/op"));
+        for ( Map.Entry<String, Object> sample : samples.entrySet() ) {
+
+            int javaSize = serialize(java, sample.getValue()).length;
+            int binarySize = serialize(binary, sample.getValue()).length;
+
+            //Warm up before measuring
+            roundTrips(java, sample.getValue(), iterations / 10);
+            roundTrips(binary, sample.getValue(), iterations / 10);
+
+            double javaTime = roundTrips(java, sample.getValue(), iterations);
+            double binaryTime = roundTrips(binary, sample.getValue(), iterations);
+
+            System.out.println(String.format("%-16s %12d %12d %14.2f %14.2f", sample.getKey(), javaSize, binarySize, javaTime, binaryTime));
+        }
+    }
+
+    /**
+     * Returns the average round trip time in microseconds
+     */
+    private static double roundTrips(CacheSerializer serializer, Object value, int iterations) throws Exception {
+
+        long start = System.nanoTime();
+        for ( int i = 0; i < iterations; i++ ) {
+            serializer.deserialize(new ByteArrayInputStream(serialize(serializer, value)));
+        }
+
+        return (System.nanoTime() - start) / 1000d / iterations;
+    }
+
+    private static byte[] serialize(CacheSerializer serializer, Object value) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(value, out);
+        return out.toByteArray();
+    }
+
+    static Contentlet contentlet() {
+        Contentlet contentlet = new Contentlet();
+        contentlet.setInode(UUID.randomUUID().toString());
+        contentlet.setIdentifier(UUID.randomUUID().toString());
+        contentlet.setStructureInode(UUID.randomUUID().toString());
+        contentlet.setLanguageId(1);
+        contentlet.setModDate(new Date());
+        contentlet.setProperty("title", "A content title");
+        contentlet.setProperty("body", "<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.</p>");
+        contentlet.setProperty("sortOrder", 10L);
+        contentlet.setLowIndexPriority(true);
+        return contentlet;
+    }
+
+    static Identifier identifier() {
+        Identifier identifier = new Identifier();
+        identifier.setId(UUID.randomUUID().toString());
+        identifier.setAssetName("index.html");
+        identifier.setAssetType(Identifier.ASSET_TYPE_HTML_PAGE);
+        identifier.setParentPath("/about-us/");
+        identifier.setHostId(UUID.randomUUID().toString());
+        identifier.setSysPublishDate(new Date());
+        return identifier;
+    }
+
+    static List<Permission> permissions() {
+        List<Permission> permissions = new ArrayList<>();
+        String inode = UUID.randomUUID().toString();
+        for ( int i = 0; i < 10; i++ ) {
+            Permission permission = new Permission(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE, inode, UUID.randomUUID().toString(),
+                    PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_WRITE, true);
+            permission.setId(i);
+            permissions.add(permission);
+        }
+        return permissions;
+    }
+
+    static Folder folder() {
+        Folder folder = new Folder();
+        folder.setInode(UUID.randomUUID().toString());
+        folder.setHostId(UUID.randomUUID().toString());
+        folder.setIdentifier(UUID.randomUUID().toString());
+        folder.setName("about-us");
+        folder.setTitle("About Us");
+        folder.setSortOrder(3);
+        folder.setShowOnMenu(true);
+        return folder;
+    }
+
+    static Structure structure() {
+        Structure structure = new Structure();
+        structure.setInode(UUID.randomUUID().toString());
+        structure.setName("News");
+        structure.setVelocityVarName("News");
+        structure.setDescription("News items");
+        structure.setStructureType(Structure.STRUCTURE_TYPE_CONTENT);
+        structure.setFixed(false);
+        return structure;
+    }
+}
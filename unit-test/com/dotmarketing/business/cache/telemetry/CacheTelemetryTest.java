@@ -0,0 +1,89 @@
+package com.dotmarketing.business.cache.telemetry;
+
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class CacheTelemetryTest {
+
+    @Test
+    public void testCountMinSketch_NeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for ( int i = 0; i < 300; i++ ) {
+            sketch.add("key" + (i % 30));
+        }
+
+        for ( int i = 0; i < 30; i++ ) {
+            assertTrue(sketch.estimate("key" + i) >= 10);
+        }
+    }
+
+    @Test
+    public void testRecordGet_TracksHitRateAndHotKeys() {
+        //Every read sampled
+        CacheTelemetry telemetry = new CacheTelemetry(null, 1, 3, 256, 30);
+        for ( int i = 0; i < 1000; i++ ) {
+            String key = i % 2 == 0 ? "hot" : "cold" + i;
+            telemetry.recordGet("group1", key, i % 4 != 3, telemetry.startSample());
+        }
+
+        assertEquals(telemetry.getHitRate("group1"), 0.75, 0.0001);
+        String[] hotKeys = telemetry.getHotKeys("group1");
+        assertTrue(hotKeys.length > 0 && hotKeys.length <= 3);
+        assertTrue(hotKeys[0].startsWith("hot="), hotKeys[0]);
+    }
+
+    @Test
+    public void testRecordRemove_WhenRemovedRightAfterPut_CountsChurn() {
+        CacheTelemetry telemetry = new CacheTelemetry(null, 1, 3, 256, 30);
+        for ( int i = 0; i < 10; i++ ) {
+            telemetry.recordPut("group1", "key" + i);
+        }
+        for ( int i = 0; i < 5; i++ ) {
+            telemetry.recordRemove("group1", "key" + i);
+        }
+        //Never put, not churn
+        telemetry.recordRemove("group1", "other");
+
+        assertEquals(telemetry.getChurnRate("group1"), 0.5, 0.0001);
+    }
+
+    @Test
+    public void testRecordPut_AfterMiss_RecordsLoadLatency() {
+        CacheTelemetry telemetry = new CacheTelemetry(null, 1, 3, 256, 30);
+        telemetry.recordGet("group1", "key1", false, -1);
+        telemetry.recordPut("group1", "key1");
+
+        Map<String, Object> report = telemetry.getGroupReport("group1");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> loadLatency = (Map<String, Object>) report.get("loadLatency");
+        assertEquals(loadLatency.get("count"), 1L);
+        assertEquals(report.get("misses"), 1L);
+        assertEquals(report.get("puts"), 1L);
+    }
+
+    @Test
+    public void testLatencyHistogram_Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for ( int i = 0; i < 99; i++ ) {
+            histogram.record(5000);
+        }
+        histogram.record(20000000);
+
+        assertEquals(histogram.getPercentile(50), 10);
+        assertEquals(histogram.getPercentile(99), 10);
+        assertEquals(histogram.getPercentile(100), 50000);
+    }
+
+    @Test
+    public void testReset_ClearsEverything() {
+        CacheTelemetry telemetry = new CacheTelemetry(null, 1, 3, 256, 30);
+        telemetry.recordGet("group1", "key1", true, telemetry.startSample());
+
+        telemetry.reset();
+
+        assertEquals(telemetry.getGroupNames().length, 0);
+        assertNull(telemetry.getGroupReport("group1"));
+    }
+}
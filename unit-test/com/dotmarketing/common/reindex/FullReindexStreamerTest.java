@@ -0,0 +1,161 @@
+package com.dotmarketing.common.reindex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises stopping and resuming a {@link FullReindexStreamer}, with the contents, the new index and the checkpoint
+ * kept in memory instead of the database and Elastic
+ */
+public class FullReindexStreamerTest {
+
+    private InMemoryReindex reindex;
+
+    @BeforeMethod
+    public void setUp() {
+        reindex = new InMemoryReindex();
+        //Working and live versions for some of the identifiers
+        for ( int i = 0; i < 10; i++ ) {
+            String identifier = "identifier" + i;
+            reindex.contents.put(identifier, i % 3 == 0
+                    ? Arrays.asList(identifier + "-working", identifier + "-live")
+                    : Arrays.asList(identifier + "-working"));
+        }
+    }
+
+    @Test
+    public void testStream_WhenStoppedWhileIndexingAChunk_ResumesAfterIt() throws Exception {
+        //Chunks of 3 identifiers, stopped while the second one is being indexed
+        StreamerInMemory first = new StreamerInMemory(reindex, 3, 2);
+        first.stream("", 0);
+
+        assertEquals(reindex.lastIdentifier, "identifier5");
+        assertEquals(reindex.processed, 6L);
+        assertFalse(reindex.done);
+
+        new StreamerInMemory(reindex, 3, -1).stream(reindex.lastIdentifier, reindex.processed);
+
+        assertEquals(reindex.indexed, reindex.allInodes());
+        assertEquals(reindex.processed, 10L);
+        assertTrue(reindex.done);
+    }
+
+    @Test
+    public void testStream_WhenStoppedOnTheLastChunk_ResumingIndexesNothingElse() throws Exception {
+        //The last chunk only has identifier9
+        StreamerInMemory first = new StreamerInMemory(reindex, 3, 4);
+        first.stream("", 0);
+
+        assertEquals(reindex.lastIdentifier, "identifier9");
+        assertFalse(reindex.done);
+
+        new StreamerInMemory(reindex, 3, -1).stream(reindex.lastIdentifier, reindex.processed);
+
+        assertEquals(reindex.indexed, reindex.allInodes());
+        assertEquals(reindex.processed, 10L);
+        assertTrue(reindex.done);
+    }
+
+    @Test
+    public void testStream_WhenStoppedOverAndOver_IndexesEveryInodeOnce() throws Exception {
+        //A new server takes the stream over after every chunk
+        int streams = 0;
+        while ( !reindex.done ) {
+            new StreamerInMemory(reindex, 2, 1).stream(reindex.lastIdentifier, reindex.processed);
+            streams++;
+        }
+
+        assertEquals(streams, 6);
+        assertEquals(reindex.indexed, reindex.allInodes());
+        assertEquals(reindex.processed, 10L);
+    }
+
+    /**
+     * The contentlet_version_info and reindex_checkpoint tables and the new index
+     */
+    private static class InMemoryReindex {
+
+        private final TreeMap<String, List<String>> contents = new TreeMap<>();
+        private final List<String> indexed = new ArrayList<>();
+        private String lastIdentifier = "";
+        private long processed = 0;
+        private boolean done = false;
+
+        List<String> allInodes() {
+            List<String> inodes = new ArrayList<>();
+            for ( List<String> identifierInodes : contents.values() ) {
+                inodes.addAll(identifierInodes);
+            }
+            return inodes;
+        }
+    }
+
+    private static class StreamerInMemory extends FullReindexStreamer {
+
+        private final InMemoryReindex reindex;
+        private final int chunkSize;
+        private final int stopOnChunk;
+        private int chunks = 0;
+
+        /**
+         * @param stopOnChunk the chunk the streamer is stopped while indexing, counting from 1, -1 to never stop it
+         */
+        StreamerInMemory(InMemoryReindex reindex, int chunkSize, int stopOnChunk) {
+            super("working_20260101000000", "server1", chunkSize, 60 * 1000);
+            this.reindex = reindex;
+            this.chunkSize = chunkSize;
+            this.stopOnChunk = stopOnChunk;
+        }
+
+        @Override
+        boolean isCurrentReindex() {
+            return true;
+        }
+
+        @Override
+        List<String> nextIdentifiers(String lastIdentifier) {
+            List<String> identifiers = new ArrayList<>();
+            Map<String, List<String>> after = lastIdentifier.isEmpty() ? reindex.contents
+                    : reindex.contents.tailMap(lastIdentifier, false);
+            for ( String identifier : after.keySet() ) {
+                if ( identifiers.size() == chunkSize ) {
+                    break;
+                }
+                identifiers.add(identifier);
+            }
+            return identifiers;
+        }
+
+        @Override
+        int indexChunk(List<String> identifiers) {
+            if ( ++chunks == stopOnChunk ) {
+                stopStreaming();
+            }
+            for ( String identifier : identifiers ) {
+                reindex.indexed.addAll(reindex.contents.get(identifier));
+            }
+            return identifiers.size();
+        }
+
+        @Override
+        boolean saveCheckpoint(String lastIdentifier, long processed) {
+            reindex.lastIdentifier = lastIdentifier;
+            reindex.processed = processed;
+            return true;
+        }
+
+        @Override
+        void markDone() {
+            reindex.done = true;
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.dotmarketing.common.reindex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.dotmarketing.common.business.journal.IndexJournal;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the order the {@link ReindexPipeline} sends its batches in, with an indexer that records the batches it
+ * gets and answers them when the tests say so
+ */
+public class ReindexPipelineTest {
+
+    private ExecutorService fetcher;
+    private RecordingIndexer indexer;
+    private ReindexPipeline pipeline;
+
+    @BeforeMethod
+    public void setUp() {
+        fetcher = Executors.newSingleThreadExecutor();
+        indexer = new RecordingIndexer();
+        pipeline = new ReindexPipeline(indexer, 4, 4);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        fetcher.shutdownNow();
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testSubmit_WhenBatchesShareAnIdentifier_TheSecondWaitsForTheFirstAnswer() throws Exception {
+        pipeline.submit(batch(1, "identifier1", "identifier2"));
+        Batch first = indexer.sent.poll(2, TimeUnit.SECONDS);
+        assertEquals(first.ids(), Arrays.asList(1L, 2L));
+
+        //A batch with other identifiers is sent while the first one waits for its answer
+        pipeline.submit(batch(3, "identifier3"));
+        Batch other = indexer.sent.poll(2, TimeUnit.SECONDS);
+        assertEquals(other.ids(), Collections.singletonList(3L));
+
+        Future<?> submitting = submit(batch(4, "identifier2"));
+        try {
+            submitting.get(200, TimeUnit.MILLISECONDS);
+            fail("The batch was queued while the first batch of identifier2 was not answered");
+        } catch ( TimeoutException e ) {
+            //Expected
+        }
+        assertNull(indexer.sent.poll(100, TimeUnit.MILLISECONDS));
+
+        first.answered.run();
+        submitting.get(2, TimeUnit.SECONDS);
+        Batch second = indexer.sent.poll(2, TimeUnit.SECONDS);
+        assertEquals(second.ids(), Collections.singletonList(4L));
+    }
+
+    @Test
+    public void testSubmit_WhenBatchesShareAnIdentifier_TheySendItsRecordsInOrder() throws Exception {
+        //Every batch is answered soon, from another thread as Elastic would, and the first ones take longer to build
+        indexer.answerAfter = 5;
+        List<Long> expected = new ArrayList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            pipeline.submit(batch(i, "identifier" + (i % 3)));
+            expected.add((long) i);
+        }
+
+        pipeline.shutdown();
+        for ( int identifier = 0; identifier < 3; identifier++ ) {
+            List<Long> sentOfIdentifier = new ArrayList<>();
+            for ( long id : indexer.sentIds ) {
+                if ( id % 3 == identifier ) {
+                    sentOfIdentifier.add(id);
+                }
+            }
+            List<Long> expectedOfIdentifier = new ArrayList<>();
+            for ( long id : expected ) {
+                if ( id % 3 == identifier ) {
+                    expectedOfIdentifier.add(id);
+                }
+            }
+            assertEquals(sentOfIdentifier, expectedOfIdentifier);
+        }
+    }
+
+    @Test
+    public void testSubmit_WhenBatchFails_RequeuesItsRecords() throws Exception {
+        indexer.failing = true;
+        List<IndexJournal<String>> failing = batch(1, "identifier1", "identifier2");
+        pipeline.submit(failing);
+
+        List<IndexJournal<String>> requeued = indexer.requeued.poll(2, TimeUnit.SECONDS);
+        assertSame(requeued, failing);
+
+        //The identifiers of the failed batch do not hold the next batches back
+        indexer.failing = false;
+        submit(batch(3, "identifier1")).get(2, TimeUnit.SECONDS);
+        Batch next = indexer.sent.poll(2, TimeUnit.SECONDS);
+        assertEquals(next.ids(), Collections.singletonList(3L));
+        assertTrue(indexer.requeued.isEmpty());
+    }
+
+    private Future<?> submit(List<IndexJournal<String>> records) {
+        return fetcher.submit(() -> {
+            pipeline.submit(records);
+            return null;
+        });
+    }
+
+    /**
+     * A batch with a record for each identifier, the ids of the records start at the given one
+     */
+    private static List<IndexJournal<String>> batch(long firstId, String... identifiers) {
+        List<IndexJournal<String>> records = new ArrayList<>();
+        for ( String identifier : identifiers ) {
+            records.add(new IndexJournal<>(firstId++, identifier, 0));
+        }
+        return records;
+    }
+
+    private static class Batch {
+
+        private final List<IndexJournal<String>> records;
+        private final Runnable answered;
+
+        Batch(List<IndexJournal<String>> records, Runnable answered) {
+            this.records = records;
+            this.answered = answered;
+        }
+
+        List<Long> ids() {
+            List<Long> ids = new ArrayList<>();
+            for ( IndexJournal<String> record : records ) {
+                ids.add(record.getId());
+            }
+            return ids;
+        }
+    }
+
+    private static class RecordingIndexer implements ReindexPipeline.BatchIndexer {
+
+        private final BlockingQueue<Batch> sent = new LinkedBlockingQueue<>();
+        private final List<Long> sentIds = new CopyOnWriteArrayList<>();
+        private final BlockingQueue<List<IndexJournal<String>>> requeued = new LinkedBlockingQueue<>();
+        private volatile boolean failing = false;
+        //When set, the batches are answered after these millis instead of when the tests say so
+        private volatile long answerAfter = -1;
+
+        @Override
+        public void buildAndSend(List<IndexJournal<String>> records, Runnable answered) throws Exception {
+            if ( failing ) {
+                throw new IllegalStateException("No node available");
+            }
+            if ( answerAfter >= 0 ) {
+                Thread.sleep(Math.max(0, 20 - records.get(0).getId()));
+            }
+            for ( IndexJournal<String> record : records ) {
+                sentIds.add(record.getId());
+            }
+            if ( answerAfter >= 0 ) {
+                new Thread(() -> {
+                    try {
+                        Thread.sleep(answerAfter);
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                    answered.run();
+                }).start();
+            } else {
+                sent.add(new Batch(records, answered));
+            }
+        }
+
+        @Override
+        public void requeue(List<IndexJournal<String>> records) {
+            requeued.add(records);
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the pipeline on a generated file, which the filters name in its own directory
+ */
+public class ImageFilterPipelineTest {
+
+    private File directory;
+    private File oneByOneDirectory;
+    private File source;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = File.createTempFile("renditions", "");
+        directory.delete();
+        directory.mkdirs();
+        oneByOneDirectory = new File(directory.getPath() + "-onebyone");
+        oneByOneDirectory.mkdirs();
+        source = new File(directory, "dotGenerated_source.png");
+        BufferedImage image = new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for ( int x = 0; x < image.getWidth(); x++ ) {
+            for ( int y = 0; y < image.getHeight(); y++ ) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ImageIO.write(image, "png", source);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        for ( File dir : new File[]{directory, oneByOneDirectory} ) {
+            for ( File file : dir.listFiles() ) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testRun_NamesTheRenditionLikeTheOneByOneRun() throws Exception {
+        Map<String, String[]> parameters = parameters("Crop,Png");
+        parameters.put("crop_w", new String[]{"40"});
+        parameters.put("crop_h", new String[]{"30"});
+        List<ImageFilter> filters = Arrays.<ImageFilter>asList(new CropImageFilter(), new PngImageFilter());
+
+        File rendition = new ImageFilterPipeline(filters, new ImageRenditionCache(0)).run(source, parameters);
+
+        assertEquals(rendition.getName(), oneByOne(filters, parameters).getName());
+        BufferedImage image = ImageIO.read(rendition);
+        assertEquals(image.getWidth(), 40);
+        assertEquals(image.getHeight(), 30);
+        //Only the last filter writes
+        assertFalse(filters.get(0).getResultsFile(source, parameters, "png").exists());
+    }
+
+    @Test
+    public void testRun_LeavesTheFiltersWithNothingToDoOutOfTheName() throws Exception {
+        //A crop without a width returns the image it was given
+        Map<String, String[]> parameters = parameters("Crop,Png");
+        parameters.put("crop_w", new String[]{"0"});
+        List<ImageFilter> filters = Arrays.<ImageFilter>asList(new CropImageFilter(), new PngImageFilter());
+
+        File rendition = new ImageFilterPipeline(filters, new ImageRenditionCache(0)).run(source, parameters);
+
+        assertEquals(rendition, new PngImageFilter().getResultsFile(source, parameters, "png"));
+        assertEquals(rendition.getName(), oneByOne(filters, parameters).getName());
+        assertEquals(ImageIO.read(rendition).getWidth(), 100);
+    }
+
+    @Test
+    public void testRun_WhenNoFilterChangesTheImage_ReturnsTheOriginal() throws Exception {
+        Map<String, String[]> parameters = parameters("Crop");
+        List<ImageFilter> filters = Arrays.<ImageFilter>asList(new CropImageFilter());
+
+        assertEquals(new ImageFilterPipeline(filters, new ImageRenditionCache(0)).run(source, parameters), source);
+        assertEquals(directory.listFiles().length, 1);
+    }
+
+    @Test
+    public void testRun_WhenRenditionExists_DoesNotRenderItAgain() throws Exception {
+        Map<String, String[]> parameters = parameters("Crop,Png");
+        parameters.put("crop_w", new String[]{"40"});
+        parameters.put("crop_h", new String[]{"30"});
+        List<ImageFilter> filters = Arrays.<ImageFilter>asList(new CropImageFilter(), new PngImageFilter());
+        ImageRenditionCache cache = new ImageRenditionCache(0);
+
+        File rendition = new ImageFilterPipeline(filters, cache).run(source, parameters);
+        rendition.setLastModified(1000);
+        //Deleting the source shows the second run does not decode it
+        source.delete();
+
+        assertEquals(new ImageFilterPipeline(filters, cache).run(source, parameters), rendition);
+        assertEquals(rendition.lastModified(), 1000);
+        assertEquals(cache.size(), 1);
+    }
+
+    /**
+     * What {@link com.dotmarketing.portlets.contentlet.business.exporter.ImageFilterExporter} gets when it runs the
+     * filters one by one, on a copy of the source so the renditions of the pipeline are not reused
+     */
+    private File oneByOne(List<ImageFilter> filters, Map<String, String[]> parameters) throws Exception {
+        File file = new File(oneByOneDirectory, source.getName());
+        Files.copy(source.toPath(), file.toPath());
+        for ( ImageFilter filter : filters ) {
+            file = filter.runFilter(file, parameters);
+        }
+        return file;
+    }
+
+    private Map<String, String[]> parameters(String filters) {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("filter", new String[]{filters});
+        return parameters;
+    }
+
+}
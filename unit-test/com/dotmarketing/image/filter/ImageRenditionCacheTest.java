@@ -0,0 +1,122 @@
+package com.dotmarketing.image.filter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class ImageRenditionCacheTest {
+
+    @Test
+    public void testAdd_DeletesTheLeastRecentlyUsedRenditions() throws Exception {
+        File first = rendition(100);
+        File second = rendition(100);
+        File third = rendition(100);
+        try {
+            ImageRenditionCache cache = new ImageRenditionCache(250, 0);
+            cache.add(first);
+            cache.add(second);
+            cache.touch(first);
+            cache.add(third);
+
+            assertTrue(first.exists());
+            assertFalse(second.exists());
+            assertTrue(third.exists());
+            assertEquals(cache.size(), 2);
+            assertEquals(cache.getBytes(), 200);
+        } finally {
+            first.delete();
+            second.delete();
+            third.delete();
+        }
+    }
+
+    @Test
+    public void testAdd_KeepsTheNewestEvenWhenTooBig() throws Exception {
+        File small = rendition(10);
+        File big = rendition(500);
+        try {
+            ImageRenditionCache cache = new ImageRenditionCache(100, 0);
+            cache.add(small);
+            cache.add(big);
+
+            assertFalse(small.exists());
+            assertTrue(big.exists());
+            assertEquals(cache.getBytes(), 500);
+        } finally {
+            small.delete();
+            big.delete();
+        }
+    }
+
+    @Test
+    public void testAdd_KeepsTheEvictedRenditionsForTheGracePeriod() throws Exception {
+        File first = rendition(100);
+        File second = rendition(100);
+        try {
+            ImageRenditionCache cache = new ImageRenditionCache(150, 60000);
+            cache.add(first);
+            cache.add(second);
+
+            //A request may still be sending it
+            assertTrue(first.exists());
+            assertEquals(cache.size(), 1);
+            assertEquals(cache.getEvictedCount(), 1);
+
+            cache.deleteEvicted(System.currentTimeMillis() + 60000);
+            assertFalse(first.exists());
+            assertEquals(cache.getEvictedCount(), 0);
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    @Test
+    public void testAdd_WhenAnEvictedRenditionIsUsedAgain_KeepsIt() throws Exception {
+        File first = rendition(100);
+        File second = rendition(100);
+        try {
+            ImageRenditionCache cache = new ImageRenditionCache(150, 60000);
+            cache.add(first);
+            cache.add(second);
+            cache.touch(first);
+
+            cache.deleteEvicted(System.currentTimeMillis() + 60000);
+            assertTrue(first.exists());
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    @Test
+    public void testUnbounded_NeverDeletes() throws Exception {
+        File first = rendition(100);
+        File second = rendition(100);
+        try {
+            ImageRenditionCache cache = new ImageRenditionCache(0);
+            cache.add(first);
+            cache.add(second);
+            cache.add(first);
+
+            assertTrue(first.exists());
+            assertTrue(second.exists());
+            assertEquals(cache.getBytes(), 200);
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    private File rendition(int size) throws Exception {
+        File file = File.createTempFile("dotGenerated_", ".png");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[size]);
+        out.close();
+        return file;
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.dotmarketing.portlets.rules.business;
+
+import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.conditionlet.Conditionlet;
+import com.dotmarketing.portlets.rules.model.Condition;
+import com.dotmarketing.portlets.rules.model.ConditionGroup;
+import com.dotmarketing.portlets.rules.model.LogicalOperator;
+import com.dotmarketing.portlets.rules.model.ParameterModel;
+import com.dotmarketing.portlets.rules.model.Rule;
+import com.dotmarketing.portlets.rules.util.LogicalStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RulePlanTest {
+
+    @Test
+    public void resultsMatchTheLogicalStatement() {
+        // every combination of operators and values for up to 5 terms, against the statement ConditionGroup builds
+        for (int size = 0; size <= 5; size++) {
+            for (int ops = 0; ops < (1 << size); ops++) {
+                for (int values = 0; values < (1 << size); values++) {
+                    List<Term> terms = new ArrayList<>();
+                    LogicalStatement statement = new LogicalStatement();
+                    for (int i = 0; i < size; i++) {
+                        Term term = new Term((ops & (1 << i)) != 0 ? LogicalOperator.AND : LogicalOperator.OR,
+                                             (values & (1 << i)) != 0, 1 + i % 3);
+                        terms.add(term);
+                        if(term.op == LogicalOperator.AND) {
+                            statement.and(term::evaluate);
+                        } else {
+                            statement.or(term::evaluate);
+                        }
+                    }
+
+                    boolean expected = statement.evaluate();
+                    boolean actual = RulePlan.compile(terms, t -> t.op, t -> t).evaluate(null, null);
+                    assertEquals(actual, expected, "ops " + Integer.toBinaryString(ops) + " values " + Integer.toBinaryString(values));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void falseAndFalseOrTrueIsFalse() {
+        // A && B || C ==> A && ( B || C ), as the LogicalStatement evaluates it
+        List<Term> terms = Arrays.asList(new Term(LogicalOperator.AND, false, 1),
+                                         new Term(LogicalOperator.AND, false, 1),
+                                         new Term(LogicalOperator.OR, true, 1));
+
+        assertFalse(RulePlan.compile(terms, t -> t.op, t -> t).evaluate(null, null));
+    }
+
+    @Test
+    public void resultsMatchTheRuleEvaluation() {
+        // 3 groups of 2 conditions, the expensive conditions sorted before the cheap ones by priority
+        ValueConditionlet cheap = new ValueConditionlet(1);
+        ValueConditionlet expensive = new ValueConditionlet(10);
+        for (int ops = 0; ops < (1 << 9); ops++) {
+            for (int values = 0; values < (1 << 6); values++) {
+                Rule rule = new Rule();
+                rule.setId("rule1");
+                List<ConditionGroup> groups = new ArrayList<>();
+                for (int g = 0; g < 3; g++) {
+                    ConditionGroup group = new ConditionGroup();
+                    group.setId("group" + g);
+                    group.setPriority(g);
+                    group.setOperator((ops & (1 << g)) != 0 ? LogicalOperator.AND : LogicalOperator.OR);
+                    List<Condition> conditions = new ArrayList<>();
+                    for (int c = 0; c < 2; c++) {
+                        int i = g * 2 + c;
+                        Conditionlet conditionlet = c == 0 ? expensive : cheap;
+                        Condition condition = new Condition() {
+                            @Override
+                            public Conditionlet getConditionlet() {
+                                return conditionlet;
+                            }
+                        };
+                        condition.setId("condition" + i);
+                        condition.setPriority(c);
+                        condition.setOperator((ops & (1 << (3 + i))) != 0 ? LogicalOperator.AND : LogicalOperator.OR);
+                        condition.addValue("value", String.valueOf((values & (1 << i)) != 0));
+                        condition.checkValid();
+                        conditions.add(condition);
+                    }
+                    group.setConditions(conditions);
+                    groups.add(group);
+                }
+                rule.setGroups(groups);
+
+                boolean expected = rule.evaluateConditions(null, null, rule.getGroups());
+                boolean actual = RulePlan.compileConditions(rule, Condition::getConditionlet).evaluate(null, null);
+                assertEquals(actual, expected, "ops " + Integer.toBinaryString(ops) + " values " + Integer.toBinaryString(values));
+            }
+        }
+    }
+
+    @Test
+    public void invalidRulesAreLeftOutAndRetried() {
+        Rule rule = new Rule();
+        rule.setId("rule1");
+        ConditionGroup group = new ConditionGroup();
+        group.setId("group1");
+        group.setOperator(LogicalOperator.AND);
+        Condition condition = new Condition();
+        condition.setId("condition1");
+        condition.setConditionletId("NotRegisteredYet");
+        condition.setOperator(LogicalOperator.AND);
+        group.setConditions(new ArrayList<>(Collections.singletonList(condition)));
+        rule.setGroups(new ArrayList<>(Collections.singletonList(group)));
+        Set<Rule> rules = Collections.singleton(rule);
+
+        // the conditionlet is not registered yet
+        RulePlan plan = RulePlan.compile(rules, c -> null, a -> null, 1);
+        long now = System.currentTimeMillis();
+
+        assertTrue(plan.getRules().isEmpty());
+        assertEquals(plan.getExcludedCount(), 1);
+        assertTrue(plan.isCurrent(rules, 1, now));
+        assertFalse(plan.isCurrent(rules, 2, now), "a conditionlet was registered since");
+        assertFalse(plan.isCurrent(rules, 1, now + RulePlan.RETRY_MILLIS + 1), "time to try the rule again");
+
+        RulePlan empty = RulePlan.compile(Collections.emptySet(), c -> null, a -> null, 1);
+        assertTrue(empty.isCurrent(Collections.emptySet(), 1, now + RulePlan.RETRY_MILLIS + 1));
+    }
+
+    @Test
+    public void copiesOfTheSameRulesKeepThePlan() {
+        // left out of the plan, so compiling them does not load their actions
+        Set<Rule> rules = new LinkedHashSet<>(Arrays.asList(rule("rule1", 1000), rule("rule2", 2000)));
+        RulePlan plan = RulePlan.compile(rules, c -> null, a -> null, 1);
+
+        // a cache tier that deserializes the rules returns new instances
+        assertTrue(plan.isCompiledFrom(new LinkedHashSet<>(Arrays.asList(rule("rule1", 1000), rule("rule2", 2000)))));
+        assertFalse(plan.isCompiledFrom(new LinkedHashSet<>(Arrays.asList(rule("rule1", 1000), rule("rule2", 3000)))),
+                    "rule2 was saved since");
+        assertFalse(plan.isCompiledFrom(new LinkedHashSet<>(Arrays.asList(rule("rule2", 2000), rule("rule1", 1000)))),
+                    "the rules fire in another order");
+        assertFalse(plan.isCompiledFrom(new LinkedHashSet<>(Collections.singletonList(rule("rule1", 1000)))),
+                    "rule2 was deleted");
+    }
+
+    private static Rule rule(String id, long modDate) {
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setModDate(new Date(modDate));
+        ConditionGroup group = new ConditionGroup();
+        group.setId(id + "group");
+        group.setOperator(LogicalOperator.AND);
+        Condition condition = new Condition();
+        condition.setId(id + "condition");
+        condition.setConditionletId("NotRegistered");
+        condition.setOperator(LogicalOperator.AND);
+        group.setConditions(new ArrayList<>(Collections.singletonList(condition)));
+        rule.setGroups(new ArrayList<>(Collections.singletonList(group)));
+        return rule;
+    }
+
+    @Test
+    public void cheapTermsAreEvaluatedFirst() {
+        Term expensive = new Term(LogicalOperator.AND, true, 10);
+        Term cheap = new Term(LogicalOperator.AND, false, 1);
+
+        assertFalse(RulePlan.compile(Arrays.asList(expensive, cheap), t -> t.op, t -> t).evaluate(null, null));
+        assertEquals(cheap.evaluations, 1);
+        assertEquals(expensive.evaluations, 0);
+    }
+
+    @Test
+    public void cheapChainsAreEvaluatedFirst() {
+        // expensive || cheap, the cheap one being true decides it
+        Term expensive = new Term(LogicalOperator.AND, false, 10);
+        Term cheap = new Term(LogicalOperator.OR, true, 1);
+
+        assertTrue(RulePlan.compile(Arrays.asList(expensive, cheap), t -> t.op, t -> t).evaluate(null, null));
+        assertEquals(cheap.evaluations, 1);
+        assertEquals(expensive.evaluations, 0);
+    }
+
+    @Test
+    public void latencyIsCountedInItsBucket() {
+        RuleLatencyHistogram histogram = new RuleLatencyHistogram();
+        histogram.record(200000L);
+        histogram.record(7000000L);
+        histogram.record(2000000000L);
+
+        assertEquals(histogram.getCount(), 3);
+        assertEquals(histogram.toMap().get("<1ms"), 1L);
+        assertEquals(histogram.toMap().get("<10ms"), 1L);
+        assertEquals(histogram.toMap().get(">=1000ms"), 1L);
+    }
+
+    /**
+     * Evaluates to the "value" parameter of the condition
+     */
+    private static final class ValueConditionlet extends Conditionlet<ValueConditionlet.Instance> {
+
+        private final int cost;
+
+        ValueConditionlet(int cost) {
+            super("api.ruleengine.system.conditionlet.Value");
+            this.cost = cost;
+        }
+
+        @Override
+        public int getEvaluationCost() {
+            return cost;
+        }
+
+        @Override
+        public Instance instanceFrom(Map<String, ParameterModel> parameters) {
+            return new Instance(Boolean.parseBoolean(parameters.get("value").getValue()));
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest request, HttpServletResponse response, Instance instance) {
+            return instance.value;
+        }
+
+        static final class Instance implements RuleComponentInstance {
+
+            private final boolean value;
+
+            Instance(boolean value) {
+                this.value = value;
+            }
+        }
+    }
+
+    private static final class Term implements RulePlan.Clause {
+
+        private final LogicalOperator op;
+        private final boolean value;
+        private final int cost;
+        private int evaluations = 0;
+
+        Term(LogicalOperator op, boolean value, int cost) {
+            this.op = op;
+            this.value = value;
+            this.cost = cost;
+        }
+
+        boolean evaluate() {
+            evaluations++;
+            return value;
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            return evaluate();
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+}
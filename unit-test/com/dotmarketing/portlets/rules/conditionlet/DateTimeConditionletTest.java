@@ -171,7 +171,7 @@ public class DateTimeConditionletTest {
             LocalDateTime dateTime = LocalDateTime.parse(visitorsDateTime);
             Calendar mockDate = Calendar.getInstance();
             mockDate.setTime(dateTime.toDate());
-            when(geoIp2Util.getDateTime(mockIpAddress)).thenReturn(mockDate);
+            when(geoIp2Util.getDateTime(request)).thenReturn(mockDate);
             return this;
         }
 
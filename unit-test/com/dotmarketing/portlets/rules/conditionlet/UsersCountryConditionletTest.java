@@ -5,6 +5,7 @@ import com.dotcms.repackage.com.google.common.collect.Maps;
 import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.dotcms.unittest.TestUtil;
 import com.dotcms.util.GeoIp2CityDbUtil;
+import com.dotcms.util.GeoLocation;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.model.ParameterModel;
 import com.dotmarketing.portlets.rules.parameter.comparison.Comparison;
@@ -133,7 +134,7 @@ public class UsersCountryConditionletTest {
             .withIsoCode("US")
             .withRequestIpAddress(MOCK_IP_ADDRESS)
             .shouldBeFalse();
-        when(aCase.geoIp2Util.getCountryIsoCode(MOCK_IP_ADDRESS)).thenThrow(new GeoIp2Exception("Boom."));
+        when(aCase.geoIp2Util.getLocation(aCase.request)).thenReturn(null);
         assertThat(aCase.testDescription, runCase(aCase), is(false));
     }
 
@@ -187,7 +188,8 @@ public class UsersCountryConditionletTest {
         }
 
         TestCase withMockIpToIsoCode(String mockIpAddress, String mockIsoCode) throws IOException, GeoIp2Exception {
-            when(geoIp2Util.getCountryIsoCode(mockIpAddress)).thenReturn(mockIsoCode);
+            when(geoIp2Util.getLocation(request)).thenReturn(
+                new GeoLocation(mockIpAddress, mockIsoCode, null, null, null, null, null, null, null));
             return this;
         }
 
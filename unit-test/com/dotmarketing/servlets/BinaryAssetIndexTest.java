@@ -0,0 +1,101 @@
+package com.dotmarketing.servlets;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class BinaryAssetIndexTest {
+
+    private static final BinaryAssetIndex.Validator SERVABLE = entry -> true;
+
+    @Test
+    public void testGet_UntilTheFileChanges() throws Exception {
+        File file = write(File.createTempFile("asset", ".pdf"), "first");
+        try {
+            BinaryAssetIndex index = new BinaryAssetIndex(10, 60, SERVABLE);
+            BinaryAssetIndex.Entry entry = entry(file, "application/pdf", "doc.pdf", "inode");
+            index.put("/raw-data/id/file", entry);
+
+            assertSame(index.get("/raw-data/id/file"), entry);
+            assertEquals(entry.getETag(), "dot:inode:" + entry.getLastModified() + ":5");
+
+            write(file, "second");
+            assertNull(index.get("/raw-data/id/file"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testPut_ForgetsTheLeastRecentlyUsed() throws Exception {
+        File file = write(File.createTempFile("asset", ".jpg"), "image");
+        try {
+            BinaryAssetIndex index = new BinaryAssetIndex(2, 60, SERVABLE);
+            index.put("a", entry(file, "image/jpeg", "a.jpg", "a"));
+            index.put("b", entry(file, "image/jpeg", "b.jpg", "b"));
+            index.get("a");
+            index.put("c", entry(file, "image/jpeg", "c.jpg", "c"));
+
+            assertNotNull(index.get("a"));
+            assertNull(index.get("b"));
+            assertNotNull(index.get("c"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDisabled_RemembersNothing() throws Exception {
+        File file = write(File.createTempFile("asset", ".jpg"), "image");
+        try {
+            BinaryAssetIndex index = new BinaryAssetIndex(10, 0, SERVABLE);
+            index.put("a", entry(file, "image/jpeg", "a.jpg", "a"));
+
+            assertFalse(index.isEnabled());
+            assertNull(index.get("a"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testGet_OnlyWhileTheContentIsServable() throws Exception {
+        File file = write(File.createTempFile("asset", ".pdf"), "first");
+        try {
+            //Stands in for the live versions and anonymous permissions the servlet checks
+            Set<String> servable = new HashSet<>();
+            servable.add("inode1");
+            BinaryAssetIndex index = new BinaryAssetIndex(10, 60, entry -> servable.contains(entry.getInode()));
+            index.put("/contentAsset/raw-data/id/file", entry(file, "application/pdf", "doc.pdf", "inode1"));
+
+            assertNotNull(index.get("/contentAsset/raw-data/id/file"));
+
+            //Unpublished, archived, deleted or no longer readable by anonymous users
+            servable.remove("inode1");
+            assertNull(index.get("/contentAsset/raw-data/id/file"));
+
+            //The entry was dropped, it is not served again once the version is back
+            servable.add("inode1");
+            assertNull(index.get("/contentAsset/raw-data/id/file"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private BinaryAssetIndex.Entry entry(File file, String mimeType, String downloadName, String inode) {
+        return new BinaryAssetIndex.Entry(file, mimeType, downloadName, inode, "identifier", 1, false);
+    }
+
+    private File write(File file, String content) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+        return file;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.dotmarketing.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SpeedyAssetServletUtilTest {
+
+    @Test
+    public void testParseRange_ExplicitOpenAndSuffixRanges() {
+        List<SpeedyAssetServletUtil.ByteRange> ranges = SpeedyAssetServletUtil.parseRange("bytes=0-9,90-,-20,-500", 100);
+
+        assertEquals(ranges.size(), 4);
+        assertEquals(ranges.get(0), new SpeedyAssetServletUtil.ByteRange(0, 9, 100));
+        assertEquals(ranges.get(1), new SpeedyAssetServletUtil.ByteRange(90, 99, 100));
+        assertEquals(ranges.get(2), new SpeedyAssetServletUtil.ByteRange(80, 99, 100));
+        assertEquals(ranges.get(3), new SpeedyAssetServletUtil.ByteRange(0, 99, 100));
+    }
+
+    @Test
+    public void testParseRange_BeyondTwoGigabytes() {
+        long length = 5L * 1024 * 1024 * 1024;
+        SpeedyAssetServletUtil.ByteRange range = SpeedyAssetServletUtil.parseRange("bytes=4294967296-", length).get(0);
+
+        assertEquals(range.start, 4294967296L);
+        assertEquals(range.end, length - 1);
+        assertTrue(SpeedyAssetServletUtil.isSatisfiable(range, length));
+    }
+
+    @Test
+    public void testIsSatisfiable() {
+        assertFalse(SpeedyAssetServletUtil.isSatisfiable(SpeedyAssetServletUtil.parseRange("bytes=100-", 100).get(0), 100));
+        assertFalse(SpeedyAssetServletUtil.isSatisfiable(SpeedyAssetServletUtil.parseRange("bytes=20-10", 100).get(0), 100));
+        assertTrue(SpeedyAssetServletUtil.isSatisfiable(SpeedyAssetServletUtil.parseRange("bytes=99-", 100).get(0), 100));
+    }
+
+    @Test
+    public void testMatchesETag_QuotedWeakAndLists() {
+        assertTrue(SpeedyAssetServletUtil.matchesETag("\"dot:1:2:3\"", "\"dot:1:2:3\""));
+        assertTrue(SpeedyAssetServletUtil.matchesETag("dot:1:2:3", "\"dot:1:2:3\""));
+        assertTrue(SpeedyAssetServletUtil.matchesETag("\"other\", W/\"dot:1:2:3\"", "\"dot:1:2:3\""));
+        assertTrue(SpeedyAssetServletUtil.matchesETag("*", "\"dot:1:2:3\""));
+        assertFalse(SpeedyAssetServletUtil.matchesETag("\"dot:1:2:4\"", "\"dot:1:2:3\""));
+        assertFalse(SpeedyAssetServletUtil.matchesETag(null, "\"dot:1:2:3\""));
+    }
+
+    @Test
+    public void testMatchesETag_IfRangeOnlyMatchesStrongTags() {
+        assertTrue(SpeedyAssetServletUtil.matchesETag("\"dot:1:2:3\"", "\"dot:1:2:3\"", true));
+        assertFalse(SpeedyAssetServletUtil.matchesETag("W/\"dot:1:2:3\"", "\"dot:1:2:3\"", true));
+        assertFalse(SpeedyAssetServletUtil.matchesETag("*", "\"dot:1:2:3\"", true));
+    }
+
+    @Test
+    public void testTransfer_OnlyTheRange() throws Exception {
+        File file = File.createTempFile("range", ".bin");
+        try {
+            FileOutputStream content = new FileOutputStream(file);
+            for ( int i = 0; i < 100; i++ ) {
+                content.write(i);
+            }
+            content.close();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FileChannel from = new FileInputStream(file).getChannel();
+            try {
+                SpeedyAssetServletUtil.transfer(from, Channels.newChannel(out), 10, 5);
+            } finally {
+                from.close();
+            }
+
+            byte[] sent = out.toByteArray();
+            assertEquals(sent.length, 5);
+            for ( int i = 0; i < sent.length; i++ ) {
+                assertEquals(sent[i], (byte) (10 + i));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.dotmarketing.velocity;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class VelocityAstCacheTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static final String TEMPLATE = "#macro(greet $name)Hello $name!#end"
+            + "#set($items = [\"a\", \"b\"])"
+            + "#foreach($item in $items)#greet($item) #end"
+            + "#if($items.size() > 1)many#{else}one#end";
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws Exception {
+        directory = File.createTempFile("ast", "");
+        directory.delete();
+    }
+
+    @AfterMethod
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testGet_OnlyForTheSameSource() throws Exception {
+        VelocityAstCache cache = new VelocityAstCache(true, directory, DAY);
+        String checksum = VelocityAstCache.checksum("#set($a = 1)$a".getBytes("UTF-8"), "UTF-8");
+        SimpleNode root = new SimpleNode(0);
+        root.jjtAddChild(new SimpleNode(1), 0);
+
+        assertNull(cache.get("working/page.dotpage", checksum));
+        cache.put("working/page.dotpage", checksum, root);
+
+        SimpleNode cached = cache.get("working/page.dotpage", checksum);
+        assertNotNull(cached);
+        assertEquals(cached.jjtGetNumChildren(), 1);
+        assertTrue(cached.jjtGetChild(0).jjtGetParent() == cached);
+        assertNull(cache.get("working/page.dotpage", VelocityAstCache.checksum("$a".getBytes("UTF-8"), "UTF-8")));
+        assertNull(cache.get("live/page.dotpage", checksum));
+    }
+
+    @Test
+    public void testChecksum_DependsOnTheEncoding() throws Exception {
+        byte[] source = "Café".getBytes("UTF-8");
+
+        assertEquals(VelocityAstCache.checksum(source, "UTF-8"), VelocityAstCache.checksum(source.clone(), "UTF-8"));
+        assertFalse(VelocityAstCache.checksum(source, "UTF-8").equals(VelocityAstCache.checksum(source, "ISO-8859-1")));
+    }
+
+    @Test
+    public void testDisabled_KeepsNothing() {
+        VelocityAstCache cache = new VelocityAstCache(false, directory, DAY);
+        cache.put("page.dotpage", "checksum", new SimpleNode(0));
+
+        assertNull(cache.get("page.dotpage", "checksum"));
+        assertFalse(directory.exists());
+    }
+
+    @Test
+    public void testGet_ParsedTemplate_RendersLikeTheSource() throws Exception {
+        RuntimeInstance rsvc = new RuntimeInstance();
+        rsvc.init();
+        VelocityAstCache cache = new VelocityAstCache(true, directory, DAY);
+        String checksum = VelocityAstCache.checksum(TEMPLATE.getBytes("UTF-8"), "UTF-8");
+
+        cache.put("live/page.dotpage", checksum, rsvc.parse(new StringReader(TEMPLATE), "live/page.dotpage"));
+        SimpleNode cached = cache.get("live/page.dotpage", checksum);
+        assertNotNull(cached);
+
+        //The cached template goes first, so it has to register its macro itself
+        String rendered = render(rsvc, "live/page.dotpage", cached);
+        assertEquals(rendered, "Hello a! Hello b! many");
+        assertEquals(rendered, render(rsvc, "live/page.dotpage", rsvc.parse(new StringReader(TEMPLATE), "live/page.dotpage")));
+    }
+
+    @Test
+    public void testGet_WhenTheSourceChanged_DeletesTheFile() throws Exception {
+        VelocityAstCache cache = new VelocityAstCache(true, directory, DAY);
+        cache.put("page.dotpage", "checksum1", new SimpleNode(0));
+
+        assertNull(cache.get("page.dotpage", "checksum2"));
+        assertFalse(cache.getFile("page.dotpage").exists());
+    }
+
+    @Test
+    public void testPrune_DeletesTheFilesNotReadForTheMaxAge() throws Exception {
+        VelocityAstCache cache = new VelocityAstCache(true, directory, DAY);
+        cache.put("old.dotpage", "checksum", new SimpleNode(0));
+        cache.put("read.dotpage", "checksum", new SimpleNode(0));
+        cache.put("new.dotpage", "checksum", new SimpleNode(0));
+        long now = System.currentTimeMillis();
+        cache.getFile("old.dotpage").setLastModified(now - 2 * DAY);
+        cache.getFile("read.dotpage").setLastModified(now - 2 * DAY);
+        File temp = new File(directory, "left.tmp");
+        assertTrue(temp.createNewFile());
+        temp.setLastModified(now - DAY);
+
+        //Reading a file keeps it
+        assertNotNull(cache.get("read.dotpage", "checksum"));
+        //Not due yet, the last prune was when the cache was created
+        cache.pruneIfDue(now);
+        assertTrue(cache.getFile("old.dotpage").exists());
+
+        cache.pruneIfDue(now + 2 * 60 * 60 * 1000);
+        assertFalse(cache.getFile("old.dotpage").exists());
+        assertFalse(temp.exists());
+        assertNotNull(cache.get("read.dotpage", "checksum"));
+        assertNotNull(cache.get("new.dotpage", "checksum"));
+    }
+
+    private String render(RuntimeInstance rsvc, String name, SimpleNode root) throws Exception {
+        Template template = new Template();
+        template.setName(name);
+        InternalContextAdapterImpl ica = new InternalContextAdapterImpl(new VelocityContext());
+        ica.pushCurrentTemplateName(name);
+        ica.setCurrentResource(template);
+        try {
+            root.init(ica, rsvc);
+            StringWriter writer = new StringWriter();
+            root.render(ica, writer);
+            return writer.toString();
+        } finally {
+            ica.popCurrentTemplateName();
+            ica.setCurrentResource(null);
+        }
+    }
+
+}